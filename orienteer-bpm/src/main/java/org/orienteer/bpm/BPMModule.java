@@ -34,7 +34,7 @@ public class BPMModule extends AbstractOrienteerModule{
 	private ProcessApplicationReference processApplicationReference;
 	
 	protected BPMModule() {
-		super("bpm", 2, "devutils");
+		super("bpm", 3, "devutils");
 	}
 	
 	@Override
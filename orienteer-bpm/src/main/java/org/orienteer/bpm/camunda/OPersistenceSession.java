@@ -4,10 +4,12 @@ import com.google.common.collect.BiMap;
 import com.google.common.collect.HashBiMap;
 import com.orientechnologies.orient.core.db.ODatabaseSession;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OConcurrentModificationException;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OSchema;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import org.camunda.bpm.engine.OptimisticLockingException;
 import org.camunda.bpm.engine.impl.db.AbstractPersistenceSession;
 import org.camunda.bpm.engine.impl.db.DbEntity;
 import org.camunda.bpm.engine.impl.db.PersistenceSession;
@@ -131,7 +133,12 @@ public class OPersistenceSession extends AbstractPersistenceSession {
 
 	@Override
 	public void commit() {
-		db.commit();
+		try {
+			db.commit();
+		} catch (OConcurrentModificationException e) {
+			//Let engine handle it as a regular conflict: for example, job acquisition just skips such jobs
+			throw new OptimisticLockingException(e.getMessage());
+		}
 	}
 
 	@Override
@@ -147,7 +154,7 @@ public class OPersistenceSession extends AbstractPersistenceSession {
 	@Override
 	public void flush() {
 		boolean isInTransaction = db.getTransaction().isActive();
-		db.commit();
+		commit();
 		if(isInTransaction) db.begin();
 	}
 
@@ -188,8 +195,15 @@ public class OPersistenceSession extends AbstractPersistenceSession {
 	@Override
 	protected void updateEntity(DbEntityOperation operation) {
 		db.activateOnCurrentThread();
-		((IEntityHandler<DbEntity>) HandlersManager.get().getHandler(operation.getEntityType()))
+		try {
+			((IEntityHandler<DbEntity>) HandlersManager.get().getHandler(operation.getEntityType()))
 											.update(operation.getEntity(), this);
+		} catch (OptimisticLockingException e) {
+			//Failed operation is handled by the engine: listeners, for example job acquisition, can skip it.
+			//Otherwise the engine throws OptimisticLockingException itself
+			LOG.debug("Update of {} failed: {}", operation.getEntity(), e.getMessage());
+			operation.setFailed(true);
+		}
 	}
 
 	@Override
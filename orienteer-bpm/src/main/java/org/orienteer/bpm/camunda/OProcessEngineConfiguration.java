@@ -4,6 +4,7 @@ import org.camunda.bpm.BpmPlatform;
 import org.camunda.bpm.engine.ProcessEngine;
 import org.camunda.bpm.engine.ProcessEngineConfiguration;
 import org.camunda.bpm.engine.impl.cfg.StandaloneProcessEngineConfiguration;
+import org.camunda.bpm.engine.impl.jobexecutor.DefaultJobExecutor;
 import org.camunda.bpm.engine.impl.jobexecutor.FoxFailedJobCommandFactory;
 import org.camunda.bpm.engine.impl.persistence.GenericManagerFactory;
 import org.orienteer.bpm.camunda.scripting.OResolverFactory;
@@ -14,6 +15,29 @@ import org.orienteer.bpm.camunda.scripting.OResolverFactory;
  */
 public class OProcessEngineConfiguration extends StandaloneProcessEngineConfiguration {
 	
+	/**
+	 * Max number of jobs to be locked by a single acquisition
+	 */
+	protected int jobExecutorMaxJobsPerAcquisition = 20;
+	/**
+	 * Time to wait in milliseconds before next acquisition if no jobs were found
+	 */
+	protected int jobExecutorWaitTimeInMillis = 2000;
+	/**
+	 * Max time to wait in milliseconds between acquisitions if no jobs were found repeatedly
+	 */
+	protected long jobExecutorMaxWait = 30000;
+	/**
+	 * Time in milliseconds for which acquired jobs are locked
+	 */
+	protected int jobExecutorLockTimeInMillis = 5 * 60 * 1000;
+	protected int jobExecutorCorePoolSize = 4;
+	protected int jobExecutorMaxPoolSize = 16;
+	/**
+	 * Should be not less than {@link #jobExecutorMaxJobsPerAcquisition}: otherwise acquired jobs are rejected
+	 */
+	protected int jobExecutorQueueSize = 40;
+	
 	@Override
 	protected void initPersistenceProviders() {
 		addSessionFactory(new OPersistenceSessionFactory());
@@ -43,6 +67,16 @@ public class OProcessEngineConfiguration extends StandaloneProcessEngineConfigur
 	protected void initJobExecutor() {
 		super.initJobExecutor();
 		jobExecutor.setAutoActivate(true);
+		jobExecutor.setMaxJobsPerAcquisition(jobExecutorMaxJobsPerAcquisition);
+		jobExecutor.setWaitTimeInMillis(jobExecutorWaitTimeInMillis);
+		jobExecutor.setMaxWait(jobExecutorMaxWait);
+		jobExecutor.setLockTimeInMillis(jobExecutorLockTimeInMillis);
+		if(jobExecutor instanceof DefaultJobExecutor) {
+			DefaultJobExecutor defaultJobExecutor = (DefaultJobExecutor) jobExecutor;
+			defaultJobExecutor.setCorePoolSize(jobExecutorCorePoolSize);
+			defaultJobExecutor.setMaxPoolSize(jobExecutorMaxPoolSize);
+			defaultJobExecutor.setQueueSize(Math.max(jobExecutorQueueSize, jobExecutorMaxJobsPerAcquisition));
+		}
 	}
 	
 	@Override
@@ -63,6 +97,62 @@ public class OProcessEngineConfiguration extends StandaloneProcessEngineConfigur
 		resolverFactories.add(new OResolverFactory());
 	}
 	
+	public int getJobExecutorMaxJobsPerAcquisition() {
+		return jobExecutorMaxJobsPerAcquisition;
+	}
+
+	public void setJobExecutorMaxJobsPerAcquisition(int jobExecutorMaxJobsPerAcquisition) {
+		this.jobExecutorMaxJobsPerAcquisition = jobExecutorMaxJobsPerAcquisition;
+	}
+
+	public int getJobExecutorWaitTimeInMillis() {
+		return jobExecutorWaitTimeInMillis;
+	}
+
+	public void setJobExecutorWaitTimeInMillis(int jobExecutorWaitTimeInMillis) {
+		this.jobExecutorWaitTimeInMillis = jobExecutorWaitTimeInMillis;
+	}
+
+	public long getJobExecutorMaxWait() {
+		return jobExecutorMaxWait;
+	}
+
+	public void setJobExecutorMaxWait(long jobExecutorMaxWait) {
+		this.jobExecutorMaxWait = jobExecutorMaxWait;
+	}
+
+	public int getJobExecutorLockTimeInMillis() {
+		return jobExecutorLockTimeInMillis;
+	}
+
+	public void setJobExecutorLockTimeInMillis(int jobExecutorLockTimeInMillis) {
+		this.jobExecutorLockTimeInMillis = jobExecutorLockTimeInMillis;
+	}
+
+	public int getJobExecutorCorePoolSize() {
+		return jobExecutorCorePoolSize;
+	}
+
+	public void setJobExecutorCorePoolSize(int jobExecutorCorePoolSize) {
+		this.jobExecutorCorePoolSize = jobExecutorCorePoolSize;
+	}
+
+	public int getJobExecutorMaxPoolSize() {
+		return jobExecutorMaxPoolSize;
+	}
+
+	public void setJobExecutorMaxPoolSize(int jobExecutorMaxPoolSize) {
+		this.jobExecutorMaxPoolSize = jobExecutorMaxPoolSize;
+	}
+
+	public int getJobExecutorQueueSize() {
+		return jobExecutorQueueSize;
+	}
+
+	public void setJobExecutorQueueSize(int jobExecutorQueueSize) {
+		this.jobExecutorQueueSize = jobExecutorQueueSize;
+	}
+
 	public static OProcessEngineConfiguration get() {
 		return (OProcessEngineConfiguration) BpmPlatform.getDefaultProcessEngine().getProcessEngineConfiguration();
 	}
@@ -2,11 +2,15 @@ package org.orienteer.bpm.camunda.handler;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.wicket.util.string.Strings;
+import org.camunda.bpm.engine.OptimisticLockingException;
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.camunda.bpm.engine.impl.context.Context;
 import org.camunda.bpm.engine.impl.db.ListQueryParameterObject;
 import org.camunda.bpm.engine.impl.persistence.entity.JobEntity;
 import org.camunda.bpm.engine.impl.persistence.entity.MessageEntity;
@@ -21,6 +25,8 @@ import com.github.raymanrt.orientqb.query.Clause;
 import com.github.raymanrt.orientqb.query.Operator;
 import com.github.raymanrt.orientqb.query.Parameter;
 import com.github.raymanrt.orientqb.query.Query;
+import com.google.common.base.Objects;
+import com.orientechnologies.orient.core.metadata.schema.OClass.INDEX_TYPE;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 
@@ -30,6 +36,11 @@ import com.orientechnologies.orient.core.record.impl.ODocument;
 public class JobEntityHandler extends AbstractEntityHandler<JobEntity> {
 
 	public static final String OCLASS_NAME = "BPMJob";
+	/**
+	 * Index to support acquisition of jobs by job executor.
+	 * Jobs with and without due date are acquired by separate queries, so both of them can use the index
+	 */
+	public static final String INDEX_ACQUISITION = OCLASS_NAME+".acquisition";
 	
 	public JobEntityHandler() {
 		super(OCLASS_NAME);
@@ -59,7 +70,10 @@ public class JobEntityHandler extends AbstractEntityHandler<JobEntity> {
 			  .oProperty("jobDefinitionId", OType.STRING, 190)
 			  .oProperty("sequenceCounter", OType.LONG, 200)
 			  .oProperty("priority", OType.LONG, 210)
-			  .oProperty("userOperationLogEntryEvents", OType.LINKLIST, 220).assignVisualization("table");
+			  .oProperty("userOperationLogEntryEvents", OType.LINKLIST, 220).assignVisualization("table")
+			  .oIndex(INDEX_ACQUISITION, INDEX_TYPE.NOTUNIQUE, "suspensionState", "duedate")
+			  .oIndex(OCLASS_NAME+".jobHandlerType", INDEX_TYPE.NOTUNIQUE, "jobHandlerType")
+			  .oIndex(OCLASS_NAME+".processInstanceId", INDEX_TYPE.NOTUNIQUE, "processInstanceId");
 	}
 
 	@Override
@@ -94,6 +108,22 @@ public class JobEntityHandler extends AbstractEntityHandler<JobEntity> {
 		return entity;
 	}
 	
+	@Override
+	public void update(JobEntity entity, OPersistenceSession session) {
+		ODocument doc = readAsDocument(entity.getId(), session);
+		if(doc==null) throw new OptimisticLockingException(entity+" was deleted by another transaction concurrently");
+		if(entity.getLockOwner()!=null && !Objects.equal(entity.getLockOwner(), doc.field("lockOwner"))) {
+			//Job is going to be locked: it should not be changed since it was acquired.
+			//Concurrent commits of the same version are rejected by OrientDB MVCC
+			doc.reload(null, true);
+			if(doc.getVersion()!=entity.getRevision()) {
+				throw new OptimisticLockingException(entity+" was updated by another transaction concurrently");
+			}
+		}
+		mapToODocument(entity, doc, session);
+		session.getDatabase().save(doc);
+	}
+	
 	@Statement
 	public List<JobEntity> selectJobByQueryCriteria(OPersistenceSession session, JobQuery query) {
 		return  query(session, query);
@@ -125,29 +155,82 @@ public class JobEntityHandler extends AbstractEntityHandler<JobEntity> {
 	public List<JobEntity> selectExclusiveJobsToExecute(OPersistenceSession session, ListQueryParameterObject query) {
 		Map<String, Object> params = (Map<String, Object>) query.getParameter();
 	    Date now=(Date) params.get("now");
-	    int maxResults=query.getMaxResults();
-	    return queryList(session, "select from "+getSchemaClass()+
-	    					" where retries > 0"
-	    					+ " and (duedate is null or duedate <= ?)"
-	    					+ " and (lockOwner is null or lockExpirationTime < ?)"
-	    					+ " and exclusive = true"
-	    					+ " and suspensionState = 1"
-	    					+ " LIMIT ?", now, now, maxResults);
+	    return selectJobsToExecute(session, " and exclusive = true", now, query.getMaxResults(), null, null);
 	}
 	
 	@Statement
 	public List<JobEntity> selectNextJobsToExecute(OPersistenceSession session, ListQueryParameterObject query) {
 		Map<String, Object> params = (Map<String, Object>) query.getParameter();
 	    Date now=(Date) params.get("now");
-	    int maxResults=query.getMaxResults();
-	    String orderBy = query.getOrderBy();
-	    return queryList(session, "select from "+getSchemaClass()+
-	    					" where retries > 0"
-	    					+ " and (duedate is null or duedate <= ?)"
-	    					+ " and (lockOwner is null or lockExpirationTime < ?)"
-	    					+ " and suspensionState = 1"
-	    					+ (Strings.isEmpty(orderBy)?" order by "+orderBy:"")
-	    					+ " LIMIT ?", now, now, maxResults);
+	    return selectJobsToExecute(session, "", now, query.getMaxResults(), getAcquisitionOrderBy(), getAcquisitionComparator());
+	}
+	
+	/**
+	 * Select jobs which are ready to be executed.
+	 * Condition 'duedate is null or duedate &lt;= ?' can't be resolved by {@link #INDEX_ACQUISITION}:
+	 * so jobs without due date and jobs which are due are selected separately and merged
+	 * @param session persistence session
+	 * @param condition additional condition
+	 * @param now current time
+	 * @param maxResults max number of jobs to select
+	 * @param orderBy order of jobs or null
+	 * @param comparator comparator for the same order of merged jobs or null
+	 * @return jobs to be executed
+	 */
+	protected List<JobEntity> selectJobsToExecute(OPersistenceSession session, String condition, Date now, int maxResults,
+													String orderBy, Comparator<JobEntity> comparator) {
+		String sql = "select from "+getSchemaClass()+
+				" where suspensionState = 1"
+				+ " and %s"
+				+ " and retries > 0"
+				+ " and (lockOwner is null or lockExpirationTime < ?)"
+				+ condition
+				+ (!Strings.isEmpty(orderBy)?" order by "+orderBy:"")
+				+ " LIMIT ?";
+		List<JobEntity> ret = new ArrayList<>(queryList(session, String.format(sql, "duedate is null"), now, maxResults));
+		ret.addAll(queryList(session, String.format(sql, "duedate <= ?"), now, now, maxResults));
+		if(comparator!=null) ret.sort(comparator);
+		return ret.size()>maxResults?new ArrayList<>(ret.subList(0, maxResults)):ret;
+	}
+	
+	/**
+	 * Order of jobs acquisition according to settings of job executor.
+	 * Order of SQL of a relational DB provided by {@link ListQueryParameterObject} is not applicable for OrientDB
+	 * @return order by clause or null if order doesn't matter
+	 */
+	protected String getAcquisitionOrderBy() {
+		ProcessEngineConfigurationImpl config = Context.getProcessEngineConfiguration();
+		if(config==null) return null;
+		List<String> orderBy = new ArrayList<>();
+		if(config.isJobExecutorAcquireByPriority()) orderBy.add("priority desc");
+		//'timer' goes before 'message'
+		if(config.isJobExecutorPreferTimerJobs()) orderBy.add("type desc");
+		if(config.isJobExecutorAcquireByDueDate()) orderBy.add("duedate asc");
+		return orderBy.isEmpty()?null:Strings.join(", ", orderBy);
+	}
+	
+	/**
+	 * Comparator for the same order as {@link #getAcquisitionOrderBy()}. Jobs without due date go first
+	 * @return comparator or null if order doesn't matter
+	 */
+	protected Comparator<JobEntity> getAcquisitionComparator() {
+		ProcessEngineConfigurationImpl config = Context.getProcessEngineConfiguration();
+		if(config==null) return null;
+		Comparator<JobEntity> ret = null;
+		if(config.isJobExecutorAcquireByPriority()) {
+			ret = thenComparing(ret, Comparator.comparingLong(JobEntity::getPriority).reversed());
+		}
+		if(config.isJobExecutorPreferTimerJobs()) {
+			ret = thenComparing(ret, Comparator.comparing(JobEntity::getType, Comparator.nullsLast(Comparator.<String>reverseOrder())));
+		}
+		if(config.isJobExecutorAcquireByDueDate()) {
+			ret = thenComparing(ret, Comparator.comparing(JobEntity::getDuedate, Comparator.nullsFirst(Comparator.<Date>naturalOrder())));
+		}
+		return ret;
+	}
+	
+	private static <T> Comparator<T> thenComparing(Comparator<T> comparator, Comparator<T> next) {
+		return comparator==null?next:comparator.thenComparing(next);
 	}
 	
 	@Statement
@@ -0,0 +1,80 @@
+package org.orienteer.bpm;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.camunda.bpm.BpmPlatform;
+import org.camunda.bpm.engine.delegate.DelegateExecution;
+import org.camunda.bpm.engine.delegate.JavaDelegate;
+import org.camunda.bpm.engine.test.Deployment;
+import org.camunda.bpm.engine.test.ProcessEngineRule;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.orienteer.junit.OrienteerTestRunner;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Singleton;
+
+/**
+ * Benchmark of job acquisition: pushes a lot of async and timer jobs through the engine.
+ * Every process instance produces one async job and one timer job.
+ * Skipped by default. Run: mvn test -Dtest=JobAcquisitionBenchmark -Dorienteer.bpm.benchmark=true [-Dorienteer.bpm.benchmark.instances=5000]
+ */
+@RunWith(OrienteerTestRunner.class)
+@Singleton
+public class JobAcquisitionBenchmark {
+
+	private static final Logger LOG = LoggerFactory.getLogger(JobAcquisitionBenchmark.class);
+
+	private static final AtomicInteger EXECUTED = new AtomicInteger();
+
+	/**
+	 * Delegate which does nothing: so only overhead of the engine is measured
+	 */
+	public static class NoopDelegate implements JavaDelegate {
+		@Override
+		public void execute(DelegateExecution execution) throws Exception {
+			EXECUTED.incrementAndGet();
+		}
+	}
+
+	@Rule
+	public ProcessEngineRule processEngineRule = new ProcessEngineRule(
+			BpmPlatform.getProcessEngineService().getDefaultProcessEngine());
+
+	@Before
+	public void checkEnabled() {
+		assumeTrue(Boolean.getBoolean("orienteer.bpm.benchmark"));
+	}
+
+	@Test
+	@Deployment(resources = { "jobs-benchmark.bpmn" })
+	public void benchmarkJobs() throws InterruptedException {
+		int instances = Integer.getInteger("orienteer.bpm.benchmark.instances", 2000);
+		long timeout = Long.getLong("orienteer.bpm.benchmark.timeout", 600000);
+		EXECUTED.set(0);
+		long start = System.currentTimeMillis();
+		for (int i = 0; i < instances; i++) {
+			processEngineRule.getRuntimeService().startProcessInstanceByKey("jobsbenchmark");
+		}
+		long started = System.currentTimeMillis();
+		LOG.info("Started {} process instances in {} ms", instances, started - start);
+		long active;
+		do {
+			Thread.sleep(500);
+			active = processEngineRule.getRuntimeService().createProcessInstanceQuery()
+						.processDefinitionKey("jobsbenchmark").count();
+		} while (active > 0 && System.currentTimeMillis() - started < timeout);
+		long duration = System.currentTimeMillis() - started;
+		int jobs = instances * 2;
+		LOG.info("Executed {} jobs of {} process instances in {} ms: {} jobs/sec",
+					jobs, instances, duration, jobs * 1000L / Math.max(duration, 1));
+		assertEquals("Not all process instances were completed in time", 0, active);
+		assertEquals(instances, EXECUTED.get());
+	}
+}
@@ -1,5 +1,6 @@
 package org.orienteer.bpm;
 
+import org.orienteer.bpm.camunda.handler.JobEntityHandler;
 import org.orienteer.bpm.camunda.handler.TaskEntityHandler;
 import org.orienteer.core.OrienteerWebApplication;
 import org.orienteer.core.module.IOrienteerModule;
@@ -11,18 +12,26 @@ import org.slf4j.LoggerFactory;
 
 import static org.junit.Assert.*;
 
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
 
+import org.apache.wicket.ThreadContext;
 import org.camunda.bpm.BpmPlatform;
 import org.camunda.bpm.engine.ProcessEngine;
 import org.camunda.bpm.engine.ProcessEngineException;
 import org.camunda.bpm.engine.RuntimeService;
 import org.camunda.bpm.engine.externaltask.ExternalTask;
 import org.camunda.bpm.engine.externaltask.LockedExternalTask;
+import org.camunda.bpm.engine.impl.cfg.ProcessEngineConfigurationImpl;
+import org.camunda.bpm.engine.impl.db.DbEntity;
+import org.camunda.bpm.engine.impl.db.entitymanager.OptimisticLockingListener;
+import org.camunda.bpm.engine.impl.db.entitymanager.operation.DbOperation;
+import org.camunda.bpm.engine.impl.persistence.entity.JobEntity;
 import org.camunda.bpm.engine.impl.util.ClockUtil;
 import org.camunda.bpm.engine.runtime.Execution;
 import org.camunda.bpm.engine.runtime.Job;
@@ -44,6 +53,7 @@ import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 
 import junit.framework.AssertionFailedError;
+import ru.ydn.wicket.wicketorientdb.utils.DBClosure;
 
 @RunWith(OrienteerTestRunner.class)
 @Singleton
@@ -315,6 +325,60 @@ public class TestBPMModule {
 		assertProcessEnded(processInstance.getId());
 	}
 	
+	@Test
+	@Deployment(resources = {"timer-job.bpmn"})
+	public void testConcurrentlyLockedJobIsNotUpdated() throws InterruptedException {
+		ProcessInstance processInstance = processEngineRule.getRuntimeService().startProcessInstanceByKey("timer-job");
+		Job job = processEngineRule.getManagementService().createJobQuery().processInstanceId(processInstance.getId()).singleResult();
+		assertNotNull(job);
+		ProcessEngineConfigurationImpl config = (ProcessEngineConfigurationImpl) processEngineRule.getProcessEngine().getProcessEngineConfiguration();
+		List<DbOperation> failed = new ArrayList<>();
+		config.getCommandExecutorTxRequired().execute(commandContext -> {
+			JobEntity jobEntity = commandContext.getJobManager().findJobById(job.getId());
+			commandContext.getDbEntityManager().registerOptimisticLockingListener(new OptimisticLockingListener() {
+				@Override
+				public Class<? extends DbEntity> getEntityType() {
+					return JobEntity.class;
+				}
+
+				@Override
+				public void failedOperation(DbOperation operation) {
+					failed.add(operation);
+				}
+			});
+			//Another job executor acquires the same job meanwhile
+			OrienteerWebApplication app = tester.getApplication();
+			Thread concurrent = new Thread(() -> {
+				ThreadContext.setApplication(app);
+				try {
+					DBClosure.sudoConsumer(db -> {
+						db.command("update "+JobEntityHandler.OCLASS_NAME+" set lockOwner = ?, lockExpirationTime = ? where id = ?",
+								"concurrent", new Date(System.currentTimeMillis() + 60_000), job.getId()).close();
+					});
+				} finally {
+					ThreadContext.detach();
+				}
+			});
+			concurrent.start();
+			try {
+				concurrent.join();
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			jobEntity.setLockOwner("test");
+			jobEntity.setLockExpirationTime(new Date(System.currentTimeMillis() + 60_000));
+			return null;
+		});
+		//Conflict is reported to the engine instead of failing of the whole flush
+		assertEquals(1, failed.size());
+		assertTrue(failed.get(0).isFailed());
+		ODocument doc = DBClosure.sudo(db -> (ODocument) db.query("select from "+JobEntityHandler.OCLASS_NAME+" where id = ?", job.getId())
+																.elementStream().findFirst().orElse(null));
+		assertNotNull(doc);
+		assertEquals("concurrent", doc.field("lockOwner"));
+		processEngineRule.getRuntimeService().deleteProcessInstance(processInstance.getId(), "test");
+	}
+	
 	private static boolean touchedFromScript = false; 
 	public static void touchFromScript() {
 		touchedFromScript = true;
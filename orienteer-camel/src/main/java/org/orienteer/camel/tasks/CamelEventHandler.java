@@ -35,8 +35,8 @@ public class CamelEventHandler extends EventNotifierSupport{
         	ctx.getRuntimeSession().incrementCurrentProgress();
         }
 //        LOG.info("Event = "+ event);		
-        ctx.getPersistedSession().appendOutput(event.toString());
-        ctx.persist();
+        //Output is buffered and flushed by OTaskManager
+        ctx.getRuntimeSession().appendOutput(event.toString());
 	}
 
 	@Override
@@ -16,6 +16,7 @@ import java.util.*;
 public final class CustomAttribute implements Serializable
 {
 	private static final Map<String, CustomAttribute> CACHE = new HashMap<String, CustomAttribute>();
+	private static volatile CustomAttribute[] INDEXED = new CustomAttribute[0];
 	
 	/**
 	 * Is this property calculable or not
@@ -84,6 +85,10 @@ public final class CustomAttribute implements Serializable
      * Order in which to sort data
      */
 	public static final CustomAttribute SORT_ORDER = create("orienteer.sortorder", OType.BOOLEAN, null, null, false, true);
+	/**
+	 * Should value of this property be indexed for generic search or not
+	 */
+	public static final CustomAttribute SEARCHABLE = create("orienteer.searchable", OType.BOOLEAN, false, false, true);
 	/**
 	 * Default search query for class
 	 */
@@ -113,6 +118,7 @@ public final class CustomAttribute implements Serializable
 	private final Class<?> javaClass;
 	private final boolean encode;
 	private final boolean hiearchical;
+	private final int index;
 	
 	private CustomAttribute(String name, OType type, Class<?> javaClass, Object defaultValue, boolean encode, boolean hiearchical)
 	{
@@ -122,7 +128,13 @@ public final class CustomAttribute implements Serializable
 		this.defaultValue = defaultValue;
 		this.encode = encode;
 		this.hiearchical = hiearchical;
-		CACHE.put(name, this);
+		synchronized (CACHE) {
+			this.index = INDEXED.length;
+			CustomAttribute[] indexed = Arrays.copyOf(INDEXED, index+1);
+			indexed[index] = this;
+			INDEXED = indexed;
+			CACHE.put(name, this);
+		}
 	}
 	
 	/*public static CustomAttribute create(String name, OType type, Object defaultValue, boolean encode) {
@@ -167,6 +179,17 @@ public final class CustomAttribute implements Serializable
 	public static Collection<CustomAttribute> values() {
 		return Collections.unmodifiableCollection(CACHE.values());
 	}
+	
+	/**
+	 * @return all custom attributes ordered by their indexes
+	 */
+	static CustomAttribute[] indexedValues() {
+		return INDEXED;
+	}
+	
+	int getIndex() {
+		return index;
+	}
 
 	public String getName() {
 		return name;
@@ -219,19 +242,29 @@ public final class CustomAttribute implements Serializable
 	
 	@SuppressWarnings("unchecked")
 	public <V> V getValue(OProperty property, V defaultValue)
+	{
+		CustomAttributesSnapshot snapshot = CustomAttributesSnapshot.get(property.getOwnerClass());
+		V ret = (V) (snapshot!=null?CustomAttributesSnapshot.unwrap(snapshot.getValue(this, property)):readValue(property));
+		return ret!=null?ret:defaultValue;
+	}
+	
+	/**
+	 * Read value of this attribute for a property directly from schema
+	 * @param property property to read from
+	 * @return value of attribute or null
+	 */
+	Object readValue(OProperty property)
 	{
 		String stringValue = property.getCustom(name);
 		if(encode) stringValue = decodeCustomValue(stringValue);
-		V ret;
 		if(OProperty.class.isAssignableFrom(javaClass))
 		{
-			ret = (V)resolveProperty(property.getOwnerClass(), stringValue);
+			return resolveProperty(property.getOwnerClass(), stringValue);
 		}
 		else
 		{
-			ret = (V) OType.convert(stringValue, javaClass);
+			return OType.convert(stringValue, javaClass);
 		}
-		return ret!=null?ret:defaultValue;
 	}
 	
 	public <V> void setValue(OProperty property, V value)
@@ -268,24 +301,38 @@ public final class CustomAttribute implements Serializable
 	
 	@SuppressWarnings("unchecked")
 	public <V> V getValue(OClass oClass, V defaultValue, boolean hiearchical)
+	{
+		CustomAttributesSnapshot snapshot = CustomAttributesSnapshot.get(oClass);
+		V ret = (V) (snapshot!=null?CustomAttributesSnapshot.unwrap(snapshot.getValue(this, oClass, hiearchical))
+								   :readValue(oClass, hiearchical));
+		return ret!=null?ret:defaultValue;
+	}
+	
+	/**
+	 * Read value of this attribute for a class directly from schema
+	 * @param oClass class to read from
+	 * @param hiearchical should super classes be checked if value is not defined
+	 * @return value of attribute or null
+	 */
+	Object readValue(OClass oClass, boolean hiearchical)
 	{
 		String stringValue = oClass.getCustom(name);
 		if(encode) stringValue = decodeCustomValue(stringValue);
-		V ret;
+		Object ret;
 		if(OProperty.class.isAssignableFrom(javaClass))
 		{
-			ret = (V)resolveProperty(oClass, stringValue);
+			ret = resolveProperty(oClass, stringValue);
 		}
 		else
 		{
-			ret = (V) OType.convert(stringValue, javaClass);
+			ret = OType.convert(stringValue, javaClass);
 		}
 		if(ret==null && hiearchical) {
 			for(OClass superClass : oClass.getSuperClasses()) {
-				if((ret=getValue(superClass, null, true))!=null) break;
+				if((ret=readValue(superClass, true))!=null) break;
 			}
 		}
-		return ret!=null?ret:defaultValue;
+		return ret;
 	}
 	
 	public <V> void setValue(OClass oClass, V value) {
@@ -0,0 +1,143 @@
+package org.orienteer.core;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.MapMaker;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OProperty;
+import org.orienteer.core.util.OSchemaVersionedCache;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Immutable typed snapshot of {@link CustomAttribute} values for a single version of a schema.
+ * Values are decoded and converted once per class and schema version: including values inherited from super classes.
+ * Snapshot is replaced as a whole as soon as version of a schema is changed.
+ */
+final class CustomAttributesSnapshot {
+
+	private static final Object NULL = new Object();
+
+	//Snapshots strongly refer to schema objects, so number of them should be limited
+	private static final int MAX_SNAPSHOTS = 32;
+	private static final Cache<Object, CustomAttributesSnapshot> SNAPSHOTS = CacheBuilder.newBuilder()
+																				.weakKeys()
+																				.maximumSize(MAX_SNAPSHOTS)
+																				.build();
+
+	//Fast path: the most of lookups are done against the same schema
+	private static volatile CustomAttributesSnapshot last;
+
+	private final Object schema;
+	private final int version;
+	//Identity based maps: equals() and hashCode() of schema objects acquire schema locks
+	private final ConcurrentMap<OClass, ClassAttributes> classes = new MapMaker().weakKeys().makeMap();
+	private final ConcurrentMap<OProperty, Object[]> properties = new MapMaker().weakKeys().makeMap();
+
+	private CustomAttributesSnapshot(Object schema, int version) {
+		this.schema = schema;
+		this.version = version;
+	}
+
+	/**
+	 * Obtain snapshot for a schema of specified class
+	 * @param oClass class to obtain snapshot for
+	 * @return actual snapshot or null if schema of the class is unknown
+	 */
+	static CustomAttributesSnapshot get(OClass oClass) {
+		Object schema = OSchemaVersionedCache.getSchema(oClass);
+		if(schema==null) return null;
+		int version = OSchemaVersionedCache.getSchemaVersion(oClass);
+		CustomAttributesSnapshot snapshot = last;
+		if(snapshot!=null && snapshot.schema==schema && snapshot.version==version) return snapshot;
+		snapshot = SNAPSHOTS.getIfPresent(schema);
+		if(snapshot==null || snapshot.version!=version) {
+			snapshot = new CustomAttributesSnapshot(schema, version);
+			SNAPSHOTS.put(schema, snapshot);
+		}
+		last = snapshot;
+		return snapshot;
+	}
+
+	/**
+	 * Lookup value of a custom attribute for a class
+	 * @param attr custom attribute
+	 * @param oClass class to lookup for
+	 * @param hiearchical should be value looked up in super classes or not
+	 * @return value of the attribute or {@link #NULL} if value is not defined
+	 */
+	Object getValue(CustomAttribute attr, OClass oClass, boolean hiearchical) {
+		ClassAttributes attributes = getClassAttributes(oClass);
+		Object[] values = hiearchical?attributes.inherited:attributes.own;
+		return attr.getIndex()<values.length?values[attr.getIndex()]:attr.readValue(oClass, hiearchical);
+	}
+
+	/**
+	 * Lookup value of a custom attribute for a property
+	 * @param attr custom attribute
+	 * @param property property to lookup for
+	 * @return value of the attribute
+	 */
+	Object getValue(CustomAttribute attr, OProperty property) {
+		Object[] values = properties.get(property);
+		if(values==null) {
+			getClassAttributes(property.getOwnerClass());
+			values = properties.get(property);
+		}
+		return values!=null && attr.getIndex()<values.length?values[attr.getIndex()]:attr.readValue(property);
+	}
+
+	static Object unwrap(Object value) {
+		return value==NULL?null:value;
+	}
+
+	private ClassAttributes getClassAttributes(OClass oClass) {
+		ClassAttributes ret = classes.get(oClass);
+		if(ret==null) {
+			//computeIfAbsent is not used: attributes of super classes are built recursively
+			ret = new ClassAttributes(oClass);
+			ClassAttributes prev = classes.putIfAbsent(oClass, ret);
+			if(prev!=null) ret = prev;
+		}
+		return ret;
+	}
+
+	private final class ClassAttributes {
+		private final Object[] own;
+		private final Object[] inherited;
+
+		public ClassAttributes(OClass oClass) {
+			CustomAttribute[] attrs = CustomAttribute.indexedValues();
+			own = new Object[attrs.length];
+			inherited = new Object[attrs.length];
+			for (CustomAttribute attr : attrs) {
+				Object value = attr.readValue(oClass, false);
+				own[attr.getIndex()] = value!=null?value:NULL;
+			}
+			Arrays.fill(inherited, NULL);
+			Collection<OClass> superClasses = oClass.getSuperClasses();
+			for (int i = 0; i < attrs.length; i++) {
+				if(own[i]!=NULL) inherited[i] = own[i];
+				else {
+					for (OClass superClass : superClasses) {
+						Object value = getClassAttributes(superClass).inherited[i];
+						if(value!=NULL) {
+							inherited[i] = value;
+							break;
+						}
+					}
+				}
+			}
+			for (OProperty property : oClass.declaredProperties()) {
+				Object[] values = new Object[attrs.length];
+				for (CustomAttribute attr : attrs) {
+					Object value = attr.readValue(property);
+					values[attr.getIndex()] = value!=null?value:NULL;
+				}
+				properties.put(property, values);
+			}
+		}
+	}
+}
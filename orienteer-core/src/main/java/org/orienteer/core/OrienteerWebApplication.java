@@ -41,6 +41,7 @@ import org.apache.wicket.util.string.Strings;
 import org.orienteer.core.boot.loader.OrienteerClassLoader;
 import org.orienteer.core.component.meta.WicketPropertyResolver;
 import org.orienteer.core.component.visualizer.UIVisualizersRegistry;
+import org.orienteer.core.dao.DAO;
 import org.orienteer.core.hook.CalculablePropertiesHook;
 import org.orienteer.core.hook.CallbackHook;
 import org.orienteer.core.hook.ReferencesConsistencyHook;
@@ -50,6 +51,7 @@ import org.orienteer.core.module.PerspectivesModule.IOPerspective;
 import org.orienteer.core.orientd.plugin.OrienteerHazelcastPlugin;
 import org.orienteer.core.service.IOClassIntrospector;
 import org.orienteer.core.service.OrienteerEmbeddedStartupListener;
+import org.orienteer.core.tasks.OTaskManager;
 import org.orienteer.core.util.OSQLFunctions;
 import org.orienteer.core.util.WicketProtector;
 import org.orienteer.core.util.converter.ODateConverter;
@@ -57,6 +59,7 @@ import org.orienteer.core.web.HomePage;
 import org.orienteer.core.web.LoginPage;
 import org.orienteer.core.web.UnauthorizedPage;
 import org.orienteer.core.wicket.pageStore.HazelcastPageStore;
+import org.orienteer.core.wicket.pageStore.HazelcastPagesCache;
 import org.orienteer.core.wicket.pageStore.OrientDbDataStore;
 import org.orienteer.core.widget.IWidgetTypesRegistry;
 import org.reflections.Reflections;
@@ -131,12 +134,52 @@ public class OrienteerWebApplication extends OrientDbWebApplication
 	@Named("orientdb.server.config")
 	private String serverConfig;
 
+	@Inject(optional=true)
+	@Named("orienteer.pages.cache.size")
+	private int pagesCacheSize = HazelcastPagesCache.DEFAULT_PAGES_PER_SESSION;
+
+	@Inject(optional=true)
+	@Named("orienteer.pages.cache.nearcache")
+	private boolean pagesCacheNearCache = false;
+
+	private HazelcastPagesCache pagesCache;
+
 	@Inject(optional=true)
 	public OrienteerWebApplication setConfigurationType(@Named("orienteer.production") boolean production) {
 		setConfigurationType(production?RuntimeConfigurationType.DEPLOYMENT:RuntimeConfigurationType.DEVELOPMENT);
 		return this;
 	}
 	
+	@Inject(optional=true)
+	public OrienteerWebApplication setDAOGeneration(@Named("orienteer.dao.generation") boolean generation) {
+		DAO.setGenerationEnabled(generation);
+		return this;
+	}
+	
+	@Inject(optional=true)
+	public OrienteerWebApplication setCalculableMemoization(@Named("orienteer.calculable.memoize") boolean memoize) {
+		CalculablePropertiesHook.setMemoizationEnabled(memoize);
+		return this;
+	}
+	
+	@Inject(optional=true)
+	public OrienteerWebApplication setTasksPoolSize(@Named("orienteer.tasks.pool.size") int poolSize) {
+		OTaskManager.setPoolSize(poolSize);
+		return this;
+	}
+	
+	@Inject(optional=true)
+	public OrienteerWebApplication setTasksQueueSize(@Named("orienteer.tasks.queue.size") int queueSize) {
+		OTaskManager.setQueueSize(queueSize);
+		return this;
+	}
+	
+	@Inject(optional=true)
+	public OrienteerWebApplication setTasksFlushInterval(@Named("orienteer.tasks.flush.interval") long flushInterval) {
+		OTaskManager.setFlushInterval(flushInterval);
+		return this;
+	}
+	
 	@Inject
 	@Override
 	public void setOrientDbSettings(IOrientDbSettings orientDbSettings) {
@@ -201,6 +244,7 @@ public class OrienteerWebApplication extends OrientDbWebApplication
 		registerModule(UserOnlineModule.class);
 		registerModule(TaskManagerModule.class);
 		registerModule(OrienteerClusterModule.class);
+		registerModule(SearchIndexModule.class);
 		getOrientDbSettings().addORecordHooks(CalculablePropertiesHook.class, 
 											  ReferencesConsistencyHook.class,
 											  CallbackHook.class);
@@ -301,6 +345,13 @@ public class OrienteerWebApplication extends OrientDbWebApplication
         return empty();
     }
 
+	/**
+	 * @return cache of pages in Hazelcast, if default page manager is used and already created
+	 */
+	public Optional<HazelcastPagesCache> getPagesCache() {
+		return Optional.ofNullable(pagesCache);
+	}
+
 	public synchronized List<IOrienteerModule> getRegisteredModules() {
 		if(!registeredModulesSorted){
 			LinkedHashMap<String, IOrienteerModule> sorted = new LinkedHashMap<String, IOrienteerModule>();
@@ -538,7 +589,9 @@ public class OrienteerWebApplication extends OrientDbWebApplication
             @Override
             protected IPageStore newPageStore(IDataStore dataStore) {
                 ISerializer pageSerializer = application.getFrameworkSettings().getSerializer();
-                return new HazelcastPageStore(pageSerializer, dataStore);
+                HazelcastPageStore pageStore = new HazelcastPageStore(pageSerializer, dataStore, pagesCacheSize, pagesCacheNearCache);
+                pagesCache = pageStore.getPagesCache();
+                return pageStore;
             }
         };
     }
@@ -0,0 +1,48 @@
+package org.orienteer.core.component.command;
+
+import org.apache.wicket.markup.html.link.AbstractLink;
+import org.apache.wicket.markup.html.link.ResourceLink;
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.model.ResourceModel;
+import org.orienteer.core.component.BootstrapType;
+import org.orienteer.core.component.FAIconType;
+import org.orienteer.core.component.table.OrienteerDataTable;
+import org.orienteer.core.resource.OClassExportResource;
+import org.orienteer.core.util.export.ExportFormat;
+
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+
+/**
+ * Command to stream all documents of a class into specified {@link ExportFormat} by {@link OClassExportResource}
+ * @param <T> the type of an entity to which this command can be applied
+ */
+public class ExportOClassCommand<T> extends Command<T> {
+
+	private final IModel<OClass> classModel;
+	private final ExportFormat format;
+
+	public ExportOClassCommand(OrienteerDataTable<T, ?> table, IModel<OClass> classModel, ExportFormat format) {
+		super(new ResourceModel("command.exportAll"), table);
+		this.classModel = classModel;
+		this.format = format;
+		setIcon(FAIconType.download);
+		setBootstrapType(BootstrapType.PRIMARY);
+	}
+
+	@Override
+	public void onClick() {
+		//We shouldn't be here
+	}
+
+	@Override
+	protected AbstractLink newLink(String id) {
+		return new ResourceLink<Void>(id, OClassExportResource.getSharedResourceReference(),
+										OClassExportResource.getPageParameters(classModel.getObject(), format));
+	}
+
+	@Override
+	public void detachModels() {
+		super.detachModels();
+		classModel.detach();
+	}
+}
@@ -74,6 +74,7 @@ public class OPropertyMetaPanel<V> extends AbstractComplexModeMetaPanel<OPropert
 		OPROPERTY_ATTRS.add(OPropertyPrototyper.COLLATE);
 		OPROPERTY_ATTRS.add(CustomAttribute.DISPLAYABLE.getName());
 		OPROPERTY_ATTRS.add(CustomAttribute.HIDDEN.getName());
+		OPROPERTY_ATTRS.add(CustomAttribute.SEARCHABLE.getName());
 		OPROPERTY_ATTRS.add(CustomAttribute.CALCULABLE.getName());
 		OPROPERTY_ATTRS.add(CustomAttribute.CALC_SCRIPT.getName());
 		OPROPERTY_ATTRS.add(OPropertyPrototyper.DEFAULT_VALUE);
@@ -208,7 +209,8 @@ public class OPropertyMetaPanel<V> extends AbstractComplexModeMetaPanel<OPropert
 					|| CustomAttribute.match(critery, CustomAttribute.UI_READONLY, 
 													   CustomAttribute.DISPLAYABLE,
 													   CustomAttribute.CALCULABLE,
-													   CustomAttribute.HIDDEN))
+													   CustomAttribute.HIDDEN,
+													   CustomAttribute.SEARCHABLE))
 			{
 				return new BooleanViewPanel(id, (IModel<Boolean>)getModel()).setHideIfFalse(true);
 			}
@@ -264,7 +266,8 @@ public class OPropertyMetaPanel<V> extends AbstractComplexModeMetaPanel<OPropert
 				{
 					if(customAttr.equals(CustomAttribute.CALCULABLE)) {
 						return new CheckBox(id, (IModel<Boolean>)getModel()).add(new RefreshMetaContextOnChangeBehaviour());
-					} else if(customAttr.matchAny(CustomAttribute.DISPLAYABLE, CustomAttribute.HIDDEN, CustomAttribute.UI_READONLY)) {
+					} else if(customAttr.matchAny(CustomAttribute.DISPLAYABLE, CustomAttribute.HIDDEN, CustomAttribute.UI_READONLY,
+															CustomAttribute.SEARCHABLE)) {
 						return new CheckBox(id, (IModel<Boolean>)getModel());
 					} else if(customAttr.matchAny(CustomAttribute.CALC_SCRIPT, CustomAttribute.DESCRIPTION)) {
 						return new TextArea<V>(id, getModel());
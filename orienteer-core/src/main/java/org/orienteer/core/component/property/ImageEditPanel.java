@@ -1,9 +1,9 @@
 package org.orienteer.core.component.property;
 
-import org.apache.tika.Tika;
 import org.apache.wicket.markup.html.form.FormComponentPanel;
 import org.apache.wicket.markup.html.form.upload.FileUpload;
 import org.apache.wicket.model.IModel;
+import org.orienteer.core.util.CommonUtils;
 
 /**
  * {@link FormComponentPanel} to upload images
@@ -19,7 +19,7 @@ public class ImageEditPanel extends BinaryEditPanel {
         FileUpload fileUpload = fileUploadField.getFileUpload();
         if(fileUpload!=null) {
             byte[] bytes = fileUpload.getBytes();
-            boolean isImage = new Tika().detect(bytes).startsWith("image/");
+            boolean isImage = CommonUtils.detectContentType(bytes).startsWith("image/");
             if (!isImage) {
                 error(getString("errors.wrong.image.uploaded"));
             }
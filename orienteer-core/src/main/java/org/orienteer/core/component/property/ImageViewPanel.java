@@ -1,11 +1,11 @@
 package org.orienteer.core.component.property;
 
-import org.apache.tika.Tika;
 import org.apache.wicket.markup.html.image.Image;
 import org.apache.wicket.markup.html.panel.EmptyPanel;
 import org.apache.wicket.markup.html.panel.GenericPanel;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.request.resource.ByteArrayResource;
+import org.orienteer.core.util.CommonUtils;
 
 /**
  * {@link GenericPanel} to view binary images
@@ -19,7 +19,7 @@ public class ImageViewPanel<V> extends GenericPanel<V> {
 
 		byte[] imageBytes = (byte[]) getModelObject();
 		if (imageBytes != null) {
-			String mimeType = new Tika().detect(imageBytes);
+			String mimeType = CommonUtils.detectContentType(imageBytes);
 			ByteArrayResource byteArrayResource = new ByteArrayResource(mimeType, imageBytes);
 			add(new Image("image", byteArrayResource));
 		} else {
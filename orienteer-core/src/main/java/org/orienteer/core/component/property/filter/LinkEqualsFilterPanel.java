@@ -81,6 +81,7 @@ public class LinkEqualsFilterPanel extends AbstractOPropertyFilterPanel<ODocumen
                 .setCloseOnSelect(true)
                 .setTheme(BOOTSTRAP_SELECT2_THEME)
                 .setContainerCssClass("link-filter-document-choice");
+        choice.getSettings().getAjax(true).setDelay(ODocumentChoiceProvider.SUGGEST_DELAY);
         choice.add(new AjaxFormSubmitBehavior("change") {});
         choice.setOutputMarkupId(true);
         return choice;
@@ -46,6 +46,7 @@ public class SuggestVisualizer extends AbstractSimpleVisualizer {
 							.setWidth("100%")
 							.setCloseOnSelect(true)
 							.setTheme(OClassMetaPanel.BOOTSTRAP_SELECT2_THEME);
+	            choice.getSettings().getAjax(true).setDelay(ODocumentChoiceProvider.SUGGEST_DELAY);
 				return choice;
             } else {
             	LOG.warn("Property '"+property.getFullName()+"' doesn't have linked class specified.");
@@ -0,0 +1,179 @@
+package org.orienteer.core.dao;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.UndeclaredThrowableException;
+
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.type.ODocumentWrapper;
+
+/**
+ * Base class for DAO implementations generated in runtime by {@link DAOClassGenerator}.
+ * Simple getters and setters are compiled into direct access to {@link ODocument},
+ * all other methods are delegated to the same {@link StackInvocationHandler} which is used for proxies
+ */
+public abstract class AbstractGeneratedDAO implements IODocumentWrapper {
+	private static final long serialVersionUID = 1L;
+
+	private final ODocumentWrapper wrapper;
+	private final transient Method[] methods;
+	private transient StackInvocationHandler<ODocumentWrapper> handler;
+
+	protected AbstractGeneratedDAO(ODocumentWrapper wrapper, Method[] methods) {
+		this.wrapper = wrapper;
+		this.methods = methods;
+	}
+
+	protected final Object getField(String field, Class<?> type) {
+		Object value = wrapper.getDocument().field(field, type);
+		if(value==null || type.isInstance(value)) return value;
+		else throw new IllegalStateException("Can't prepare required return class: "+type +" from "+value.getClass());
+	}
+
+	protected final void setField(String field, Object value) {
+		wrapper.getDocument().field(field, value);
+	}
+
+	protected final Object invoke(int methodIndex, Object[] args) {
+		Method method = methods[methodIndex];
+		try {
+			return getInvocationHandler().invoke(this, method, args);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			for (Class<?> exceptionType : method.getExceptionTypes()) {
+				if(exceptionType.isInstance(e)) throw AbstractGeneratedDAO.<RuntimeException>sneakyThrow(e);
+			}
+			throw new UndeclaredThrowableException(e);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <E extends Throwable> E sneakyThrow(Throwable e) throws E {
+		throw (E) e;
+	}
+
+	/**
+	 * @return {@link InvocationHandler} which is used for methods which were not compiled
+	 */
+	public StackInvocationHandler<ODocumentWrapper> getInvocationHandler() {
+		if(handler==null) handler = new ODocumentWrapperInvocationHandler(wrapper);
+		return handler;
+	}
+
+	/**
+	 * @return DAO interface which was implemented by this class
+	 */
+	public Class<?> getDAOInterface() {
+		return getClass().getInterfaces()[0];
+	}
+
+	@Override
+	public void fromStream(ODocument iDocument) {
+		wrapper.fromStream(iDocument);
+	}
+
+	@Override
+	public ODocument toStream() {
+		return wrapper.toStream();
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <R extends IODocumentWrapper> R load(String iFetchPlan, boolean iIgnoreCache) {
+		wrapper.load(iFetchPlan, iIgnoreCache);
+		return (R) this;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <R extends IODocumentWrapper> R reload() {
+		wrapper.reload();
+		return (R) this;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <R extends IODocumentWrapper> R reload(String iFetchPlan) {
+		wrapper.reload(iFetchPlan);
+		return (R) this;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <R extends IODocumentWrapper> R reload(String iFetchPlan, boolean iIgnoreCache) {
+		wrapper.reload(iFetchPlan, iIgnoreCache);
+		return (R) this;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <R extends IODocumentWrapper> R save() {
+		wrapper.save();
+		return (R) this;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public <R extends IODocumentWrapper> R save(String iClusterName) {
+		wrapper.save(iClusterName);
+		return (R) this;
+	}
+
+	@Override
+	public ODocument getDocument() {
+		return wrapper.getDocument();
+	}
+
+	@Override
+	public int hashCode() {
+		return wrapper.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if(this==obj) return true;
+		if(obj==null) return false;
+		if(obj instanceof AbstractGeneratedDAO) {
+			return getClass().equals(obj.getClass()) && wrapper.equals(((AbstractGeneratedDAO)obj).wrapper);
+		} else if(Proxy.isProxyClass(obj.getClass()) && getDAOInterface().isInstance(obj)) {
+			InvocationHandler otherHandler = Proxy.getInvocationHandler(obj);
+			return otherHandler instanceof StackInvocationHandler
+					&& wrapper.equals(((StackInvocationHandler<?>)otherHandler).getTarget());
+		}
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return wrapper.toString();
+	}
+
+	protected Object writeReplace() throws ObjectStreamException {
+		return new SerializedForm(getDAOInterface(), wrapper);
+	}
+
+	/**
+	 * Serializable form of generated DAO: generated classes are not available for deserialization as is
+	 */
+	private static class SerializedForm implements Serializable {
+		private static final long serialVersionUID = 1L;
+		private final Class<?> daoInterface;
+		private final ODocumentWrapper wrapper;
+
+		public SerializedForm(Class<?> daoInterface, ODocumentWrapper wrapper) {
+			this.daoInterface = daoInterface;
+			this.wrapper = wrapper;
+		}
+
+		protected Object readResolve() throws ObjectStreamException {
+			Object ret = DAOClassGenerator.newInstance(daoInterface, wrapper);
+			return ret!=null?ret:Proxy.newProxyInstance(daoInterface.getClassLoader(),
+											new Class<?>[] {daoInterface, IODocumentWrapper.class},
+											new ODocumentWrapperInvocationHandler(wrapper));
+		}
+	}
+}
@@ -20,6 +20,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.wicket.extensions.markup.html.repeater.data.sort.SortOrder;
 import org.apache.wicket.util.lang.Args;
@@ -59,6 +60,10 @@ public final class DAO {
 	
 	private static final DAOField DEFAULT_DAOFIELD = dao(DAOField.class);
 	
+	private static final Map<String, Class<?>> DAO_CLASSES_CACHE = new ConcurrentHashMap<>();
+	
+	private static volatile boolean generationEnabled = Boolean.getBoolean("orienteer.dao.generation");
+	
 	private DAO() {
 		
 	}
@@ -122,10 +127,15 @@ public final class DAO {
 	public static <T> T provide(Class<? extends T> interfaceClass, ODocumentWrapper docWrapper, Class<?>... additionalInterfaces) {
 		Args.notNull(ODatabaseRecordThreadLocal.instance().get(), "There is no DatabaseSession");
 		if(additionalInterfaces == null) additionalInterfaces = NO_CLASSES;
+		Class<? extends T> daoInterface = tryToGetInheritedInterface(interfaceClass, docWrapper);
+		if(generationEnabled && additionalInterfaces.length==0 && ODocumentWrapper.class.equals(docWrapper.getClass())) {
+			T ret = DAOClassGenerator.newInstance(daoInterface, docWrapper);
+			if(ret!=null) return ret;
+		}
 		Class<?>[] builtInInterfaces = docWrapper.getClass().getInterfaces();
 		Class<?>[] interfaces = new Class[2+builtInInterfaces.length+additionalInterfaces.length];
 		ClassLoader classLoader = interfaceClass.getClassLoader();
-		interfaces[0] = tryToGetInheritedInterface(interfaceClass, docWrapper);
+		interfaces[0] = daoInterface;
 		interfaces[1] = IODocumentWrapper.class;
 		if(builtInInterfaces.length>0) System.arraycopy(builtInInterfaces, 0, interfaces, 2, builtInInterfaces.length);
 		if(additionalInterfaces.length>0) System.arraycopy(additionalInterfaces, 0, interfaces, 2+builtInInterfaces.length, additionalInterfaces.length);
@@ -138,7 +148,7 @@ public final class DAO {
 				|| compatible(proxy, additionalInterfaces)) return (T) proxy;
 		else {
 			ClassLoader classLoader = additionalInterfaces[0].getClassLoader();
-			InvocationHandler invocationHandler = Proxy.getInvocationHandler(proxy);
+			InvocationHandler invocationHandler = getInvocationHandler(proxy);
 			Set<Class<?>> interfaces = new HashSet<Class<?>>();
 			interfaces.addAll(Arrays.asList(additionalInterfaces));
 			interfaces.addAll(Arrays.asList(proxy.getClass().getInterfaces()));
@@ -150,7 +160,7 @@ public final class DAO {
 		if(compatible(proxy, interfaceClass) && compatible(proxy, additionalInterfaces)) return (T) proxy;
 		else {
 			ClassLoader classLoader = interfaceClass.getClassLoader();
-			InvocationHandler invocationHandler = Proxy.getInvocationHandler(proxy);
+			InvocationHandler invocationHandler = getInvocationHandler(proxy);
 			Set<Class<?>> interfaces = new HashSet<Class<?>>();
 			interfaces.add(interfaceClass);
 			interfaces.addAll(Arrays.asList(additionalInterfaces));
@@ -166,17 +176,38 @@ public final class DAO {
 		return true;
 	}
 	
+	/**
+	 * Enable or disable usage of generated in runtime DAO classes instead of {@link Proxy}
+	 * @param enabled true to enable generation
+	 */
+	public static void setGenerationEnabled(boolean enabled) {
+		generationEnabled = enabled;
+	}
+	
+	public static boolean isGenerationEnabled() {
+		return generationEnabled;
+	}
+	
+	private static InvocationHandler getInvocationHandler(Object proxy) {
+		if(proxy instanceof AbstractGeneratedDAO) return ((AbstractGeneratedDAO)proxy).getInvocationHandler();
+		else return Proxy.getInvocationHandler(proxy);
+	}
+	
 	private static <T> Class<? extends T> tryToGetInheritedInterface(Class<? extends T> clazz, ODocumentWrapper docWrapper) {
 		ODocument doc = docWrapper.getDocument();
 		if(doc!=null) {
 			String daoClassName = CustomAttribute.DAO_CLASS.getValue(doc.getSchemaClass());
 			if(daoClassName!=null) {
-				try {
-					Class<? extends T> daoClass = (Class<? extends T>)Class.forName(daoClassName);
-					if(clazz.isAssignableFrom(daoClass)) return daoClass;
-				} catch (ClassNotFoundException e) {
-					//NOP
+				Class<?> daoClass = DAO_CLASSES_CACHE.get(daoClassName);
+				if(daoClass==null || !clazz.isAssignableFrom(daoClass)) {
+					try {
+						daoClass = Class.forName(daoClassName);
+						DAO_CLASSES_CACHE.put(daoClassName, daoClass);
+					} catch (ClassNotFoundException e) {
+						//NOP
+					}
 				}
+				if(daoClass!=null && clazz.isAssignableFrom(daoClass)) return (Class<? extends T>) daoClass;
 			}
 		}
 		return clazz;
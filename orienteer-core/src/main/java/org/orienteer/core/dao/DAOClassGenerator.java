@@ -0,0 +1,296 @@
+package org.orienteer.core.dao;
+
+import static org.objectweb.asm.Opcodes.AASTORE;
+import static org.objectweb.asm.Opcodes.ACC_FINAL;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_SUPER;
+import static org.objectweb.asm.Opcodes.ACC_SYNTHETIC;
+import static org.objectweb.asm.Opcodes.ALOAD;
+import static org.objectweb.asm.Opcodes.ANEWARRAY;
+import static org.objectweb.asm.Opcodes.ARETURN;
+import static org.objectweb.asm.Opcodes.CHECKCAST;
+import static org.objectweb.asm.Opcodes.DUP;
+import static org.objectweb.asm.Opcodes.ILOAD;
+import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
+import static org.objectweb.asm.Opcodes.INVOKESTATIC;
+import static org.objectweb.asm.Opcodes.INVOKEVIRTUAL;
+import static org.objectweb.asm.Opcodes.IRETURN;
+import static org.objectweb.asm.Opcodes.POP;
+import static org.objectweb.asm.Opcodes.RETURN;
+import static org.objectweb.asm.Opcodes.V1_8;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+import org.orienteer.core.dao.handler.DAOMethodPlan;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.primitives.Primitives;
+import com.orientechnologies.orient.core.type.ODocumentWrapper;
+
+/**
+ * Generator of concrete DAO classes for DAO interfaces.
+ * Generated class extends {@link AbstractGeneratedDAO}: simple getters and setters are compiled into
+ * direct access to document fields, all other methods are delegated to the regular handlers stack
+ */
+final class DAOClassGenerator {
+
+	private static final Logger LOG = LoggerFactory.getLogger(DAOClassGenerator.class);
+
+	private static final String BASE_CLASS = Type.getInternalName(AbstractGeneratedDAO.class);
+	private static final String CONSTRUCTOR_DESCRIPTOR = Type.getMethodDescriptor(Type.VOID_TYPE,
+																Type.getType(ODocumentWrapper.class),
+																Type.getType(Method[].class));
+	private static final String GET_FIELD_DESCRIPTOR = "(Ljava/lang/String;Ljava/lang/Class;)Ljava/lang/Object;";
+	private static final String SET_FIELD_DESCRIPTOR = "(Ljava/lang/String;Ljava/lang/Object;)V";
+	private static final String INVOKE_DESCRIPTOR = "(I[Ljava/lang/Object;)Ljava/lang/Object;";
+
+	/**
+	 * Types which are stored in documents as is, so no conversion is required
+	 */
+	private static final Set<Class<?>> DIRECT_TYPES = new HashSet<>(Arrays.asList(String.class, Boolean.class,
+													Byte.class, Short.class, Integer.class, Long.class,
+													Float.class, Double.class, BigDecimal.class, Date.class,
+													byte[].class));
+
+	private static final ClassValue<Factory> FACTORIES = new ClassValue<Factory>() {
+		@Override
+		protected Factory computeValue(Class<?> type) {
+			try {
+				return generate(type);
+			} catch (RuntimeException | LinkageError e) {
+				LOG.warn("Can't generate DAO implementation for "+type.getName()+". Proxy will be used instead.", e);
+				return Factory.NOT_SUPPORTED;
+			}
+		}
+	};
+
+	/**
+	 * Factory of instances for a generated class
+	 */
+	private static class Factory {
+		static final Factory NOT_SUPPORTED = new Factory(null, null);
+
+		private final Constructor<?> constructor;
+		private final Method[] methods;
+
+		Factory(Constructor<?> constructor, Method[] methods) {
+			this.constructor = constructor;
+			this.methods = methods;
+		}
+
+		Object newInstance(ODocumentWrapper wrapper) {
+			if(constructor==null) return null;
+			try {
+				return constructor.newInstance(wrapper, methods);
+			} catch (ReflectiveOperationException e) {
+				throw new IllegalStateException("Can't create instance of "+constructor.getDeclaringClass(), e);
+			}
+		}
+	}
+
+	/**
+	 * {@link ClassLoader} to define generated classes
+	 */
+	private static class GeneratedDAOClassLoader extends ClassLoader {
+		GeneratedDAOClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		Class<?> define(String name, byte[] bytecode) {
+			return defineClass(name, bytecode, 0, bytecode.length);
+		}
+	}
+
+	private DAOClassGenerator() {
+	}
+
+	/**
+	 * Create instance of generated implementation of the interface
+	 * @param daoInterface interface to be implemented
+	 * @param wrapper {@link ODocumentWrapper} to be used
+	 * @return instance of generated class or null if generation is not supported for this interface
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> T newInstance(Class<T> daoInterface, ODocumentWrapper wrapper) {
+		return (T) FACTORIES.get(daoInterface).newInstance(wrapper);
+	}
+
+	private static Factory generate(Class<?> daoInterface) {
+		if(!daoInterface.isInterface() || !isAccessible(daoInterface)) return Factory.NOT_SUPPORTED;
+		String className = daoInterface.getName()+"$$DAO";
+		String internalName = className.replace('.', '/');
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+		cw.visit(V1_8, ACC_PUBLIC | ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC, internalName, null, BASE_CLASS,
+				new String[] {Type.getInternalName(daoInterface), Type.getInternalName(IODocumentWrapper.class)});
+
+		MethodVisitor mv = cw.visitMethod(ACC_PUBLIC, "<init>", CONSTRUCTOR_DESCRIPTOR, null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitVarInsn(ALOAD, 2);
+		mv.visitMethodInsn(INVOKESPECIAL, BASE_CLASS, "<init>", CONSTRUCTOR_DESCRIPTOR, false);
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+
+		List<Method> delegated = new ArrayList<>();
+		Set<String> generated = new HashSet<>();
+		for (Method method : daoInterface.getMethods()) {
+			if(Modifier.isStatic(method.getModifiers())) continue;
+			String descriptor = Type.getMethodDescriptor(method);
+			if(!generated.add(method.getName()+descriptor) || isImplementedByBase(method)) continue;
+			if(!isAccessible(method.getReturnType())) return Factory.NOT_SUPPORTED;
+			DAOMethodPlan plan = DAOMethodPlan.of(method);
+			boolean intercepted = plan.getDAOHandlers()!=null || plan.getDefaultValue()!=null;
+			if(method.isDefault() && !intercepted) continue;
+			mv = cw.visitMethod(ACC_PUBLIC, method.getName(), descriptor, null, toInternalNames(method.getExceptionTypes()));
+			mv.visitCode();
+			if(!intercepted && isDirectGetter(method, plan)) {
+				generateGetter(mv, method, plan);
+			} else if(!intercepted && isDirectSetter(method, plan, daoInterface)) {
+				generateSetter(mv, method, plan);
+			} else {
+				generateDelegate(mv, method, delegated.size());
+				delegated.add(method);
+			}
+			mv.visitMaxs(0, 0);
+			mv.visitEnd();
+		}
+		cw.visitEnd();
+		Class<?> generatedClass = new GeneratedDAOClassLoader(daoInterface.getClassLoader())
+											.define(className, cw.toByteArray());
+		try {
+			return new Factory(generatedClass.getConstructor(ODocumentWrapper.class, Method[].class),
+								delegated.toArray(new Method[delegated.size()]));
+		} catch (NoSuchMethodException e) {
+			throw new IllegalStateException("Generated class doesn't have required constructor", e);
+		}
+	}
+
+	private static boolean isAccessible(Class<?> clazz) {
+		while(clazz.isArray()) clazz = clazz.getComponentType();
+		if(clazz.isPrimitive()) return true;
+		for(Class<?> c = clazz; c!=null; c = c.getEnclosingClass()) {
+			if(!Modifier.isPublic(c.getModifiers())) return false;
+		}
+		return true;
+	}
+
+	private static boolean isImplementedByBase(Method method) {
+		try {
+			Method baseMethod = AbstractGeneratedDAO.class.getMethod(method.getName(), method.getParameterTypes());
+			return !Modifier.isAbstract(baseMethod.getModifiers())
+					&& baseMethod.getReturnType().equals(method.getReturnType());
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	private static boolean isDirectGetter(Method method, DAOMethodPlan plan) {
+		return plan.getGetterField()!=null
+				&& !method.isDefault()
+				&& DIRECT_TYPES.contains(plan.getReturnType());
+	}
+
+	private static boolean isDirectSetter(Method method, DAOMethodPlan plan, Class<?> daoInterface) {
+		if(plan.getSetterField()==null || method.isDefault()) return false;
+		Class<?> returnType = method.getReturnType();
+		return DIRECT_TYPES.contains(Primitives.wrap(method.getParameterTypes()[0]))
+				&& (void.class.equals(returnType) || returnType.isAssignableFrom(daoInterface));
+	}
+
+	private static void generateGetter(MethodVisitor mv, Method method, DAOMethodPlan plan) {
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitLdcInsn(plan.getGetterField());
+		mv.visitLdcInsn(Type.getType(plan.getReturnType()));
+		mv.visitMethodInsn(INVOKEVIRTUAL, BASE_CLASS, "getField", GET_FIELD_DESCRIPTOR, false);
+		generateReturn(mv, method.getReturnType());
+	}
+
+	private static void generateSetter(MethodVisitor mv, Method method, DAOMethodPlan plan) {
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitLdcInsn(plan.getSetterField());
+		loadAndBox(mv, method.getParameterTypes()[0], 1);
+		mv.visitMethodInsn(INVOKEVIRTUAL, BASE_CLASS, "setField", SET_FIELD_DESCRIPTOR, false);
+		if(void.class.equals(method.getReturnType())) {
+			mv.visitInsn(RETURN);
+		} else {
+			mv.visitVarInsn(ALOAD, 0);
+			mv.visitInsn(ARETURN);
+		}
+	}
+
+	private static void generateDelegate(MethodVisitor mv, Method method, int index) {
+		Class<?>[] params = method.getParameterTypes();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitLdcInsn(index);
+		mv.visitLdcInsn(params.length);
+		mv.visitTypeInsn(ANEWARRAY, "java/lang/Object");
+		int slot = 1;
+		for (int i = 0; i < params.length; i++) {
+			mv.visitInsn(DUP);
+			mv.visitLdcInsn(i);
+			slot += loadAndBox(mv, params[i], slot);
+			mv.visitInsn(AASTORE);
+		}
+		mv.visitMethodInsn(INVOKEVIRTUAL, BASE_CLASS, "invoke", INVOKE_DESCRIPTOR, false);
+		generateReturn(mv, method.getReturnType());
+	}
+
+	/**
+	 * Load argument on stack and box it if required
+	 * @return number of slots occupied by the argument
+	 */
+	private static int loadAndBox(MethodVisitor mv, Class<?> paramClass, int slot) {
+		Type type = Type.getType(paramClass);
+		mv.visitVarInsn(type.getOpcode(ILOAD), slot);
+		if(paramClass.isPrimitive()) {
+			Type wrapperType = Type.getType(Primitives.wrap(paramClass));
+			mv.visitMethodInsn(INVOKESTATIC, wrapperType.getInternalName(), "valueOf",
+								Type.getMethodDescriptor(wrapperType, type), false);
+		}
+		return type.getSize();
+	}
+
+	/**
+	 * Convert {@link Object} on the top of the stack to required type and return it
+	 */
+	private static void generateReturn(MethodVisitor mv, Class<?> returnClass) {
+		if(void.class.equals(returnClass)) {
+			mv.visitInsn(POP);
+			mv.visitInsn(RETURN);
+		} else if(returnClass.isPrimitive()) {
+			Type type = Type.getType(returnClass);
+			String wrapperName = Type.getInternalName(Primitives.wrap(returnClass));
+			mv.visitTypeInsn(CHECKCAST, wrapperName);
+			mv.visitMethodInsn(INVOKEVIRTUAL, wrapperName, returnClass.getName()+"Value",
+								Type.getMethodDescriptor(type), false);
+			mv.visitInsn(type.getOpcode(IRETURN));
+		} else {
+			mv.visitTypeInsn(CHECKCAST, Type.getInternalName(returnClass));
+			mv.visitInsn(ARETURN);
+		}
+	}
+
+	private static String[] toInternalNames(Class<?>[] classes) {
+		if(classes==null || classes.length==0) return null;
+		String[] ret = new String[classes.length];
+		for (int i = 0; i < classes.length; i++) {
+			ret[i] = Type.getInternalName(classes[i]);
+		}
+		return ret;
+	}
+}
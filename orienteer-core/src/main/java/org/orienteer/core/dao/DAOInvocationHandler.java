@@ -1,6 +1,7 @@
 package org.orienteer.core.dao;
 
 import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.List;
 
@@ -10,11 +11,13 @@ import org.orienteer.core.dao.handler.DefaultValueMethodHandler;
 import org.orienteer.core.dao.handler.ExecuteSQLMethodHandler;
 import org.orienteer.core.dao.handler.RetargetMethodHandler;
 import org.orienteer.core.dao.handler.StackMethodHandler;
+import org.orienteer.core.util.OInstrumentation;
 
 import com.orientechnologies.orient.core.type.ODocumentWrapper;
 
 /**
- * {@link InvocationHandler} for generic DAO interfaces
+ * {@link InvocationHandler} for generic DAO interfaces.
+ * Invocations are measured by {@link OInstrumentation}
  */
 class DAOInvocationHandler extends StackInvocationHandler<Object> {
 	
@@ -33,4 +36,14 @@ class DAOInvocationHandler extends StackInvocationHandler<Object> {
 		super(new Object(), STACK);
 	}
 	
+	@Override
+	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+		long start = OInstrumentation.start();
+		try {
+			return super.invoke(proxy, method, args);
+		} finally {
+			OInstrumentation.daoInvoked(method, start);
+		}
+	}
+	
 }
\ No newline at end of file
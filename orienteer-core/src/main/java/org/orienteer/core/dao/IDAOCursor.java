@@ -0,0 +1,34 @@
+package org.orienteer.core.dao;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Cursor over results of {@link Query} or {@link Command} DAO method.
+ * Records are pulled lazily from underlying result set which is closed as soon as cursor is exhausted or closed explicitly.
+ * Cursor should be consumed within the same database session as it was obtained.
+ * @param <T> type of elements
+ */
+public interface IDAOCursor<T> extends Iterator<T>, AutoCloseable {
+
+	/**
+	 * Fetch next page of results
+	 * @param pageSize maximum number of elements to fetch
+	 * @return list of fetched elements: empty list if cursor is exhausted
+	 */
+	public List<T> next(int pageSize);
+
+	/**
+	 * @return true if underlying result set was closed
+	 */
+	public boolean isClosed();
+
+	/**
+	 * @return sequential {@link Stream} over remaining elements. Closing of the stream closes the cursor as well
+	 */
+	public Stream<T> stream();
+
+	@Override
+	public void close();
+}
@@ -7,7 +7,9 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.Target;
 
 /**
- * Annotation for marking methods to query database
+ * Annotation for marking methods to query database.
+ * Methods which return {@link java.util.stream.Stream}, {@link java.util.Iterator} or {@link IDAOCursor}
+ * read results lazily: close returned stream or cursor if it was not read till the end
  */
 @Retention(RUNTIME)
 @Target(METHOD)
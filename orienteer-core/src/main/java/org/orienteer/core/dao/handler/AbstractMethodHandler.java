@@ -4,7 +4,6 @@ import static com.google.common.primitives.Primitives.wrap;
 
 import java.io.Serializable;
 import java.lang.reflect.Method;
-import java.lang.reflect.Parameter;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.lang.reflect.WildcardType;
@@ -17,7 +16,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collector;
-import java.util.stream.Collectors;
 
 import org.joor.Reflect;
 import org.orienteer.core.dao.DAO;
@@ -30,7 +28,9 @@ import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.query.OQuery;
+import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.executor.OResult;
 import com.orientechnologies.orient.core.sql.executor.OResultSet;
 import com.orientechnologies.orient.core.type.ODocumentWrapper;
 
@@ -55,24 +55,7 @@ public abstract class AbstractMethodHandler<T> implements IMethodHandler<T>{
 	}
 	
 	protected static Map<String, Object> toArguments(Map<String, Object> args, boolean override, Method method, Object[] values) {
-		if(args==null) {
-			args = new HashMap<>();
-			override = true;
-		}
-		
-		Parameter[] params = method.getParameters();
-		for (int i = 0; i < params.length; i++) {
-			Object value = prepareForDB(values[i]);
-			if(override) {
-				args.put(params[i].getName(), value);
-				args.put("arg"+i, value);
-			}
-			else {
-				args.putIfAbsent(params[i].getName(), value);
-				args.putIfAbsent("arg"+i, value);
-			}
-		}
-		return args;
+		return DAOMethodPlan.of(method).bindArguments(args, override, values);
 	}
 	
 	protected static Object prepareForDB(Object arg) {
@@ -135,9 +118,13 @@ public abstract class AbstractMethodHandler<T> implements IMethodHandler<T>{
 	}
 	
 	protected static Object prepareForJava(Object result, Method method) {
+		return prepareForJava(result, DAOMethodPlan.of(method));
+	}
+	
+	protected static Object prepareForJava(Object result, DAOMethodPlan plan) {
 		if(result==null) return null;
-		Class<?> requiredClass = wrap(method.getReturnType());
-		Type genericType = method.getGenericReturnType();
+		Class<?> requiredClass = plan.getReturnType();
+		Type genericType = plan.getGenericReturnType();
 		if(result instanceof OIdentifiable) return prepareForJava(((OIdentifiable)result).getRecord(), requiredClass);
 		else if(result instanceof Iterable) {
 			Iterator<?> it = ((Iterable<?>)result).iterator(); 
@@ -160,9 +147,16 @@ public abstract class AbstractMethodHandler<T> implements IMethodHandler<T>{
 			}
 			else throw new IllegalStateException("Can't prepare required return class: "+requiredClass +" from "+result.getClass());
 		} else if(result instanceof OResultSet) {
+			if(!Collection.class.isAssignableFrom(requiredClass))
+				throw new IllegalStateException("Can't prepare required return class: "+requiredClass +" from "+result.getClass());
 			OResultSet rs = (OResultSet)result;
-			List<ODocument> docs = rs.stream().map(r -> (ODocument)r.getRecord().orElse(null)).collect(Collectors.toList());
-			return prepareForJava(docs, requiredClass, genericType);
+			Class<?> requiredSubType = plan.getReturnSubType();
+			Collection<Object> ret = newCollection(requiredClass);
+			while(rs.hasNext()) {
+				Object element = prepareResultForJava(rs.next(), requiredSubType);
+				if(element!=null) ret.add(element);
+			}
+			return ret;
 		} else if(result instanceof Map) {
 			
 			Map<?, ?> map = (Map<?, ?>)result;
@@ -200,9 +194,9 @@ public abstract class AbstractMethodHandler<T> implements IMethodHandler<T>{
 		
 		if(requiredClass.isAssignableFrom(List.class)) return ret;
 		else if(Collection.class.isAssignableFrom(requiredClass)) {
-			Reflect instance = onRealClass(requiredClass).create();
-			instance.call("addAll", ret);
-			return instance.get();
+			Collection<Object> instance = newCollection(requiredClass);
+			for (Object object : ret) instance.add(object);
+			return instance;
 		}
 		else throw new IllegalStateException("Can't prepare required return class: "+requiredClass);
 	}
@@ -243,6 +237,20 @@ public abstract class AbstractMethodHandler<T> implements IMethodHandler<T>{
 		throw new IllegalStateException("Can't case ODocument to "+requiredClass); 
 	}
 	
+	protected static Object prepareResultForJava(OResult result, Class<?> requiredClass) {
+		if(result==null) return null;
+		else if(requiredClass.isInstance(result)) return result;
+		ORecord record = result.getRecord().orElse(null);
+		return record instanceof ODocument?prepareForJava((ODocument)record, requiredClass):null;
+	}
+	
+	@SuppressWarnings("unchecked")
+	protected static Collection<Object> newCollection(Class<?> requiredClass) {
+		if(requiredClass.isAssignableFrom(ArrayList.class)) return new ArrayList<>();
+		else if(requiredClass.isAssignableFrom(HashSet.class)) return new HashSet<>();
+		else return (Collection<Object>) onRealClass(requiredClass).create().get();
+	}
+	
 	protected static Reflect onRealClass(Class<?> clazz) {
 		if(!clazz.isInterface()) return Reflect.onClass(clazz);
 		else if(clazz.isAssignableFrom(ArrayList.class)) return Reflect.onClass(ArrayList.class);
@@ -1,9 +1,10 @@
 package org.orienteer.core.dao.handler;
 
 import java.lang.reflect.Method;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.wicket.WicketRuntimeException;
 import org.orienteer.core.dao.DAOHandler;
@@ -15,13 +16,13 @@ import org.orienteer.core.dao.IMethodHandler;
  */
 public class DAOHandlersMethodHandler<T> implements IMethodHandler<T>{
 	
-	private final static Map<Class<? extends IMethodHandler<?>>, IMethodHandler<?>> CACHE = new HashMap<>();
+	private final static Map<Class<? extends IMethodHandler<?>>, IMethodHandler<?>> CACHE = new ConcurrentHashMap<>();
 
 	@Override
 	public Optional<Object> handle(T target, Object proxy, Method method, Object[] args, InvocationChain<T> chain)
 			throws Throwable {
-		prepend(method.getDeclaringClass().getAnnotationsByType(DAOHandler.class), chain);
-		prepend(method.getAnnotationsByType(DAOHandler.class), chain);
+		List<Class<? extends IMethodHandler<?>>> handlers = DAOMethodPlan.of(method).getDAOHandlers();
+		if(handlers!=null) prepend(handlers, chain);
 		return chain.handle(target, proxy, method, args);
 	}
 	
@@ -34,17 +35,22 @@ public class DAOHandlersMethodHandler<T> implements IMethodHandler<T>{
 		chain.prepend(additionalHandlers);
 	}
 	
+	protected void prepend(List<Class<? extends IMethodHandler<?>>> handlers, InvocationChain<T> chain) {
+		IMethodHandler<T>[] additionalHandlers = new IMethodHandler[handlers.size()];
+		for(int i=0; i<additionalHandlers.length; i++) {
+			additionalHandlers[i] = getHandlerInstance(handlers.get(i));
+		}
+		chain.prepend(additionalHandlers);
+	}
+	
 	protected IMethodHandler<T> getHandlerInstance(Class<? extends IMethodHandler<?>> handlerClass) {
-		IMethodHandler<T> ret = (IMethodHandler<T>)CACHE.get(handlerClass);
-		if(ret==null) {
+		return (IMethodHandler<T>)CACHE.computeIfAbsent(handlerClass, c -> {
 			try {
-				ret = (IMethodHandler<T>) handlerClass.newInstance();
-				CACHE.put(handlerClass, ret);
+				return c.newInstance();
 			} catch (Exception e) {
-				throw new WicketRuntimeException("Unable to create instance of " + handlerClass, e);
+				throw new WicketRuntimeException("Unable to create instance of " + c, e);
 			}
-		}
-		return ret;
+		});
 	}
 
 }
@@ -0,0 +1,252 @@
+package org.orienteer.core.dao.handler;
+
+import static com.google.common.primitives.Primitives.wrap;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import org.apache.wicket.util.string.Strings;
+import org.orienteer.core.dao.Command;
+import org.orienteer.core.dao.DAODefaultValue;
+import org.orienteer.core.dao.DAOField;
+import org.orienteer.core.dao.DAOHandler;
+import org.orienteer.core.dao.Function;
+import org.orienteer.core.dao.IDAOCursor;
+import org.orienteer.core.dao.IMethodHandler;
+import org.orienteer.core.dao.Lookup;
+import org.orienteer.core.dao.Query;
+import org.orienteer.core.dao.Script;
+import org.orienteer.core.util.CommonUtils;
+
+/**
+ * Compiled dispatch plan for a DAO method.
+ * All reflective information required by {@link IMethodHandler}s (property name, SQL, arguments names,
+ * return type and etc.) is resolved once per {@link Method} and reused by all subsequent invocations
+ */
+public final class DAOMethodPlan {
+
+	private static final Map<Method, DAOMethodPlan> CACHE = new ConcurrentHashMap<>();
+
+	@SuppressWarnings("unchecked")
+	private static final Class<? extends Annotation>[] SQL_ANNOTATIONS
+				= new Class[] {Query.class, Command.class, Function.class, Script.class};
+
+	private final Method method;
+	private final String getterField;
+	private final String setterField;
+	private final Class<?> returnType;
+	private final Type genericReturnType;
+	private final Class<?> returnSubType;
+	private final boolean returnsCollection;
+	private final boolean returnsBoolean;
+	private final boolean returnsStream;
+	private final boolean returnsCursor;
+	private final String[] parameterNames;
+	private final String[] parameterAliases;
+	private final Annotation sqlAnnotation;
+	private final String sql;
+	private final String lookupSql;
+	private final DAODefaultValue defaultValue;
+	private final List<Class<? extends IMethodHandler<?>>> daoHandlers;
+
+	private DAOMethodPlan(Method method) {
+		this.method = method;
+		String methodName = method.getName();
+		int paramsCount = method.getParameterCount();
+		DAOField daoField = method.getAnnotation(DAOField.class);
+		String annotatedField = daoField!=null && !Strings.isEmpty(daoField.value())?daoField.value():null;
+
+		String getter = null;
+		if(paramsCount==0) {
+			if(methodName.startsWith("get")) getter = CommonUtils.decapitalize(methodName.substring(3));
+			if(methodName.startsWith("is")) getter = CommonUtils.decapitalize(methodName.substring(2));
+			if(annotatedField!=null) getter = annotatedField;
+		}
+		this.getterField = getter;
+		this.setterField = methodName.startsWith("set") && paramsCount==1
+								? (annotatedField!=null?annotatedField:CommonUtils.decapitalize(methodName.substring(3)))
+								: null;
+
+		this.returnType = wrap(method.getReturnType());
+		this.genericReturnType = method.getGenericReturnType();
+		this.returnSubType = AbstractMethodHandler.typeToRequiredClass(genericReturnType, method.getReturnType());
+		this.returnsCollection = Collection.class.isAssignableFrom(method.getReturnType());
+		this.returnsBoolean = Boolean.class.equals(returnType);
+		this.returnsStream = Stream.class.equals(returnType);
+		this.returnsCursor = Iterator.class.equals(returnType) || IDAOCursor.class.equals(returnType);
+
+		Parameter[] params = method.getParameters();
+		this.parameterNames = new String[params.length];
+		this.parameterAliases = new String[params.length];
+		for (int i = 0; i < params.length; i++) {
+			parameterNames[i] = params[i].getName();
+			parameterAliases[i] = "arg"+i;
+		}
+
+		this.sqlAnnotation = CommonUtils.getFirstPresentAnnotation(method, SQL_ANNOTATIONS);
+		if(sqlAnnotation instanceof Query) sql = ((Query)sqlAnnotation).value();
+		else if(sqlAnnotation instanceof Command) sql = ((Command)sqlAnnotation).value();
+		else sql = null;
+		Lookup lookup = method.getAnnotation(Lookup.class);
+		this.lookupSql = lookup!=null?lookup.value():null;
+		this.defaultValue = method.getAnnotation(DAODefaultValue.class);
+
+		List<Class<? extends IMethodHandler<?>>> handlers = new ArrayList<>();
+		addHandlers(handlers, method.getDeclaringClass().getAnnotationsByType(DAOHandler.class));
+		addHandlers(handlers, method.getAnnotationsByType(DAOHandler.class));
+		this.daoHandlers = handlers.isEmpty()?null:handlers;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void addHandlers(List<Class<? extends IMethodHandler<?>>> list, DAOHandler[] handlers) {
+		if(handlers==null || handlers.length==0) return;
+		for (DAOHandler handler : handlers) {
+			list.add((Class<? extends IMethodHandler<?>>)handler.value());
+		}
+	}
+
+	/**
+	 * Obtain compiled plan for the specified method
+	 * @param method method to obtain plan for
+	 * @return cached or newly compiled {@link DAOMethodPlan}
+	 */
+	public static DAOMethodPlan of(Method method) {
+		DAOMethodPlan plan = CACHE.get(method);
+		if(plan==null) plan = CACHE.computeIfAbsent(method, DAOMethodPlan::new);
+		return plan;
+	}
+
+	public Method getMethod() {
+		return method;
+	}
+
+	/**
+	 * @return name of a field to be read by this method or null if method is not a getter
+	 */
+	public String getGetterField() {
+		return getterField;
+	}
+
+	/**
+	 * @return name of a field to be written by this method or null if method is not a setter
+	 */
+	public String getSetterField() {
+		return setterField;
+	}
+
+	/**
+	 * @return return type of the method with primitives wrapped
+	 */
+	public Class<?> getReturnType() {
+		return returnType;
+	}
+
+	public Type getGenericReturnType() {
+		return genericReturnType;
+	}
+
+	/**
+	 * @return type of elements of returned collection or map (if applicable)
+	 */
+	public Class<?> getReturnSubType() {
+		return returnSubType;
+	}
+
+	public boolean isReturnsCollection() {
+		return returnsCollection;
+	}
+
+	public boolean isReturnsBoolean() {
+		return returnsBoolean;
+	}
+	
+	/**
+	 * @return true if method returns {@link Stream} which should be populated lazily
+	 */
+	public boolean isReturnsStream() {
+		return returnsStream;
+	}
+	
+	/**
+	 * @return true if method returns {@link Iterator} or {@link IDAOCursor} which should be populated lazily
+	 */
+	public boolean isReturnsCursor() {
+		return returnsCursor;
+	}
+
+	public int getParametersCount() {
+		return parameterNames.length;
+	}
+
+	/**
+	 * Bind arguments of invocation to names of parameters
+	 * @param args map to put arguments to. New one will be created if null
+	 * @param override should existing values be overridden
+	 * @param values actual values of arguments
+	 * @return map with arguments
+	 */
+	public Map<String, Object> bindArguments(Map<String, Object> args, boolean override, Object[] values) {
+		if(args==null) {
+			args = new HashMap<>(parameterNames.length*4+4);
+			override = true;
+		}
+		for (int i = 0; i < parameterNames.length; i++) {
+			Object value = AbstractMethodHandler.prepareForDB(values[i]);
+			if(override) {
+				args.put(parameterNames[i], value);
+				args.put(parameterAliases[i], value);
+			}
+			else {
+				args.putIfAbsent(parameterNames[i], value);
+				args.putIfAbsent(parameterAliases[i], value);
+			}
+		}
+		return args;
+	}
+
+	/**
+	 * @return first present annotation of {@link Query}, {@link Command}, {@link Function} or {@link Script}
+	 */
+	public Annotation getSqlAnnotation() {
+		return sqlAnnotation;
+	}
+
+	/**
+	 * @return SQL text for {@link Query} or {@link Command} methods
+	 */
+	public String getSql() {
+		return sql;
+	}
+
+	public String getLookupSql() {
+		return lookupSql;
+	}
+
+	public DAODefaultValue getDefaultValue() {
+		return defaultValue;
+	}
+
+	/**
+	 * @return classes of additional {@link IMethodHandler}s defined by {@link DAOHandler} or null if there are no such
+	 */
+	public List<Class<? extends IMethodHandler<?>>> getDAOHandlers() {
+		return daoHandlers;
+	}
+
+	@Override
+	public String toString() {
+		return "DAOMethodPlan [method=" + method + ", getterField=" + getterField + ", setterField=" + setterField
+				+ ", sql=" + (sql!=null?sql:lookupSql) + ", parameters=" + Arrays.toString(parameterNames) + "]";
+	}
+}
@@ -3,9 +3,9 @@ package org.orienteer.core.dao.handler;
 import static com.google.common.primitives.Primitives.wrap;
 
 import java.lang.reflect.Method;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.wicket.core.util.lang.WicketObjects;
 import org.apache.wicket.util.io.IClusterable;
@@ -38,14 +38,14 @@ public class DefaultValueMethodHandler<T> implements IMethodHandler<T> {
 		}
 	}
 	
-	private final Map<Class<? extends IDefaultValueProvider>, IDefaultValueProvider> cache = new HashMap<>(8);
+	private final Map<Class<? extends IDefaultValueProvider>, IDefaultValueProvider> cache = new ConcurrentHashMap<>(8);
 
 	@Override
 	public Optional<Object> handle(T target, Object proxy, Method method, Object[] args, InvocationChain<T> chain)
 			throws Throwable {
 		Optional<Object> result = chain.handle(target, proxy, method, args);
 		if(result==null || !result.isPresent()) {
-			DAODefaultValue defaultValue = method.getAnnotation(DAODefaultValue.class);
+			DAODefaultValue defaultValue = DAOMethodPlan.of(method).getDefaultValue();
 			if(defaultValue!=null) {
 				Class<? extends IDefaultValueProvider> providerClass = defaultValue.provider();
 				IDefaultValueProvider provider = cache.computeIfAbsent(providerClass, (c) -> Reflect.onClass(c).create().get());
@@ -5,6 +5,7 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.Optional;
 
+import org.orienteer.core.dao.AbstractGeneratedDAO;
 import org.orienteer.core.dao.IMethodHandler;
 import org.orienteer.core.dao.StackInvocationHandler;
 
@@ -19,6 +20,7 @@ public class EqualsMethodHandler<T> implements IMethodHandler<T> {
 		if(method.getName().equals("equals") && args.length==1) {
 			Object other = args[0];
 			if(other==null) return Optional.of(false);
+			if(other instanceof AbstractGeneratedDAO) return Optional.of(other.equals(proxy));
 			if(Proxy.isProxyClass(other.getClass())) {
 				if(proxy.getClass().equals(other.getClass())) {
 					InvocationHandler handler = Proxy.getInvocationHandler(other);
@@ -14,6 +14,7 @@ import org.orienteer.core.dao.Lookup;
 import org.orienteer.core.dao.Query;
 import org.orienteer.core.dao.Script;
 import org.orienteer.core.util.CommonUtils;
+import org.orienteer.core.util.OInstrumentation;
 
 import com.google.inject.internal.Annotations;
 import com.orientechnologies.orient.core.command.OCommandRequest;
@@ -29,7 +30,8 @@ import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
 import com.orientechnologies.orient.core.type.ODocumentWrapper;
 
 /**
- * {@link IMethodHandler} to cover methods to {@link Query}, {@link Command}, {@link Script} or {@link Function}
+ * {@link IMethodHandler} to cover methods to {@link Query}, {@link Command}, {@link Script} or {@link Function}.
+ * Execution of queries and commands is measured by {@link OInstrumentation}
  * @param <T>  type of target/delegate object
  */
 public class ExecuteSQLMethodHandler<T> extends AbstractMethodHandler<T>{
@@ -46,43 +48,61 @@ public class ExecuteSQLMethodHandler<T> extends AbstractMethodHandler<T>{
 
 	@Override
 	public Optional<Object> handle(T target, Object proxy, Method method, Object[] args, InvocationChain<T> chain) throws Throwable {
-		Annotation annotation = CommonUtils.getFirstPresentAnnotation(method, Query.class, 
-																			  Command.class, 
-																			  Function.class, 
-																			  Script.class);
+		DAOMethodPlan plan = DAOMethodPlan.of(method);
+		Annotation annotation = plan.getSqlAnnotation();
 		
 		if(annotation!=null) {
-			Map<String, Object> argumets = toArguments(method, args);
+			Map<String, Object> argumets = plan.bindArguments(null, true, args);
 			if(converter!=null) argumets.putIfAbsent("target", converter.apply(target));
 			if(target instanceof ODocumentWrapper)
 				argumets.put("daoClass", ((ODocumentWrapper)target).getDocument().getClassName());
 			ODatabaseSession db = ODatabaseRecordThreadLocal.instance().get();
 			OResultSet rs = null;
 			OCommandRequest request = null;
+			String statement = plan.getSql();
+			long start = OInstrumentation.start();
 			if(annotation instanceof Query) {
-				rs = db.query(((Query)annotation).value(), argumets);
+				rs = db.query(plan.getSql(), argumets);
 			} else if(annotation instanceof Command) {
-				rs = db.command(((Query)annotation).value(), argumets);
-			} else if(method.isAnnotationPresent(Function.class)) {
-				request = new OCommandFunction(method.getAnnotation(Function.class).value());
-			} else if(method.isAnnotationPresent(Script.class)) {
-				Script script = method.getAnnotation(Script.class);
-				request = new OCommandScript(script.language(), script.value());
+				rs = db.command(plan.getSql(), argumets);
+			} else if(annotation instanceof Function) {
+				statement = ((Function)annotation).value();
+				request = new OCommandFunction(statement);
+			} else if(annotation instanceof Script) {
+				Script script = (Script)annotation;
+				statement = script.value();
+				request = new OCommandScript(script.language(), statement);
 			}
 			
 			if(rs != null) {
-				Object ret = null;
-				if(Collection.class.isAssignableFrom(method.getReturnType())) {
-					ret = prepareForJava(rs, method);
-				} else {
-					ret = rs.hasNext()?rs.next().getElement().orElse(null):null;
-					if(ret!=null) ret = prepareForJava(ret, method);
+				if(plan.isReturnsStream() || plan.isReturnsCursor()) {
+					Class<?> elementClass = plan.getReturnSubType();
+					if(elementClass==null || elementClass.equals(plan.getReturnType())) elementClass = ODocument.class;
+					ResultSetCursor<Object> cursor = new ResultSetCursor<>(rs, elementClass);
+					//Lazy results are consumed by a caller, so only start of execution is measured
+					OInstrumentation.queryExecuted(statement, start);
+					return Optional.of(plan.isReturnsStream()?cursor.stream():cursor);
+				}
+				try {
+					Object ret = null;
+					if(plan.isReturnsCollection()) {
+						ret = prepareForJava(rs, plan);
+					} else {
+						ret = rs.hasNext()?rs.next().getElement().orElse(null):null;
+						if(ret!=null) ret = prepareForJava(ret, plan);
+					}
+					return Optional.ofNullable(ret);
+				} finally {
+					rs.close();
+					OInstrumentation.queryExecuted(statement, start);
 				}
-				rs.close();
-				return Optional.ofNullable(ret);
 			}
 			else if(request!=null) {
-				return Optional.ofNullable(executeRequest(request, argumets, method));
+				try {
+					return Optional.ofNullable(executeRequest(request, argumets, method));
+				} finally {
+					OInstrumentation.queryExecuted(statement, start);
+				}
 			} 
 		}
 		return chain.handle(target, proxy, method, args);
@@ -4,7 +4,9 @@ import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
+import java.util.RandomAccess;
 
 import org.orienteer.core.dao.IMethodHandler;
 
@@ -19,9 +21,17 @@ public class InvocationChain<T> implements IMethodHandler<T> {
 	private static final InvocationChain<?> EMPTY = new InvocationChain<Object>(Collections.emptyList());
 	
 	private Iterator<IMethodHandler<T>> it;
+	private List<IMethodHandler<T>> list;
+	private int position;
 	
 	public InvocationChain(Iterable<IMethodHandler<T>> iterable) {
-		it = iterable.iterator();
+		if(iterable instanceof List && iterable instanceof RandomAccess) {
+			//Fast path: no need to allocate iterator for a lists
+			list = (List<IMethodHandler<T>>) iterable;
+			position = 0;
+		} else {
+			it = iterable.iterator();
+		}
 	}
 
 	@Override
@@ -34,15 +44,27 @@ public class InvocationChain<T> implements IMethodHandler<T> {
 	}
 	
 	public Optional<Object> handle(T target, Object proxy, Method method, Object[] args) throws Throwable {
+		if(list!=null) {
+			return position<list.size()?list.get(position++).handle(target, proxy, method, args, this):null;
+		}
 		return it.hasNext()?it.next().handle(target, proxy, method, args, this):null;
 	}
 	
+	private Iterator<IMethodHandler<T>> remaining() {
+		if(list!=null) {
+			Iterator<IMethodHandler<T>> ret = list.listIterator(position);
+			list = null;
+			return ret;
+		}
+		return it;
+	}
+	
 	public InvocationChain<T> prepend(IMethodHandler<T>... prepand) {
 		return prepend(Arrays.asList(prepand));
 	}
 	
 	public InvocationChain<T> prepend(Iterable<IMethodHandler<T>> iterable) {
-		this.it = Iterators.concat(iterable.iterator(), it);
+		this.it = Iterators.concat(iterable.iterator(), remaining());
 		return this;
 	}
 	
@@ -51,7 +73,7 @@ public class InvocationChain<T> implements IMethodHandler<T> {
 	}
 	
 	public InvocationChain<T> append(Iterable<IMethodHandler<T>> iterable) {
-		this.it = Iterators.concat(it, iterable.iterator());
+		this.it = Iterators.concat(remaining(), iterable.iterator());
 		return this;
 	}
 	
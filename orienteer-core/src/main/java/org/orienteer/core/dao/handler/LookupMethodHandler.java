@@ -6,6 +6,7 @@ import java.util.Optional;
 
 import org.orienteer.core.dao.IMethodHandler;
 import org.orienteer.core.dao.Lookup;
+import org.orienteer.core.util.OInstrumentation;
 
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.ODatabaseSession;
@@ -22,11 +23,13 @@ public class LookupMethodHandler extends AbstractMethodHandler<ODocumentWrapper>
 
 	@Override
 	public Optional<Object> handle(ODocumentWrapper target, Object proxy, Method method, Object[] args, InvocationChain<ODocumentWrapper> chain) throws Throwable {
-		if(method.isAnnotationPresent(Lookup.class)) {
-			String sql = method.getAnnotation(Lookup.class).value();
+		DAOMethodPlan plan = DAOMethodPlan.of(method);
+		String sql = plan.getLookupSql();
+		if(sql!=null) {
 			ODatabaseSession db = ODatabaseRecordThreadLocal.instance().get();
-			Map<String, Object> preparedArgs = toArguments(method, args);
+			Map<String, Object> preparedArgs = plan.bindArguments(null, true, args);
 			preparedArgs.put("daoClass", target.getDocument().getClassName());
+			long start = OInstrumentation.start();
 			try(OResultSet rs =  db.query(sql, preparedArgs)) {
 				ODocument ret = null;
 				if(rs.hasNext()) {
@@ -34,6 +37,8 @@ public class LookupMethodHandler extends AbstractMethodHandler<ODocumentWrapper>
 					target.fromStream(ret);
 				}
 				return returnChained(proxy, method, ret!=null);
+			} finally {
+				OInstrumentation.queryExecuted(sql, start);
 			}
 		} else return chain.handle(target, proxy, method, args);
 	}
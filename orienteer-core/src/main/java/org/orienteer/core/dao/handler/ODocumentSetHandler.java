@@ -3,10 +3,7 @@ package org.orienteer.core.dao.handler;
 import java.lang.reflect.Method;
 import java.util.Optional;
 
-import org.apache.wicket.util.string.Strings;
-import org.orienteer.core.dao.DAOField;
 import org.orienteer.core.dao.IMethodHandler;
-import org.orienteer.core.util.CommonUtils;
 
 import com.orientechnologies.orient.core.type.ODocumentWrapper;
 
@@ -17,10 +14,8 @@ public class ODocumentSetHandler extends AbstractMethodHandler<ODocumentWrapper>
 
 	@Override
 	public Optional<Object> handle(ODocumentWrapper target, Object proxy, Method method, Object[] args, InvocationChain<ODocumentWrapper> chain) throws Throwable {
-		if (method.getName().startsWith("set") && args.length==1) {
-			String name=CommonUtils.decapitalize(method.getName().substring(3));
-			DAOField fieldAnnotation = method.getAnnotation(DAOField.class);
-			if(fieldAnnotation!=null && !Strings.isEmpty(fieldAnnotation.value())) name = fieldAnnotation.value();
+		String name = args.length==1?DAOMethodPlan.of(method).getSetterField():null;
+		if (name!=null) {
 			target.getDocument().field(name, prepareForDB(args[0]));
 			return returnChained(proxy, method);
 		}
@@ -0,0 +1,91 @@
+package org.orienteer.core.dao.handler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.orienteer.core.dao.IDAOCursor;
+
+import com.orientechnologies.orient.core.sql.executor.OResult;
+import com.orientechnologies.orient.core.sql.executor.OResultSet;
+
+/**
+ * {@link IDAOCursor} over {@link OResultSet}: every {@link OResult} is converted to required class on demand.
+ * Results which can't be represented as a record (projections) are skipped as for DAO methods which return collections
+ * @param <T> type of elements
+ */
+public class ResultSetCursor<T> implements IDAOCursor<T> {
+
+	private final OResultSet rs;
+	private final Class<?> requiredClass;
+	private T nextElement;
+	private boolean closed = false;
+
+	public ResultSetCursor(OResultSet rs, Class<?> requiredClass) {
+		this.rs = rs;
+		this.requiredClass = requiredClass;
+	}
+
+	@Override
+	public boolean hasNext() {
+		return fetch();
+	}
+
+	@Override
+	public T next() {
+		if(!fetch()) throw new NoSuchElementException();
+		T ret = nextElement;
+		nextElement = null;
+		return ret;
+	}
+
+	@Override
+	public List<T> next(int pageSize) {
+		if(pageSize<=0) throw new IllegalArgumentException("Page size should be positive: "+pageSize);
+		if(!fetch()) return Collections.emptyList();
+		List<T> ret = new ArrayList<>(Math.min(pageSize, 256));
+		while(ret.size()<pageSize && fetch()) ret.add(next());
+		return ret;
+	}
+
+	@SuppressWarnings("unchecked")
+	private boolean fetch() {
+		if(nextElement!=null) return true;
+		if(closed) return false;
+		try {
+			while(rs.hasNext()) {
+				nextElement = (T) AbstractMethodHandler.prepareResultForJava(rs.next(), requiredClass);
+				if(nextElement!=null) return true;
+			}
+		} catch (RuntimeException e) {
+			close();
+			throw e;
+		}
+		close();
+		return false;
+	}
+
+	@Override
+	public boolean isClosed() {
+		return closed;
+	}
+
+	@Override
+	public Stream<T> stream() {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+							.onClose(this::close);
+	}
+
+	@Override
+	public void close() {
+		if(!closed) {
+			closed = true;
+			rs.close();
+		}
+	}
+}
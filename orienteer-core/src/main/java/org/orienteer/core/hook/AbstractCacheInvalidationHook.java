@@ -0,0 +1,145 @@
+package org.orienteer.core.hook;
+
+import com.orientechnologies.orient.core.command.OCommandExecutor;
+import com.orientechnologies.orient.core.command.OCommandRequestText;
+import com.orientechnologies.orient.core.db.ODatabase;
+import com.orientechnologies.orient.core.db.ODatabaseListener;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.hook.ODocumentHookAbstract;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * {@link ODocumentHookAbstract} to invalidate in-memory caches on changes of documents.
+ * Keys affected within a transaction are collected and invalidated after commit: so a concurrent request
+ * can't put not yet committed state back into a cache. Outside of a transaction keys are invalidated right away.
+ * Executed on all nodes: each node has own in-memory cache
+ * @param <K> type of keys to be invalidated
+ */
+public abstract class AbstractCacheInvalidationHook<K> extends ODocumentHookAbstract {
+
+	private static final Logger LOG = LoggerFactory.getLogger(AbstractCacheInvalidationHook.class);
+
+	private final Set<K> pending = new LinkedHashSet<>();
+
+	public AbstractCacheInvalidationHook(ODatabaseDocument database, String... classes) {
+		super(database);
+		if(classes.length>0) setIncludeClasses(classes);
+		database.registerListener(new TransactionListener());
+	}
+
+	/**
+	 * Collect keys to be invalidated because of a change of a document.
+	 * Invoked before update and after create, update and delete of a document
+	 * @param doc changed document
+	 * @param keys collection to add keys to
+	 */
+	protected abstract void collectKeys(ODocument doc, Collection<K> keys);
+
+	/**
+	 * Invalidate cached data
+	 * @param keys keys to invalidate
+	 */
+	protected abstract void invalidate(Collection<K> keys);
+
+	private void onChange(ODocument doc) {
+		collectKeys(doc, pending);
+		if(!database.getTransaction().isActive()) flush();
+	}
+
+	private void flush() {
+		if(pending.isEmpty()) return;
+		Collection<K> keys = new ArrayList<>(pending);
+		pending.clear();
+		try {
+			invalidate(keys);
+		} catch (Exception e) {
+			LOG.error("Can't invalidate cache for keys: "+keys, e);
+		}
+	}
+
+	@Override
+	public RESULT onRecordBeforeUpdate(ODocument iDocument) {
+		collectKeys(iDocument, pending);
+		return RESULT.RECORD_NOT_CHANGED;
+	}
+
+	@Override
+	public void onRecordAfterCreate(ODocument iDocument) {
+		onChange(iDocument);
+	}
+
+	@Override
+	public void onRecordAfterUpdate(ODocument iDocument) {
+		onChange(iDocument);
+	}
+
+	@Override
+	public void onRecordAfterDelete(ODocument iDocument) {
+		onChange(iDocument);
+	}
+
+	@Override
+	public DISTRIBUTED_EXECUTION_MODE getDistributedExecutionMode() {
+		return DISTRIBUTED_EXECUTION_MODE.BOTH;
+	}
+
+	/**
+	 * Listener to invalidate collected keys on commit of a transaction
+	 */
+	private class TransactionListener implements ODatabaseListener {
+
+		@Override
+		public void onAfterTxCommit(ODatabase iDatabase) {
+			flush();
+		}
+
+		@Override
+		public void onAfterTxRollback(ODatabase iDatabase) {
+			pending.clear();
+		}
+
+		@Override
+		public void onCreate(ODatabase iDatabase) {
+		}
+
+		@Override
+		public void onDelete(ODatabase iDatabase) {
+		}
+
+		@Override
+		public void onOpen(ODatabase iDatabase) {
+		}
+
+		@Override
+		public void onBeforeTxBegin(ODatabase iDatabase) {
+		}
+
+		@Override
+		public void onBeforeTxRollback(ODatabase iDatabase) {
+		}
+
+		@Override
+		public void onBeforeTxCommit(ODatabase iDatabase) {
+		}
+
+		@Override
+		public void onClose(ODatabase iDatabase) {
+			pending.clear();
+		}
+
+		@Override
+		public void onBeforeCommand(OCommandRequestText iCommand, OCommandExecutor executor) {
+		}
+
+		@Override
+		public void onAfterCommand(OCommandRequestText iCommand, OCommandExecutor executor, Object result) {
+		}
+	}
+}
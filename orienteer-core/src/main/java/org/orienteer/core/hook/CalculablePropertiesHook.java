@@ -1,85 +1,114 @@
 package org.orienteer.core.hook;
 
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.orientechnologies.orient.core.command.OBasicCommandContext;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
 import com.orientechnologies.orient.core.hook.ODocumentHookAbstract;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OProperty;
-import com.orientechnologies.orient.core.metadata.schema.OSchema;
 import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.metadata.security.OSecurityUser;
+import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.sql.OCommandSQLParsingException;
+import com.orientechnologies.orient.core.sql.OSQLEngine;
+import com.orientechnologies.orient.core.sql.executor.OResultInternal;
 import com.orientechnologies.orient.core.sql.executor.OResultSet;
-import org.apache.commons.lang3.tuple.Pair;
+import com.orientechnologies.orient.core.sql.parser.OProjectionItem;
+import com.orientechnologies.orient.core.sql.parser.OSelectStatement;
+import com.orientechnologies.orient.core.sql.parser.OStatement;
 import org.apache.wicket.util.string.Strings;
 import org.orienteer.core.CustomAttribute;
+import org.orienteer.core.util.OInstrumentation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * {@link ODocumentHookAbstract} for automatic calculation of some properties.
  * Properties to be automatically calculated should be marked by {@link CustomAttribute}.CALCULABLE
  * Logic for calculation should be stored in {@link CustomAttribute}.CALC_SCRIPT
+ * Scripts are parsed once per property: simple expressions are evaluated in memory against loaded document,
+ * full queries and expressions with sub-queries or context variables are executed against DB.
+ * First in-memory result of a property is verified against DB query: if they differ, the property is always queried.
+ * Calculated values can be memoized per version of a document and per user: see {@link #setMemoizationEnabled(boolean)}
  */
 public class CalculablePropertiesHook extends ODocumentHookAbstract {
 
 	private static final Logger LOG = LoggerFactory.getLogger(CalculablePropertiesHook.class);
 
 	private final static Pattern FULL_QUERY_PATTERN = Pattern.compile("^\\s*(select|traverse)", Pattern.CASE_INSENSITIVE);
-	
-	private Map<String, Integer> schemaVersions                = new ConcurrentHashMap<String, Integer>();
-	private Table<String, String, List<String>> calcProperties = HashBasedTable.create();
+	private final static Pattern DB_DEPENDENT_PATTERN = Pattern.compile("\\$|\\b(select|traverse|match)\\b", Pattern.CASE_INSENSITIVE);
+
+	private static final ConcurrentMap<String, SchemaCalcProperties> CALC_PROPERTIES = new ConcurrentHashMap<>();
+
+	private static final long MEMOIZATION_CACHE_SIZE = 10000;
+	private static final Cache<String, Map<String, Object>> MEMOIZED_VALUES
+										= CacheBuilder.newBuilder().maximumSize(MEMOIZATION_CACHE_SIZE).build();
+
+	private static volatile boolean memoizationEnabled = false;
 
 	public static final String VALUE = "value";
-	
+
 	public CalculablePropertiesHook(ODatabaseDocument database) {
 		super(database);
 	}
 
+	/**
+	 * Enable or disable memoization of calculated values per document version and user.
+	 * Memoization is safe only if calculation scripts depend on the document itself
+	 * @param enabled true to memoize calculated values
+	 */
+	public static void setMemoizationEnabled(boolean enabled) {
+		memoizationEnabled = enabled;
+		if(!enabled) MEMOIZED_VALUES.invalidateAll();
+	}
+
+	public static boolean isMemoizationEnabled() {
+		return memoizationEnabled;
+	}
+
 	@Override
 	public DISTRIBUTED_EXECUTION_MODE getDistributedExecutionMode() {
 		return DISTRIBUTED_EXECUTION_MODE.SOURCE_NODE;
 	}
-	
+
 	@SuppressWarnings("deprecation")
-	private List<String> getCalcProperties(ODocument iDocument)
+	private List<CalcProperty> getCalcProperties(ODocument iDocument)
 	{
 		ODatabaseDocument db = iDocument.getDatabase();
 		OClass oClass = iDocument.getSchemaClass();
 		if(db==null || oClass==null) return null;
-		OSchema schema = db.getMetadata().getSchema();
-		int schemaVersion = schema.getVersion();
-		Integer prevSchemaVersion = schemaVersions.get(db.getURL());
-		if(!Objects.equals(prevSchemaVersion, schemaVersion))
+		int schemaVersion = db.getMetadata().getSchema().getVersion();
+		SchemaCalcProperties schemaCalcProperties = CALC_PROPERTIES.get(db.getURL());
+		if(schemaCalcProperties==null || schemaCalcProperties.schemaVersion!=schemaVersion)
 		{
-			//Clear and fullfill cache
-			calcProperties.row(db.getURL()).clear();
-			for(OClass clazz: schema.getClasses())
-			{
-				List<String> calcProperties=null;
-				for(OProperty property: clazz.properties())
-				{
-					if(CustomAttribute.CALCULABLE.getValue(property, false))
-					{
-						if(calcProperties==null) calcProperties = new ArrayList<String>();
-						calcProperties.add(property.getName());
-					}
-				}
-				if(calcProperties!=null) this.calcProperties.put(db.getURL(), clazz.getName(), calcProperties);
-			}
-			//Update schemaVersion
-			schemaVersions.put(db.getURL(), schemaVersion);
+			schemaCalcProperties = CALC_PROPERTIES.compute(db.getURL(),
+					(url, prev) -> prev==null || prev.schemaVersion!=schemaVersion
+											?new SchemaCalcProperties(schemaVersion)
+											:prev);
 		}
-		return calcProperties.get(db.getURL(), oClass.getName());
+		return schemaCalcProperties.get(oClass);
 	}
-	
+
+	@Override
+	public RESULT onTrigger(TYPE iType, ORecord iRecord) {
+		long start = OInstrumentation.start();
+		try {
+			return super.onTrigger(iType, iRecord);
+		} finally {
+			OInstrumentation.hookTriggered(this, iType, start);
+		}
+	}
+
 	@Override
 	public RESULT onRecordBeforeCreate(ODocument iDocument) {
 		return onRecordBeforeUpdate(iDocument);
@@ -87,27 +116,26 @@ public class CalculablePropertiesHook extends ODocumentHookAbstract {
 
 	@Override
 	public RESULT onRecordBeforeUpdate(ODocument iDocument) {
-		List<String> calcProperties = getCalcProperties(iDocument);
+		List<CalcProperty> calcProperties = getCalcProperties(iDocument);
 		if(calcProperties!=null && calcProperties.size()>0)
 		{
 			boolean wasChanged=false;
-			String[] fieldNames = iDocument.fieldNames();
-			for (String field : fieldNames)
+			for (CalcProperty calcProperty : calcProperties)
 			{
-				if(calcProperties.contains(field))
+				if(iDocument.containsField(calcProperty.name))
 				{
 					boolean tracking = iDocument.isTrackingChanges();
-					if(tracking) iDocument.undo(field);
+					if(tracking) iDocument.undo(calcProperty.name);
 //					iDocument.removeField(field);
 					wasChanged = true;
 				}
 			}
 			return wasChanged?RESULT.RECORD_CHANGED:RESULT.RECORD_NOT_CHANGED;
 		}
-		
+
 		return RESULT.RECORD_NOT_CHANGED;
 	}
-	
+
 	/*
 	 * Temporal commenting out! It should be fixed in OrientDB. Issue #4158
 	 * @Override
@@ -124,65 +152,177 @@ public class CalculablePropertiesHook extends ODocumentHookAbstract {
 	@Override
 	public void onRecordAfterRead(ODocument document) {
 		super.onRecordAfterRead(document);
-		OClass oClass = document.getSchemaClass();
-		if (oClass != null) {
-			List<String> calcProperties = getCalcProperties(document);
-			
-			if (calcProperties != null && !calcProperties.isEmpty()) {
-				propertiesForCalculate(calcProperties, oClass)
-						.map(p -> getData(p, document))
-						.filter(p -> p.getKey() != null && p.getValue() != null)
-						.filter(p -> p.getValue().hasNext())
-						.map(this::convertToPropertyValue)
-						.forEach(pair -> document.field(pair.getKey().getName(), pair.getValue()));
+		List<CalcProperty> calcProperties = getCalcProperties(document);
+		if (calcProperties == null || calcProperties.isEmpty()) return;
+		String memoizationKey = memoizationEnabled?getMemoizationKey(document):null;
+		Map<String, Object> values = memoizationKey!=null?MEMOIZED_VALUES.getIfPresent(memoizationKey):null;
+		if(values==null)
+		{
+			values = new HashMap<>(calcProperties.size());
+			for (CalcProperty calcProperty : calcProperties)
+			{
+				values.put(calcProperty.name, calcProperty.calculate(database, document));
 			}
+			if(memoizationKey!=null) MEMOIZED_VALUES.put(memoizationKey, values);
+		}
+		for (CalcProperty calcProperty : calcProperties)
+		{
+			Object value = values.get(calcProperty.name);
+			if(value!=null) document.field(calcProperty.name, memoizationKey!=null?calcProperty.copyValue(value):value);
+			else if(document.containsField(calcProperty.name)) document.field(calcProperty.name, (Object) null);
 		}
 	}
 
-	private Stream<OProperty> propertiesForCalculate(List<String> properties, OClass oClass) {
-		return properties.stream()
-				.map(oClass::getProperty)
-				.filter(p -> !Strings.isEmpty(CustomAttribute.CALC_SCRIPT.getValue(p)));
+	private String getMemoizationKey(ODocument document) {
+		ORID rid = document.getIdentity();
+		if(!rid.isPersistent() || document.isDirty()) return null;
+		OSecurityUser user = database.getUser();
+		return database.getURL()+"|"+(user!=null?user.getName():"")+"|"+rid+"|"+document.getVersion();
 	}
 
-	private Pair<OProperty, Object> convertToPropertyValue(Pair<OProperty, OResultSet> pair) {
-		OType type = pair.getKey().getType();
-		OType linkedType = pair.getKey().getLinkedType();
+	/**
+	 * Calculable properties of classes within a single version of a schema. Classes are analyzed on demand
+	 */
+	private static class SchemaCalcProperties {
+		private final int schemaVersion;
+		private final ConcurrentMap<String, List<CalcProperty>> classes = new ConcurrentHashMap<>();
 
-		Object value;
-
-		if (type.isMultiValue() && linkedType != null) {
-			value = OType.convert(convertToPropertyListValue(pair.getValue(), linkedType), type.getDefaultJavaType());
-		} else {
-			value = OType.convert(pair.getValue().next().getProperty(VALUE), type.getDefaultJavaType());
+		public SchemaCalcProperties(int schemaVersion) {
+			this.schemaVersion = schemaVersion;
 		}
 
-		return Pair.of(pair.getKey(), value);
+		public List<CalcProperty> get(OClass oClass) {
+			return classes.computeIfAbsent(oClass.getName(), name -> {
+				List<CalcProperty> ret = null;
+				for(OProperty property: oClass.properties())
+				{
+					if(CustomAttribute.CALCULABLE.getValue(property, false)
+							&& !Strings.isEmpty(CustomAttribute.CALC_SCRIPT.getValue(property)))
+					{
+						if(ret==null) ret = new ArrayList<>();
+						ret.add(new CalcProperty(property));
+					}
+				}
+				return ret!=null?Collections.unmodifiableList(ret):Collections.emptyList();
+			});
+		}
 	}
 
-	private List<Object> convertToPropertyListValue(OResultSet resultSet, OType linkedType) {
-		return resultSet.stream()
-				.map(result -> result.getProperty(VALUE))
-				.map(value -> OType.convert(value, linkedType.getDefaultJavaType()))
-				.collect(Collectors.toCollection(LinkedList::new));
-	}
+	/**
+	 * Calculable property with prepared script
+	 */
+	private static class CalcProperty {
+		private final String name;
+		private final String fullName;
+		private final OType type;
+		private final OType linkedType;
+		private final String script;
+		private final boolean fullQuery;
+		private volatile boolean prepared = false;
+		private volatile OProjectionItem expression;
+		private volatile boolean verified = false;
 
-	private Pair<OProperty, OResultSet> getData(OProperty property, ODocument document) {
-		String script = CustomAttribute.CALC_SCRIPT.getValue(property);
-		try {
-			OResultSet data;
+		public CalcProperty(OProperty property) {
+			this.name = property.getName();
+			this.fullName = property.getFullName();
+			this.type = property.getType();
+			this.linkedType = property.getLinkedType();
+			this.script = CustomAttribute.CALC_SCRIPT.getValue(property);
+			this.fullQuery = FULL_QUERY_PATTERN.matcher(script).find();
+		}
 
-			if (FULL_QUERY_PATTERN.matcher(script).find()) {
-				data = database.query(script, document);
-			} else {
-				data = database.query(String.format("select %s as %s from ?", script, VALUE), document);
+		public Object calculate(ODatabaseDocument db, ODocument document) {
+			OProjectionItem expression = getExpression(db);
+			if(expression!=null)
+			{
+				try
+				{
+					OBasicCommandContext ctx = new OBasicCommandContext();
+					ctx.setDatabase(db);
+					Object value = convert(Collections.singletonList(expression.copy()
+																.execute(new OResultInternal(document), ctx)));
+					if(verified) return value;
+					Object queried = query(db, document);
+					if(!Objects.equals(value, queried))
+					{
+						LOG.warn("In-memory evaluation of calculable property {} differs from query. Property will be queried", fullName);
+						this.expression = null;
+					}
+					verified = true;
+					return queried;
+				} catch (Exception e)
+				{
+					LOG.debug("Can't evaluate calculable property {} in memory. Fallback to query", fullName, e);
+					this.expression = null;
+				}
+			}
+			return query(db, document);
+		}
+
+		/**
+		 * @return parsed expression if script can be evaluated in memory without querying DB
+		 */
+		private OProjectionItem getExpression(ODatabaseDocument db) {
+			if(!prepared)
+			{
+				if(!fullQuery && !DB_DEPENDENT_PATTERN.matcher(script).find() && db instanceof ODatabaseDocumentInternal)
+				{
+					try
+					{
+						OStatement statement = OSQLEngine.parse(String.format("select %s as %s from ?", script, VALUE),
+																(ODatabaseDocumentInternal)db);
+						if(statement instanceof OSelectStatement)
+						{
+							List<OProjectionItem> items = ((OSelectStatement)statement).getProjection().getItems();
+							if(items.size()==1 && !items.get(0).isAggregate() && !items.get(0).isExpand()
+									&& !items.get(0).refersToParent())
+								expression = items.get(0);
+						}
+					} catch (Exception e)
+					{
+						LOG.debug("Can't parse script of calculable property {}: {}", fullName, script, e);
+					}
+				}
+				prepared = true;
 			}
+			return expression;
+		}
 
-			return Pair.of(property, data);
-		} catch (OCommandSQLParsingException e) {
-			LOG.warn("Can't parse SQL for calculable property: {}\nScript: {}", property.getFullName(), script, e);
+		private Object query(ODatabaseDocument db, ODocument document) {
+			try(OResultSet data = fullQuery
+									? db.query(script, document)
+									: db.query(String.format("select %s as %s from ?", script, VALUE), document)) {
+				if(!data.hasNext()) return null;
+				if(type.isMultiValue() && linkedType != null)
+					return convert(data.stream().map(result -> result.getProperty(VALUE)).collect(Collectors.toList()));
+				else return convert(Collections.singletonList(data.next().getProperty(VALUE)));
+			} catch (OCommandSQLParsingException e) {
+				LOG.warn("Can't parse SQL for calculable property: {}\nScript: {}", fullName, script, e);
+				return null;
+			}
 		}
 
-		return Pair.of(null, null);
+		private Object convert(List<Object> values) {
+			if (type.isMultiValue() && linkedType != null) {
+				List<Object> list = new LinkedList<>();
+				for (Object value : values) {
+					if(value instanceof Collection) {
+						for (Object item : (Collection<?>)value) list.add(OType.convert(item, linkedType.getDefaultJavaType()));
+					} else list.add(OType.convert(value, linkedType.getDefaultJavaType()));
+				}
+				return OType.convert(list, type.getDefaultJavaType());
+			} else {
+				return OType.convert(values.isEmpty()?null:values.get(0), type.getDefaultJavaType());
+			}
+		}
+
+		/**
+		 * Memoized values can be shared between documents, so collections should be copied
+		 */
+		public Object copyValue(Object value) {
+			if(value instanceof Collection) return OType.convert(new LinkedList<>((Collection<?>)value), type.getDefaultJavaType());
+			else if(value instanceof Map) return new LinkedHashMap<>((Map<?, ?>)value);
+			else return value;
+		}
 	}
 }
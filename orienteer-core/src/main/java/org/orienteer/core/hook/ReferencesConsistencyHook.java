@@ -1,38 +1,58 @@
 package org.orienteer.core.hook;
 
-import com.google.common.base.Predicate;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import com.google.common.collect.Collections2;
+import com.orientechnologies.orient.core.command.OCommandExecutor;
+import com.orientechnologies.orient.core.command.OCommandRequestText;
+import com.orientechnologies.orient.core.db.ODatabase;
+import com.orientechnologies.orient.core.db.ODatabaseListener;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.db.record.OMultiValueChangeEvent;
 import com.orientechnologies.orient.core.db.record.OMultiValueChangeTimeLine;
+import com.orientechnologies.orient.core.db.record.ORecordLazyMultiValue;
+import com.orientechnologies.orient.core.db.record.ORecordOperation;
+import com.orientechnologies.orient.core.db.record.ridbag.ORidBag;
 import com.orientechnologies.orient.core.exception.OConcurrentModificationException;
 import com.orientechnologies.orient.core.hook.ODocumentHookAbstract;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OProperty;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.tx.OTransaction;
 import org.orienteer.core.CustomAttribute;
+import org.orienteer.core.util.OInstrumentation;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ExecutionException;
 
 /**
- * {@link ODocumentHookAbstract} for keeping references consistency between documents
+ * {@link ODocumentHookAbstract} for keeping references consistency between documents.
+ * Changes of inverse links are collected and coalesced per target document and applied at once:
+ * on commit of a transaction or, if there is no active transaction, right after processing of the saved document.
  */
 public class ReferencesConsistencyHook extends ODocumentHookAbstract
 {
 	private static final Logger LOG = LoggerFactory.getLogger(ReferencesConsistencyHook.class);
+	private static final int MAX_RETRIES = 10;
+	private static final int MAX_FLUSH_ROUNDS = 100;
 	private int currentSchemaVersion=-1;
 	private static final LoadingCache<OClass, Collection<OProperty>> CACHE 
 								= CacheBuilder.newBuilder().build(new CacheLoader<OClass, Collection<OProperty>>() {
@@ -47,9 +67,13 @@ public class ReferencesConsistencyHook extends ODocumentHookAbstract
 
 	private static final ThreadLocal<List<ODocument>> ENTRY_LOCK = ThreadLocal.withInitial(() -> new ArrayList<ODocument>(3));
 	private static final ThreadLocal<Boolean> HOOK_DISABLED      = ThreadLocal.withInitial(() -> false);
-			
+
+	private final Map<ORID, TargetChanges> pending = new LinkedHashMap<>();
+	private boolean flushing = false;
+
 	public ReferencesConsistencyHook(ODatabaseDocument database) {
 		super(database);
+		database.registerListener(new TransactionListener());
 	}
 
 	private boolean enter(ODocument doc) {
@@ -59,17 +83,30 @@ public class ReferencesConsistencyHook extends ODocumentHookAbstract
 		if(ret) docs.add(doc);
 		return ret;
 	}
-	
+
 	private void exit(ODocument doc)
 	{
-		ENTRY_LOCK.get().remove(doc);
+		try
+		{
+			//Outside of transaction changes are applied once the top most document was processed
+			if(ENTRY_LOCK.get().size()==1 && !isInTransaction()) flush();
+		}
+		finally
+		{
+			ENTRY_LOCK.get().remove(doc);
+		}
 	}
-	
+
 	private boolean isUnderTheLock(ODocument doc)
 	{
 		return ENTRY_LOCK.get().contains(doc);
 	}
-	
+
+	private boolean isInTransaction()
+	{
+		return database.getTransaction().isActive();
+	}
+
 	private void saveOutOfHook(ODocument doc)
 	{
 		try
@@ -82,12 +119,12 @@ public class ReferencesConsistencyHook extends ODocumentHookAbstract
 			HOOK_DISABLED.set(false);
 		}
 	}
-	
+
 	@Override
 	public DISTRIBUTED_EXECUTION_MODE getDistributedExecutionMode() {
 		return DISTRIBUTED_EXECUTION_MODE.SOURCE_NODE;
 	}
-	
+
 	private LoadingCache<OClass, Collection<OProperty>> getCache() {
 		int version = ODatabaseRecordThreadLocal.instance().get().getMetadata().getImmutableSchemaSnapshot().getVersion();
 		if(version>currentSchemaVersion)
@@ -98,6 +135,16 @@ public class ReferencesConsistencyHook extends ODocumentHookAbstract
 		return CACHE;
 	}
 
+	@Override
+	public RESULT onTrigger(TYPE iType, ORecord iRecord) {
+		long start = OInstrumentation.start();
+		try {
+			return super.onTrigger(iType, iRecord);
+		} finally {
+			OInstrumentation.hookTriggered(this, iType, start);
+		}
+	}
+
 	@Override
 	public void onRecordAfterCreate(ODocument doc) {
 		if(enter(doc)) {
@@ -105,32 +152,7 @@ public class ReferencesConsistencyHook extends ODocumentHookAbstract
 				Collection<OProperty> refProperties = getCache().get(doc.getSchemaClass());
 				for (OProperty oProperty : refProperties) {
 					OProperty inverseProperty = CustomAttribute.PROP_INVERSE.getValue(oProperty);
-					Object value = doc.field(oProperty.getName());
-					if(value instanceof OIdentifiable) {
-					    value = Collections.singletonList(value);
-                    }
-					if(inverseProperty != null && value instanceof Collection)
-					{
-						for(Object otherObj: (Collection<?>)value)
-						{
-							if(otherObj instanceof OIdentifiable)
-							{
-								ODocument otherDoc = ((OIdentifiable) otherObj).getRecord();
-
-								for (int i = 0; i <= 10; i++) {
-									try {
-										addLink(otherDoc, inverseProperty, doc);
-//										database.commit();
-									} catch (OConcurrentModificationException e) {
-										otherDoc.reload();
-										if (i == 10) {
-											throw new IllegalStateException(e);
-										}
-									}
-								}
-							}
-						}
-					}
+					addLinks(doc.field(oProperty.getName()), inverseProperty, doc);
 				}
 			} catch (ExecutionException e)
 			{
@@ -142,8 +164,8 @@ public class ReferencesConsistencyHook extends ODocumentHookAbstract
 			}
 		}
 	}
-	
-	
+
+
 
 	@Override
 	public void onRecordAfterUpdate(ODocument doc) {
@@ -152,7 +174,6 @@ public class ReferencesConsistencyHook extends ODocumentHookAbstract
 			try
 			{
 				OClass thisOClass = doc.getSchemaClass();
-//				if(thisOClass==null) return;
 				Collection<OProperty> refProperties = getCache().get(thisOClass);
 				if(refProperties!=null && refProperties.size()>0)
 				{
@@ -187,48 +208,26 @@ public class ReferencesConsistencyHook extends ODocumentHookAbstract
 												toRemoveFrom = (OIdentifiable)event.getOldValue();
 												break;
 										}
-										if(toAddTo!=null) addLink((ODocument)toAddTo.getRecord(), inverseProperty, doc);
-										if(toRemoveFrom!=null) removeLink((ODocument)toRemoveFrom.getRecord(), inverseProperty, doc);
+										if(toRemoveFrom!=null) removeLink(toRemoveFrom, inverseProperty, doc);
+										if(toAddTo!=null) addLink(toAddTo, inverseProperty, doc);
 									}
 								}
 								else
 								{
 									//whole collection was replaces
-									Object original = doc.getOriginalValue(field);
-									Object current = doc.field(field);
-									if(original!=null && original instanceof Iterable)
-									{
-										for(Object originaIdentifiable: (Iterable<?>)original)
-										{
-											if(originaIdentifiable!=null && originaIdentifiable instanceof OIdentifiable) 
-												removeLink((ODocument)((OIdentifiable)originaIdentifiable).getRecord(), 
-															inverseProperty, doc);
-										}
-									}
-									if(current!=null && current instanceof Iterable)
-									{
-										for(Object currentIdentifiable: (Iterable<?>)current)
-										{
-											if(currentIdentifiable!=null && currentIdentifiable instanceof OIdentifiable) 
-												addLink((ODocument)((OIdentifiable)currentIdentifiable).getRecord(),
-															inverseProperty, doc);
-										}
-									}
+									removeLinks(doc.getOriginalValue(field), inverseProperty, doc);
+									addLinks(doc.field(field), inverseProperty, doc);
 								}
 							}
 							else
 							{
-								Object original = doc.getOriginalValue(field);
-								Object current = doc.field(field);
-								if(original!=null && original instanceof OIdentifiable) 
-									removeLink((ODocument)((OIdentifiable)original).getRecord(), inverseProperty, doc);
-								if(current!=null && current instanceof OIdentifiable)
-									addLink((ODocument)((OIdentifiable)current).getRecord(), inverseProperty, doc);
+								removeLinks(doc.getOriginalValue(field), inverseProperty, doc);
+								addLinks(doc.field(field), inverseProperty, doc);
 							}
 						}
 					}
 				}
-				
+
 			} catch (ExecutionException e)
 			{
 				LOG.error("Can't update reverse links onUpdate", e);
@@ -247,24 +246,11 @@ public class ReferencesConsistencyHook extends ODocumentHookAbstract
 			try
 			{
 				OClass thisOClass = doc.getSchemaClass();
-//				if(thisOClass==null) return;
 				Collection<OProperty> refProperties = getCache().get(thisOClass);
 				for (OProperty oProperty : refProperties)
 				{
 					OProperty inverseProperty = CustomAttribute.PROP_INVERSE.getValue(oProperty);
-					Object value = doc.field(oProperty.getName());
-					if(value instanceof OIdentifiable) value = Arrays.asList(value);
-					if(inverseProperty!=null && value!=null && value instanceof Collection)
-					{
-						for(Object otherObj: (Collection<?>)value)
-						{
-							if(otherObj instanceof OIdentifiable)
-							{
-								ODocument otherDoc = ((OIdentifiable) otherObj).getRecord();
-								removeLink(otherDoc, inverseProperty, doc);
-							}
-						}
-					}
+					removeLinks(doc.field(oProperty.getName()), inverseProperty, doc);
 				}
 			} catch (ExecutionException e)
 			{
@@ -276,70 +262,340 @@ public class ReferencesConsistencyHook extends ODocumentHookAbstract
 			}
 		}
 	}
-	
-	@SuppressWarnings("unchecked")
-	private void addLink(ODocument doc, OProperty property, ODocument value)
+
+	private void addLinks(Object value, OProperty property, ODocument doc)
 	{
-		if(doc==null || property ==null || value == null || isUnderTheLock(doc)) return;
-		String field = property.getName();
-		if(doc.getSchemaClass().isSubClassOf(property.getOwnerClass()))
+		if(value instanceof OIdentifiable) addLink((OIdentifiable)value, property, doc);
+		else if(value instanceof Iterable)
 		{
-			Object wrappedValue = value.getIdentity().isPersistent()?value.getIdentity():value;
-			Object oldValue = doc.field(field);
-			if(property.getType().isMultiValue())
+			for(Object other : (Iterable<?>)value)
 			{
-				Collection<Object> objects = (Collection<Object>) oldValue;
-				if(objects==null)
-				{
-					objects = new ArrayList<Object>(1);
-					objects.add(wrappedValue);
-					doc.field(field, objects);
-					//It's safe of fields with multivalue
-					saveOutOfHook(doc);
-				}
-				else if(!objects.contains(wrappedValue)) 
+				if(other instanceof OIdentifiable) addLink((OIdentifiable)other, property, doc);
+			}
+		}
+	}
+
+	private void removeLinks(Object value, OProperty property, ODocument doc)
+	{
+		if(value instanceof OIdentifiable) removeLink((OIdentifiable)value, property, doc);
+		else if(value instanceof Iterable)
+		{
+			for(Object other : (Iterable<?>)value)
+			{
+				if(other instanceof OIdentifiable) removeLink((OIdentifiable)other, property, doc);
+			}
+		}
+	}
+
+	private void addLink(OIdentifiable target, OProperty property, ODocument value)
+	{
+		TargetChanges changes = getTargetChanges(target, property, value);
+		if(changes!=null) changes.getFieldChanges(property).add(wrap(value));
+	}
+
+	private void removeLink(OIdentifiable target, OProperty property, ODocument value)
+	{
+		TargetChanges changes = getTargetChanges(target, property, value);
+		if(changes!=null) changes.getFieldChanges(property).remove(wrap(value));
+	}
+
+	private TargetChanges getTargetChanges(OIdentifiable target, OProperty property, ODocument value)
+	{
+		if(target==null || property==null || value==null) return null;
+		ODocument doc = target.getRecord();
+		if(doc==null || doc.getSchemaClass()==null
+				|| !doc.getSchemaClass().isSubClassOf(property.getOwnerClass())) return null;
+		ORID rid = doc.getIdentity().copy();
+		TargetChanges changes = pending.get(rid);
+		if(changes==null)
+		{
+			changes = new TargetChanges(doc);
+			pending.put(rid, changes);
+		}
+		return changes;
+	}
+
+	/**
+	 * @return RID of persisted document or the document itself: temporary RIDs are changed on commit
+	 */
+	private static OIdentifiable wrap(ODocument value)
+	{
+		return value.getIdentity().isPersistent()?value.getIdentity():value;
+	}
+
+	/**
+	 * Apply all pending changes of inverse links. Applying can produce new changes, so it's repeated till no more changes left
+	 */
+	private void flush()
+	{
+		if(flushing) return;
+		flushing = true;
+		try
+		{
+			for(int round=0; !pending.isEmpty(); round++)
+			{
+				if(round>=MAX_FLUSH_ROUNDS) throw new IllegalStateException("Inverse links can't be stabilized");
+				List<TargetChanges> toApply = new ArrayList<>(pending.values());
+				pending.clear();
+				for (TargetChanges changes : toApply)
 				{
-					objects.add(wrappedValue);
-					//It's safe of fields with multivalue
-					saveOutOfHook(doc);
+					if(!isUnderTheLock(changes.doc) && !isDeleted(changes.doc)) apply(changes);
 				}
 			}
-			else
+		}
+		finally
+		{
+			flushing = false;
+			pending.clear();
+		}
+	}
+
+	private boolean isDeleted(ODocument doc)
+	{
+		OTransaction tx = database.getTransaction();
+		if(!tx.isActive()) return false;
+		ORecordOperation operation = tx.getRecordEntry(doc.getIdentity());
+		return operation!=null && operation.type==ORecordOperation.DELETED;
+	}
+
+	private void apply(TargetChanges changes)
+	{
+		ODocument doc = changes.doc;
+		boolean retry = !isInTransaction();
+		for (int i = 0; ; i++)
+		{
+			try
 			{
-				if (oldValue==null || !oldValue.equals(wrappedValue)){
-					doc.field(field, wrappedValue);
-					doc.save();
-				}
+				changes.apply();
+				return;
+			}
+			catch (OConcurrentModificationException e)
+			{
+				if(!retry || i >= MAX_RETRIES) throw new IllegalStateException(e);
+				doc.reload();
+			}
+		}
+	}
+
+	/**
+	 * Coalesced changes of inverse links for a single document
+	 */
+	private class TargetChanges
+	{
+		private final ODocument doc;
+		private final Map<OProperty, FieldChanges> fields = new LinkedHashMap<>(2);
+
+		public TargetChanges(ODocument doc)
+		{
+			this.doc = doc;
+		}
+
+		public FieldChanges getFieldChanges(OProperty property)
+		{
+			return fields.computeIfAbsent(property, FieldChanges::new);
+		}
+
+		public void apply()
+		{
+			boolean multiValueChanged = false;
+			boolean singleValueChanged = false;
+			for (FieldChanges changes : fields.values())
+			{
+				if(changes.property.getType().isMultiValue()) multiValueChanged |= changes.applyMultiValue(doc);
+				else singleValueChanged |= changes.applySingleValue(doc);
 			}
+			//It's safe to save out of hook if only fields with multivalue were changed
+			if(singleValueChanged) doc.save();
+			else if(multiValueChanged) saveOutOfHook(doc);
 		}
 	}
-	
-	private void removeLink(ODocument doc, OProperty property, ODocument value)
+
+	/**
+	 * Set based changes of a single link field: links to add and links to remove.
+	 * Links to not yet persisted documents are compared by reference: their temporary RIDs change on commit
+	 */
+	private static class FieldChanges
 	{
-		if(doc==null || property ==null || value == null || isUnderTheLock(doc)) return;
-		String field = property.getName();
-		if(doc.getSchemaClass().isSubClassOf(property.getOwnerClass()))
+		private final OProperty property;
+		private final Set<OIdentifiable> toAdd = new LinkedHashSet<>();
+		private final Set<ORID> toRemove = new HashSet<>();
+		private final Set<OIdentifiable> toRemoveTemporary = Collections.newSetFromMap(new IdentityHashMap<>());
+
+		public FieldChanges(OProperty property)
+		{
+			this.property = property;
+		}
+
+		public void add(OIdentifiable value)
+		{
+			if(value instanceof ORID) toRemove.remove(value);
+			else toRemoveTemporary.remove(value);
+			if(!property.getType().isMultiValue()) toAdd.clear();
+			toAdd.add(value);
+		}
+
+		public void remove(OIdentifiable value)
+		{
+			toAdd.remove(value);
+			if(value instanceof ORID) toRemove.add((ORID)value);
+			else toRemoveTemporary.add(value);
+		}
+
+		private boolean isRemoved(Object link)
+		{
+			if(!(link instanceof OIdentifiable)) return false;
+			ORID rid = ((OIdentifiable)link).getIdentity();
+			if(rid.isPersistent()) return toRemove.contains(rid);
+			if(toRemoveTemporary.isEmpty()) return false;
+			return toRemoveTemporary.contains(link instanceof ORID?((ORID)link).getRecord():link);
+		}
+
+		public boolean applySingleValue(ODocument doc)
+		{
+			String field = property.getName();
+			Object oldValue = doc.field(field);
+			if(!toAdd.isEmpty())
+			{
+				OIdentifiable value = toAdd.iterator().next();
+				if(oldValue==null || !oldValue.equals(value))
+				{
+					doc.field(field, value);
+					return true;
+				}
+			}
+			else if(isRemoved(oldValue))
+			{
+				doc.field(field, (Object) null);
+				return true;
+			}
+			return false;
+		}
+
+		@SuppressWarnings("unchecked")
+		public boolean applyMultiValue(ODocument doc)
 		{
-			Object wrappedValue = value.getIdentity().isPersistent()?value.getIdentity():value;
-			if(property.getType().isMultiValue())
+			String field = property.getName();
+			Object value = doc.field(field);
+			if(value==null)
 			{
-				Collection<Object> objects = doc.field(field);
-				if(objects!=null && objects.remove(wrappedValue))
+				if(toAdd.isEmpty()) return false;
+				if(OType.LINKBAG.equals(property.getType()))
 				{
-					doc.field(field, objects);
-					//It's safe for multivalue docs
-					saveOutOfHook(doc);
+					ORidBag bag = new ORidBag();
+					for (OIdentifiable link : toAdd) bag.add(link);
+					value = bag;
 				}
+				else value = OType.LINKSET.equals(property.getType())?new HashSet<>(toAdd):new ArrayList<>(toAdd);
+				doc.field(field, value);
+				return true;
 			}
-			else
+			else if(value instanceof ORidBag)
 			{
-				if(value.getIdentity().equals(doc.field(field, ORID.class)))
+				ORidBag bag = (ORidBag) value;
+				boolean changed = false;
+				List<OIdentifiable> removed = new ArrayList<>(toRemove);
+				removed.addAll(toRemoveTemporary);
+				for (OIdentifiable link : removed)
 				{
-					doc.field(field, (Object) null);
-					doc.save();
+					if(bag.contains(link))
+					{
+						bag.remove(link);
+						changed = true;
+					}
+				}
+				for (OIdentifiable link : toAdd)
+				{
+					if(!bag.contains(link))
+					{
+						bag.add(link);
+						changed = true;
+					}
 				}
+				return changed;
 			}
+			else if(value instanceof Collection)
+			{
+				Collection<Object> objects = (Collection<Object>) value;
+				Set<ORID> existing = new HashSet<>(objects.size()*4/3+1);
+				List<Object> removed = new ArrayList<>();
+				//Raw iteration: links to deleted records should not be resolved to null
+				Iterator<?> it = objects instanceof ORecordLazyMultiValue
+										?((ORecordLazyMultiValue)objects).rawIterator()
+										:objects.iterator();
+				while(it.hasNext())
+				{
+					Object link = it.next();
+					if(!(link instanceof OIdentifiable)) continue;
+					if(isRemoved(link)) removed.add(link);
+					else existing.add(((OIdentifiable)link).getIdentity());
+				}
+				boolean changed = !removed.isEmpty();
+				for (Object link : removed) objects.remove(link);
+				for (OIdentifiable link : toAdd)
+				{
+					if(existing.add(link.getIdentity()))
+					{
+						objects.add(link);
+						changed = true;
+					}
+				}
+				if(changed) doc.field(field, objects);
+				return changed;
+			}
+			return false;
 		}
 	}
 
+	/**
+	 * Listener to apply pending changes of inverse links on commit of a transaction
+	 */
+	private class TransactionListener implements ODatabaseListener
+	{
+		@Override
+		public void onBeforeTxCommit(ODatabase iDatabase) {
+			flush();
+		}
+
+		@Override
+		public void onAfterTxRollback(ODatabase iDatabase) {
+			pending.clear();
+		}
+
+		@Override
+		public void onCreate(ODatabase iDatabase) {
+		}
+
+		@Override
+		public void onDelete(ODatabase iDatabase) {
+		}
+
+		@Override
+		public void onOpen(ODatabase iDatabase) {
+		}
+
+		@Override
+		public void onBeforeTxBegin(ODatabase iDatabase) {
+		}
+
+		@Override
+		public void onBeforeTxRollback(ODatabase iDatabase) {
+		}
+
+		@Override
+		public void onAfterTxCommit(ODatabase iDatabase) {
+		}
+
+		@Override
+		public void onClose(ODatabase iDatabase) {
+			pending.clear();
+		}
+
+		@Override
+		public void onBeforeCommand(OCommandRequestText iCommand, OCommandExecutor executor) {
+		}
+
+		@Override
+		public void onAfterCommand(OCommandRequestText iCommand, OCommandExecutor executor, Object result) {
+		}
+	}
 }
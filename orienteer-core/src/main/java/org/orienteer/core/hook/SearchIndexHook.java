@@ -0,0 +1,65 @@
+package org.orienteer.core.hook;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.hook.ODocumentHookAbstract;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import org.orienteer.core.OrienteerWebApplication;
+import org.orienteer.core.module.SearchIndexModule;
+import org.orienteer.core.service.ISearchEngine;
+import org.orienteer.core.util.CommonUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+
+/**
+ * {@link ODocumentHookAbstract} to incrementally update index of {@link ISearchEngine}.
+ * Documents changed within a transaction are indexed after commit: when they have persistent identities
+ * and rolled back changes are not indexed at all
+ */
+public class SearchIndexHook extends AbstractCacheInvalidationHook<ORID> {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SearchIndexHook.class);
+
+	public SearchIndexHook(ODatabaseDocument database) {
+		super(database);
+		setExcludeClasses(SearchIndexModule.OCLASS_SEARCH_INDEX);
+	}
+
+	@Override
+	protected void collectKeys(ODocument doc, Collection<ORID> keys) {
+		OClass oClass = doc.getSchemaClass();
+		if(oClass==null) return;
+		OrienteerWebApplication app = OrienteerWebApplication.lookupApplication();
+		//Temporary identity is updated in place on commit
+		if(app!=null && app.getServiceInstance(ISearchEngine.class).isSearchable(oClass)) keys.add(doc.getIdentity());
+	}
+
+	@Override
+	protected void invalidate(Collection<ORID> keys) {
+		OrienteerWebApplication app = OrienteerWebApplication.lookupApplication();
+		if(app==null) return;
+		ISearchEngine engine = app.getServiceInstance(ISearchEngine.class);
+		CommonUtils.sudo(app, db -> {
+			for (ORID rid : keys) {
+				if(!rid.isPersistent()) continue;
+				try {
+					ODocument doc = db.load(rid);
+					if(doc!=null) engine.index(doc);
+					else engine.remove(rid);
+				} catch (Exception e) {
+					//Engine marks index of the class as stale: it will be rebuilt on next search
+					LOG.error("Can't update search index for document {}", rid, e);
+				}
+			}
+			return null;
+		});
+	}
+
+	@Override
+	public DISTRIBUTED_EXECUTION_MODE getDistributedExecutionMode() {
+		return DISTRIBUTED_EXECUTION_MODE.SOURCE_NODE;
+	}
+}
@@ -0,0 +1,308 @@
+package org.orienteer.core.module;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.sql.executor.OResult;
+import com.orientechnologies.orient.core.sql.executor.OResultSet;
+import org.apache.wicket.Application;
+import org.apache.wicket.util.string.Strings;
+import org.orienteer.core.dao.DAO;
+import org.orienteer.core.module.OrienteerLocalizationModule.IOLocalization;
+import org.orienteer.core.util.CommonUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * In-memory index of all {@link IOLocalization}s grouped by key.
+ * Index is loaded from DB once and then invalidated per key by {@link OrienteerLocalizationModule.LocalizationInvalidationHook}.
+ * Keys without localizations are cached as well, and missing localizations are registered in DB asynchronously by batches.
+ */
+final class LocalizationCache {
+
+	private static final Logger LOG = LoggerFactory.getLogger(LocalizationCache.class);
+
+	private static final String SELECT_ALL_SQL = "select key, language, style, variation, active, value from "
+													+ IOLocalization.CLASS_NAME;
+	private static final String SELECT_BY_KEY_SQL = SELECT_ALL_SQL + " where key = ?";
+
+	static final int DEFAULT_BATCH_SIZE = 100;
+	static final long DEFAULT_FLUSH_INTERVAL = 1000;
+
+	private final ConcurrentMap<String, List<Entry>> index = new ConcurrentHashMap<>();
+	private final Set<String> staleKeys = ConcurrentHashMap.newKeySet();
+	private final Map<Entry, Boolean> pending = new ConcurrentHashMap<>();
+	private final Object loadLock = new Object();
+	private final Object flushLock = new Object();
+	private volatile boolean loaded = false;
+
+	private final int batchSize;
+	private final Application application;
+	private final ScheduledExecutorService writer;
+
+	public LocalizationCache() {
+		this(DEFAULT_BATCH_SIZE, DEFAULT_FLUSH_INTERVAL);
+	}
+
+	/**
+	 * Constructor
+	 * @param batchSize max number of missing localizations to be registered within single transaction
+	 * @param flushInterval interval in milliseconds between registrations of missing localizations
+	 */
+	public LocalizationCache(int batchSize, long flushInterval) {
+		if (batchSize <= 0) throw new IllegalArgumentException("Batch size should be positive: " + batchSize);
+		this.batchSize = batchSize;
+		this.application = Application.exists() ? Application.get() : null;
+		writer = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "orienteer-localization-writer");
+			thread.setDaemon(true);
+			return thread;
+		});
+		writer.scheduleWithFixedDelay(this::flushQuietly, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Lookup value of localization. If there is no localization for exactly the same language, style and variation:
+	 * it will be registered in DB for future translation
+	 * @param key key of localization
+	 * @param language language
+	 * @param style style
+	 * @param variation variation
+	 * @return localized value or null if localization is not yet defined or not active
+	 */
+	public String getValue(String key, String language, String style, String variation) {
+		Entry target = new Entry(key, language, style, variation, false, null);
+		Entry bestMatch = null;
+		int bestScore = -1;
+		for (Entry entry : getEntries(key)) {
+			int score = entry.computeScore(target);
+			if (score > bestScore) {
+				bestMatch = entry;
+				bestScore = score;
+			}
+		}
+		if (bestMatch != null && bestScore == 7) return bestMatch.active ? bestMatch.value : null;
+		register(target);
+		return null;
+	}
+
+	/**
+	 * Invalidate localizations for specified key: they will be reloaded from DB on next lookup
+	 * @param key key to invalidate
+	 */
+	public void invalidate(String key) {
+		if (key == null) return;
+		staleKeys.add(key);
+		index.remove(key);
+	}
+
+	/**
+	 * Invalidate all localizations: the whole index will be reloaded from DB on next lookup
+	 */
+	public void invalidateAll() {
+		synchronized (loadLock) {
+			loaded = false;
+			index.clear();
+			staleKeys.clear();
+		}
+	}
+
+	private List<Entry> getEntries(String key) {
+		if (key == null) return Collections.emptyList();
+		if (!loaded) load();
+		if (!staleKeys.isEmpty() && staleKeys.remove(key)) {
+			List<Entry> entries = withDatabase(db -> {
+				try (OResultSet rs = db.query(SELECT_BY_KEY_SQL, key)) {
+					List<Entry> ret = new ArrayList<>();
+					while (rs.hasNext()) ret.add(new Entry(rs.next()));
+					return ret;
+				}
+			});
+			for (Entry entry : pending.keySet()) {
+				if (entry.key.equals(key) && !entries.contains(entry)) entries.add(entry);
+			}
+			if (entries.isEmpty()) index.remove(key);
+			else index.put(key, Collections.unmodifiableList(entries));
+		}
+		List<Entry> entries = index.get(key);
+		return entries != null ? entries : Collections.emptyList();
+	}
+
+	private void load() {
+		synchronized (loadLock) {
+			if (loaded) return;
+			Map<String, List<Entry>> all = withDatabase(db -> {
+				Map<String, List<Entry>> ret = new HashMap<>();
+				try (OResultSet rs = db.query(SELECT_ALL_SQL)) {
+					while (rs.hasNext()) {
+						Entry entry = new Entry(rs.next());
+						if (entry.key != null) ret.computeIfAbsent(entry.key, k -> new ArrayList<>()).add(entry);
+					}
+				}
+				return ret;
+			});
+			for (Map.Entry<String, List<Entry>> entry : all.entrySet()) {
+				index.put(entry.getKey(), Collections.unmodifiableList(entry.getValue()));
+			}
+			loaded = true;
+		}
+	}
+
+	private void register(Entry entry) {
+		if (entry.key == null || pending.putIfAbsent(entry, Boolean.TRUE) != null) return;
+		//Remember as inactive right away: the same miss should not be registered once again
+		index.compute(entry.key, (key, prev) -> {
+			List<Entry> entries = prev != null ? new ArrayList<>(prev) : new ArrayList<>(1);
+			entries.add(entry);
+			return Collections.unmodifiableList(entries);
+		});
+		if (pending.size() >= batchSize) {
+			try {
+				writer.execute(this::flushQuietly);
+			} catch (RejectedExecutionException e) {
+				flush();
+			}
+		}
+	}
+
+	/**
+	 * Register all pending missing localizations in DB
+	 */
+	public void flush() {
+		synchronized (flushLock) {
+			for (int batches = pending.size() / batchSize + 1; batches > 0 && !pending.isEmpty(); batches--) {
+				List<Entry> batch = new ArrayList<>(Math.min(batchSize, pending.size()));
+				Iterator<Entry> it = pending.keySet().iterator();
+				while (it.hasNext() && batch.size() < batchSize) batch.add(it.next());
+				if (batch.isEmpty()) break;
+				writeBatch(batch);
+				pending.keySet().removeAll(batch);
+			}
+		}
+	}
+
+	private void writeBatch(List<Entry> batch) {
+		withDatabase(db -> {
+			db.begin();
+			try {
+				for (Entry entry : batch) {
+					//Localization might be already registered by another node or by another application
+					boolean exists = false;
+					try (OResultSet rs = db.query(SELECT_BY_KEY_SQL, entry.key)) {
+						while (rs.hasNext() && !exists) exists = entry.equals(new Entry(rs.next()));
+					}
+					if (!exists) {
+						DAO.create(IOLocalization.class)
+								.setKey(entry.key)
+								.setLanguage(entry.language)
+								.setStyle(entry.style)
+								.setVariation(entry.variation)
+								.save();
+					}
+				}
+				db.commit();
+			} catch (RuntimeException e) {
+				db.rollback();
+				throw e;
+			}
+			return null;
+		});
+	}
+
+	private void flushQuietly() {
+		try {
+			flush();
+		} catch (Exception e) {
+			LOG.error("Can't register missing localizations in DB. Will retry later", e);
+		}
+	}
+
+	private <R> R withDatabase(Function<ODatabaseDocument, R> function) {
+		return CommonUtils.sudo(application, function);
+	}
+
+	/**
+	 * Stop background registration of missing localizations and register all pending ones
+	 */
+	public void destroy() {
+		writer.shutdown();
+		try {
+			writer.awaitTermination(DEFAULT_FLUSH_INTERVAL * 10, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		flushQuietly();
+	}
+
+	/**
+	 * Immutable copy of a single localization
+	 */
+	private static final class Entry {
+		private final String key;
+		private final String language;
+		private final String style;
+		private final String variation;
+		private final boolean active;
+		private final String value;
+
+		public Entry(String key, String language, String style, String variation, boolean active, String value) {
+			this.key = key;
+			this.language = language;
+			this.style = style;
+			this.variation = variation;
+			this.active = active;
+			this.value = value;
+		}
+
+		public Entry(OResult result) {
+			this(result.getProperty("key"), result.getProperty("language"),
+					result.getProperty("style"), result.getProperty("variation"),
+					Boolean.TRUE.equals(result.getProperty("active")), result.getProperty("value"));
+		}
+
+		/**
+		 * Mirrors {@link IOLocalization#computeScore(IOLocalization)}
+		 */
+		public int computeScore(Entry target) {
+			int score = 0;
+			if (Strings.isEqual(target.language, language)) score |= 1<<2;
+			if (Strings.isEqual(target.style, style)) score |= 1<<1;
+			if (Strings.isEqual(target.variation, variation)) score |= 1;
+			return score;
+		}
+
+		/**
+		 * Entries are equal if they are for the same key, language, style and variation
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof Entry)) return false;
+			Entry other = (Entry) obj;
+			return Objects.equals(key, other.key)
+					&& Strings.isEqual(language, other.language)
+					&& Strings.isEqual(style, other.style)
+					&& Strings.isEqual(variation, other.variation);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(key, Strings.isEmpty(language) ? null : language,
+					Strings.isEmpty(style) ? null : style, Strings.isEmpty(variation) ? null : variation);
+		}
+	}
+}
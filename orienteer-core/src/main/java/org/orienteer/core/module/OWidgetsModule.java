@@ -5,6 +5,7 @@ import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.orientechnologies.orient.core.db.ODatabaseSession;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.hook.ORecordHook;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OClass.INDEX_TYPE;
 import com.orientechnologies.orient.core.metadata.schema.OSchema;
@@ -19,12 +20,15 @@ import org.orienteer.core.component.widget.AbstractHtmlJsPaneWidget;
 import org.orienteer.core.component.widget.document.CalculatedDocumentsWidget;
 import org.orienteer.core.component.widget.document.ExternalPageWidget;
 import org.orienteer.core.component.widget.document.ExternalViewWidget;
+import org.orienteer.core.hook.AbstractCacheInvalidationHook;
 import org.orienteer.core.util.OSchemaHelper;
+import org.orienteer.core.widget.IDashboardManager;
 import org.orienteer.core.widget.IWidgetType;
 import org.orienteer.core.widget.IWidgetTypesRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 
@@ -111,6 +115,7 @@ public class OWidgetsModule extends AbstractOrienteerModule {
 	
 	@Override
 	public void onInitialize(OrienteerWebApplication app, ODatabaseSession db) {
+		app.getOrientDbSettings().addORecordHooks(DashboardInvalidationHook.class);
 		List<IWidgetType<?>> notInstalled = checkWidgetClassesInstallation(db);
 		if(!notInstalled.isEmpty()) {
 			LOG.error("!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!!");
@@ -130,6 +135,33 @@ public class OWidgetsModule extends AbstractOrienteerModule {
 		}
 	}
 	
+	@Override
+	public void onDestroy(OrienteerWebApplication app, ODatabaseSession db) {
+		app.getOrientDbSettings().removeORecordHooks(DashboardInvalidationHook.class);
+		app.getServiceInstance(IDashboardManager.class).invalidateCache();
+	}
+	
+	/**
+	 * {@link ORecordHook} to invalidate cache of {@link IDashboardManager} on any change of dashboards or widgets
+	 */
+	public static class DashboardInvalidationHook extends AbstractCacheInvalidationHook<String> {
+		
+		public DashboardInvalidationHook(ODatabaseDocument database) {
+			super(database, OCLASS_DASHBOARD, OCLASS_WIDGET);
+		}
+		
+		@Override
+		protected void collectKeys(ODocument doc, Collection<String> keys) {
+			keys.add(doc.getClassName());
+		}
+		
+		@Override
+		protected void invalidate(Collection<String> keys) {
+			OrienteerWebApplication app = OrienteerWebApplication.lookupApplication();
+			if(app!=null) app.getServiceInstance(IDashboardManager.class).invalidateCache();
+		}
+	}
+	
 	private List<IWidgetType<?>> checkWidgetClassesInstallation(ODatabaseDocument db) {
 		final OSchema schema = db.getMetadata().getSchema();
 		return registry.listWidgetTypes(new Predicate<IWidgetType<Object>>() {
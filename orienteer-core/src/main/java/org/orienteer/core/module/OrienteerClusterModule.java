@@ -5,6 +5,7 @@ import com.google.inject.name.Named;
 import com.hazelcast.core.IMap;
 import com.orientechnologies.orient.core.db.ODatabaseSession;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.metadata.schema.OClass.INDEX_TYPE;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.sql.OCommandSQL;
@@ -25,7 +26,7 @@ public class OrienteerClusterModule extends AbstractOrienteerModule {
     private String mapName;
 
     public OrienteerClusterModule() {
-        super("orienteer-cluster", 1);
+        super("orienteer-cluster", 2);
     }
 
     @Override
@@ -35,12 +36,17 @@ public class OrienteerClusterModule extends AbstractOrienteerModule {
                 .domain(OClassDomain.SYSTEM)
                 .oProperty(OWicketData.PROP_ID, OType.INTEGER, 0).notNull().markAsDocumentName()
                 .oProperty(OWicketData.PROP_SESSION_ID, OType.STRING, 10).notNull()
-                .oProperty(OWicketData.PROP_DATA, OType.BINARY, 20).notNull();
+                .oProperty(OWicketData.PROP_DATA, OType.BINARY, 20).notNull()
+                .oIndex(OWicketData.INDEX_SESSION_ID_ID, INDEX_TYPE.UNIQUE, OWicketData.PROP_SESSION_ID, OWicketData.PROP_ID);
         return null;
     }
 
     @Override
     public void onUpdate(OrienteerWebApplication app, ODatabaseSession db, int oldVersion, int newVersion) {
+        if (oldVersion < 2 && db.getMetadata().getSchema().existsClass(OWicketData.CLASS_NAME)) {
+            // Stored pages are transient: drop them to be sure that unique index can be created
+            db.command(String.format("delete from %s", OWicketData.CLASS_NAME)).close();
+        }
         onInstall(app, db);
     }
 
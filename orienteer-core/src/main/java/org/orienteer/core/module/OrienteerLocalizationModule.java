@@ -4,7 +4,6 @@ import com.google.common.collect.Comparators;
 import com.google.inject.ProvidedBy;
 import com.orientechnologies.orient.core.db.ODatabaseSession;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
-import com.orientechnologies.orient.core.hook.ODocumentHookAbstract;
 import com.orientechnologies.orient.core.hook.ORecordHook;
 import com.orientechnologies.orient.core.metadata.schema.OClass.INDEX_TYPE;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
@@ -16,6 +15,7 @@ import com.orientechnologies.orient.core.sql.executor.OResultSet;
 import com.orientechnologies.orient.core.type.ODocumentWrapper;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.wicket.Component;
+import org.apache.wicket.Localizer;
 import org.apache.wicket.resource.loader.IStringResourceLoader;
 import org.apache.wicket.util.string.Strings;
 import org.orienteer.core.OClassDomain;
@@ -31,15 +31,19 @@ import org.orienteer.core.dao.IODocumentWrapper;
 import org.orienteer.core.dao.ODocumentWrapperProvider;
 import org.orienteer.core.dao.Query;
 import org.orienteer.core.dao.handler.extra.SudoMethodHandler;
+import org.orienteer.core.hook.AbstractCacheInvalidationHook;
 import org.orienteer.core.util.OSchemaHelper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ru.ydn.wicket.wicketorientdb.utils.DBClosure;
 
 import javax.inject.Singleton;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 /**
  * {@link IOrienteerModule} to simplify localization of an application
@@ -78,6 +82,10 @@ public class OrienteerLocalizationModule extends AbstractOrienteerModule {
 	@Override
 	public void onInitialize(OrienteerWebApplication app, ODatabaseSession db) {
 		app.getResourceSettings().getStringResourceLoaders().add(new OrienteerStringResourceLoader());
+		//Replace only default localizer: custom one might be already configured by an application
+		if(Localizer.class.equals(app.getResourceSettings().getLocalizer().getClass())) {
+			app.getResourceSettings().setLocalizer(new OrienteerLocalizer());
+		}
 
 		app.getOrientDbSettings().addORecordHooks(LocalizationInvalidationHook.class);
 	}
@@ -85,57 +93,90 @@ public class OrienteerLocalizationModule extends AbstractOrienteerModule {
 	@Override
 	public void onDestroy(OrienteerWebApplication app, ODatabaseSession db) {
         app.getResourceSettings().getStringResourceLoaders()
-                .removeIf(iStringResourceLoader -> iStringResourceLoader instanceof OrienteerStringResourceLoader);
+                .removeIf(iStringResourceLoader -> {
+                    if (iStringResourceLoader instanceof OrienteerStringResourceLoader) {
+                        ((OrienteerStringResourceLoader) iStringResourceLoader).cache.destroy();
+                        return true;
+                    } else return false;
+                });
 
         app.getOrientDbSettings().removeORecordHooks(LocalizationInvalidationHook.class);
 	}
 
-
 	/**
-	 * {@link ORecordHook} to invalidate localization cache if something changed
+	 * {@link Localizer} which allows to evict cached strings for a specific key
 	 */
-	public static class LocalizationInvalidationHook extends ODocumentHookAbstract {
+	public static class OrienteerLocalizer extends Localizer {
+		private Map<String, String> cache;
 
-		public LocalizationInvalidationHook(ODatabaseDocument database) {
-			super(database);
-			setIncludeClasses(IOLocalization.CLASS_NAME);
+		@Override
+		protected Map<String, String> newCache() {
+			//Invoked from super constructor: so field should not be initialized by the class itself
+			cache = super.newCache();
+			return cache;
 		}
 
-		private void invalidateCache()
-		{
-			OrienteerWebApplication app = OrienteerWebApplication.lookupApplication();
-			if(app!=null)
-			{
-				app.getResourceSettings().getLocalizer().clearCache();
+		/**
+		 * Remove from cache all strings for specified key.
+		 * Keys of cache are prefixed by resource key, so some strings of other keys might be evicted as well
+		 * @param key resource key to clear cache for
+		 */
+		public void clearCache(String key) {
+			Map<String, String> cache = this.cache;
+			if(cache!=null && key!=null) {
+				String prefix = key + '-';
+				cache.keySet().removeIf(cacheKey -> cacheKey.equals(key) || cacheKey.startsWith(prefix));
 			}
 		}
+	}
 
-		@Override
-		public void onRecordAfterCreate(ODocument iDocument) {
-			invalidateCache();
-		}
+	/**
+	 * {@link ORecordHook} to invalidate localization cache for keys of changed localizations
+	 */
+	public static class LocalizationInvalidationHook extends AbstractCacheInvalidationHook<String> {
 
-		@Override
-		public void onRecordAfterUpdate(ODocument iDocument) {
-			invalidateCache();
+		public LocalizationInvalidationHook(ODatabaseDocument database) {
+			super(database, IOLocalization.CLASS_NAME);
 		}
 
 		@Override
-		public void onRecordAfterDelete(ODocument iDocument) {
-			invalidateCache();
+		protected void collectKeys(ODocument doc, Collection<String> keys) {
+			Object key = doc.field("key");
+			if(key instanceof String) keys.add((String)key);
+			//Old key of renamed localization should be invalidated as well
+			if(doc.isTrackingChanges() && Arrays.asList(doc.getDirtyFields()).contains("key")) {
+				Object originalKey = doc.getOriginalValue("key");
+				if(originalKey instanceof String) keys.add((String)originalKey);
+			}
 		}
 
 		@Override
-		public DISTRIBUTED_EXECUTION_MODE getDistributedExecutionMode() {
-			return DISTRIBUTED_EXECUTION_MODE.BOTH;
+		protected void invalidate(Collection<String> keys) {
+			OrienteerWebApplication app = OrienteerWebApplication.lookupApplication();
+			if(app!=null)
+			{
+				Localizer localizer = app.getResourceSettings().getLocalizer();
+				for (String key : keys) {
+					for (IStringResourceLoader loader : app.getResourceSettings().getStringResourceLoaders()) {
+						if(loader instanceof OrienteerStringResourceLoader) {
+							((OrienteerStringResourceLoader)loader).cache.invalidate(key);
+						}
+					}
+					if(localizer instanceof OrienteerLocalizer) ((OrienteerLocalizer)localizer).clearCache(key);
+				}
+				if(!(localizer instanceof OrienteerLocalizer)) localizer.clearCache();
+			}
 		}
-	};
+	}
 
 	/**
-	 * Orienteer implementation of {@link IStringResourceLoader} which tries to load string resources from database
+	 * Orienteer implementation of {@link IStringResourceLoader} which tries to load string resources from database.
+	 * Localizations are served from in-memory {@link LocalizationCache}
 	 */
 	private static class OrienteerStringResourceLoader implements IStringResourceLoader {
 
+		private final LocalizationCache cache = new LocalizationCache();
+
 		@Override
 		public String loadStringResource(Class<?> clazz, String key,
 										 Locale locale, String style, String variation) {
@@ -153,26 +194,7 @@ public class OrienteerLocalizationModule extends AbstractOrienteerModule {
 				LOG.warn("Try to load string resource with empty key!");
 			}
 			String language = locale != null ? locale.getLanguage() : null;
-			IOLocalization localization = DAO.create(IOLocalization.class)
-												.setKey(key)
-												.setLanguage(language)
-												.setStyle(style)
-												.setVariation(variation);
-			List<IOLocalization> others = localization.queryOthersWithTheSameKey();
-			IOLocalization bestMatch = null;
-			if(others!=null && !others.isEmpty())
-			{
-				//Minus is needed to have maxumum first
-				others.sort((a, b) -> -Integer.compare(a.computeScore(localization), b.computeScore(localization)));
-				bestMatch = others.get(0);
-			}
-			
-			if(bestMatch!=null && bestMatch.isTheBestMatch(localization)) {
-				return bestMatch.isActive()?bestMatch.getValue():null;
-			} else {
-				localization.sudoSave();
-				return null;
-			}
+			return cache.getValue(key, language, style, variation);
 		}
 	}
 	
@@ -1,10 +1,17 @@
 package org.orienteer.core.module;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.inject.ProvidedBy;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.ODatabaseSession;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.exception.OSecurityAccessException;
+import com.orientechnologies.orient.core.exception.OSecurityException;
+import com.orientechnologies.orient.core.hook.ORecordHook;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.index.OIndex;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OClass.INDEX_TYPE;
@@ -12,7 +19,9 @@ import com.orientechnologies.orient.core.metadata.schema.OProperty;
 import com.orientechnologies.orient.core.metadata.schema.OSchema;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.metadata.security.OIdentity;
+import com.orientechnologies.orient.core.metadata.security.ORole;
 import com.orientechnologies.orient.core.metadata.security.OSecurityRole;
+import com.orientechnologies.orient.core.metadata.security.OSecurityShared;
 import com.orientechnologies.orient.core.metadata.security.OSecurityUser;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.type.ODocumentWrapper;
@@ -30,6 +39,7 @@ import org.orienteer.core.dao.DAOOClass;
 import org.orienteer.core.dao.IODocumentWrapper;
 import org.orienteer.core.dao.Lookup;
 import org.orienteer.core.dao.ODocumentWrapperProvider;
+import org.orienteer.core.hook.AbstractCacheInvalidationHook;
 import org.orienteer.core.module.OrienteerLocalizationModule.IOLocalization;
 import org.orienteer.core.util.CommonUtils;
 import org.orienteer.core.util.OSchemaHelper;
@@ -37,11 +47,15 @@ import ru.ydn.wicket.wicketorientdb.utils.DBClosure;
 import ru.ydn.wicket.wicketorientdb.utils.LombokExtensions;
 
 import javax.inject.Singleton;
+import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
 /**
- * {@link IOrienteerModule} for "perspectives" feature of Orienteer
+ * {@link IOrienteerModule} for "perspectives" feature of Orienteer.
+ * Perspectives and menus of perspectives resolved for sets of roles are cached
+ * till perspectives, their items or roles are changed
  */
 @Singleton
 @ExtensionMethod({LombokExtensions.class})
@@ -60,6 +74,16 @@ public class PerspectivesModule extends AbstractOrienteerModule {
 
 	public static final String PROP_PERSPECTIVE = "perspective";
 
+	//RIDs of resolved perspectives by names of roles
+	private final Cache<String, ORID> perspectivesCache = CacheBuilder.newBuilder()
+																.maximumSize(1000)
+																.build();
+
+	//Menus by perspective and names of roles of a user who resolved it
+	private final Cache<String, List<PerspectiveMenuItem>> menusCache = CacheBuilder.newBuilder()
+																.maximumSize(1000)
+																.build();
+
 	public PerspectivesModule()
 	{
 		super(NAME, 7);
@@ -199,31 +223,136 @@ public class PerspectivesModule extends AbstractOrienteerModule {
 			if (user.getDocument().field(PROP_PERSPECTIVE) != null) {
 				return ((OIdentifiable) user.getDocument().field(PROP_PERSPECTIVE)).getRecord();
 			}
+		}
+		List<String> roleNames = new ArrayList<>();
+		if (user != null) {
+			for (OSecurityRole oRole : user.getRoles()) {
+				if (oRole != null && oRole.getName() != null) roleNames.add(oRole.getName());
+			}
+		}
+		String key = String.join("\u0000", roleNames);
+		ORID rid;
+		try {
+			rid = perspectivesCache.get(key, () -> DBClosure.sudo(db -> resolvePerspective(db, roleNames)));
+		} catch (ExecutionException | UncheckedExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+			throw new IllegalStateException("Can't resolve perspective for roles " + roleNames, cause);
+		}
+		//Load by current user: so security is applied
+		ODocument perspective = rid.getRecord();
+		if (perspective == null) {
+			//Perspective was removed, but cache was not yet invalidated
+			perspectivesCache.invalidate(key);
+			return getPerspectiveByAliasAsDocument(ALIAS_PERSPECTIVE_DEFAULT).orElse(null);
+		}
+		return perspective;
+	}
 
-			Set<? extends OSecurityRole> roles = user.getRoles();
-			for (OSecurityRole oRole : roles) {
-				ODocument perspective = getPerspectiveForORole(oRole);
-				if (perspective != null) {
-					return perspective;
-				}
+	private ORID resolvePerspective(ODatabaseDocument db, List<String> roleNames) {
+		for (String roleName : roleNames) {
+			ODocument perspective = getPerspectiveForORole(db.getMetadata().getSecurity().getRole(roleName));
+			if (perspective != null) {
+				return perspective.getIdentity();
 			}
 		}
 		return getPerspectiveByAliasAsDocument(ALIAS_PERSPECTIVE_DEFAULT)
 					// Restore default perspective if it was not found
-				.orElseGet(() -> DBClosure.sudo((adminDb)->createDefaultPerspective().getDocument()));
+				.orElseGet(() -> createDefaultPerspective().getDocument())
+				.getIdentity();
 	}
 	
 	public ODocument getPerspectiveForORole(OSecurityRole role) {
-		if (role == null) {
+		//Roles might refer each other as parents: so loop should be detected
+		Set<String> visited = new HashSet<>();
+		while (role != null && visited.add(role.getName())) {
+			if (role.getDocument().field(PROP_PERSPECTIVE) != null) {
+				return ((OIdentifiable) role.getDocument().field(PROP_PERSPECTIVE)).getRecord();
+			}
+			role = role.getParentRole();
+		}
+		return null;
+	}
+
+	/**
+	 * Resolve menu of a perspective for current user: resolved menu is immutable and cached till perspectives or their items are changed.
+	 * Items are loaded by current user, so record level security applies. Menu is shared by users with the same roles,
+	 * but if perspectives or their items are {@link OSecurityShared#RESTRICTED_CLASSNAME} it's cached per user
+	 * @param perspective perspective to get menu for
+	 * @return tree of perspective items which are readable by current user
+	 */
+	public List<PerspectiveMenuItem> getMenu(OIdentifiable perspective) {
+		if (perspective == null) return Collections.emptyList();
+		ORID rid = perspective.getIdentity();
+		if (!rid.isPersistent()) return Collections.emptyList();
+		ODatabaseDocument db = ODatabaseRecordThreadLocal.instance().get();
+		String key = getMenuKey(db, rid);
+		try {
+			return menusCache.get(key, () -> {
+				ODocument doc = loadReadable(rid);
+				return doc != null ? toMenu(doc.field("menu"), new HashSet<>()) : Collections.<PerspectiveMenuItem>emptyList();
+			});
+		} catch (ExecutionException | UncheckedExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+			throw new IllegalStateException("Can't resolve menu of perspective " + rid, cause);
+		}
+	}
+
+	private String getMenuKey(ODatabaseDocument db, ORID perspective) {
+		StringBuilder sb = new StringBuilder(perspective.toString());
+		OSecurityUser user = db.getUser();
+		if (user == null) return sb.toString();
+		Set<String> roleNames = new TreeSet<>();
+		for (OSecurityRole oRole : user.getRoles()) {
+			if (oRole != null && oRole.getName() != null) roleNames.add(oRole.getName());
+		}
+		for (String roleName : roleNames) sb.append('\u0000').append(roleName);
+		if (isRestricted(db, IOPerspective.CLASS_NAME) || isRestricted(db, IOPerspectiveItem.CLASS_NAME)) {
+			//Access to restricted documents is granted to users as well as to roles
+			sb.append('\u0001').append(user.getIdentity());
+		}
+		return sb.toString();
+	}
+
+	private static boolean isRestricted(ODatabaseDocument db, String className) {
+		OClass oClass = db.getMetadata().getSchema().getClass(className);
+		if (oClass == null) return false;
+		if (oClass.isSubClassOf(OSecurityShared.RESTRICTED_CLASSNAME)) return true;
+		for (OClass subClass : oClass.getAllSubclasses()) {
+			if (subClass.isSubClassOf(OSecurityShared.RESTRICTED_CLASSNAME)) return true;
+		}
+		return false;
+	}
+
+	private static ODocument loadReadable(OIdentifiable identifiable) {
+		try {
+			return identifiable.getRecord();
+		} catch (OSecurityException e) {
 			return null;
 		}
+	}
 
-		if (role.getDocument().field(PROP_PERSPECTIVE) != null) {
-			return ((OIdentifiable) role.getDocument().field(PROP_PERSPECTIVE)).getRecord();
+	private List<PerspectiveMenuItem> toMenu(Collection<OIdentifiable> items, Set<ORID> visited) {
+		if (items == null || items.isEmpty()) return Collections.emptyList();
+		List<PerspectiveMenuItem> ret = new ArrayList<>(items.size());
+		for (OIdentifiable item : items) {
+			//Skip deleted records and cycles of sub items
+			if (item == null || !visited.add(item.getIdentity())) continue;
+			//Items which are not readable by current user are skipped with their sub items
+			ODocument doc = loadReadable(item);
+			if (doc == null) continue;
+			ret.add(new PerspectiveMenuItem(doc, toMenu(doc.field("subItems"), visited)));
 		}
+		return Collections.unmodifiableList(ret);
+	}
 
-		OSecurityRole parentRole = role.getParentRole();
-		return parentRole != null && !parentRole.equals(role) ? getPerspectiveForORole(role) : null;
+	/**
+	 * Drop cached perspectives and menus
+	 */
+	public void invalidateCache() {
+		perspectivesCache.invalidateAll();
+		menusCache.invalidateAll();
 	}
 
 	public void updateUserPerspective(ODocument user, ODocument perspective) {
@@ -242,6 +371,95 @@ public class PerspectivesModule extends AbstractOrienteerModule {
 			//Repair
 			onInstall(app, db);
 		}
+		app.getOrientDbSettings().addORecordHooks(PerspectivesInvalidationHook.class);
+	}
+
+	@Override
+	public void onDestroy(OrienteerWebApplication app, ODatabaseSession db) {
+		app.getOrientDbSettings().removeORecordHooks(PerspectivesInvalidationHook.class);
+		invalidateCache();
+	}
+
+	/**
+	 * {@link ORecordHook} to invalidate cached perspectives and menus on changes of perspectives, their items or roles
+	 */
+	public static class PerspectivesInvalidationHook extends AbstractCacheInvalidationHook<String> {
+
+		public PerspectivesInvalidationHook(ODatabaseDocument database) {
+			super(database, IOPerspective.CLASS_NAME, IOPerspectiveItem.CLASS_NAME, ORole.CLASS_NAME);
+		}
+
+		@Override
+		protected void collectKeys(ODocument doc, Collection<String> keys) {
+			keys.add(doc.getClassName());
+		}
+
+		@Override
+		protected void invalidate(Collection<String> keys) {
+			OrienteerWebApplication app = OrienteerWebApplication.lookupApplication();
+			if (app != null) app.getServiceInstance(PerspectivesModule.class).invalidateCache();
+		}
+	}
+
+	/**
+	 * Immutable item of a resolved perspective menu
+	 */
+	public static final class PerspectiveMenuItem implements Serializable {
+		private static final long serialVersionUID = 1L;
+
+		private final ORID identity;
+		private final Map<String, String> name;
+		private final String icon;
+		private final String url;
+		private final List<PerspectiveMenuItem> subItems;
+
+		public PerspectiveMenuItem(ODocument doc, List<PerspectiveMenuItem> subItems) {
+			this.identity = doc.getIdentity();
+			Object name = doc.field("name");
+			Map<String, String> names = new HashMap<>();
+			if (name instanceof Map) {
+				for (Map.Entry<?, ?> entry : ((Map<?, ?>) name).entrySet()) {
+					if (entry.getKey() != null && entry.getValue() != null) {
+						names.put(entry.getKey().toString(), entry.getValue().toString());
+					}
+				}
+			} else if (name != null) {
+				names.put(Locale.getDefault().getLanguage(), name.toString());
+			}
+			this.name = Collections.unmodifiableMap(names);
+			this.icon = doc.field("icon");
+			this.url = doc.field("url");
+			this.subItems = subItems;
+		}
+
+		public ORID getIdentity() {
+			return identity;
+		}
+
+		public Map<String, String> getName() {
+			return name;
+		}
+
+		/**
+		 * @param locale locale to get name for
+		 * @return name localized for a specified locale
+		 */
+		public String getName(Locale locale) {
+			Object localized = CommonUtils.localizeByMap(name, true, locale.getLanguage(), Locale.getDefault().getLanguage());
+			return localized != null ? localized.toString() : null;
+		}
+
+		public String getIcon() {
+			return icon;
+		}
+
+		public String getUrl() {
+			return url;
+		}
+
+		public List<PerspectiveMenuItem> getSubItems() {
+			return subItems;
+		}
 	}
 	
 	/**
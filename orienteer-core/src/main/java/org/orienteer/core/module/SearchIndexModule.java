@@ -0,0 +1,52 @@
+package org.orienteer.core.module;
+
+import com.google.inject.Singleton;
+import com.orientechnologies.orient.core.db.ODatabaseSession;
+import com.orientechnologies.orient.core.metadata.schema.OClass.INDEX_TYPE;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import org.orienteer.core.OClassDomain;
+import org.orienteer.core.OrienteerWebApplication;
+import org.orienteer.core.hook.SearchIndexHook;
+import org.orienteer.core.service.ISearchEngine;
+import org.orienteer.core.util.OSchemaHelper;
+
+/**
+ * Module which create data model for index of {@link ISearchEngine} and keeps the index up to date
+ */
+@Singleton
+public class SearchIndexModule extends AbstractOrienteerModule {
+
+	public static final String NAME = "search-index";
+
+	public static final String OCLASS_SEARCH_INDEX = "OSearchIndex";
+	public static final String PROP_DOCUMENT       = "document";
+	public static final String PROP_CLASS_NAME     = "className";
+	public static final String PROP_TOKENS         = "tokens";
+
+	public SearchIndexModule() {
+		super(NAME, 1);
+	}
+
+	@Override
+	public ODocument onInstall(OrienteerWebApplication app, ODatabaseSession db) {
+		OSchemaHelper helper = OSchemaHelper.bind(db);
+		//className is not indexed intentionally: index by tokens is always more selective
+		helper.oClass(OCLASS_SEARCH_INDEX)
+				.domain(OClassDomain.SYSTEM)
+				.oProperty(PROP_DOCUMENT, OType.LINK, 0).notNull().oIndex(INDEX_TYPE.UNIQUE)
+				.oProperty(PROP_CLASS_NAME, OType.STRING, 10).markAsDocumentName()
+				.oProperty(PROP_TOKENS, OType.EMBEDDEDSET, 20).linkedType(OType.STRING).oIndex(INDEX_TYPE.NOTUNIQUE);
+		return null;
+	}
+
+	@Override
+	public void onInitialize(OrienteerWebApplication app, ODatabaseSession db) {
+		app.getOrientDbSettings().addORecordHooks(SearchIndexHook.class);
+	}
+
+	@Override
+	public void onDestroy(OrienteerWebApplication app, ODatabaseSession db) {
+		app.getOrientDbSettings().removeORecordHooks(SearchIndexHook.class);
+	}
+}
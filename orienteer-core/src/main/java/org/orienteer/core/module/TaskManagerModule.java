@@ -4,9 +4,14 @@ import org.orienteer.core.CustomAttribute;
 import org.orienteer.core.OrienteerWebApplication;
 import org.orienteer.core.dao.DAO;
 import org.orienteer.core.tasks.ITaskSession;
+import org.orienteer.core.tasks.IOTaskSessionLog;
 import org.orienteer.core.tasks.IOTaskSessionPersisted;
 import org.orienteer.core.tasks.IOConsoleTask;
+import org.orienteer.core.tasks.IODatabaseExportTask;
+import org.orienteer.core.tasks.IODatabaseExportTaskSession;
+import org.orienteer.core.tasks.IOExportTask;
 import org.orienteer.core.tasks.IOTask;
+import org.orienteer.core.tasks.OTaskManager;
 import org.orienteer.core.tasks.OTaskSessionRuntime;
 import org.orienteer.core.util.OSchemaHelper;
 
@@ -22,7 +27,7 @@ import com.orientechnologies.orient.core.record.impl.ODocument;
 public class TaskManagerModule extends AbstractOrienteerModule {
 	
     public static final String NAME = "task-manager";
-    public static final int VERSION = 3;
+    public static final int VERSION = 6;
     
     TaskManagerModule(){
     	super(NAME, VERSION);
@@ -34,8 +39,9 @@ public class TaskManagerModule extends AbstractOrienteerModule {
 		
 		OSchemaHelper helper = OSchemaHelper.bind(db);
 		
-		DAO.describe(helper, IOTask.class, IOTaskSessionPersisted.class, 
-										   IOConsoleTask.class);
+		DAO.describe(helper, IOTask.class, IOTaskSessionPersisted.class, IOTaskSessionLog.class,
+										   IOConsoleTask.class, IOExportTask.class,
+										   IODatabaseExportTaskSession.class, IODatabaseExportTask.class);
 		return null;
 	}
 	
@@ -48,4 +54,9 @@ public class TaskManagerModule extends AbstractOrienteerModule {
 		}
 		onInstall(app, db);
 	}
+	
+	@Override
+	public void onDestroy(OrienteerWebApplication app, ODatabaseSession db) {
+		OTaskManager.get(app).destroy();
+	}
 }
@@ -0,0 +1,96 @@
+package org.orienteer.core.resource;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.mapper.parameter.PageParameters;
+import org.apache.wicket.request.resource.AbstractResource;
+import org.apache.wicket.request.resource.PartWriterCallback;
+import org.apache.wicket.request.resource.SharedResourceReference;
+import org.apache.wicket.util.time.Time;
+import org.orienteer.core.MountPath;
+import org.orienteer.core.tasks.IODatabaseExportTask;
+import org.orienteer.core.tasks.IODatabaseExportTaskSession;
+
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.id.ORecordId;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+import ru.ydn.wicket.wicketorientdb.security.OSecurityHelper;
+import ru.ydn.wicket.wicketorientdb.security.OrientPermission;
+
+/**
+ * {@link AbstractResource} to download an export produced by {@link IODatabaseExportTask}.
+ * Supports byte ranges, so interrupted download can be resumed.
+ * Available only for users who are allowed to export database (see {@link IODatabaseExportTask#isExportAllowed()}). Params:
+ * session - RID of {@link IODatabaseExportTaskSession} without '#'
+ */
+@MountPath("/dbexport/${session}")
+public class DatabaseExportDownloadResource extends AbstractResource {
+
+	public static SharedResourceReference getSharedResourceReference() {
+		return new SharedResourceReference(DatabaseExportDownloadResource.class.getName());
+	}
+
+	public static CharSequence urlFor(IODatabaseExportTaskSession session) {
+		PageParameters params = new PageParameters();
+		params.add("session", session.getDocument().getIdentity().toString().substring(1));
+		return RequestCycle.get().urlFor(getSharedResourceReference(), params);
+	}
+
+	@Override
+	protected ResourceResponse newResourceResponse(Attributes attrs) {
+		ResourceResponse response = new ResourceResponse();
+		String ridStr = "#"+attrs.getParameters().get("session").toOptionalString();
+		if(!IODatabaseExportTask.isExportAllowed()) {
+			response.setError(HttpServletResponse.SC_FORBIDDEN);
+			return response;
+		}
+		ODocument doc = ORecordId.isA(ridStr) ? new ORecordId(ridStr).getRecord() : null;
+		File file = getArtifact(doc);
+		if(file==null) {
+			response.setError(HttpServletResponse.SC_NOT_FOUND);
+		} else if(!OSecurityHelper.isAllowed(doc, OrientPermission.READ)) {
+			response.setError(HttpServletResponse.SC_FORBIDDEN);
+		} else {
+			response.setContentType("application/x-gzip");
+			response.setFileName(file.getName());
+			response.setLastModified(Time.millis(file.lastModified()));
+			response.setAcceptRange(ContentRangeType.BYTES);
+			response.setContentLength(file.length());
+			if(response.dataNeedsToBeWritten(attrs)) {
+				RequestCycle cycle = RequestCycle.get();
+				try {
+					response.setWriteCallback(new PartWriterCallback(new FileInputStream(file), file.length(),
+												cycle.getMetaData(CONTENT_RANGE_STARTBYTE), cycle.getMetaData(CONTENT_RANGE_ENDBYTE))
+												.setClose(true));
+				} catch (FileNotFoundException e) {
+					response.setError(HttpServletResponse.SC_NOT_FOUND);
+				}
+			}
+		}
+		return response;
+	}
+
+	/**
+	 * @param doc document of {@link IODatabaseExportTaskSession}
+	 * @return file of a complete export or null if there is no such. Location is derived from identity of the session
+	 */
+	protected File getArtifact(ODocument doc) {
+		if(doc==null || doc.getSchemaClass()==null
+				|| !doc.getSchemaClass().isSubClassOf(IODatabaseExportTaskSession.CLASS_NAME)) return null;
+		ORID rid = doc.getIdentity();
+		if(!rid.isPersistent()) return null;
+		try {
+			File file = IODatabaseExportTaskSession.getArtifactFile(rid);
+			return file.isFile()?file:null;
+		} catch (IOException e) {
+			return null;
+		}
+	}
+}
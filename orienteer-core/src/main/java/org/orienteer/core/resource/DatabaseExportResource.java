@@ -15,7 +15,8 @@ import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
 import com.orientechnologies.orient.core.db.tool.ODatabaseExport;
 
 /**
- * {@link AbstractResource} to export database schema
+ * {@link AbstractResource} to export database schema.
+ * Export is performed within a request, so for export of a whole database use {@link org.orienteer.core.tasks.IODatabaseExportTask}
  */
 public class DatabaseExportResource extends AbstractResource
 {
@@ -0,0 +1,80 @@
+package org.orienteer.core.resource;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.mapper.parameter.PageParameters;
+import org.apache.wicket.request.resource.AbstractResource;
+import org.apache.wicket.request.resource.SharedResourceReference;
+import org.orienteer.core.MountPath;
+import org.orienteer.core.util.export.ExportFormat;
+import org.orienteer.core.util.export.StreamingExporter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+
+import ru.ydn.wicket.wicketorientdb.OrientDbWebSession;
+import ru.ydn.wicket.wicketorientdb.security.OSecurityHelper;
+import ru.ydn.wicket.wicketorientdb.security.OrientPermission;
+
+/**
+ * {@link AbstractResource} to export all documents of a class by {@link StreamingExporter}.
+ * Documents are read from DB while response is being written, so export of large classes
+ * doesn't require memory for all rows. Params:
+ * class - name of a class to export documents of
+ * format - one of {@link ExportFormat}
+ */
+@MountPath("/export/${class}/${format}")
+public class OClassExportResource extends AbstractResource {
+
+	private static final Logger LOG = LoggerFactory.getLogger(OClassExportResource.class);
+
+	public static SharedResourceReference getSharedResourceReference() {
+		return new SharedResourceReference(OClassExportResource.class.getName());
+	}
+
+	public static PageParameters getPageParameters(OClass oClass, ExportFormat format) {
+		PageParameters params = new PageParameters();
+		params.add("class", oClass.getName());
+		params.add("format", format.getExtension());
+		return params;
+	}
+
+	public static CharSequence urlFor(OClass oClass, ExportFormat format) {
+		return RequestCycle.get().urlFor(getSharedResourceReference(), getPageParameters(oClass, format));
+	}
+
+	@Override
+	protected ResourceResponse newResourceResponse(Attributes attrs) {
+		ResourceResponse response = new ResourceResponse();
+		PageParameters params = attrs.getParameters();
+		ExportFormat format = ExportFormat.parse(params.get("format").toOptionalString());
+		String className = params.get("class").toOptionalString();
+		ODatabaseDocument db = OrientDbWebSession.get().getDatabaseSession();
+		OClass oClass = className!=null ? db.getMetadata().getSchema().getClass(className) : null;
+		if(format==null || oClass==null) {
+			response.setError(HttpServletResponse.SC_NOT_FOUND);
+		} else if(!OSecurityHelper.isAllowed(oClass, OrientPermission.READ)) {
+			response.setError(HttpServletResponse.SC_FORBIDDEN);
+		} else {
+			StreamingExporter exporter = StreamingExporter.forClass(oClass, format);
+			response.setContentType(format.getContentType());
+			response.setFileName(oClass.getName()+"."+format.getExtension());
+			response.disableCaching();
+			response.setWriteCallback(new WriteCallback() {
+				@Override
+				public void writeData(Attributes attributes) throws IOException {
+					long rows = exporter.export(OrientDbWebSession.get().getDatabaseSession(),
+											StreamingExporter.getSqlForClass(oClass),
+											attributes.getResponse().getOutputStream());
+					LOG.debug("{} rows of class {} have been exported", rows, oClass.getName());
+				}
+			});
+		}
+		return response;
+	}
+}
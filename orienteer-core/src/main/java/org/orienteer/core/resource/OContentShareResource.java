@@ -6,20 +6,23 @@ import java.io.IOException;
 
 import javax.servlet.http.HttpServletResponse;
 
-import org.apache.tika.Tika;
 import org.apache.wicket.request.Url;
 import org.apache.wicket.request.Url.StringMode;
 import org.apache.wicket.request.cycle.RequestCycle;
+import org.apache.wicket.request.http.WebRequest;
 import org.apache.wicket.request.mapper.parameter.PageParameters;
 import org.apache.wicket.request.resource.AbstractResource;
 import org.apache.wicket.request.resource.IResource;
+import org.apache.wicket.request.resource.PartWriterCallback;
 import org.apache.wicket.request.resource.ResourceReference;
 import org.apache.wicket.request.resource.SharedResourceReference;
 import org.apache.wicket.util.string.Strings;
-import org.apache.wicket.util.time.Time;
 import org.orienteer.core.MountPath;
+import org.orienteer.core.OrienteerWebApplication;
+import org.orienteer.core.util.CommonUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.id.ORecordId;
@@ -33,6 +36,8 @@ import net.coobird.thumbnailator.Thumbnails;
  * type (optional) - content type of the content
  * s (optional) - size of image to resize to
  * q (optional) - quality of output image after resizing 
+ * Content is served with ETag built from version of a document, supports If-None-Match and byte ranges.
+ * Thumbnails are cached by {@link OThumbnailCache}
  */
 @MountPath("/content/${rid}/${field}")
 public class OContentShareResource extends AbstractResource {
@@ -74,51 +79,96 @@ public class OContentShareResource extends AbstractResource {
     @Override
     protected ResourceResponse newResourceResponse(IResource.Attributes attributes) {
         final ResourceResponse response = new ResourceResponse();
-        response.setLastModified(Time.now());
-        if (response.dataNeedsToBeWritten(attributes)) {
-            PageParameters params = attributes.getParameters();
-            String ridStr = "#"+params.get("rid").toOptionalString();
-            ORID orid = ORecordId.isA(ridStr) ? new ORecordId(ridStr) : null;
-            if (orid != null) {
-                String field = params.get("field").toString();
-                byte [] data = getContent(orid, field);
-                if (data != null && data.length > 0) {
-                    String contentType = params.get("type").toOptionalString();
-                	if (Strings.isEmpty(contentType)) {
-                		contentType = new Tika().detect(data);
-                	}
-                	if(isCacheAllowed()) {
-	                	if(params.get("v").isEmpty()) response.disableCaching();
-	                	else response.setCacheDurationToMaximum();
-                	}
-                    response.setContentType(contentType);
-                    Integer maxSize = params.get("s").toOptionalInteger();
-                    if(maxSize!=null && maxSize>0 && contentType.startsWith("image/")) {
-                    	double quality = params.get("q").toDouble(0.8);
-                    	ByteArrayOutputStream thumbnailOS = new ByteArrayOutputStream();
-                    	try {
-							Thumbnails.of(new ByteArrayInputStream(data))
-										.size(maxSize, maxSize)
-										.keepAspectRatio(true)
-										.outputQuality(quality)
-										.toOutputStream(thumbnailOS);
-							data = thumbnailOS.toByteArray();
-						} catch (IOException e) {
-							LOG.error("Can't create thumbnail. Using original image. ", e);
-						}
-                    }
-                    response.setWriteCallback(createWriteCallback(data));
-                }
+        PageParameters params = attributes.getParameters();
+        String ridStr = "#"+params.get("rid").toOptionalString();
+        ORID orid = ORecordId.isA(ridStr) ? new ORecordId(ridStr) : null;
+        ODocument doc = orid != null ? orid.getRecord() : null;
+        if (doc != null) {
+            String field = params.get("field").toString();
+            Integer maxSize = params.get("s").toOptionalInteger();
+            double quality = params.get("q").toDouble(0.8);
+            boolean thumbnail = maxSize!=null && maxSize>0;
+            String eTag = "\""+orid.getClusterId()+"-"+orid.getClusterPosition()+"-"+field+"-"+doc.getVersion()
+            					+(thumbnail?"-"+maxSize+"-"+quality:"")+"\"";
+            if(isCacheAllowed()) {
+            	if(params.get("v").isEmpty()) response.disableCaching();
+            	else response.setCacheDurationToMaximum();
             }
-
-            if (response.getWriteCallback() == null) {
-                response.setError(HttpServletResponse.SC_NOT_FOUND);
+            if (isNotModified(attributes, eTag)) {
+            	response.getHeaders().addHeader("ETag", eTag);
+            	response.setStatusCode(HttpServletResponse.SC_NOT_MODIFIED);
+            	return response;
+            }
+            byte [] data = getContent(doc, field);
+            if (data != null && data.length > 0) {
+                String contentType = params.get("type").toOptionalString();
+            	if (Strings.isEmpty(contentType)) {
+            		contentType = CommonUtils.detectContentType(data);
+            	}
+                response.setContentType(contentType);
+                if(thumbnail && contentType.startsWith("image/")) {
+                	data = getThumbnail(doc, field, data, maxSize, quality);
+                }
+                response.getHeaders().addHeader("ETag", eTag);
+                response.setAcceptRange(ContentRangeType.BYTES);
+                response.setContentLength(data.length);
+                RequestCycle cycle = RequestCycle.get();
+                response.setWriteCallback(new PartWriterCallback(new ByteArrayInputStream(data), (long) data.length,
+                							cycle.getMetaData(CONTENT_RANGE_STARTBYTE), cycle.getMetaData(CONTENT_RANGE_ENDBYTE)));
             }
+        }
 
+        if (response.getWriteCallback() == null) {
+            response.setError(HttpServletResponse.SC_NOT_FOUND);
         }
         return response;
     }
     
+    /**
+     * Check that client already has the latest version of the content: ETag is in If-None-Match header
+     * @param attributes attributes of the request
+     * @param eTag ETag of the current version of the content
+     * @return true if content was not modified
+     */
+    protected boolean isNotModified(IResource.Attributes attributes, String eTag) {
+    	String ifNoneMatch = ((WebRequest)attributes.getRequest()).getHeader("If-None-Match");
+    	if(Strings.isEmpty(ifNoneMatch)) return false;
+    	for (String tag : Strings.split(ifNoneMatch, ',')) {
+			tag = tag.trim();
+			if(tag.startsWith("W/")) tag = tag.substring(2);
+			if("*".equals(tag) || eTag.equals(tag)) return true;
+		}
+    	return false;
+    }
+    
+    /**
+     * Obtain thumbnail for an image from {@link OThumbnailCache}
+     * @param doc document with an image
+     * @param field field with an image
+     * @param data original image
+     * @param maxSize max size of the thumbnail
+     * @param quality quality of the thumbnail
+     * @return thumbnail or original image if thumbnail can't be created
+     */
+    protected byte[] getThumbnail(ODocument doc, String field, byte[] data, int maxSize, double quality) {
+    	try {
+    		OThumbnailCache cache = OrienteerWebApplication.lookupApplication().getServiceInstance(OThumbnailCache.class);
+			String database = OThumbnailCache.getDatabaseId(ODatabaseRecordThreadLocal.instance().get());
+			return cache.get(database, doc.getIdentity(), field, doc.getVersion(), maxSize, quality, () -> {
+				ByteArrayOutputStream thumbnailOS = new ByteArrayOutputStream();
+				Thumbnails.of(new ByteArrayInputStream(data))
+							.size(maxSize, maxSize)
+							.keepAspectRatio(true)
+							.outputQuality(quality)
+							.toOutputStream(thumbnailOS);
+				return thumbnailOS.toByteArray();
+			});
+		} catch (IOException e) {
+			LOG.error("Can't create thumbnail. Using original image. ", e);
+			return data;
+		}
+    }
+    
     protected boolean isCacheAllowed() {
     	return false;
     }
@@ -139,13 +189,4 @@ public class OContentShareResource extends AbstractResource {
 
     	return result;
     }
-
-    private WriteCallback createWriteCallback(byte [] data) {
-        return new WriteCallback() {
-            @Override
-            public void writeData(IResource.Attributes attributes) throws IOException {
-                attributes.getResponse().write(data);
-            }
-        };
-    }
 }
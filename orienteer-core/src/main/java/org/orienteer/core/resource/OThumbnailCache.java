@@ -0,0 +1,205 @@
+package org.orienteer.core.resource;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.wicket.util.string.Strings;
+import org.orienteer.core.util.CommonUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.id.ORID;
+
+/**
+ * Bounded two-level cache of generated thumbnails: in memory and on disk.
+ * Thumbnails are keyed by database, RID, field, version of a document, size and quality, so changed content never hits stale thumbnail.
+ * Thumbnails are stored on disk in a directory accessible by the owner only
+ */
+@Singleton
+public class OThumbnailCache {
+
+	private static final Logger LOG = LoggerFactory.getLogger(OThumbnailCache.class);
+
+	public static final long DEFAULT_MEMORY_SIZE = 32 * 1024 * 1024;
+	public static final long DEFAULT_DISK_SIZE = 512 * 1024 * 1024;
+
+	private static final String THUMBNAIL_EXTENSION = ".thumbnail";
+
+	private long memorySize = DEFAULT_MEMORY_SIZE;
+	private long diskSize = DEFAULT_DISK_SIZE;
+	private File directory = new File(System.getProperty("java.io.tmpdir"), "orienteer-thumbnails-"+System.getProperty("user.name"));
+
+	private volatile Cache<String, byte[]> memoryCache;
+	private final AtomicLong diskUsage = new AtomicLong(-1);
+
+	@Inject(optional=true)
+	public void setMemorySize(@Named("orienteer.thumbnails.cache.memory") long memorySize) {
+		this.memorySize = memorySize;
+		this.memoryCache = null;
+	}
+
+	@Inject(optional=true)
+	public void setDiskSize(@Named("orienteer.thumbnails.cache.disk") long diskSize) {
+		this.diskSize = diskSize;
+	}
+
+	@Inject(optional=true)
+	public void setDirectory(@Named("orienteer.thumbnails.cache.dir") String directory) {
+		this.directory = new File(directory);
+		diskUsage.set(-1);
+	}
+
+	/**
+	 * Obtain cached thumbnail or generate new one
+	 * @param database identity of a database: see {@link #getDatabaseId(ODatabaseDocumentInternal)}
+	 * @param rid RID of a document with original image
+	 * @param field field with original image
+	 * @param version version of the document
+	 * @param size max size of the thumbnail
+	 * @param quality quality of the thumbnail
+	 * @param generator generator of the thumbnail if it's not in the cache
+	 * @return thumbnail
+	 * @throws IOException if thumbnail can't be generated
+	 */
+	public byte[] get(String database, ORID rid, String field, int version, int size, double quality, Callable<byte[]> generator) throws IOException {
+		String key = database+"_"+rid.getClusterId()+"_"+rid.getClusterPosition()+"_"+field+"_"+version+"_"+size+"_"+quality;
+		try {
+			return getMemoryCache().get(key, () -> {
+				byte[] ret = readFromDisk(key);
+				if(ret==null) {
+					ret = generator.call();
+					writeToDisk(key, ret);
+				}
+				return ret;
+			});
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof IOException) throw (IOException) e.getCause();
+			throw new IOException("Can't generate thumbnail", e.getCause());
+		}
+	}
+
+	/**
+	 * Identity of a database for keys of thumbnails: RIDs and versions of different databases overlap.
+	 * UUID of a storage is used, because a database can be recreated with the same name
+	 * @param db database to obtain identity for
+	 * @return UUID of a storage or URL of a database if storage doesn't have UUID
+	 */
+	public static String getDatabaseId(ODatabaseDocumentInternal db) {
+		String uuid = db.getStorage().getConfiguration().getUuid();
+		return !Strings.isEmpty(uuid)?uuid:db.getURL();
+	}
+
+	/**
+	 * Clear both memory and disk caches
+	 */
+	public synchronized void invalidateAll() {
+		getMemoryCache().invalidateAll();
+		File[] files = listFiles();
+		if(files!=null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		diskUsage.set(0);
+	}
+
+	private Cache<String, byte[]> getMemoryCache() {
+		Cache<String, byte[]> ret = memoryCache;
+		if(ret==null) {
+			synchronized (this) {
+				ret = memoryCache;
+				if(ret==null) {
+					memoryCache = ret = CacheBuilder.newBuilder()
+											.maximumWeight(Math.max(memorySize, 0))
+											.<String, byte[]>weigher((k, v) -> v.length)
+											.build();
+				}
+			}
+		}
+		return ret;
+	}
+
+	private File getFile(String key) {
+		return new File(directory, Hashing.sha256().hashUnencodedChars(key).toString()+THUMBNAIL_EXTENSION);
+	}
+
+	private File[] listFiles() {
+		return directory.listFiles((dir, name) -> name.endsWith(THUMBNAIL_EXTENSION));
+	}
+
+	private byte[] readFromDisk(String key) {
+		if(diskSize<=0) return null;
+		File file = getFile(key);
+		if(!file.isFile()) return null;
+		try {
+			byte[] ret = Files.readAllBytes(file.toPath());
+			//To evict least recently used files first
+			file.setLastModified(System.currentTimeMillis());
+			return ret;
+		} catch (IOException e) {
+			LOG.warn("Can't read cached thumbnail: "+file, e);
+			return null;
+		}
+	}
+
+	private void writeToDisk(String key, byte[] data) {
+		if(diskSize<=0 || data.length>diskSize) return;
+		try {
+			if(diskUsage.get()<0) calculateDiskUsage();
+			File file = getFile(key);
+			File tmp = File.createTempFile("thumbnail", ".tmp", directory);
+			Files.write(tmp.toPath(), data);
+			Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			if(diskUsage.addAndGet(data.length)>diskSize) evict();
+		} catch (IOException e) {
+			LOG.warn("Can't store thumbnail on disk", e);
+		}
+	}
+
+	private synchronized void calculateDiskUsage() throws IOException {
+		if(diskUsage.get()>=0) return;
+		CommonUtils.ensurePrivateDirectory(directory);
+		long usage = 0;
+		File[] files = listFiles();
+		if(files!=null) {
+			for (File file : files) {
+				usage+=file.length();
+			}
+		}
+		diskUsage.set(usage);
+	}
+
+	/**
+	 * Remove least recently used thumbnails till disk usage is below 90% of the limit
+	 */
+	private synchronized void evict() {
+		if(diskUsage.get()<=diskSize) return;
+		File[] files = listFiles();
+		if(files==null) return;
+		Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+		long usage = 0;
+		for (File file : files) {
+			usage+=file.length();
+		}
+		long target = diskSize / 10 * 9;
+		for (int i=0; i<files.length && usage>target; i++) {
+			long length = files[i].length();
+			if(files[i].delete()) usage-=length;
+		}
+		diskUsage.set(usage);
+	}
+}
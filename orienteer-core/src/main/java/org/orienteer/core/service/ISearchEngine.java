@@ -0,0 +1,50 @@
+package org.orienteer.core.service;
+
+import com.google.inject.ImplementedBy;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import org.apache.wicket.model.IModel;
+import org.orienteer.core.CustomAttribute;
+import org.orienteer.core.service.impl.IndexedSearchEngine;
+import ru.ydn.wicket.wicketorientdb.model.OQueryDataProvider;
+
+/**
+ * Guice service for generic search through documents of a class.
+ * Implementations keep an index of properties marked by {@link CustomAttribute}.SEARCHABLE
+ */
+@ImplementedBy(IndexedSearchEngine.class)
+public interface ISearchEngine
+{
+	/**
+	 * @param oClass class to check
+	 * @return true if documents of the class can be searched by this engine
+	 */
+	public boolean isSearchable(OClass oClass);
+
+	/**
+	 * Create ranked and paginated data provider for documents of a class (including subclasses)
+	 * @param oClass class to search documents of
+	 * @param queryModel model with a search query
+	 * @return data provider with documents which match the query
+	 */
+	public OQueryDataProvider<ODocument> search(OClass oClass, IModel<String> queryModel);
+
+	/**
+	 * Add or update document in the index
+	 * @param doc document to index
+	 */
+	public void index(ODocument doc);
+
+	/**
+	 * Remove document from the index
+	 * @param rid identity of a document to remove
+	 */
+	public void remove(ORID rid);
+
+	/**
+	 * Rebuild index for all documents of a class (including subclasses)
+	 * @param oClass class to rebuild index for
+	 */
+	public void reindex(OClass oClass);
+}
@@ -0,0 +1,34 @@
+package org.orienteer.core.service;
+
+import java.util.List;
+
+import org.orienteer.core.service.impl.CachingSuggestionEngine;
+
+import com.google.inject.ImplementedBy;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+
+/**
+ * Guice service for type-ahead suggestions of documents of a class by its name property
+ * (see {@link IOClassIntrospector#getNameProperty(OClass)})
+ */
+@ImplementedBy(CachingSuggestionEngine.class)
+public interface ISuggestionEngine
+{
+	public static final int DEFAULT_LIMIT = 20;
+
+	/**
+	 * Suggest documents for a query. Lookup is performed with admin rights,
+	 * so suggested documents should be loaded by current user to apply security
+	 * @param oClass class to suggest documents of (including subclasses)
+	 * @param query text typed by user. Empty query suggests any documents
+	 * @param limit max number of suggestions
+	 * @return RIDs of suggested documents
+	 */
+	public List<ORID> suggest(OClass oClass, String query, int limit);
+
+	/**
+	 * Drop cached suggestions for all classes
+	 */
+	public void invalidateAll();
+}
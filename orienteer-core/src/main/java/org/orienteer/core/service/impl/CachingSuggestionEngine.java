@@ -0,0 +1,324 @@
+package org.orienteer.core.service.impl;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.model.Model;
+import org.orienteer.core.service.IOClassIntrospector;
+import org.orienteer.core.service.ISearchEngine;
+import org.orienteer.core.service.ISuggestionEngine;
+import org.orienteer.core.util.OInstrumentation;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OProperty;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.executor.OResult;
+import com.orientechnologies.orient.core.sql.executor.OResultSet;
+
+import ru.ydn.wicket.wicketorientdb.utils.DBClosure;
+
+/**
+ * Default implementation of {@link ISuggestionEngine}. Lookup strategy depends on a class:
+ * <ul>
+ * <li>{@link Strategy#SEARCH} - class is searchable by {@link ISearchEngine}: its index of word prefixes is used</li>
+ * <li>{@link Strategy#PREFIX} - class is large and name property has an ordered index: range lookup by the index only.
+ * So for such classes only documents which names start with a query are suggested (in any case, if the index has "ci" collate):
+ * matching in the middle of a name would require a scan of the whole class on every keystroke.
+ * Use {@link ISearchEngine} or FULLTEXT index to match words of names</li>
+ * <li>{@link Strategy#CONTAINS} - otherwise: CONTAINSTEXT condition, which uses FULLTEXT index if it's present</li>
+ * </ul>
+ * Results are cached for a short time. Concurrent lookups of the same query are coalesced into one.
+ * If complete results for a shorter query are cached already, results for a longer one are filtered from them without DB access:
+ * so typing of next characters doesn't hit DB.
+ */
+@Singleton
+public class CachingSuggestionEngine implements ISuggestionEngine
+{
+	private static final Logger LOG = LoggerFactory.getLogger(CachingSuggestionEngine.class);
+
+	public static final long DEFAULT_CACHE_TTL = 10000;
+	public static final long DEFAULT_CACHE_SIZE = 10000;
+	public static final long DEFAULT_SCAN_THRESHOLD = 10000;
+	public static final long DEFAULT_TIMEOUT = 3000;
+
+	/**
+	 * Strategies of lookup
+	 */
+	public static enum Strategy {
+		ANY, SEARCH, PREFIX, CONTAINS
+	}
+
+	/**
+	 * Suggested document with a value of name property to filter by
+	 */
+	static class Entry {
+		private final ORID rid;
+		private final String name;
+
+		public Entry(ORID rid, Object name) {
+			this.rid = rid;
+			this.name = name!=null?name.toString():null;
+		}
+	}
+
+	/**
+	 * Result of a lookup
+	 */
+	static class Result {
+		final Strategy strategy;
+		final List<Entry> entries;
+		final boolean complete;
+		final boolean timedOut;
+
+		public Result(Strategy strategy, List<Entry> entries, int limit, boolean timedOut) {
+			this.strategy = strategy;
+			this.entries = Collections.unmodifiableList(entries);
+			this.complete = !timedOut && entries.size()<limit;
+			this.timedOut = timedOut;
+		}
+
+		public List<ORID> getRids() {
+			List<ORID> ret = new ArrayList<>(entries.size());
+			for (Entry entry : entries) ret.add(entry.rid);
+			return ret;
+		}
+	}
+
+	@Inject
+	private IOClassIntrospector oClassIntrospector;
+
+	@Inject
+	private ISearchEngine searchEngine;
+
+	private long cacheTtl = DEFAULT_CACHE_TTL;
+	private long cacheSize = DEFAULT_CACHE_SIZE;
+	private long scanThreshold = DEFAULT_SCAN_THRESHOLD;
+	private long timeout = DEFAULT_TIMEOUT;
+
+	private volatile Cache<String, Result> cache;
+
+	@Inject(optional=true)
+	public void setCacheTtl(@Named("orienteer.suggestions.cache.ttl") long cacheTtl) {
+		this.cacheTtl = cacheTtl;
+		this.cache = null;
+	}
+
+	@Inject(optional=true)
+	public void setCacheSize(@Named("orienteer.suggestions.cache.size") long cacheSize) {
+		this.cacheSize = cacheSize;
+		this.cache = null;
+	}
+
+	/**
+	 * @param scanThreshold max number of documents in a class to lookup by CONTAINSTEXT even if prefix index is available
+	 */
+	@Inject(optional=true)
+	public void setScanThreshold(@Named("orienteer.suggestions.scan.threshold") long scanThreshold) {
+		this.scanThreshold = scanThreshold;
+	}
+
+	/**
+	 * @param timeout max duration of a lookup query in milliseconds: results of longer queries are returned partially and not cached
+	 */
+	@Inject(optional=true)
+	public void setTimeout(@Named("orienteer.suggestions.timeout") long timeout) {
+		this.timeout = timeout;
+	}
+
+	@Override
+	public List<ORID> suggest(OClass oClass, String query, int limit) {
+		if(oClass==null) return Collections.emptyList();
+		OProperty property = oClassIntrospector.getNameProperty(oClass);
+		if(property==null) return Collections.emptyList();
+		long start = OInstrumentation.start();
+		String normalized = query!=null?query.trim():"";
+		String key = getKey(oClass, limit, normalized);
+		Cache<String, Result> cache = getCache();
+		Result result = cache.getIfPresent(key);
+		boolean cached = result!=null;
+		if(!cached) {
+			try {
+				result = cache.get(key, () -> {
+					Strategy strategy = getStrategy(oClass, property, normalized);
+					Result ret = narrow(cache, oClass, property, strategy, normalized, limit);
+					return ret!=null?ret:lookup(oClass, property, strategy, normalized, limit);
+				});
+			} catch (ExecutionException | UncheckedExecutionException e) {
+				LOG.error("Can't suggest documents of class '"+oClass.getName()+"' for '"+normalized+"'", e.getCause());
+				return Collections.emptyList();
+			}
+			if(result.timedOut) cache.invalidate(key);
+		}
+		OInstrumentation.suggested(oClass.getName(), result.strategy.name(), cached, start);
+		return result.getRids();
+	}
+
+	@Override
+	public void invalidateAll() {
+		getCache().invalidateAll();
+	}
+
+	private Cache<String, Result> getCache() {
+		Cache<String, Result> ret = cache;
+		if(ret==null) {
+			synchronized (this) {
+				ret = cache;
+				if(ret==null) {
+					cache = ret = CacheBuilder.newBuilder()
+											.maximumSize(Math.max(cacheSize, 0))
+											.expireAfterWrite(Math.max(cacheTtl, 0), TimeUnit.MILLISECONDS)
+											.build();
+				}
+			}
+		}
+		return ret;
+	}
+
+	private static String getKey(OClass oClass, int limit, String query) {
+		return oClass.getName()+'\u0000'+limit+'\u0000'+query;
+	}
+
+	protected Strategy getStrategy(OClass oClass, OProperty property, String query) {
+		if(query.isEmpty()) return Strategy.ANY;
+		if(searchEngine.isSearchable(oClass)) return Strategy.SEARCH;
+		if(getPrefixIndex(property)!=null && oClass.count(true)>scanThreshold) return Strategy.PREFIX;
+		return Strategy.CONTAINS;
+	}
+
+	/**
+	 * Find index which can be used for lookup by prefix: ordered index on the name property only
+	 * @param property name property
+	 * @return index or null
+	 */
+	private static OIndex getPrefixIndex(OProperty property) {
+		if(!OType.STRING.equals(property.getType())) return null;
+		for (OIndex index : property.getAllIndexes()) {
+			if(index.supportsOrderedIterations()
+					&& index.getDefinition()!=null
+					&& index.getDefinition().getFields().size()==1) return index;
+		}
+		return null;
+	}
+
+	private static boolean hasFullTextIndex(OProperty property) {
+		for (OIndex index : property.getAllIndexes()) {
+			if(OClass.INDEX_TYPE.FULLTEXT.name().equalsIgnoreCase(index.getType())) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Filter complete cached results for a shorter query instead of lookup in DB
+	 */
+	private Result narrow(Cache<String, Result> cache, OClass oClass, OProperty property, Strategy strategy, String query, int limit) {
+		if(!OType.STRING.equals(property.getType())) return null;
+		if(hasFullTextIndex(property)) return null;
+		boolean prefix = Strategy.PREFIX.equals(strategy);
+		if(!prefix && !Strategy.CONTAINS.equals(strategy)) return null;
+		//Range lookup by an index with case insensitive collate matches prefixes in any case
+		OIndex index = prefix?getPrefixIndex(property):null;
+		boolean ignoreCase = index!=null && index.getDefinition().getCollate()!=null
+							&& "ci".equals(index.getDefinition().getCollate().getName());
+		String lowerCaseQuery = query.toLowerCase(Locale.ROOT);
+		for(int i=query.length()-1; i>=0; i--) {
+			Result shorter = cache.getIfPresent(getKey(oClass, limit, query.substring(0, i)));
+			if(shorter==null || !shorter.complete) continue;
+			if(!shorter.strategy.equals(strategy) && !Strategy.ANY.equals(shorter.strategy)) continue;
+			List<Entry> entries = new ArrayList<>();
+			for (Entry entry : shorter.entries) {
+				if(entry.name==null) continue;
+				boolean matches;
+				if(!prefix) matches = entry.name.contains(query);
+				else if(ignoreCase) matches = entry.name.toLowerCase(Locale.ROOT).startsWith(lowerCaseQuery);
+				else matches = entry.name.startsWith(query);
+				if(matches) entries.add(entry);
+			}
+			return new Result(strategy, entries, limit, false);
+		}
+		return null;
+	}
+
+	Result lookup(OClass oClass, OProperty property, Strategy strategy, String query, int limit) {
+		return DBClosure.sudo(db -> {
+			if(Strategy.SEARCH.equals(strategy)) return search(oClass, property, query, limit);
+			return query(db, strategy, getSql(oClass, property, strategy, limit), limit, getArgs(strategy, query));
+		});
+	}
+
+	private String getSql(OClass oClass, OProperty property, Strategy strategy, int limit) {
+		String field = "`"+property.getName()+"`";
+		StringBuilder sql = new StringBuilder("SELECT @rid as rid, ").append(field).append(" as name FROM `")
+									.append(oClass.getName()).append('`');
+		switch (strategy) {
+			case PREFIX:
+				sql.append(" WHERE ").append(field).append(" >= ? AND ").append(field).append(" < ?");
+				break;
+			case CONTAINS:
+				sql.append(" WHERE ").append(field);
+				if(!OType.STRING.equals(property.getType())) sql.append(".asString()");
+				sql.append(" CONTAINSTEXT ?");
+				break;
+			default:
+		}
+		sql.append(" LIMIT ").append(limit);
+		if(timeout>0) sql.append(" TIMEOUT ").append(timeout).append(" RETURN");
+		return sql.toString();
+	}
+
+	private static Object[] getArgs(Strategy strategy, String query) {
+		switch (strategy) {
+			case PREFIX:
+				return new Object[]{query, query+Character.MAX_VALUE};
+			case CONTAINS:
+				return new Object[]{query};
+			default:
+				return new Object[0];
+		}
+	}
+
+	private Result query(ODatabaseDocument db, Strategy strategy, String sql, int limit, Object... args) {
+		long start = System.nanoTime();
+		long instrumentationStart = OInstrumentation.start();
+		List<Entry> entries = new ArrayList<>();
+		try(OResultSet rs = db.query(sql, args)) {
+			while(rs.hasNext() && entries.size()<limit) {
+				OResult row = rs.next();
+				Object rid = row.getProperty("rid");
+				if(rid instanceof OIdentifiable) entries.add(new Entry(((OIdentifiable) rid).getIdentity(), row.getProperty("name")));
+			}
+		} finally {
+			OInstrumentation.queryExecuted(sql, instrumentationStart);
+		}
+		boolean timedOut = timeout>0 && System.nanoTime()-start>=TimeUnit.MILLISECONDS.toNanos(timeout);
+		if(timedOut) LOG.warn("Suggestions lookup took longer than {} ms: {}", timeout, sql);
+		return new Result(strategy, entries, limit, timedOut);
+	}
+
+	private Result search(OClass oClass, OProperty property, String query, int limit) {
+		List<Entry> entries = new ArrayList<>();
+		Iterator<ODocument> it = searchEngine.search(oClass, Model.of(query)).iterator(0, limit);
+		while(it.hasNext()) {
+			ODocument doc = it.next();
+			entries.add(new Entry(doc.getIdentity(), doc.field(property.getName())));
+		}
+		return new Result(Strategy.SEARCH, entries, limit, false);
+	}
+}
@@ -0,0 +1,374 @@
+package org.orienteer.core.service.impl;
+
+import com.google.inject.Singleton;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OSecurityException;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OProperty;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.executor.OResult;
+import com.orientechnologies.orient.core.sql.executor.OResultSet;
+import org.apache.wicket.extensions.markup.html.repeater.util.SortParam;
+import org.apache.wicket.model.IModel;
+import org.orienteer.core.CustomAttribute;
+import org.orienteer.core.OrienteerWebApplication;
+import org.orienteer.core.module.SearchIndexModule;
+import org.orienteer.core.service.ISearchEngine;
+import org.orienteer.core.util.CommonUtils;
+import org.orienteer.core.util.OSchemaVersionedCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.ydn.wicket.wicketorientdb.model.OQueryDataProvider;
+import ru.ydn.wicket.wicketorientdb.utils.DBClosure;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import static org.orienteer.core.module.SearchIndexModule.*;
+
+/**
+ * Default implementation of {@link ISearchEngine}.
+ * Keeps one {@link SearchIndexModule#OCLASS_SEARCH_INDEX} document with a set of tokens per indexed document.
+ * Tokens are lowercased words of searchable properties and prefixes of these words: so search by start of a word works.
+ * Results are ranked by number of matched query words.
+ * Missing or outdated index of a class is rebuilt in background: till then search results might be incomplete.
+ */
+@Singleton
+public class IndexedSearchEngine implements ISearchEngine
+{
+	private static final Logger LOG = LoggerFactory.getLogger(IndexedSearchEngine.class);
+
+	private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+	private static final int MIN_PREFIX_LENGTH = 3;
+	private static final int MAX_PREFIX_LENGTH = 20;
+	private static final int MAX_TOKEN_LENGTH = 64;
+	private static final int REINDEX_BATCH_SIZE = 1000;
+	private static final int MAX_RESULTS = 1000;
+	private static final String STALE_SIGNATURE = "";
+
+	private static final String UPSERT_SQL = "update "+OCLASS_SEARCH_INDEX+" set "+PROP_CLASS_NAME+" = ?, "+PROP_TOKENS+" = ?"
+												+" upsert where "+PROP_DOCUMENT+" = ?";
+	private static final String DELETE_SQL = "delete from "+OCLASS_SEARCH_INDEX+" where "+PROP_DOCUMENT+" = ?";
+	private static final String DELETE_CLASSES_SQL = "delete from "+OCLASS_SEARCH_INDEX+" where "+PROP_CLASS_NAME+" in ?";
+	private static final String COUNT_CLASSES_SQL = "select count(*) as count from "+OCLASS_SEARCH_INDEX
+												+" where "+PROP_CLASS_NAME+" in ?";
+	private static final String MATCH_CONDITION = " from "+OCLASS_SEARCH_INDEX+" where "+PROP_TOKENS+" containsany :tokens"
+												+" and "+PROP_CLASS_NAME+" in :classes";
+	private static final String SEARCH_SQL = "select "+PROP_DOCUMENT+", intersect("+PROP_TOKENS+", :tokens).size() as score"
+												+MATCH_CONDITION;
+
+	/**
+	 * Searchable properties per class. Keys are compared by identity.
+	 */
+	private static final int MAX_CACHED_CLASSES = 5000;
+	private final OSchemaVersionedCache<List<String>> searchableFields
+										= new OSchemaVersionedCache<>(MAX_CACHED_CLASSES, IndexedSearchEngine::resolveSearchableFields);
+	/**
+	 * Signatures of searchable properties of classes which were verified to be indexed
+	 */
+	private final ConcurrentMap<String, String> indexedClasses = new ConcurrentHashMap<>();
+	/**
+	 * Names of classes which index is being rebuilt right now
+	 */
+	private final Set<String> reindexing = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Single background thread to rebuild index: it's created only if rebuild is required
+	 */
+	private static final class Reindexer {
+		private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "orienteer-search-reindex");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	private static List<String> resolveSearchableFields(OClass oClass) {
+		List<String> fields = new ArrayList<>();
+		for (OProperty property : oClass.properties()) {
+			if(CustomAttribute.SEARCHABLE.getValue(property, false)) fields.add(property.getName());
+		}
+		Collections.sort(fields);
+		return Collections.unmodifiableList(fields);
+	}
+
+	private List<String> getSearchableFields(OClass oClass) {
+		return searchableFields.get(oClass);
+	}
+
+	@Override
+	public boolean isSearchable(OClass oClass) {
+		return !getSearchableFields(oClass).isEmpty();
+	}
+
+	@Override
+	public OQueryDataProvider<ODocument> search(OClass oClass, IModel<String> queryModel) {
+		ensureIndexed(oClass);
+		return new SearchDataProvider(oClass.getName(), getClassNames(oClass), queryModel);
+	}
+
+	@Override
+	public void index(ODocument doc) {
+		OClass oClass = doc.getSchemaClass();
+		ORID rid = doc.getIdentity();
+		if(oClass==null || !rid.isPersistent()) return;
+		List<String> fields = getSearchableFields(oClass);
+		if(fields.isEmpty()) return;
+		Set<String> tokens = getTokens(doc, fields);
+		try {
+			withDatabase(db -> {
+				db.command(UPSERT_SQL, oClass.getName(), tokens, rid).close();
+				return null;
+			});
+		} catch (RuntimeException e) {
+			//Index of the class and its super classes should be rebuilt on next search
+			indexedClasses.put(oClass.getName(), STALE_SIGNATURE);
+			for (OClass superClass : oClass.getAllSuperClasses()) indexedClasses.put(superClass.getName(), STALE_SIGNATURE);
+			throw e;
+		}
+	}
+
+	@Override
+	public void remove(ORID rid) {
+		if(!rid.isPersistent()) return;
+		try {
+			withDatabase(db -> {
+				db.command(DELETE_SQL, rid).close();
+				return null;
+			});
+		} catch (RuntimeException e) {
+			//Number of indexed documents is verified again on next search
+			indexedClasses.clear();
+			throw e;
+		}
+	}
+
+	@Override
+	public void reindex(OClass oClass) {
+		List<String> classes = getClassNames(oClass);
+		LOG.info("Rebuilding search index for {}", classes);
+		withDatabase(db -> {
+			db.command(DELETE_CLASSES_SQL, classes).close();
+			db.begin();
+			try(OResultSet rs = db.query("select from "+oClass.getName())) {
+				int inBatch = 0;
+				while(rs.hasNext()) {
+					OResult result = rs.next();
+					if(!result.isElement()) continue;
+					ODocument doc = (ODocument) result.toElement();
+					OClass docClass = doc.getSchemaClass();
+					if(docClass==null) continue;
+					db.command(UPSERT_SQL, docClass.getName(), getTokens(doc, getSearchableFields(docClass)),
+								doc.getIdentity()).close();
+					if(++inBatch>=REINDEX_BATCH_SIZE) {
+						db.commit();
+						db.begin();
+						inBatch = 0;
+					}
+				}
+				db.commit();
+			} catch (RuntimeException e) {
+				db.rollback();
+				throw e;
+			}
+			return null;
+		});
+		indexedClasses.put(oClass.getName(), getSignature(oClass));
+	}
+
+	/**
+	 * Schedule rebuild of index for a class if it was not yet built or if searchable properties were changed
+	 * @param oClass class to check
+	 */
+	private void ensureIndexed(OClass oClass) {
+		String signature = getSignature(oClass);
+		String indexedSignature = indexedClasses.get(oClass.getName());
+		if(signature.equals(indexedSignature)) return;
+		boolean upToDate = indexedSignature==null && withDatabase(db -> {
+			try(OResultSet rs = db.query(COUNT_CLASSES_SQL, getClassNames(oClass))) {
+				long indexed = rs.hasNext()?((Number)rs.next().getProperty("count")).longValue():0;
+				return indexed == db.getMetadata().getSchema().getClass(oClass.getName()).count(true);
+			}
+		});
+		if(upToDate) indexedClasses.put(oClass.getName(), signature);
+		else scheduleReindex(oClass);
+	}
+
+	private void scheduleReindex(OClass oClass) {
+		String className = oClass.getName();
+		if(!reindexing.add(className)) return;
+		try {
+			Reindexer.EXECUTOR.execute(() -> {
+				try {
+					reindex(oClass);
+				} catch (Exception e) {
+					LOG.error("Can't rebuild search index for {}", className, e);
+				} finally {
+					reindexing.remove(className);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			reindexing.remove(className);
+			LOG.error("Can't schedule rebuild of search index for {}", className, e);
+		}
+	}
+
+	private String getSignature(OClass oClass) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(oClass.getName()).append(getSearchableFields(oClass));
+		for (OClass subClass : oClass.getAllSubclasses()) {
+			sb.append(';').append(subClass.getName()).append(getSearchableFields(subClass));
+		}
+		return sb.toString();
+	}
+
+	private static List<String> getClassNames(OClass oClass) {
+		List<String> ret = new ArrayList<>();
+		ret.add(oClass.getName());
+		for (OClass subClass : oClass.getAllSubclasses()) ret.add(subClass.getName());
+		return ret;
+	}
+
+	private static Set<String> getTokens(ODocument doc, List<String> fields) {
+		Set<String> tokens = new HashSet<>();
+		for (String field : fields) {
+			collectTokens(doc.rawField(field), tokens);
+		}
+		return tokens;
+	}
+
+	private static void collectTokens(Object value, Set<String> tokens) {
+		if(value==null || value instanceof OIdentifiable || value instanceof byte[]) return;
+		else if(value instanceof Collection) {
+			for (Object item : (Collection<?>)value) collectTokens(item, tokens);
+		} else if(value instanceof Map) {
+			for (Object item : ((Map<?, ?>)value).values()) collectTokens(item, tokens);
+		} else {
+			for (String word : tokenize(value.toString())) {
+				tokens.add(word);
+				for(int i=MIN_PREFIX_LENGTH; i<word.length() && i<=MAX_PREFIX_LENGTH; i++) {
+					tokens.add(word.substring(0, i));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Split text to lowercased words
+	 * @param text text to split
+	 * @return set of words
+	 */
+	public static Set<String> tokenize(String text) {
+		Set<String> ret = new LinkedHashSet<>();
+		if(text==null) return ret;
+		for (String word : SEPARATORS.split(text.toLowerCase(Locale.ROOT))) {
+			if(word.isEmpty()) continue;
+			ret.add(word.length()>MAX_TOKEN_LENGTH?word.substring(0, MAX_TOKEN_LENGTH):word);
+		}
+		return ret;
+	}
+
+	private static <R> R withDatabase(Function<ODatabaseDocument, R> function) {
+		return CommonUtils.sudo(OrienteerWebApplication.lookupApplication(), function);
+	}
+
+	/**
+	 * {@link OQueryDataProvider} over search index: documents ranked by number of matched words.
+	 * Index is queried with admin rights, but only documents accessible by current user are provided.
+	 * Number of results is limited by {@link #MAX_RESULTS}
+	 */
+	private static class SearchDataProvider extends OQueryDataProvider<ODocument> {
+		private static final long serialVersionUID = 1L;
+
+		private final List<String> classes;
+		private final IModel<String> queryModel;
+		private transient List<ORID> matches;
+		private transient SortParam<String> matchesSort;
+
+		public SearchDataProvider(String className, List<String> classes, IModel<String> queryModel) {
+			super("select from "+className);
+			this.classes = classes;
+			this.queryModel = queryModel;
+		}
+
+		private Map<String, Object> getParameters() {
+			Map<String, Object> params = new HashMap<>();
+			params.put("tokens", new ArrayList<>(tokenize(queryModel.getObject())));
+			params.put("classes", classes);
+			return params;
+		}
+
+		/**
+		 * @return identities of matched documents which are accessible by current user
+		 */
+		private List<ORID> getMatches() {
+			SortParam<String> sort = getSort();
+			if(matches!=null && Objects.equals(sort, matchesSort)) return matches;
+			Map<String, Object> params = getParameters();
+			if(((List<?>)params.get("tokens")).isEmpty()) matches = Collections.emptyList();
+			else {
+				StringBuilder sql = new StringBuilder(SEARCH_SQL).append(" order by ");
+				if(sort!=null && sort.getProperty()!=null) {
+					sql.append(PROP_DOCUMENT).append('.').append(sort.getProperty())
+						.append(sort.isAscending()?" asc, ":" desc, ");
+				}
+				sql.append("score desc limit ").append(MAX_RESULTS);
+				List<ORID> rids = DBClosure.sudo(db -> {
+					List<ORID> ret = new ArrayList<>();
+					try(OResultSet rs = db.query(sql.toString(), params)) {
+						while(rs.hasNext()) {
+							OResult result = rs.next();
+							OIdentifiable document = result.getProperty(PROP_DOCUMENT);
+							if(document!=null) ret.add(document.getIdentity());
+						}
+					}
+					return ret;
+				});
+				matches = new ArrayList<>(rids.size());
+				for (ORID rid : rids) {
+					try {
+						if(rid.getRecord()!=null) matches.add(rid);
+					} catch (OSecurityException e) {
+						//Skip documents which are not accessible by current user
+					}
+				}
+			}
+			matchesSort = sort;
+			return matches;
+		}
+
+		@Override
+		public Iterator<ODocument> iterator(long first, long count) {
+			List<ORID> rids = getMatches();
+			int from = (int) Math.min(first, rids.size());
+			int to = (int) Math.min(first + count, rids.size());
+			List<ODocument> ret = new ArrayList<>(to - from);
+			for (ORID rid : rids.subList(from, to)) {
+				ODocument doc = rid.getRecord();
+				if(doc!=null) ret.add(doc);
+			}
+			return ret.iterator();
+		}
+
+		@Override
+		public long size() {
+			return getMatches().size();
+		}
+
+		@Override
+		public void detach() {
+			super.detach();
+			queryModel.detach();
+			matches = null;
+			matchesSort = null;
+		}
+	}
+}
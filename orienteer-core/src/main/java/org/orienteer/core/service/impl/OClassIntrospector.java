@@ -3,7 +3,6 @@ package org.orienteer.core.service.impl;
 import com.google.common.base.Function;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
-import com.google.common.collect.Collections2;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Ordering;
 import com.orientechnologies.common.collection.OCollection;
@@ -32,7 +31,10 @@ import org.orienteer.core.component.visualizer.IVisualizer;
 import org.orienteer.core.component.visualizer.UIVisualizersRegistry;
 import org.orienteer.core.service.IFilterPredicateFactory;
 import org.orienteer.core.service.IOClassIntrospector;
+import org.orienteer.core.service.ISearchEngine;
 import org.orienteer.core.util.CommonUtils;
+import org.orienteer.core.util.OSchemaVersionedCache;
+import org.orienteer.core.util.export.ExportFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import ru.ydn.wicket.wicketorientdb.converter.ODocumentORIDConverter;
@@ -66,14 +68,65 @@ public class OClassIntrospector implements IOClassIntrospector
 	
 	public static final Ordering<OProperty> ORDER_PROPERTIES_BY_ORDER = Ordering.<Integer>natural().nullsLast().onResultOf(GetOrderOfPropertyFunction.INSTANCE);
 
+	/**
+	 * Cache of schema derived metadata of classes. Keys are compared by identity.
+	 * Size is limited, because metadata refers to a class and prevents its garbage collection
+	 */
+	private static final int MAX_CACHED_CLASSES = 5000;
+	private static final OSchemaVersionedCache<ClassMetadata> CLASSES_METADATA
+											= new OSchemaVersionedCache<>(MAX_CACHED_CLASSES, ClassMetadata::new);
+
+	/**
+	 * Metadata of a class required for rendering: it depends only on a schema, so it's shared between users
+	 */
+	private static class ClassMetadata
+	{
+		private final List<OProperty> properties;
+		private final List<OProperty> orderedProperties;
+		private final Map<String, List<OProperty>> orderedPropertiesByTab;
+		private final OProperty nameProperty;
+		private final OProperty sortProperty;
+		private final Boolean sortOrder;
+		private final String searchSql;
+		private final boolean customSearchSql;
+
+		public ClassMetadata(OClass oClass)
+		{
+			this.properties = Collections.unmodifiableList(new ArrayList<>(oClass.properties()));
+			this.orderedProperties = Collections.unmodifiableList(ORDER_PROPERTIES_BY_ORDER.sortedCopy(properties));
+			Map<String, List<OProperty>> byTab = new HashMap<>();
+			for (OProperty property : orderedProperties)
+			{
+				byTab.computeIfAbsent(CustomAttribute.TAB.getValue(property, DEFAULT_TAB), tab -> new ArrayList<>()).add(property);
+			}
+			this.orderedPropertiesByTab = byTab;
+			this.nameProperty = resolveNameProperty(oClass);
+			this.sortProperty = CustomAttribute.SORT_BY.getValue(oClass);
+			this.sortOrder = CustomAttribute.SORT_ORDER.getValue(oClass);
+			this.searchSql = resolveSearchSql(oClass);
+			this.customSearchSql = !Strings.isEmpty(CustomAttribute.SEARCH_QUERY.getValue(oClass));
+		}
+	}
+
+	private static ClassMetadata getClassMetadata(OClass oClass)
+	{
+		return CLASSES_METADATA.get(oClass);
+	}
 	
 	@Override
 	public List<OProperty> getDisplayableProperties(OClass oClass) {
-		Collection<OProperty> properties =  oClass.properties();
+		List<OProperty> properties = getClassMetadata(oClass).orderedProperties;
 		IFilterPredicateFactory factory = OrienteerWebApplication.get().getServiceInstance(IFilterPredicateFactory.class);
-		Collection<OProperty> filteredProperties = Collections2.filter(properties, factory.getGuicePredicateForTableProperties());
-		if(filteredProperties==null || filteredProperties.isEmpty()) filteredProperties = properties;
-		return ORDER_PROPERTIES_BY_ORDER.sortedCopy(filteredProperties);
+		List<OProperty> filteredProperties = filter(properties, factory.getGuicePredicateForTableProperties());
+		return filteredProperties.isEmpty()?new ArrayList<>(properties):filteredProperties;
+	}
+
+	private static List<OProperty> filter(List<OProperty> properties, Predicate<OProperty> predicate) {
+		List<OProperty> ret = new ArrayList<>(properties.size());
+		for (OProperty property : properties) {
+			if(predicate==null || predicate.apply(property)) ret.add(property);
+		}
+		return ret;
 	}
 
 	@Override
@@ -156,7 +209,7 @@ public class OClassIntrospector implements IOClassIntrospector
 		IFilterPredicateFactory factory = OrienteerWebApplication.get().getServiceInstance(IFilterPredicateFactory.class);
 		SerializablePredicate<OProperty> predicate = factory.getPredicateForListProperties();
 		List<String> tabs = new ArrayList<String>();
-		for (OProperty prop : oClass.properties()) {
+		for (OProperty prop : getClassMetadata(oClass).properties) {
 			String tab = CustomAttribute.TAB.getValue(prop, DEFAULT_TAB);
 			if(!tabs.contains(tab) && predicate.test(prop)) tabs.add(tab); 
 		}
@@ -171,9 +224,11 @@ public class OClassIntrospector implements IOClassIntrospector
 		Predicate<OProperty> predicate = OrienteerWebApplication.get().getServiceInstance(IFilterPredicateFactory.class)
 				.getGuicePredicateForListProperties();
 
-		return listProperties(oClass, (Predicate<OProperty>) input -> {
-            boolean ret = safeTab.equals(CustomAttribute.TAB.getValue(input, DEFAULT_TAB));
-            ret = ret && predicate.apply(input);
+		if(oClass==null) return Collections.EMPTY_LIST;
+		List<OProperty> tabProperties = getClassMetadata(oClass).orderedPropertiesByTab.get(safeTab);
+		if(tabProperties==null) return new ArrayList<>();
+		return filter(tabProperties, input -> {
+            boolean ret = predicate.apply(input);
 
             if(!ret || extended == null) {
             	return ret;
@@ -192,14 +247,12 @@ public class OClassIntrospector implements IOClassIntrospector
 	public List<OProperty> listProperties(OClass oClass,
 			Predicate<OProperty>... predicates) {
 		if(oClass==null) return Collections.EMPTY_LIST;
-		Collection<OProperty> properties =  oClass.properties();
 		Predicate<OProperty> predicate = predicates==null || predicates.length==0?
 												 null
 												:(predicates.length==1?
 															predicates[0]
 															:Predicates.and(predicates));
-		Collection<OProperty> filteredProperties = predicate!=null?Collections2.filter(properties, predicate):properties;
-		return ORDER_PROPERTIES_BY_ORDER.sortedCopy(filteredProperties);
+		return filter(getClassMetadata(oClass).orderedProperties, predicate);
 		
 	}
 
@@ -224,7 +277,10 @@ public class OClassIntrospector implements IOClassIntrospector
 
 	@Override
 	public OProperty getNameProperty(OClass oClass) {
-		if(oClass==null) return null;
+		return oClass!=null?getClassMetadata(oClass).nameProperty:null;
+	}
+
+	private static OProperty resolveNameProperty(OClass oClass) {
 		OProperty ret = CustomAttribute.PROP_NAME.getValue(oClass);
 		if(ret!=null) return ret;
 		ret = oClass.getProperty("name");
@@ -353,8 +409,9 @@ public class OClassIntrospector implements IOClassIntrospector
 	@Override
 	public void defineDefaultSorting(SortableDataProvider<ODocument, String> provider, OClass oClass) {
 		if(oClass==null) return;
-		OProperty property = CustomAttribute.SORT_BY.getValue(oClass);
-		Boolean order = CustomAttribute.SORT_ORDER.getValue(oClass);
+		ClassMetadata metadata = getClassMetadata(oClass);
+		OProperty property = metadata.sortProperty;
+		Boolean order = metadata.sortOrder;
 		SortOrder sortOrder = order==null?SortOrder.ASCENDING:(order?SortOrder.ASCENDING:SortOrder.DESCENDING);
     	if(property==null) {
     		if(order==null) provider.setSort(null);
@@ -366,6 +423,15 @@ public class OClassIntrospector implements IOClassIntrospector
 
 	@Override
 	public OQueryDataProvider<ODocument> getDataProviderForGenericSearch(OClass oClass, IModel<String> queryModel) {
+		ClassMetadata metadata = getClassMetadata(oClass);
+		if(!metadata.customSearchSql) {
+			ISearchEngine searchEngine = OrienteerWebApplication.get().getServiceInstance(ISearchEngine.class);
+			if(searchEngine.isSearchable(oClass)) return searchEngine.search(oClass, queryModel);
+		}
+		return new OQueryDataProvider<ODocument>(metadata.searchSql).setParameter("query", queryModel);
+	}
+
+	private static String resolveSearchSql(OClass oClass) {
 		String searchSql = CustomAttribute.SEARCH_QUERY.getValue(oClass);
 		String sql=null;
 		if(!Strings.isEmpty(searchSql)) {
@@ -378,8 +444,7 @@ public class OClassIntrospector implements IOClassIntrospector
 		}
 
 		if(sql==null) sql = "select from "+oClass.getName()+" where any() containstext :query";
-
-		return new OQueryDataProvider<ODocument>(sql).setParameter("query", queryModel);
+		return sql;
 	}
 
 	@Override
@@ -392,6 +457,7 @@ public class OClassIntrospector implements IOClassIntrospector
 		result.put(CopyODocumentCommand.class.getName(), new CopyODocumentCommand(table, model));
 		result.put(DeleteODocumentCommand.class.getName(), new DeleteODocumentCommand(table, model));
 		result.put(ExportCommand.class.getName(), new ExportCommand<>(table, new PropertyModel<>(model, "name")));
+		result.put(ExportOClassCommand.class.getName(), new ExportOClassCommand<>(table, model, ExportFormat.CSV));
 
 		return result;
 	}
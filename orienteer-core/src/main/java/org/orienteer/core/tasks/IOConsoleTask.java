@@ -39,52 +39,40 @@ public interface IOConsoleTask extends IOTask<IOTaskSessionPersisted> {
 		otaskSession1.setTask(this);
 		otaskSession1.persist();
 		OTaskSessionRuntime<IOTaskSessionPersisted> runtime = new OTaskSessionRuntime<>(otaskSession1);
-		try{
-			Thread innerThread = new Thread(new Runnable(){
-				@Override
-				public void run() {
-					runtime.start();
-					String charset =  Charset.defaultCharset().displayName();
-					if(System.getProperty("os.name").startsWith("Windows")){
-						if (Charset.isSupported("cp866")){
-							charset = "cp866";
-						}
-					}
-					try {
-						
-						final Process innerProcess = Runtime.getRuntime().exec(input);
-						runtime.setCallback(new ITaskSessionCallback() {
-								
-								@Override
-								public void interrupt() throws Exception {
-									try {
-										innerProcess.exitValue();
-										//There is exit code: process is finished already
-									} catch (IllegalThreadStateException e) {
-										//Process is active - destroying
-										innerProcess.destroy();
-									}
-								}
-							});
-						try(BufferedReader reader =  new BufferedReader(new InputStreamReader(innerProcess.getInputStream(),charset))) {
-							String curOutString = "";
-								while ((curOutString = reader.readLine())!= null) {
-									runtime.incrementCurrentProgress();
-									runtime.getOTaskSessionPersisted().appendOutput(curOutString).persist();
-								}
-						} 
-					} catch (IOException e) {
-						runtime.getOTaskSessionPersisted().appendOutput(e.getMessage()).persist();
-					}	
-					runtime.finish();
+		OTaskManager.get().submit(runtime, () -> {
+			String charset =  Charset.defaultCharset().displayName();
+			if(System.getProperty("os.name").startsWith("Windows")){
+				if (Charset.isSupported("cp866")){
+					charset = "cp866";
 				}
+			}
+			try {
 				
-			});
-			innerThread.start();
-
-		} catch (Exception e) {
-			runtime.finish();
-		}
+				final Process innerProcess = Runtime.getRuntime().exec(input);
+				runtime.setCallback(new ITaskSessionCallback() {
+						
+						@Override
+						public void interrupt() throws Exception {
+							try {
+								innerProcess.exitValue();
+								//There is exit code: process is finished already
+							} catch (IllegalThreadStateException e) {
+								//Process is active - destroying
+								innerProcess.destroy();
+							}
+						}
+					});
+				try(BufferedReader reader =  new BufferedReader(new InputStreamReader(innerProcess.getInputStream(),charset))) {
+					String curOutString = "";
+						while ((curOutString = reader.readLine())!= null) {
+							runtime.incrementCurrentProgress();
+							runtime.appendOutput(curOutString);
+						}
+				} 
+			} catch (IOException e) {
+				runtime.appendOutput(e.getMessage());
+			}
+		});
 		return runtime.getOTaskSessionRuntime();	
 	}
 	
@@ -0,0 +1,131 @@
+package org.orienteer.core.tasks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+import org.orienteer.core.OrienteerWebApplication;
+import org.orienteer.core.dao.DAO;
+import org.orienteer.core.dao.DAOField;
+import org.orienteer.core.dao.DAOOClass;
+import org.orienteer.core.dao.ODocumentWrapperProvider;
+import org.orienteer.core.util.export.DatabaseExporter;
+import org.orienteer.core.util.export.ExportDirectory;
+
+import com.google.inject.ProvidedBy;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.ODatabaseSession;
+import com.orientechnologies.orient.core.exception.OSecurityAccessException;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.metadata.security.ORule;
+
+import ru.ydn.wicket.wicketorientdb.IOrientDbSettings;
+import ru.ydn.wicket.wicketorientdb.security.OSecurityHelper;
+import ru.ydn.wicket.wicketorientdb.security.OrientPermission;
+
+/**
+ * OTask to export whole database or some classes and clusters of it into a compressed file on the server by {@link DatabaseExporter}.
+ * Export doesn't hold a request thread and can be downloaded afterwards with resume support.
+ * Export is executed by admin, because it includes security and restricted records: so it can be started
+ * and downloaded only by users who are allowed to bypass restrictions (see {@link #isExportAllowed()}).
+ * Exports are written into {@link ExportDirectory} and kept till their sessions are deleted:
+ * so sessions of this task are never deleted on finish
+ */
+@ProvidedBy(ODocumentWrapperProvider.class)
+@DAOOClass(value = IODatabaseExportTask.CLASS_NAME, orderOffset = 50)
+public interface IODatabaseExportTask extends IOTask<IODatabaseExportTaskSession> {
+	public static final String CLASS_NAME = "ODatabaseExportTask";
+
+	/**
+	 * @return name of a file within {@link ExportDirectory} to publish the latest complete export to.
+	 * Export of every session is available for download regardless of it
+	 */
+	public String getOutputFile();
+	public IODatabaseExportTask setOutputFile(String value);
+
+	@DAOField(linkedType = OType.STRING)
+	public List<String> getIncludeClasses();
+	public IODatabaseExportTask setIncludeClasses(List<String> value);
+
+	@DAOField(linkedType = OType.STRING)
+	public List<String> getExcludeClasses();
+	public IODatabaseExportTask setExcludeClasses(List<String> value);
+
+	@DAOField(linkedType = OType.STRING)
+	public List<String> getIncludeClusters();
+	public IODatabaseExportTask setIncludeClusters(List<String> value);
+
+	@DAOField(linkedType = OType.STRING)
+	public List<String> getExcludeClusters();
+	public IODatabaseExportTask setExcludeClusters(List<String> value);
+
+	/**
+	 * @return true if current user is allowed to export the whole database and download exports
+	 */
+	public static boolean isExportAllowed() {
+		return OSecurityHelper.isAllowed(ORule.ResourceGeneric.BYPASS_RESTRICTED, null, OrientPermission.READ);
+	}
+
+	@Override
+	public default OTaskSessionRuntime<IODatabaseExportTaskSession> startNewSession() {
+		if(!isExportAllowed()) {
+			throw new OSecurityAccessException(ODatabaseRecordThreadLocal.instance().get().getName(),
+												"Export of the database is allowed only for administrators");
+		}
+		IOrientDbSettings settings = OrienteerWebApplication.lookupApplication().getOrientDbSettings();
+		final DatabaseExporter exporter = new DatabaseExporter(settings.getContext().cachedPool(settings.getDbName(),
+												settings.getAdminUserName(), settings.getAdminPassword()))
+											.setIncludeClasses(getIncludeClasses())
+											.setExcludeClasses(getExcludeClasses())
+											.setIncludeClusters(getIncludeClusters())
+											.setExcludeClusters(getExcludeClusters());
+		String outputFile = getOutputFile();
+		final File published;
+		try {
+			published = outputFile!=null && !outputFile.trim().isEmpty()
+							? ExportDirectory.get().resolve(outputFile)
+							: null;
+		} catch (IOException e) {
+			throw new IllegalStateException("Can't prepare export directory for "+outputFile, e);
+		}
+		final IODatabaseExportTaskSession otaskSession = DAO.create(IODatabaseExportTaskSession.class);
+		//Deletion of a session deletes its export as well
+		otaskSession.setDeleteOnFinish(false);
+		otaskSession.setTask(this);
+		otaskSession.persist();
+		final File file;
+		try {
+			file = IODatabaseExportTaskSession.getArtifactFile(otaskSession.getDocument().getIdentity());
+		} catch (IOException e) {
+			throw new IllegalStateException("Can't prepare export directory", e);
+		}
+		final OTaskSessionRuntime<IODatabaseExportTaskSession> runtime = new OTaskSessionRuntime<>(otaskSession);
+		exporter.setOutputListener(runtime::appendOutput)
+				.setProgressListener(runtime::setCurrentProgress);
+		runtime.setCallback(exporter::cancel);
+		OTaskManager.get().submit(runtime, () -> {
+			try(ODatabaseSession db = exporter.getPool().acquire()) {
+				runtime.setFinalProgress(exporter.countRecords(db));
+			}
+			boolean complete = false;
+			try {
+				long records = exporter.export(file);
+				runtime.appendOutput(records+" records have been exported to "+file.getAbsolutePath());
+				if(published!=null) {
+					DatabaseExporter.publish(file, published);
+					runtime.appendOutput("Export has been published to "+published.getAbsolutePath());
+				}
+				otaskSession.setArtifact(file.getName());
+				otaskSession.setArtifactSize(file.length());
+				otaskSession.setExportedRecords(records);
+				complete = true;
+			} catch (IOException e) {
+				throw new IllegalStateException("Can't export database to "+file.getAbsolutePath(), e);
+			} finally {
+				//Failed or interrupted export should not leave a file behind
+				if(!complete) file.delete();
+			}
+		});
+		return runtime.getOTaskSessionRuntime();
+	}
+}
@@ -0,0 +1,91 @@
+package org.orienteer.core.tasks;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.apache.wicket.feedback.FeedbackMessage;
+import org.apache.wicket.request.flow.RedirectToUrlException;
+import org.orienteer.core.component.BootstrapType;
+import org.orienteer.core.component.FAIconType;
+import org.orienteer.core.dao.DAOField;
+import org.orienteer.core.dao.DAOHandler;
+import org.orienteer.core.dao.DAOOClass;
+import org.orienteer.core.dao.ODocumentWrapperProvider;
+import org.orienteer.core.dao.handler.extra.SudoMethodHandler;
+import org.orienteer.core.method.IMethodContext;
+import org.orienteer.core.method.OFilter;
+import org.orienteer.core.method.OMethod;
+import org.orienteer.core.method.filters.PlaceFilter;
+import org.orienteer.core.method.filters.WidgetTypeFilter;
+import org.orienteer.core.resource.DatabaseExportDownloadResource;
+import org.orienteer.core.util.export.DatabaseExporter;
+import org.orienteer.core.util.export.ExportDirectory;
+
+import com.google.inject.ProvidedBy;
+import com.orientechnologies.orient.core.id.ORID;
+
+/**
+ * Session of {@link IODatabaseExportTask}: holds information about a produced export.
+ * Export itself is stored within {@link ExportDirectory} under a name derived from identity of a session
+ * and is deleted together with the session
+ */
+@ProvidedBy(ODocumentWrapperProvider.class)
+@DAOOClass(value = IODatabaseExportTaskSession.CLASS_NAME)
+public interface IODatabaseExportTaskSession extends IOTaskSessionPersisted {
+	public static final String CLASS_NAME = "ODatabaseExportTaskSession";
+	public static final String ARTIFACTS_DIR = "database";
+
+	/**
+	 * @return name of a file of a complete export. Empty till export is finished
+	 */
+	@DAOField(uiReadOnly = true)
+	public String getArtifact();
+	public IODatabaseExportTaskSession setArtifact(String value);
+
+	@DAOField(uiReadOnly = true)
+	public Long getArtifactSize();
+	public IODatabaseExportTaskSession setArtifactSize(Long value);
+
+	@DAOField(uiReadOnly = true)
+	public Long getExportedRecords();
+	public IODatabaseExportTaskSession setExportedRecords(Long value);
+
+	/**
+	 * @param session identity of a session
+	 * @return file within {@link ExportDirectory} to export database to for the session
+	 * @throws IOException if export directory can't be created
+	 */
+	public static File getArtifactFile(ORID session) throws IOException {
+		if(!session.isPersistent()) throw new IllegalArgumentException("Session should be saved before export: "+session);
+		return ExportDirectory.get().resolve(ARTIFACTS_DIR+File.separator
+									+session.getClusterId()+"-"+session.getClusterPosition()+DatabaseExporter.GZIP_EXTENSION);
+	}
+
+	@Override
+	@DAOHandler(SudoMethodHandler.class)
+	public default void delete() {
+		ORID rid = getDocument().getIdentity();
+		IOTaskSessionPersisted.super.delete();
+		if(rid.isPersistent()) {
+			try {
+				getArtifactFile(rid).delete();
+			} catch (IOException e) {
+				//There is no export directory: so there is no file to delete
+			}
+		}
+	}
+
+	@OMethod(
+		icon = FAIconType.download, bootstrap=BootstrapType.SUCCESS,
+		filters={@OFilter(fClass = PlaceFilter.class, fData = "STRUCTURE_TABLE"),
+				@OFilter(fClass = WidgetTypeFilter.class, fData = "parameters"),
+		}
+	)
+	public default void download(IMethodContext ctx) {
+		if(getArtifact()==null) {
+			ctx.showFeedback(FeedbackMessage.WARNING, "errors.export.notready", null);
+		} else {
+			throw new RedirectToUrlException(DatabaseExportDownloadResource.urlFor(this).toString());
+		}
+	}
+}
@@ -0,0 +1,91 @@
+package org.orienteer.core.tasks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.orienteer.core.dao.DAO;
+import org.orienteer.core.dao.DAOField;
+import org.orienteer.core.dao.DAOOClass;
+import org.orienteer.core.dao.ODocumentWrapperProvider;
+import org.orienteer.core.util.CommonUtils;
+import org.orienteer.core.util.export.ExportDirectory;
+import org.orienteer.core.util.export.ExportFormat;
+import org.orienteer.core.util.export.StreamingExporter;
+
+import com.google.inject.ProvidedBy;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.security.OSecurityUser;
+
+/**
+ * OTask to export all documents of a class into a file on the server by {@link StreamingExporter}.
+ * Suitable for classes which are too large to be downloaded within a single request.
+ * Export is executed on behalf of a user who started the task into a file within {@link ExportDirectory}
+ */
+@ProvidedBy(ODocumentWrapperProvider.class)
+@DAOOClass(value = IOExportTask.CLASS_NAME, orderOffset = 50)
+public interface IOExportTask extends IOTask<IOTaskSessionPersisted> {
+	public static final String CLASS_NAME = "OExportTask";
+	public static final int PROGRESS_EVERY = 10000;
+
+	@DAOField(notNull = true)
+	public String getExportClass();
+	public IOExportTask setExportClass(String value);
+
+	@DAOField(notNull = true)
+	public ExportFormat getFormat();
+	public IOExportTask setFormat(ExportFormat value);
+
+	/**
+	 * @return name of a file within {@link ExportDirectory} to export to
+	 */
+	@DAOField(notNull = true)
+	public String getOutputFile();
+	public IOExportTask setOutputFile(String value);
+
+	@Override
+	public default OTaskSessionRuntime<IOTaskSessionPersisted> startNewSession() {
+		final String className = getExportClass();
+		final ExportFormat format = getFormat();
+		final String outputFile = getOutputFile();
+		if(className==null || format==null || outputFile==null) {
+			throw new IllegalStateException("Class, format and output file should be specified for export");
+		}
+		final File file;
+		try {
+			file = ExportDirectory.get().resolve(outputFile);
+		} catch (IOException e) {
+			throw new IllegalStateException("Can't prepare export directory for "+outputFile, e);
+		}
+		ODatabaseDocumentInternal currentDb = ODatabaseRecordThreadLocal.instance().getIfDefined();
+		OSecurityUser owner = currentDb!=null?currentDb.getUser():null;
+		if(owner==null) throw new IllegalStateException("Export should be started by a user");
+		final String ownerName = owner.getName();
+		final IOTaskSessionPersisted otaskSession = DAO.create(IOTaskSessionPersisted.class);
+		otaskSession.setDeleteOnFinish(isAutodeleteSessions());
+		otaskSession.setTask(this);
+		otaskSession.persist();
+		final OTaskSessionRuntime<IOTaskSessionPersisted> runtime = new OTaskSessionRuntime<>(otaskSession);
+		OTaskManager.get().submit(runtime, () -> {
+			CommonUtils.executeAs(ownerName, db -> {
+				OClass oClass = db.getMetadata().getSchema().getClass(className);
+				if(oClass==null) throw new IllegalStateException("Class '"+className+"' was not found");
+				runtime.setFinalProgress(oClass.count(true));
+				try(OutputStream out = new FileOutputStream(file)) {
+					long rows = StreamingExporter.forClass(oClass, format)
+							.setFlushEvery(PROGRESS_EVERY)
+							.setProgressListener(runtime::setCurrentProgress)
+							.export(db, StreamingExporter.getSqlForClass(oClass), out);
+					runtime.appendOutput(rows+" rows have been exported to "+file.getAbsolutePath());
+				} catch (IOException e) {
+					throw new IllegalStateException("Can't export class '"+className+"' to "+file.getAbsolutePath(), e);
+				}
+				return null;
+			});
+		});
+		return runtime.getOTaskSessionRuntime();
+	}
+}
@@ -0,0 +1,49 @@
+package org.orienteer.core.tasks;
+
+import java.util.Date;
+
+import org.orienteer.core.OClassDomain;
+import org.orienteer.core.component.visualizer.UIVisualizersRegistry;
+import org.orienteer.core.dao.DAOField;
+import org.orienteer.core.dao.DAOHandler;
+import org.orienteer.core.dao.DAOIndex;
+import org.orienteer.core.dao.DAOOClass;
+import org.orienteer.core.dao.IODocumentWrapper;
+import org.orienteer.core.dao.ODocumentWrapperProvider;
+import org.orienteer.core.dao.handler.extra.SudoMethodHandler;
+
+import com.google.inject.ProvidedBy;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+
+/**
+ * Chunk of an output of {@link IOTaskSessionPersisted}. Chunks are only appended, so long output
+ * doesn't require rewriting of a session document
+ */
+@ProvidedBy(ODocumentWrapperProvider.class)
+@DAOOClass(value = IOTaskSessionLog.CLASS_NAME, domain = OClassDomain.SYSTEM, displayable = {"seq", "timestamp", "text"})
+@DAOIndex(name = IOTaskSessionLog.INDEX_SESSION_SEQ, type = OClass.INDEX_TYPE.UNIQUE, fields = {"session", "seq"})
+public interface IOTaskSessionLog extends IODocumentWrapper {
+	public static final String CLASS_NAME = "OTaskSessionLog";
+	public static final String INDEX_SESSION_SEQ = CLASS_NAME+".session_seq";
+
+	@DAOField(notNull = true)
+	public IOTaskSessionPersisted getSession();
+	public IOTaskSessionLog setSession(IOTaskSessionPersisted value);
+
+	public long getSeq();
+	public IOTaskSessionLog setSeq(long value);
+
+	@DAOField(type = OType.DATETIME)
+	public Date getTimestamp();
+	public IOTaskSessionLog setTimestamp(Date value);
+
+	@DAOField(visualization = UIVisualizersRegistry.VISUALIZER_TEXTAREA)
+	public String getText();
+	public IOTaskSessionLog setText(String value);
+
+	@DAOHandler(SudoMethodHandler.class)
+	public default void persist() {
+		save();
+	}
+}
@@ -4,18 +4,21 @@ import com.google.inject.ProvidedBy;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 
 import java.util.Date;
+import java.util.List;
 
 import org.apache.wicket.feedback.FeedbackMessage;
 import org.apache.wicket.model.Model;
 import org.orienteer.core.component.BootstrapType;
 import org.orienteer.core.component.FAIconType;
 import org.orienteer.core.component.visualizer.UIVisualizersRegistry;
+import org.orienteer.core.dao.Command;
 import org.orienteer.core.dao.DAODefaultValue;
 import org.orienteer.core.dao.DAOField;
 import org.orienteer.core.dao.DAOHandler;
 import org.orienteer.core.dao.DAOOClass;
 import org.orienteer.core.dao.IODocumentWrapper;
 import org.orienteer.core.dao.ODocumentWrapperProvider;
+import org.orienteer.core.dao.Query;
 import org.orienteer.core.dao.handler.extra.SudoMethodHandler;
 import org.orienteer.core.method.IMethodContext;
 import org.orienteer.core.method.OFilter;
@@ -88,10 +91,20 @@ public interface IOTaskSessionPersisted extends ITaskSession, IODocumentWrapper
 	@Override
 	public IOTaskSessionPersisted setDeleteOnFinish(boolean deleteOnFinish);
 	
+	/**
+	 * @return output of a session. For sessions which write output through {@link OTaskSessionRuntime#appendOutput(String)}
+	 * only tail of output is kept here and full output is available by {@link #readLog(long)}
+	 */
 	@DAOField(visualization = UIVisualizersRegistry.VISUALIZER_TEXTAREA)
 	public String getOutput();
 	public IOTaskSessionPersisted setOutput(String value);
 	
+	/**
+	 * Append output right into the document. Prefer {@link OTaskSessionRuntime#appendOutput(String)}
+	 * for output of running sessions: it's buffered and doesn't rewrite whole output every time
+	 * @param add string to add to the output
+	 * @return this session
+	 */
 	public default IOTaskSessionPersisted appendOutput(String add) {
 		String out = getOutput();
 		setOutput(out!=null?out+"\n"+add:add);
@@ -107,7 +120,7 @@ public interface IOTaskSessionPersisted extends ITaskSession, IODocumentWrapper
 	
 	public default IOTaskSessionPersisted appendError(String add) {
 		String error = getError();
-		setOutput(error!=null?error+"\n"+add:add);
+		setError(error!=null?error+"\n"+add:add);
 		return this;
 	}
 	
@@ -171,8 +184,31 @@ public interface IOTaskSessionPersisted extends ITaskSession, IODocumentWrapper
 	
 	@DAOHandler(SudoMethodHandler.class)
 	public default void delete() {
+		deleteLog();
 		getDocument().delete();
 	}
+	
+	/**
+	 * Read chunks of output of this session
+	 * @param afterSeq sequence number of last already read chunk or 0 to read from the beginning
+	 * @return list of chunks ordered by sequence number
+	 */
+	@Query("select from "+IOTaskSessionLog.CLASS_NAME+" where session = :target and seq > :afterSeq order by seq")
+	@DAOHandler(SudoMethodHandler.class)
+	public List<IOTaskSessionLog> readLog(long afterSeq);
+	
+	/**
+	 * Read last chunks of output of this session
+	 * @param chunks number of chunks to read
+	 * @return list of chunks ordered by sequence number descending
+	 */
+	@Query("select from "+IOTaskSessionLog.CLASS_NAME+" where session = :target order by seq desc limit :chunks")
+	@DAOHandler(SudoMethodHandler.class)
+	public List<IOTaskSessionLog> tailLog(int chunks);
+	
+	@Command("delete from "+IOTaskSessionLog.CLASS_NAME+" where session = :target")
+	@DAOHandler(SudoMethodHandler.class)
+	public void deleteLog();
 
 	@Override
 	public default ITaskSession interrupt() throws Exception {
@@ -3,59 +3,222 @@ package org.orienteer.core.tasks;
 import com.google.common.collect.MapMaker;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.id.ORID;
+import org.apache.wicket.Application;
 import org.apache.wicket.MetaDataKey;
+import org.apache.wicket.ThreadContext;
 import org.orienteer.core.OrienteerWebApplication;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * Task Manager class to provide required management capabilities over set of running tasks 
+ * Task Manager class to provide required management capabilities over set of running tasks.
+ * Task manager owns bounded pool of threads to run tasks on and periodically flushes output and progress of active sessions
  */
 public class OTaskManager {
-	
+
+	private static final Logger LOG = LoggerFactory.getLogger(OTaskManager.class);
+
 	private static final MetaDataKey<OTaskManager> TASK_MANAGER_KEY = new MetaDataKey<OTaskManager>(){};
-	
-	private Map<ORID, OTaskSessionRuntime<?>> activeSessions = new MapMaker().weakValues().makeMap(); 
 
-	private OTaskManager() {
+	public static final int DEFAULT_POOL_SIZE = 4;
+	public static final int DEFAULT_QUEUE_SIZE = 100;
+	public static final long DEFAULT_FLUSH_INTERVAL = 2000;
+
+	private static int poolSize = DEFAULT_POOL_SIZE;
+	private static int queueSize = DEFAULT_QUEUE_SIZE;
+	private static long flushInterval = DEFAULT_FLUSH_INTERVAL;
+
+	private Map<ORID, OTaskSessionRuntime<?>> activeSessions = new MapMaker().weakValues().makeMap();
+
+	private final OrienteerWebApplication app;
+	private ThreadPoolExecutor executor;
+	private ScheduledExecutorService flusher;
+
+	private OTaskManager(OrienteerWebApplication app) {
+		this.app = app;
 	}
-	
+
 	public static OTaskManager get() {
-		OrienteerWebApplication app = OrienteerWebApplication.lookupApplication();
+		return get(OrienteerWebApplication.lookupApplication());
+	}
+
+	public static OTaskManager get(OrienteerWebApplication app) {
 		OTaskManager taskManager = app.getMetaData(TASK_MANAGER_KEY);
 		if(taskManager==null) {
 			synchronized(OTaskManager.class){
 				taskManager = app.getMetaData(TASK_MANAGER_KEY);
 				if(taskManager==null){
-					taskManager = new OTaskManager();
+					taskManager = new OTaskManager(app);
 					app.setMetaData(TASK_MANAGER_KEY, taskManager);
 				}
 			}
 		}
 		return taskManager;
 	}
-	
+
+	/**
+	 * Set max number of tasks to be executed simultaneously. Applied to executors created after the call
+	 * @param poolSize number of threads to run tasks on
+	 */
+	public static void setPoolSize(int poolSize) {
+		if(poolSize<=0) throw new IllegalArgumentException("Pool size should be positive: "+poolSize);
+		OTaskManager.poolSize = poolSize;
+	}
+
+	/**
+	 * Set max number of tasks waiting for a free thread. Applied to executors created after the call
+	 * @param queueSize size of a queue of tasks
+	 */
+	public static void setQueueSize(int queueSize) {
+		if(queueSize<=0) throw new IllegalArgumentException("Queue size should be positive: "+queueSize);
+		OTaskManager.queueSize = queueSize;
+	}
+
+	/**
+	 * Set interval between flushes of output and progress of active sessions. Applied to task managers created after the call
+	 * @param flushInterval interval in milliseconds
+	 */
+	public static void setFlushInterval(long flushInterval) {
+		if(flushInterval<=0) throw new IllegalArgumentException("Flush interval should be positive: "+flushInterval);
+		OTaskManager.flushInterval = flushInterval;
+	}
+
+	/**
+	 * Execute job of a session on the pool of the task manager. Session is started before the job and finished after it.
+	 * If session doesn't have a callback, interruption of the session interrupts thread of the job.
+	 * Session is persisted right away, so it's visible while waiting in a queue.
+	 * If the job is rejected, persisted session is deleted.
+	 * @param session session to execute job for
+	 * @param job job to execute
+	 * @return {@link Future} of the job
+	 * @throws RejectedExecutionException if queue of tasks is full
+	 */
+	public Future<?> submit(OTaskSessionRuntime<?> session, Runnable job) {
+		IOTaskSessionPersisted persisted = session.getOTaskSessionPersisted();
+		if(!persisted.getDocument().getIdentity().isPersistent()) persisted.persist();
+		FutureTask<?> future = new FutureTask<Void>(() -> {
+			ThreadContext.setApplication(app);
+			try {
+				session.start();
+				job.run();
+			} catch (Exception e) {
+				LOG.error("Task session has failed", e);
+				session.getOTaskSessionPersisted().appendError(e.getMessage());
+			} finally {
+				try {
+					session.finish();
+				} finally {
+					ThreadContext.detach();
+				}
+			}
+		}, null);
+		//Default callback is set before the job is started: so the job can replace it by own one
+		if(session.getCallback()==null) session.setCallback(() -> future.cancel(true));
+		try {
+			getExecutor().execute(future);
+		} catch (RejectedExecutionException e) {
+			persisted.delete();
+			throw e;
+		}
+		return future;
+	}
+
+	private synchronized ThreadPoolExecutor getExecutor() {
+		if(executor==null) {
+			executor = new ThreadPoolExecutor(poolSize, poolSize, 60, TimeUnit.SECONDS,
+											new ArrayBlockingQueue<>(queueSize), newThreadFactory("orienteer-task-"));
+			executor.allowCoreThreadTimeOut(true);
+		}
+		return executor;
+	}
+
+	private synchronized void startFlusher() {
+		if(flusher==null) {
+			flusher = Executors.newSingleThreadScheduledExecutor(newThreadFactory("orienteer-task-flusher-"));
+			flusher.scheduleWithFixedDelay(this::flushActiveSessions, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private static ThreadFactory newThreadFactory(String prefix) {
+		AtomicInteger counter = new AtomicInteger();
+		return r -> {
+			Thread thread = new Thread(r, prefix+counter.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	private void flushActiveSessions() {
+		boolean attach = !Application.exists();
+		if(attach) ThreadContext.setApplication(app);
+		try {
+			for (OTaskSessionRuntime<?> session : new ArrayList<>(activeSessions.values())) {
+				if(ITaskSession.Status.RUNNING.equals(session.getStatus())) session.flushQuietly();
+			}
+		} finally {
+			if(attach) ThreadContext.detach();
+		}
+	}
+
+	/**
+	 * Stop threads of the task manager: running tasks are interrupted and output of active sessions is flushed
+	 */
+	public void destroy() {
+		ThreadPoolExecutor executor;
+		ScheduledExecutorService flusher;
+		synchronized (this) {
+			executor = this.executor;
+			flusher = this.flusher;
+			this.executor = null;
+			this.flusher = null;
+		}
+		if(executor!=null) executor.shutdownNow();
+		if(flusher!=null) {
+			flusher.shutdown();
+			try {
+				flusher.awaitTermination(flushInterval, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		flushActiveSessions();
+	}
+
 	public Collection<OTaskSessionRuntime<?>> getActiveTaskSessions() {
 		return activeSessions.values();
 	}
-	
+
 	public boolean isActive(OIdentifiable doc) {
 		return activeSessions.containsKey(doc.getIdentity());
 	}
-	
+
 	public boolean isActive(IOTaskSessionPersisted holder) {
 		return isActive(holder.getDocument());
 	}
-	
+
 	public OTaskSessionRuntime<?> getTaskSession(IOTaskSessionPersisted holder) {
 		return activeSessions.get(holder.getDocument().getIdentity());
 	}
-	
+
 	void register(OTaskSessionRuntime<?> session) {
 		activeSessions.put(session.getOTaskSessionPersisted().getDocument().getIdentity(), session);
+		startFlusher();
 	}
-	
+
 	void unregister(OTaskSessionRuntime<?> session) {
 		activeSessions.remove(session.getOTaskSessionPersisted().getDocument().getIdentity());
 	}
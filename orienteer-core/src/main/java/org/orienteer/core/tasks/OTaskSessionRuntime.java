@@ -10,6 +10,8 @@ import java.util.Date;
 import org.orienteer.core.dao.DAO;
 import org.orienteer.core.dao.DAOHandler;
 import org.orienteer.core.dao.handler.extra.SudoMethodHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Runtime object to hold and manage session status
@@ -17,9 +19,23 @@ import org.orienteer.core.dao.handler.extra.SudoMethodHandler;
  */
 public class OTaskSessionRuntime<P extends IOTaskSessionPersisted> implements ITaskSession {
 	
+	private static final Logger LOG = LoggerFactory.getLogger(OTaskSessionRuntime.class);
+	
+	/**
+	 * Max length of an output tail to be kept in {@link IOTaskSessionPersisted#getOutput()}
+	 */
+	public static final int MAX_OUTPUT_TAIL = 32 * 1024;
+	/**
+	 * Max length of buffered output: if it's exceeded, output is flushed without waiting for {@link OTaskManager}
+	 */
+	public static final int MAX_OUTPUT_BUFFER = 64 * 1024;
+	
 	private P persistedSession;
 	private ITaskSessionCallback callback;
 	private Status status = Status.NOT_STARTED;
+	private final StringBuilder outputBuffer = new StringBuilder();
+	private long logSeq = 0;
+	private boolean dirty = false;
 	
 	private OTaskSessionRuntime() {
 		this((Class<? extends P>)IOTaskSessionPersisted.class);
@@ -69,7 +85,7 @@ public class OTaskSessionRuntime<P extends IOTaskSessionPersisted> implements IT
 	}
 
 	@Override
-	public OTaskSessionRuntime<P> start() {
+	public synchronized OTaskSessionRuntime<P> start() {
 		getOTaskSessionPersisted().setStartTimestamp(new Date());
 		getOTaskSessionPersisted().setThreadName(Thread.currentThread().getName());
 		setStatus(Status.RUNNING);
@@ -79,12 +95,16 @@ public class OTaskSessionRuntime<P extends IOTaskSessionPersisted> implements IT
 	}
 
 	@Override
-	public OTaskSessionRuntime<P> finish() {
+	public synchronized OTaskSessionRuntime<P> finish() {
+		flushOutput();
 		if (isDeleteOnFinish()){
 			delSelf();
 		}else{
-			getOTaskSessionPersisted().setFinishTimestamp(new Date());
-			setStatus(Status.FINISHED);
+			//Interrupted session keeps its status and time of interruption
+			if(!Status.INTERRUPTED.equals(getStatus())) {
+				getOTaskSessionPersisted().setFinishTimestamp(new Date());
+				setStatus(Status.FINISHED);
+			}
 			getOTaskSessionPersisted().persist();
 		}
 		return this;
@@ -99,8 +119,11 @@ public class OTaskSessionRuntime<P extends IOTaskSessionPersisted> implements IT
 		ITaskSessionCallback callback = getCallback();
 		if(callback==null) throw new IllegalStateException("Session can't be interrupted: no callback specified");
 		callback.interrupt();
-		getOTaskSessionPersisted().setFinishTimestamp(new Date());
-		setStatus(Status.INTERRUPTED);
+		synchronized (this) {
+			getOTaskSessionPersisted().setFinishTimestamp(new Date());
+			setStatus(Status.INTERRUPTED);
+			dirty = true;
+		}
 		return this;
 	}
 	
@@ -130,8 +153,9 @@ public class OTaskSessionRuntime<P extends IOTaskSessionPersisted> implements IT
 	}
 
 	@Override
-	public OTaskSessionRuntime<P> setProgress(double progress) {
+	public synchronized OTaskSessionRuntime<P> setProgress(double progress) {
 		getOTaskSessionPersisted().setProgress(progress);
+		dirty = true;
 		return this;
 	}
 
@@ -141,8 +165,9 @@ public class OTaskSessionRuntime<P extends IOTaskSessionPersisted> implements IT
 	}
 
 	@Override
-	public OTaskSessionRuntime<P> setFinalProgress(double progress) {
+	public synchronized OTaskSessionRuntime<P> setFinalProgress(double progress) {
 		getOTaskSessionPersisted().setFinalProgress(progress);
+		dirty = true;
 		return this;
 	}
 
@@ -152,8 +177,9 @@ public class OTaskSessionRuntime<P extends IOTaskSessionPersisted> implements IT
 	}
 
 	@Override
-	public OTaskSessionRuntime<P> setCurrentProgress(double progress) {
+	public synchronized OTaskSessionRuntime<P> setCurrentProgress(double progress) {
 		getOTaskSessionPersisted().setCurrentProgress(progress);
+		dirty = true;
 		return this;
 	}
 
@@ -163,7 +189,7 @@ public class OTaskSessionRuntime<P extends IOTaskSessionPersisted> implements IT
 	}
 	
 	@Override
-	public ITaskSession incrementCurrentProgress(double increment) {
+	public synchronized ITaskSession incrementCurrentProgress(double increment) {
 		setCurrentProgress(getCurrentProgress()+increment);
 		return this;
 	}
@@ -172,6 +198,68 @@ public class OTaskSessionRuntime<P extends IOTaskSessionPersisted> implements IT
 		getOTaskSessionPersisted().setTask(oTask);
 		return null;
 	}
+	
+	/**
+	 * Append line to the output of this session. Output is buffered and written as {@link IOTaskSessionLog}
+	 * on next flush by {@link OTaskManager} or on {@link #finish()}
+	 * @param line line to append
+	 * @return this session
+	 */
+	public OTaskSessionRuntime<P> appendOutput(String line) {
+		boolean overflow;
+		synchronized (this) {
+			outputBuffer.append(line).append('\n');
+			overflow = outputBuffer.length()>=MAX_OUTPUT_BUFFER;
+		}
+		if(overflow) flushOutput();
+		return this;
+	}
+	
+	/**
+	 * Write buffered output and changed progress into DB
+	 */
+	public synchronized void flush() {
+		if(outputBuffer.length()>0) flushOutput();
+		else if(dirty) {
+			getOTaskSessionPersisted().persist();
+			dirty = false;
+		}
+	}
+	
+	/**
+	 * Same as {@link #flush()}, but errors are only logged
+	 */
+	public void flushQuietly() {
+		try {
+			flush();
+		} catch (Exception e) {
+			LOG.error("Can't flush task session "+getOTaskSessionPersisted().getDocument().getIdentity(), e);
+		}
+	}
+	
+	private synchronized void flushOutput() {
+		if(outputBuffer.length()==0) return;
+		String text = outputBuffer.substring(0, outputBuffer.length()-1);
+		P persisted = getOTaskSessionPersisted();
+		if(!persisted.getDocument().getIdentity().isPersistent()) persisted.persist();
+		DAO.create(IOTaskSessionLog.class)
+			.setSession(persisted)
+			.setSeq(++logSeq)
+			.setTimestamp(new Date())
+			.setText(text)
+			.persist();
+		String output = persisted.getOutput();
+		output = output!=null?output+"\n"+text:text;
+		if(output.length()>MAX_OUTPUT_TAIL) {
+			int cut = output.length()-MAX_OUTPUT_TAIL;
+			int lineStart = output.indexOf('\n', cut);
+			output = output.substring(lineStart>=0?lineStart+1:cut);
+		}
+		persisted.setOutput(output);
+		persisted.persist();
+		outputBuffer.setLength(0);
+		dirty = false;
+	}
 
 }
 
@@ -1,10 +1,18 @@
 package org.orienteer.core.util;
 
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentAbstract;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OSecurityAccessException;
+import com.orientechnologies.orient.core.metadata.security.OSecurityUser;
+import com.orientechnologies.orient.core.metadata.security.OUser;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 
 import org.apache.commons.collections4.map.HashedMap;
+import org.apache.tika.Tika;
+import org.apache.wicket.Application;
 import org.apache.wicket.Session;
+import org.apache.wicket.ThreadContext;
 import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.core.util.string.JavaScriptUtils;
 import org.apache.wicket.model.Model;
@@ -12,6 +20,7 @@ import org.apache.wicket.util.convert.IConverter;
 import org.apache.wicket.util.string.Strings;
 import org.orienteer.core.OrienteerWebApplication;
 import org.orienteer.core.OrienteerWebSession;
+import ru.ydn.wicket.wicketorientdb.utils.DBClosure;
 
 import java.util.*;
 import java.util.function.Function;
@@ -23,10 +32,16 @@ import java.util.stream.Stream;
 import static java.util.Optional.empty;
 import static java.util.Optional.ofNullable;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
 
 /**
  * Common for Orienteer utility methods
@@ -35,6 +50,11 @@ public class CommonUtils {
 	
 	public static final String[] DEFAULT_LANGUAGE_TAGS = {"en", "ru", "uk"};
 	
+	/**
+	 * Shared MIME detector: {@link Tika} is thread safe, but expensive to initialize
+	 */
+	private static final Tika TIKA = new Tika();
+	
 	private CommonUtils() {
 		
 	}
@@ -341,6 +361,15 @@ public class CommonUtils {
 		}
 	}
 	
+	/**
+	 * Detect content type of the data
+	 * @param data data to detect content type for
+	 * @return MIME type of the data
+	 */
+	public static String detectContentType(byte[] data) {
+		return TIKA.detect(data);
+	}
+	
 	/**
 	 * Capitalizes a string.
 	 * 
@@ -421,4 +450,64 @@ public class CommonUtils {
     	return null;
     }
 
+    /**
+     * Execute function against DB with admin rights. Can be used from background threads:
+     * application is bound to a thread for the time of execution if required
+     * @param application application to bind to a thread. Can be null if application is bound already
+     * @param function function to execute
+     * @param <R> type of result
+     * @return result of the function
+     */
+    public static <R> R sudo(Application application, Function<ODatabaseDocument, R> function) {
+    	if(application==null || Application.exists()) return DBClosure.sudo(function);
+    	ThreadContext.setApplication(application);
+    	try {
+    		return DBClosure.sudo(function);
+    	} finally {
+    		ThreadContext.detach();
+    	}
+    }
+
+    /**
+     * Execute function against DB on behalf of a user: security of the user is applied to all reads and writes.
+     * Can be used from background threads where there is no session of the user
+     * @param username name of a user to execute function for
+     * @param function function to execute
+     * @param <R> type of result
+     * @return result of the function
+     */
+    public static <R> R executeAs(String username, Function<ODatabaseDocument, R> function) {
+    	return DBClosure.sudo(db -> {
+    		OUser user = db.getMetadata().getSecurity().getUser(username);
+    		if(user==null) throw new OSecurityAccessException(db.getName(), "User '"+username+"' was not found");
+    		ODatabaseDocumentAbstract session = (ODatabaseDocumentAbstract) db;
+    		OSecurityUser admin = session.getUser();
+    		session.setUser(user);
+    		try {
+    			return function.apply(db);
+    		} finally {
+    			//Pooled session should be returned with original user
+    			session.setUser(admin);
+    		}
+    	});
+    }
+
+    /**
+     * Create directory with access for the owner only if it doesn't exist
+     * @param dir directory to create
+     * @return the same directory
+     * @throws IOException if directory can't be created
+     */
+    public static File ensurePrivateDirectory(File dir) throws IOException {
+    	Path path = dir.toPath();
+    	if(!Files.isDirectory(path)) {
+    		if(FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+    			Files.createDirectories(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+    		} else {
+    			Files.createDirectories(path);
+    		}
+    	}
+    	return dir;
+    }
+
 }
@@ -1,39 +1,49 @@
 package org.orienteer.core.util;
 
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OSecurityException;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.id.ORecordId;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
-import com.orientechnologies.orient.core.metadata.schema.OProperty;
-import com.orientechnologies.orient.core.metadata.schema.OType;
-import com.orientechnologies.orient.core.record.impl.ODocument;
 import org.apache.wicket.model.IModel;
-import org.apache.wicket.model.Model;
-import org.apache.wicket.util.string.Strings;
 import org.orienteer.core.OrienteerWebApplication;
 import org.orienteer.core.service.IOClassIntrospector;
+import org.orienteer.core.service.ISuggestionEngine;
 import org.wicketstuff.select2.ChoiceProvider;
 import org.wicketstuff.select2.Response;
 
 import ru.ydn.wicket.wicketorientdb.model.OClassModel;
-import ru.ydn.wicket.wicketorientdb.model.OPropertyModel;
-import ru.ydn.wicket.wicketorientdb.model.OQueryModel;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * 
- * Choice provider for Select2 control
+ * Choice provider for Select2 control. Suggestions are provided by {@link ISuggestionEngine}
  *
  * @param <M> type of main object for ChoiceProvider: should be subtype of {@link OIdentifiable}
  */
 public class ODocumentChoiceProvider<M extends OIdentifiable> extends ChoiceProvider<M> {
 
 	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Delay in milliseconds before request of suggestions: keystrokes typed within the delay don't cause requests
+	 */
+	public static final int SUGGEST_DELAY = 250;
+
+	/**
+	 * Max number of suggestions to request from {@link ISuggestionEngine} to find enough documents readable by current user
+	 */
+	public static final int MAX_SUGGEST_LIMIT = ISuggestionEngine.DEFAULT_LIMIT*16;
     
     private IModel<OClass> classModel;
 
     private transient IOClassIntrospector oClassIntrospector;
+
+    private transient ISuggestionEngine suggestionEngine;
     
     public ODocumentChoiceProvider(IModel<OClass> classModel) {
     	this.classModel = classModel;
@@ -43,6 +53,13 @@ public class ODocumentChoiceProvider<M extends OIdentifiable> extends ChoiceProv
     	this(new OClassModel(oClass));
     }
 
+    protected ISuggestionEngine getSuggestionEngine() {
+        if (suggestionEngine == null) {
+            suggestionEngine = OrienteerWebApplication.get().getServiceInstance(ISuggestionEngine.class);
+        }
+        return suggestionEngine;
+    }
+
     protected IOClassIntrospector getOClassIntrospector() {
         if (oClassIntrospector == null) {
             oClassIntrospector = OrienteerWebApplication.get().getOClassIntrospector();
@@ -64,19 +81,25 @@ public class ODocumentChoiceProvider<M extends OIdentifiable> extends ChoiceProv
     public void query(String query, int i, Response<M> response) {
     	OClass oClass = classModel.getObject();
     	if(oClass==null) return;
-    	OProperty property = getOClassIntrospector().getNameProperty(oClass);
-    	if(property==null) return;
-        StringBuilder sql = new StringBuilder("SELECT FROM ").append(oClass.getName());
-        if (!Strings.isEmpty(query)) {
-            sql.append(" WHERE ")
-                    .append(property.getName());
-            if(!OType.STRING.equals(property.getType())) sql.append(".asString()");
-            sql.append(" CONTAINSTEXT :query");
-        }
-        sql.append(" LIMIT 20");
-        OQueryModel<ODocument> choicesModel = new OQueryModel<ODocument>(sql.toString());
-        choicesModel.setParameter("query", new Model<String>(query));
-        response.addAll((List<M>)choicesModel.getObject());
+    	//Suggestions are looked up with admin rights: request more of them till enough are readable by current user
+    	Set<ORID> seen = new HashSet<>();
+    	int found = 0;
+    	for(int limit = ISuggestionEngine.DEFAULT_LIMIT; limit<=MAX_SUGGEST_LIMIT; limit*=4) {
+    		List<ORID> rids = getSuggestionEngine().suggest(oClass, query, limit);
+    		for (ORID rid : rids) {
+    			if(!seen.add(rid)) continue;
+    			try {
+    				M doc = rid.getRecord();
+    				if(doc!=null) {
+    					response.add(doc);
+    					if(++found>=ISuggestionEngine.DEFAULT_LIMIT) return;
+    				}
+    			} catch (OSecurityException e) {
+    				//Skip documents which are not accessible by current user
+    			}
+    		}
+    		if(rids.size()<limit) return;
+    	}
     }
 
     @Override
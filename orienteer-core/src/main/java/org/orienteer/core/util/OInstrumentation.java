@@ -0,0 +1,171 @@
+package org.orienteer.core.util;
+
+import java.lang.reflect.Method;
+import java.util.regex.Pattern;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.orientechnologies.orient.core.hook.ORecordHook;
+
+/**
+ * Low overhead instrumentation of DAO invocations, hooks, SQL queries and type-ahead suggestions.
+ * Instrumentation is disabled till some {@link IInstrumentationListener} is installed: in that case
+ * instrumented code pays only for a single volatile read. Listener can be installed and removed at runtime.
+ * Usage:
+ * <pre>
+ * long start = OInstrumentation.start();
+ * try {
+ *   ...
+ * } finally {
+ *   OInstrumentation.queryExecuted(sql, start);
+ * }
+ * </pre>
+ */
+public final class OInstrumentation {
+
+	/**
+	 * Listener for measurements
+	 */
+	public static interface IInstrumentationListener {
+		/**
+		 * @param daoInterface DAO interface which was invoked
+		 * @param method name of invoked method
+		 * @param nanos duration of invocation in nanoseconds
+		 */
+		public void onDAOInvocation(Class<?> daoInterface, String method, long nanos);
+		/**
+		 * @param hookClass class of a hook
+		 * @param event type of event handled by the hook
+		 * @param nanos duration of handling in nanoseconds
+		 */
+		public void onHook(Class<?> hookClass, ORecordHook.TYPE event, long nanos);
+		/**
+		 * @param fingerprint normalized query: see {@link OInstrumentation#fingerprint(String)}
+		 * @param sql original query
+		 * @param nanos duration of query in nanoseconds
+		 */
+		public void onQuery(String fingerprint, String sql, long nanos);
+		/**
+		 * @param className class which documents were suggested of
+		 * @param strategy strategy of lookup
+		 * @param cached true if suggestions were taken from cache
+		 * @param nanos duration of suggestion in nanoseconds
+		 */
+		public default void onSuggestion(String className, String strategy, boolean cached, long nanos) {
+		}
+	}
+
+	/**
+	 * Value returned by {@link #start()} if instrumentation is disabled
+	 */
+	public static final long NOT_STARTED = Long.MIN_VALUE;
+
+	private static final long FINGERPRINTS_CACHE_SIZE = 10000;
+	private static final Cache<String, String> FINGERPRINTS = CacheBuilder.newBuilder().maximumSize(FINGERPRINTS_CACHE_SIZE).build();
+
+	private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^'\\\\]|\\\\.)*'|\"(?:[^\"\\\\]|\\\\.)*\"");
+	private static final Pattern RID_LITERAL = Pattern.compile("#-?\\d+:-?\\d+");
+	private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w:$])-?\\d+(?:\\.\\d+)?\\b");
+	private static final Pattern LIST_OF_PLACEHOLDERS = Pattern.compile("\\[\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\]");
+	private static final Pattern WHITESPACES = Pattern.compile("\\s+");
+
+	private static volatile IInstrumentationListener listener;
+
+	private OInstrumentation() {
+	}
+
+	/**
+	 * Install listener for measurements and enable instrumentation
+	 * @param listener listener to install or null to disable instrumentation
+	 */
+	public static void setListener(IInstrumentationListener listener) {
+		OInstrumentation.listener = listener;
+	}
+
+	public static IInstrumentationListener getListener() {
+		return listener;
+	}
+
+	public static boolean isEnabled() {
+		return listener!=null;
+	}
+
+	/**
+	 * Start measurement
+	 * @return current time in nanoseconds or {@link #NOT_STARTED} if instrumentation is disabled
+	 */
+	public static long start() {
+		return listener!=null?System.nanoTime():NOT_STARTED;
+	}
+
+	/**
+	 * Finish measurement of DAO invocation
+	 * @param method invoked method of DAO interface
+	 * @param start value returned by {@link #start()}
+	 */
+	public static void daoInvoked(Method method, long start) {
+		IInstrumentationListener listener = OInstrumentation.listener;
+		if(listener!=null && start!=NOT_STARTED) {
+			listener.onDAOInvocation(method.getDeclaringClass(), method.getName(), System.nanoTime()-start);
+		}
+	}
+
+	/**
+	 * Finish measurement of hook
+	 * @param hook hook which handled an event
+	 * @param event type of the event
+	 * @param start value returned by {@link #start()}
+	 */
+	public static void hookTriggered(ORecordHook hook, ORecordHook.TYPE event, long start) {
+		IInstrumentationListener listener = OInstrumentation.listener;
+		if(listener!=null && start!=NOT_STARTED) {
+			listener.onHook(hook.getClass(), event, System.nanoTime()-start);
+		}
+	}
+
+	/**
+	 * Finish measurement of query
+	 * @param sql executed query
+	 * @param start value returned by {@link #start()}
+	 */
+	public static void queryExecuted(String sql, long start) {
+		IInstrumentationListener listener = OInstrumentation.listener;
+		if(listener!=null && start!=NOT_STARTED && sql!=null) {
+			listener.onQuery(fingerprint(sql), sql, System.nanoTime()-start);
+		}
+	}
+
+	/**
+	 * Finish measurement of type-ahead suggestion
+	 * @param className class which documents were suggested of
+	 * @param strategy strategy of lookup
+	 * @param cached true if suggestions were taken from cache
+	 * @param start value returned by {@link #start()}
+	 */
+	public static void suggested(String className, String strategy, boolean cached, long start) {
+		IInstrumentationListener listener = OInstrumentation.listener;
+		if(listener!=null && start!=NOT_STARTED) {
+			listener.onSuggestion(className, strategy, cached, System.nanoTime()-start);
+		}
+	}
+
+	/**
+	 * Normalize query to group similar queries together: literals are replaced by '?', whitespaces are collapsed.
+	 * Named and positional parameters are kept as is
+	 * @param sql query to normalize
+	 * @return normalized query
+	 */
+	public static String fingerprint(String sql) {
+		if(sql==null) return null;
+		String ret = FINGERPRINTS.getIfPresent(sql);
+		if(ret==null) {
+			ret = STRING_LITERAL.matcher(sql).replaceAll("?");
+			ret = RID_LITERAL.matcher(ret).replaceAll("?");
+			ret = NUMBER_LITERAL.matcher(ret).replaceAll("?");
+			ret = LIST_OF_PLACEHOLDERS.matcher(ret).replaceAll("[?]");
+			ret = WHITESPACES.matcher(ret).replaceAll(" ").trim();
+			FINGERPRINTS.put(sql, ret);
+		}
+		return ret;
+	}
+}
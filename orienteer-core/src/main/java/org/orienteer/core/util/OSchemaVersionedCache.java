@@ -0,0 +1,83 @@
+package org.orienteer.core.util;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OClassImpl;
+import com.orientechnologies.orient.core.metadata.schema.OImmutableClass;
+
+import java.util.function.Function;
+
+/**
+ * Cache of values derived from a schema class. Value is recalculated as soon as version of a schema is changed.
+ * Keys are compared by identity and weakly referenced: equals() and hashCode() of schema objects acquire schema locks.
+ * Size is limited, because values usually refer to a class and prevent its garbage collection
+ * @param <V> type of cached values
+ */
+public class OSchemaVersionedCache<V> {
+
+	public static final int UNKNOWN_VERSION = -1;
+
+	private final Cache<OClass, Versioned<V>> cache;
+	private final Function<OClass, V> loader;
+
+	/**
+	 * Value with version of a schema it was calculated for
+	 */
+	private static class Versioned<V> {
+		private final int schemaVersion;
+		private final V value;
+
+		public Versioned(int schemaVersion, V value) {
+			this.schemaVersion = schemaVersion;
+			this.value = value;
+		}
+	}
+
+	public OSchemaVersionedCache(long maximumSize, Function<OClass, V> loader) {
+		this.cache = CacheBuilder.newBuilder().weakKeys().maximumSize(maximumSize).build();
+		this.loader = loader;
+	}
+
+	/**
+	 * Obtain value for a class: cached one if schema was not changed since calculation
+	 * @param oClass class to obtain value for
+	 * @return value for the class. Values for classes without known schema are not cached
+	 */
+	public V get(OClass oClass) {
+		int schemaVersion = getSchemaVersion(oClass);
+		if(schemaVersion==UNKNOWN_VERSION) return loader.apply(oClass);
+		Versioned<V> ret = cache.getIfPresent(oClass);
+		if(ret==null || ret.schemaVersion!=schemaVersion) {
+			ret = new Versioned<>(schemaVersion, loader.apply(oClass));
+			cache.put(oClass, ret);
+		}
+		return ret.value;
+	}
+
+	public void invalidateAll() {
+		cache.invalidateAll();
+	}
+
+	/**
+	 * @param oClass class to obtain schema for
+	 * @return schema which owns the class or null for prototypes and other implementations
+	 */
+	public static Object getSchema(OClass oClass) {
+		if(oClass instanceof OClassImpl) return ((OClassImpl)oClass).getOwner();
+		else if(oClass instanceof OImmutableClass) return ((OImmutableClass)oClass).getSchema();
+		else return null;
+	}
+
+	/**
+	 * @param oClass class to obtain version of a schema for
+	 * @return version of a schema which owns the class or {@link #UNKNOWN_VERSION}
+	 */
+	public static int getSchemaVersion(OClass oClass) {
+		if(oClass instanceof OClassImpl && ((OClassImpl)oClass).getOwner()!=null)
+			return ((OClassImpl)oClass).getOwner().getVersion();
+		else if(oClass instanceof OImmutableClass && ((OImmutableClass)oClass).getSchema()!=null)
+			return ((OImmutableClass)oClass).getSchema().getVersion();
+		else return UNKNOWN_VERSION;
+	}
+}
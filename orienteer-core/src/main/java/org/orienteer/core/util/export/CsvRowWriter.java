@@ -0,0 +1,63 @@
+package org.orienteer.core.util.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * {@link IRowWriter} for CSV format (RFC 4180). First row contains names of columns
+ */
+public class CsvRowWriter implements IRowWriter {
+
+	private final Writer writer;
+
+	public CsvRowWriter(OutputStream out, List<String> columns) throws IOException {
+		this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		writeRow(columns);
+	}
+
+	@Override
+	public void writeRow(List<?> values) throws IOException {
+		boolean first = true;
+		for (Object value : values) {
+			if(!first) writer.write(',');
+			first = false;
+			writeCell(StreamingExporter.toText(value));
+		}
+		writer.write("\r\n");
+	}
+
+	private void writeCell(String value) throws IOException {
+		if(value==null) return;
+		boolean quote = false;
+		for (int i = 0; i < value.length() && !quote; i++) {
+			char c = value.charAt(i);
+			quote = c==',' || c=='"' || c=='\r' || c=='\n';
+		}
+		if(!quote) {
+			writer.write(value);
+			return;
+		}
+		writer.write('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if(c=='"') writer.write('"');
+			writer.write(c);
+		}
+		writer.write('"');
+	}
+
+	@Override
+	public void flush() throws IOException {
+		writer.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		flush();
+	}
+}
@@ -0,0 +1,250 @@
+package org.orienteer.core.util.export;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+import java.util.zip.GZIPOutputStream;
+
+import com.orientechnologies.orient.core.command.OCommandOutputListener;
+import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
+import com.orientechnologies.orient.core.db.ODatabasePool;
+import com.orientechnologies.orient.core.db.ODatabaseSession;
+import com.orientechnologies.orient.core.db.tool.ODatabaseExport;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OSchema;
+
+/**
+ * Export of a database by {@link ODatabaseExport} into a compressed file.
+ * Export is written into a temporary file first and moved to the target only when it's complete,
+ * so an existing target file is always a complete export.
+ * Result is a single gzipped {@link ODatabaseExport}, which can be restored by
+ * {@link com.orientechnologies.orient.core.db.tool.ODatabaseImport} as is.
+ */
+public class DatabaseExporter {
+
+	public static final String GZIP_EXTENSION = ".gz";
+	private static final String RECORDS_MESSAGE = "OK (records=";
+
+	private final ODatabasePool pool;
+	private Set<String> includeClasses;
+	private Set<String> excludeClasses;
+	private Set<String> includeClusters;
+	private Set<String> excludeClusters;
+	private LongConsumer progressListener;
+	private Consumer<String> outputListener;
+	private volatile boolean cancelled = false;
+
+	/**
+	 * @param pool pool to obtain database session from for export
+	 */
+	public DatabaseExporter(ODatabasePool pool) {
+		if(pool==null) throw new IllegalArgumentException("Pool of database sessions should be specified");
+		this.pool = pool;
+	}
+
+	public DatabaseExporter setIncludeClasses(Collection<String> includeClasses) {
+		this.includeClasses = toSet(includeClasses);
+		return this;
+	}
+
+	public DatabaseExporter setExcludeClasses(Collection<String> excludeClasses) {
+		this.excludeClasses = toSet(excludeClasses);
+		return this;
+	}
+
+	public DatabaseExporter setIncludeClusters(Collection<String> includeClusters) {
+		this.includeClusters = toSet(includeClusters);
+		return this;
+	}
+
+	public DatabaseExporter setExcludeClusters(Collection<String> excludeClusters) {
+		this.excludeClusters = toSet(excludeClusters);
+		return this;
+	}
+
+	public ODatabasePool getPool() {
+		return pool;
+	}
+
+	/**
+	 * @param progressListener listener to be notified with number of exported records after every exported cluster
+	 * @return this instance
+	 */
+	public DatabaseExporter setProgressListener(LongConsumer progressListener) {
+		this.progressListener = progressListener;
+		return this;
+	}
+
+	/**
+	 * @param outputListener listener for messages of {@link ODatabaseExport}
+	 * @return this instance
+	 */
+	public DatabaseExporter setOutputListener(Consumer<String> outputListener) {
+		this.outputListener = outputListener;
+		return this;
+	}
+
+	/**
+	 * Stop export which is in progress: export fails on the next message from {@link ODatabaseExport}
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	/**
+	 * Resolve names of clusters to be exported according to filters
+	 * @param db database to resolve clusters in
+	 * @return sorted set of names of clusters in upper case as {@link ODatabaseExport} expects
+	 */
+	public Set<String> resolveClusters(ODatabaseSession db) {
+		Set<String> ret = new TreeSet<>();
+		if(includeClusters!=null) ret.addAll(includeClusters);
+		if(includeClasses!=null) ret.addAll(getClusterNames(db, includeClasses));
+		if(includeClusters==null && includeClasses==null) {
+			for (String cluster : db.getClusterNames()) ret.add(cluster.toUpperCase(Locale.ENGLISH));
+		}
+		if(excludeClasses!=null) ret.removeAll(getClusterNames(db, excludeClasses));
+		if(excludeClusters!=null) ret.removeAll(excludeClusters);
+		return ret;
+	}
+
+	/**
+	 * Count records which are going to be exported
+	 * @param db database to count records in
+	 * @return number of records
+	 */
+	public long countRecords(ODatabaseSession db) {
+		long ret = 0;
+		for (String cluster : resolveClusters(db)) {
+			int clusterId = db.getClusterIdByName(cluster.toLowerCase(Locale.ENGLISH));
+			if(clusterId>=0) ret+=db.countClusterElements(clusterId);
+		}
+		return ret;
+	}
+
+	/**
+	 * Export database into a file
+	 * @param target file to export to
+	 * @return number of exported records
+	 * @throws IOException if export failed or was cancelled
+	 */
+	public long export(File target) throws IOException {
+		File parent = target.getAbsoluteFile().getParentFile();
+		if(parent!=null) Files.createDirectories(parent.toPath());
+		File tmp = File.createTempFile(target.getName(), ".tmp", parent);
+		try {
+			long ret = writeExport(tmp);
+			Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			return ret;
+		} finally {
+			Files.deleteIfExists(tmp.toPath());
+		}
+	}
+
+	/**
+	 * Make a complete export available under another name: by a hard link if possible or by a copy.
+	 * Target is replaced atomically, so it's always a complete export as well
+	 * @param artifact complete export
+	 * @param target file to publish export to
+	 * @throws IOException if export can't be published
+	 */
+	public static void publish(File artifact, File target) throws IOException {
+		File parent = target.getAbsoluteFile().getParentFile();
+		if(parent!=null) Files.createDirectories(parent.toPath());
+		File tmp = File.createTempFile(target.getName(), ".tmp", parent);
+		try {
+			Files.delete(tmp.toPath());
+			try {
+				Files.createLink(tmp.toPath(), artifact.toPath());
+			} catch (IOException | UnsupportedOperationException e) {
+				Files.copy(artifact.toPath(), tmp.toPath());
+			}
+			Files.move(tmp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tmp.toPath());
+		}
+	}
+
+	private long writeExport(File file) throws IOException {
+		AtomicLong exported = new AtomicLong();
+		try(ODatabaseSession db = pool.acquire();
+				OutputStream out = new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			ODatabaseExport export = new ODatabaseExport((ODatabaseDocumentInternal) db, out, newListener(exported));
+			if(includeClasses!=null) export.setIncludeClasses(includeClasses);
+			if(excludeClasses!=null) export.setExcludeClasses(excludeClasses);
+			if(includeClusters!=null) export.setIncludeClusters(includeClusters);
+			if(excludeClusters!=null) export.setExcludeClusters(excludeClusters);
+			runExport(export);
+		}
+		return exported.get();
+	}
+
+	private void runExport(ODatabaseExport export) throws IOException {
+		try {
+			export.exportDatabase();
+		} catch (RuntimeException e) {
+			if(cancelled) throw new InterruptedIOException("Export has been cancelled");
+			throw new IOException("Export has failed: "+e.getMessage(), e);
+		} finally {
+			export.close();
+		}
+	}
+
+	private OCommandOutputListener newListener(AtomicLong exported) {
+		return message -> {
+			if(cancelled || Thread.currentThread().isInterrupted()) {
+				cancelled = true;
+				throw new IllegalStateException("Export has been cancelled");
+			}
+			if(message==null) return;
+			String text = message.trim();
+			if(text.isEmpty()) return;
+			if(outputListener!=null) outputListener.accept(text);
+			int idx = text.indexOf(RECORDS_MESSAGE);
+			if(idx>=0) {
+				int start = idx+RECORDS_MESSAGE.length();
+				int end = start;
+				while(end<text.length() && Character.isDigit(text.charAt(end))) end++;
+				if(end>start) {
+					long total = exported.addAndGet(Long.parseLong(text.substring(start, end)));
+					if(progressListener!=null) progressListener.accept(total);
+				}
+			}
+		};
+	}
+
+	private static Set<String> getClusterNames(ODatabaseSession db, Set<String> classes) {
+		Set<String> ret = new TreeSet<>();
+		OSchema schema = db.getMetadata().getSchema();
+		for (String className : classes) {
+			OClass oClass = schema.getClass(className);
+			if(oClass==null) continue;
+			for (int clusterId : oClass.getPolymorphicClusterIds()) {
+				String name = db.getClusterNameById(clusterId);
+				if(name!=null) ret.add(name.toUpperCase(Locale.ENGLISH));
+			}
+		}
+		return ret;
+	}
+
+	private static Set<String> toSet(Collection<String> values) {
+		if(values==null || values.isEmpty()) return null;
+		Set<String> ret = new TreeSet<>();
+		for (String value : values) {
+			if(value!=null && !value.trim().isEmpty()) ret.add(value.trim().toUpperCase(Locale.ENGLISH));
+		}
+		return ret.isEmpty()?null:ret;
+	}
+}
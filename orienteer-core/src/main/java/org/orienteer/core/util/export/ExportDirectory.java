@@ -0,0 +1,59 @@
+package org.orienteer.core.util.export;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.apache.wicket.util.string.Strings;
+import org.orienteer.core.OrienteerWebApplication;
+import org.orienteer.core.util.CommonUtils;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+
+/**
+ * Directory on the server to write exports into. Exports can't be written outside of it:
+ * so users who can start export tasks can't overwrite arbitrary files of the server
+ */
+@Singleton
+public class ExportDirectory {
+
+	private File directory = new File(System.getProperty("java.io.tmpdir"), "orienteer-exports-"+System.getProperty("user.name"));
+
+	@Inject(optional=true)
+	public void setDirectory(@Named("orienteer.export.dir") String directory) {
+		this.directory = new File(directory);
+	}
+
+	public static ExportDirectory get() {
+		return OrienteerWebApplication.lookupApplication().getServiceInstance(ExportDirectory.class);
+	}
+
+	/**
+	 * @return export directory. It's created with access for the owner only if it doesn't exist
+	 * @throws IOException if directory can't be created
+	 */
+	public File getDirectory() throws IOException {
+		return CommonUtils.ensurePrivateDirectory(directory);
+	}
+
+	/**
+	 * Resolve file within export directory
+	 * @param fileName name or relative path of a file
+	 * @return file within export directory
+	 * @throws IOException if directory for the file can't be created
+	 * @throws IllegalArgumentException if file is outside of export directory
+	 */
+	public File resolve(String fileName) throws IOException {
+		if(Strings.isEmpty(fileName)) throw new IllegalArgumentException("Name of a file to export to should be specified");
+		Path dir = getDirectory().toPath().toAbsolutePath().normalize();
+		Path file = dir.resolve(fileName.trim()).normalize();
+		if(!file.startsWith(dir) || file.equals(dir)) {
+			throw new IllegalArgumentException("File '"+fileName+"' is outside of export directory");
+		}
+		Files.createDirectories(file.getParent());
+		return file.toFile();
+	}
+}
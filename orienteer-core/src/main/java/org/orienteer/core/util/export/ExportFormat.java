@@ -0,0 +1,67 @@
+package org.orienteer.core.util.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Supported formats for streaming export
+ */
+public enum ExportFormat {
+	CSV("csv", "text/csv") {
+		@Override
+		public IRowWriter createRowWriter(OutputStream out, List<String> columns) throws IOException {
+			return new CsvRowWriter(out, columns);
+		}
+	},
+	JSONL("jsonl", "application/x-ndjson") {
+		@Override
+		public IRowWriter createRowWriter(OutputStream out, List<String> columns) throws IOException {
+			return new JsonLinesRowWriter(out, columns);
+		}
+	},
+	XLSX("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet") {
+		@Override
+		public IRowWriter createRowWriter(OutputStream out, List<String> columns) throws IOException {
+			return new XlsxRowWriter(out, columns);
+		}
+	};
+
+	private final String extension;
+	private final String contentType;
+
+	private ExportFormat(String extension, String contentType) {
+		this.extension = extension;
+		this.contentType = contentType;
+	}
+
+	public String getExtension() {
+		return extension;
+	}
+
+	public String getContentType() {
+		return contentType;
+	}
+
+	/**
+	 * Create writer for this format
+	 * @param out stream to write to
+	 * @param columns names of columns
+	 * @return new {@link IRowWriter}
+	 * @throws IOException if underlying stream can't be written
+	 */
+	public abstract IRowWriter createRowWriter(OutputStream out, List<String> columns) throws IOException;
+
+	/**
+	 * Find format by name or extension ignoring case
+	 * @param format name or extension of a format
+	 * @return found {@link ExportFormat} or null
+	 */
+	public static ExportFormat parse(String format) {
+		if(format==null) return null;
+		for (ExportFormat value : values()) {
+			if(value.name().equalsIgnoreCase(format) || value.extension.equalsIgnoreCase(format)) return value;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,26 @@
+package org.orienteer.core.util.export;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writer of rows in some export format. Rows are written straight to the underlying stream,
+ * so memory consumption doesn't depend on number of rows.
+ * {@link #close()} completes the format, but doesn't close the underlying stream.
+ */
+public interface IRowWriter extends Closeable {
+
+	/**
+	 * Write single row
+	 * @param values values of columns in the same order as columns provided for the writer
+	 * @throws IOException if underlying stream can't be written
+	 */
+	public void writeRow(List<?> values) throws IOException;
+
+	/**
+	 * Push buffered data to the underlying stream
+	 * @throws IOException if underlying stream can't be written
+	 */
+	public void flush() throws IOException;
+}
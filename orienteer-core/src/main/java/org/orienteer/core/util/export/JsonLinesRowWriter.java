@@ -0,0 +1,110 @@
+package org.orienteer.core.util.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link IRowWriter} for JSON Lines format: every row is written as separate JSON object
+ */
+public class JsonLinesRowWriter implements IRowWriter {
+
+	private final Writer writer;
+	private final List<String> keys;
+
+	public JsonLinesRowWriter(OutputStream out, List<String> columns) {
+		this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		this.keys = new ArrayList<>(columns.size());
+		for (String column : columns) keys.add(quote(column));
+	}
+
+	@Override
+	public void writeRow(List<?> values) throws IOException {
+		StringBuilder sb = new StringBuilder("{");
+		for (int i = 0; i < keys.size() && i < values.size(); i++) {
+			Object value = values.get(i);
+			if(value==null) continue;
+			if(sb.length()>1) sb.append(',');
+			sb.append(keys.get(i)).append(':');
+			appendJson(sb, value);
+		}
+		sb.append("}\n");
+		writer.write(sb.toString());
+	}
+
+	@Override
+	public void flush() throws IOException {
+		writer.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		flush();
+	}
+
+	/**
+	 * Append JSON representation of a value normalized by {@link StreamingExporter}
+	 * @param sb {@link StringBuilder} to append to
+	 * @param value value to append
+	 */
+	static void appendJson(StringBuilder sb, Object value) {
+		if(value==null) sb.append("null");
+		else if(value instanceof Boolean) sb.append(value);
+		else if(value instanceof Number) {
+			double number = ((Number)value).doubleValue();
+			if(Double.isNaN(number) || Double.isInfinite(number)) sb.append("null");
+			else sb.append(value);
+		} else if(value instanceof Map) {
+			sb.append('{');
+			boolean first = true;
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>)value).entrySet()) {
+				if(!first) sb.append(',');
+				first = false;
+				appendString(sb, String.valueOf(entry.getKey()));
+				sb.append(':');
+				appendJson(sb, entry.getValue());
+			}
+			sb.append('}');
+		} else if(value instanceof Collection) {
+			sb.append('[');
+			boolean first = true;
+			for (Object item : (Collection<?>)value) {
+				if(!first) sb.append(',');
+				first = false;
+				appendJson(sb, item);
+			}
+			sb.append(']');
+		} else appendString(sb, value.toString());
+	}
+
+	private static String quote(String value) {
+		StringBuilder sb = new StringBuilder(value.length()+2);
+		appendString(sb, value);
+		return sb.toString();
+	}
+
+	private static void appendString(StringBuilder sb, String value) {
+		sb.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '"': sb.append("\\\""); break;
+				case '\\': sb.append("\\\\"); break;
+				case '\n': sb.append("\\n"); break;
+				case '\r': sb.append("\\r"); break;
+				case '\t': sb.append("\\t"); break;
+				default:
+					if(c<0x20 || c==0x2028 || c==0x2029) sb.append(String.format("\\u%04x", (int)c));
+					else sb.append(c);
+			}
+		}
+		sb.append('"');
+	}
+}
@@ -0,0 +1,230 @@
+package org.orienteer.core.util.export;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+import org.orienteer.core.CustomAttribute;
+import org.orienteer.core.service.impl.OClassIntrospector;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OProperty;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.executor.OResult;
+import com.orientechnologies.orient.core.sql.executor.OResultSet;
+
+/**
+ * Export results of a query into one of {@link ExportFormat}s.
+ * Rows are taken one by one from {@link OResultSet} and written to a stream through a buffer of fixed size,
+ * so memory consumption is bounded and a slow consumer of the stream slows down reading from DB.
+ */
+public class StreamingExporter {
+
+	public static final String RID_COLUMN = "@rid";
+	public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+	public static final int DEFAULT_FLUSH_EVERY = 1000;
+
+	private final ExportFormat format;
+	private final List<String> columns;
+	private int bufferSize = DEFAULT_BUFFER_SIZE;
+	private int flushEvery = DEFAULT_FLUSH_EVERY;
+	private LongConsumer progressListener;
+
+	public StreamingExporter(ExportFormat format, List<String> columns) {
+		if(format==null) throw new IllegalArgumentException("Format should be specified");
+		if(columns==null || columns.isEmpty()) throw new IllegalArgumentException("At least one column should be specified");
+		this.format = format;
+		this.columns = Collections.unmodifiableList(new ArrayList<>(columns));
+	}
+
+	/**
+	 * Create exporter for all exportable properties of a class
+	 * @param oClass class to export documents of
+	 * @param format format to export to
+	 * @return {@link StreamingExporter}
+	 */
+	public static StreamingExporter forClass(OClass oClass, ExportFormat format) {
+		return new StreamingExporter(format, getColumns(oClass));
+	}
+
+	/**
+	 * List columns for export of documents of a class: RID and all not hidden and not binary properties
+	 * @param oClass class to list columns for
+	 * @return list of columns
+	 */
+	public static List<String> getColumns(OClass oClass) {
+		List<String> ret = new ArrayList<>();
+		ret.add(RID_COLUMN);
+		for (OProperty property : OClassIntrospector.ORDER_PROPERTIES_BY_ORDER.sortedCopy(oClass.properties())) {
+			if(property.getType()==OType.BINARY || Boolean.TRUE.equals(CustomAttribute.HIDDEN.getValue(property))) continue;
+			ret.add(property.getName());
+		}
+		return ret;
+	}
+
+	/**
+	 * @param oClass class to export documents of
+	 * @return SQL to select all documents of a class (including subclasses)
+	 */
+	public static String getSqlForClass(OClass oClass) {
+		return "select from `"+oClass.getName()+"`";
+	}
+
+	public ExportFormat getFormat() {
+		return format;
+	}
+
+	public List<String> getColumns() {
+		return columns;
+	}
+
+	public StreamingExporter setBufferSize(int bufferSize) {
+		this.bufferSize = bufferSize;
+		return this;
+	}
+
+	/**
+	 * @param flushEvery number of rows after which buffered data should be pushed to a stream
+	 * @return this instance
+	 */
+	public StreamingExporter setFlushEvery(int flushEvery) {
+		this.flushEvery = flushEvery;
+		return this;
+	}
+
+	/**
+	 * @param progressListener listener to be notified about number of already exported rows after every flush
+	 * @return this instance
+	 */
+	public StreamingExporter setProgressListener(LongConsumer progressListener) {
+		this.progressListener = progressListener;
+		return this;
+	}
+
+	/**
+	 * Execute query and export results
+	 * @param db database to execute query in
+	 * @param sql query
+	 * @param out stream to write to. Stream is not closed by this method
+	 * @param args arguments of the query
+	 * @return number of exported rows
+	 * @throws IOException if stream can't be written or thread was interrupted
+	 */
+	public long export(ODatabaseDocument db, String sql, OutputStream out, Object... args) throws IOException {
+		try(OResultSet rs = db.query(sql, args)) {
+			return export(rs, out);
+		}
+	}
+
+	/**
+	 * Export results from {@link OResultSet}
+	 * @param rs result set to export
+	 * @param out stream to write to. Stream is not closed by this method
+	 * @return number of exported rows
+	 * @throws IOException if stream can't be written or thread was interrupted
+	 */
+	public long export(OResultSet rs, OutputStream out) throws IOException {
+		BufferedOutputStream buffered = new BufferedOutputStream(out, bufferSize);
+		long rows = 0;
+		Object[] values = new Object[columns.size()];
+		List<Object> row = Arrays.asList(values);
+		try(IRowWriter writer = format.createRowWriter(buffered, columns)) {
+			while(rs.hasNext()) {
+				OResult result = rs.next();
+				for (int i = 0; i < values.length; i++) {
+					String column = columns.get(i);
+					values[i] = RID_COLUMN.equals(column)
+									? result.getIdentity().map(Object::toString).orElse(null)
+									: normalize(result.getProperty(column));
+				}
+				writer.writeRow(row);
+				rows++;
+				if(rows % flushEvery == 0) {
+					writer.flush();
+					if(progressListener!=null) progressListener.accept(rows);
+					if(Thread.currentThread().isInterrupted()) {
+						throw new InterruptedIOException("Export has been interrupted after "+rows+" rows");
+					}
+				}
+			}
+		}
+		buffered.flush();
+		if(progressListener!=null) progressListener.accept(rows);
+		return rows;
+	}
+
+	/**
+	 * Convert value into a plain one: {@link String}, {@link Number}, {@link Boolean}, {@link List}, {@link Map} or null.
+	 * Links are converted to RIDs and dates to ISO 8601 strings.
+	 * @param value value to normalize
+	 * @return normalized value
+	 */
+	static Object normalize(Object value) {
+		if(value==null || value instanceof String || value instanceof Number || value instanceof Boolean) return value;
+		else if(value instanceof Date) return formatDate((Date)value);
+		else if(value instanceof byte[]) return null;
+		else if(value instanceof ODocument && ((ODocument)value).isEmbedded()) {
+			ODocument doc = (ODocument)value;
+			Map<String, Object> ret = new LinkedHashMap<>();
+			for (String field : doc.fieldNames()) ret.put(field, normalize(doc.field(field)));
+			return ret;
+		}
+		else if(value instanceof OIdentifiable) return ((OIdentifiable)value).getIdentity().toString();
+		else if(value instanceof OResult) {
+			OResult result = (OResult)value;
+			if(result.getIdentity().map(rid -> rid.isPersistent()).orElse(false)) return result.getIdentity().get().toString();
+			Map<String, Object> ret = new LinkedHashMap<>();
+			for (String property : result.getPropertyNames()) ret.put(property, normalize(result.getProperty(property)));
+			return ret;
+		}
+		else if(value instanceof Map) {
+			Map<String, Object> ret = new LinkedHashMap<>();
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>)value).entrySet()) {
+				ret.put(String.valueOf(entry.getKey()), normalize(entry.getValue()));
+			}
+			return ret;
+		}
+		else if(value instanceof Collection) {
+			Collection<?> collection = (Collection<?>)value;
+			List<Object> ret = new ArrayList<>(collection.size());
+			for (Object item : collection) ret.add(normalize(item));
+			return ret;
+		}
+		else if(value instanceof Enum) return ((Enum<?>)value).name();
+		else return value.toString();
+	}
+
+	/**
+	 * Convert normalized value into text for plain text formats: collections and maps are converted to JSON
+	 * @param value normalized value
+	 * @return text representation or null
+	 */
+	static String toText(Object value) {
+		if(value==null) return null;
+		else if(value instanceof Map || value instanceof Collection) {
+			StringBuilder sb = new StringBuilder();
+			JsonLinesRowWriter.appendJson(sb, value);
+			return sb.toString();
+		}
+		else return value.toString();
+	}
+
+	private static String formatDate(Date date) {
+		//java.sql.Date doesn't support toInstant()
+		return Instant.ofEpochMilli(date.getTime()).toString();
+	}
+}
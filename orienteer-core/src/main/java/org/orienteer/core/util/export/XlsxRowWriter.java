@@ -0,0 +1,158 @@
+package org.orienteer.core.util.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * {@link IRowWriter} for Office Open XML spreadsheets (XLSX).
+ * Sheet XML is written straight into the ZIP stream with inline strings, so, in contrast to
+ * in-memory workbooks, nothing is kept per row. If number of rows exceed limit of a sheet,
+ * export continues on a next sheet.
+ */
+public class XlsxRowWriter implements IRowWriter {
+
+	public static final int MAX_ROWS_PER_SHEET = 1048576;
+	public static final int MAX_CELL_LENGTH = 32767;
+
+	private static final String XML_HEADER = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+	private static final String NS_MAIN = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+	private static final String NS_RELATIONSHIPS = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+	private static final String NS_PACKAGE_RELATIONSHIPS = "http://schemas.openxmlformats.org/package/2006/relationships";
+
+	private final ZipOutputStream zip;
+	private final Writer writer;
+	private final List<String> columns;
+	private final int maxRowsPerSheet;
+	private int sheets = 0;
+	private int rowsInSheet = 0;
+
+	public XlsxRowWriter(OutputStream out, List<String> columns) throws IOException {
+		this(out, columns, MAX_ROWS_PER_SHEET);
+	}
+
+	XlsxRowWriter(OutputStream out, List<String> columns, int maxRowsPerSheet) throws IOException {
+		this.zip = new ZipOutputStream(out, StandardCharsets.UTF_8);
+		this.writer = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8));
+		this.columns = new ArrayList<>(columns);
+		this.maxRowsPerSheet = maxRowsPerSheet;
+		startSheet();
+	}
+
+	@Override
+	public void writeRow(List<?> values) throws IOException {
+		if(rowsInSheet>=maxRowsPerSheet) {
+			finishSheet();
+			startSheet();
+		}
+		writer.write("<row>");
+		for (Object value : values) {
+			if(value==null) writer.write("<c/>");
+			else if(value instanceof Number && isFinite((Number)value)) {
+				writer.write("<c><v>");
+				writer.write(value.toString());
+				writer.write("</v></c>");
+			} else if(value instanceof Boolean) {
+				writer.write((Boolean)value?"<c t=\"b\"><v>1</v></c>":"<c t=\"b\"><v>0</v></c>");
+			} else {
+				String text = StreamingExporter.toText(value);
+				if(text.length()>MAX_CELL_LENGTH) text = text.substring(0, MAX_CELL_LENGTH);
+				writer.write("<c t=\"inlineStr\"><is><t xml:space=\"preserve\">");
+				writeEscaped(text);
+				writer.write("</t></is></c>");
+			}
+		}
+		writer.write("</row>\n");
+		rowsInSheet++;
+	}
+
+	private static boolean isFinite(Number value) {
+		double number = value.doubleValue();
+		return !Double.isNaN(number) && !Double.isInfinite(number);
+	}
+
+	private void startSheet() throws IOException {
+		sheets++;
+		rowsInSheet = 0;
+		zip.putNextEntry(new ZipEntry("xl/worksheets/sheet"+sheets+".xml"));
+		writer.write(XML_HEADER);
+		writer.write("<worksheet xmlns=\""+NS_MAIN+"\"><sheetData>\n");
+		writeRow(columns);
+	}
+
+	private void finishSheet() throws IOException {
+		writer.write("</sheetData></worksheet>");
+		writer.flush();
+		zip.closeEntry();
+	}
+
+	private void writeEscaped(String text) throws IOException {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			switch (c) {
+				case '<': writer.write("&lt;"); break;
+				case '>': writer.write("&gt;"); break;
+				case '&': writer.write("&amp;"); break;
+				case '"': writer.write("&quot;"); break;
+				//Otherwise XML parsers normalize line breaks to '\n'
+				case '\r': writer.write("&#13;"); break;
+				default:
+					//Control characters are not allowed in XML 1.0
+					if(c>=0x20 || c=='\t' || c=='\n') writer.write(c);
+			}
+		}
+	}
+
+	private void writeEntry(String name, String content) throws IOException {
+		zip.putNextEntry(new ZipEntry(name));
+		writer.write(content);
+		writer.flush();
+		zip.closeEntry();
+	}
+
+	@Override
+	public void flush() throws IOException {
+		writer.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		finishSheet();
+		StringBuilder contentTypes = new StringBuilder(XML_HEADER)
+			.append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">")
+			.append("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>")
+			.append("<Default Extension=\"xml\" ContentType=\"application/xml\"/>")
+			.append("<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>");
+		StringBuilder workbook = new StringBuilder(XML_HEADER)
+			.append("<workbook xmlns=\"").append(NS_MAIN).append("\" xmlns:r=\"").append(NS_RELATIONSHIPS).append("\"><sheets>");
+		StringBuilder workbookRels = new StringBuilder(XML_HEADER)
+			.append("<Relationships xmlns=\"").append(NS_PACKAGE_RELATIONSHIPS).append("\">");
+		for (int i = 1; i <= sheets; i++) {
+			contentTypes.append("<Override PartName=\"/xl/worksheets/sheet").append(i)
+				.append(".xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+			workbook.append("<sheet name=\"Sheet").append(i).append("\" sheetId=\"").append(i)
+				.append("\" r:id=\"rId").append(i).append("\"/>");
+			workbookRels.append("<Relationship Id=\"rId").append(i)
+				.append("\" Type=\"").append(NS_RELATIONSHIPS).append("/worksheet\" Target=\"worksheets/sheet")
+				.append(i).append(".xml\"/>");
+		}
+		contentTypes.append("</Types>");
+		workbook.append("</sheets></workbook>");
+		workbookRels.append("</Relationships>");
+		writeEntry("xl/workbook.xml", workbook.toString());
+		writeEntry("xl/_rels/workbook.xml.rels", workbookRels.toString());
+		writeEntry("_rels/.rels", XML_HEADER + "<Relationships xmlns=\""+NS_PACKAGE_RELATIONSHIPS+"\">"
+				+ "<Relationship Id=\"rId1\" Type=\""+NS_RELATIONSHIPS+"/officeDocument\" Target=\"xl/workbook.xml\"/>"
+				+ "</Relationships>");
+		writeEntry("[Content_Types].xml", contentTypes.toString());
+		zip.finish();
+		zip.flush();
+	}
+}
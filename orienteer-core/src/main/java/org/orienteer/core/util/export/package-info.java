@@ -0,0 +1,4 @@
+/**
+ * Package contains streaming exporters of large amount of documents
+ */
+package org.orienteer.core.util.export;
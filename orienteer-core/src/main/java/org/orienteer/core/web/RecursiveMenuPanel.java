@@ -9,74 +9,98 @@ import org.apache.wicket.markup.html.list.ListItem;
 import org.apache.wicket.markup.html.list.ListView;
 import org.apache.wicket.markup.html.panel.GenericPanel;
 import org.apache.wicket.model.IModel;
-import org.apache.wicket.model.PropertyModel;
+import org.apache.wicket.model.LoadableDetachableModel;
+import org.apache.wicket.model.Model;
 import org.apache.wicket.request.cycle.RequestCycle;
+import org.orienteer.core.OrienteerWebApplication;
 import org.orienteer.core.component.FAIcon;
-import org.orienteer.core.model.ODocumentNameModel;
 import org.orienteer.core.module.PerspectivesModule;
+import org.orienteer.core.module.PerspectivesModule.PerspectiveMenuItem;
 
+import com.orientechnologies.orient.core.metadata.security.ORule;
+
+import ru.ydn.wicket.wicketorientdb.security.OSecurityHelper;
+import ru.ydn.wicket.wicketorientdb.security.OrientPermission;
+
+import java.util.Collections;
 import java.util.List;
 
 /**
  * Panel to display recursive tree menu.
+ * Menu is resolved and cached by {@link PerspectivesModule}: so rendering doesn't load items document by document
  */
 public class RecursiveMenuPanel extends GenericPanel<ODocument> {
 	
 	private int level = -1;
+	private final IModel<List<PerspectiveMenuItem>> itemsModel;
 	//hasActive
 
-    public RecursiveMenuPanel(String id, IModel<ODocument> itemModel) {
-        super(id, itemModel);
+    public RecursiveMenuPanel(String id, IModel<ODocument> perspectiveModel) {
+        this(id, perspectiveModel, new LoadableDetachableModel<List<PerspectiveMenuItem>>() {
+            @Override
+            protected List<PerspectiveMenuItem> load() {
+                ODocument perspective = perspectiveModel.getObject();
+                if(perspective==null
+                        || !OSecurityHelper.isAllowed(ORule.ResourceGeneric.CLASS,
+                                PerspectivesModule.IOPerspectiveItem.CLASS_NAME, OrientPermission.READ)) {
+                    return Collections.emptyList();
+                }
+                return OrienteerWebApplication.get().getServiceInstance(PerspectivesModule.class).getMenu(perspective);
+            }
+        });
+    }
+
+    /**
+     * Constructor for a nested level of menu
+     * @param id component id
+     * @param perspectiveModel model of a perspective
+     * @param itemsModel model of resolved items of this level
+     */
+    protected RecursiveMenuPanel(String id, IModel<ODocument> perspectiveModel, IModel<List<PerspectiveMenuItem>> itemsModel) {
+        super(id, perspectiveModel);
+        this.itemsModel = itemsModel;
         setOutputMarkupId(true);
-        add(new ListView<ODocument>("items", new PropertyModel<List<ODocument>>(this, "items")) {
+        add(new ListView<PerspectiveMenuItem>("items", itemsModel) {
 
             @Override
-            protected void populateItem(ListItem<ODocument> item) {
-                IModel<ODocument> itemModel = item.getModel();
-                IModel<String> urlModel = new PropertyModel<String>(itemModel, "url");
-                IModel<List<ODocument>> subItems = new PropertyModel<List<ODocument>>(itemModel, "subItems");
-                final boolean hasSubItems = subItems.getObject() != null && !subItems.getObject().isEmpty();
-                ExternalLink link = new ExternalLink("link", urlModel)
+            protected void populateItem(ListItem<PerspectiveMenuItem> item) {
+                PerspectiveMenuItem menuItem = item.getModelObject();
+                final boolean hasSubItems = !menuItem.getSubItems().isEmpty();
+                ExternalLink link = new ExternalLink("link", Model.of(menuItem.getUrl()))
                         .setContextRelative(true);
-                link.add(new FAIcon("icon", new PropertyModel<String>(itemModel, "icon")),
-                        new Label("name", new ODocumentNameModel(item.getModel())).setRenderBodyOnly(true));
+                link.add(new FAIcon("icon", Model.of(menuItem.getIcon())),
+                        new Label("name", Model.of(menuItem.getName(getLocale()))).setRenderBodyOnly(true));
                 item.add(link);
-                if (isActiveItem(urlModel)) {
+                if (isActiveItem(menuItem.getUrl())) {
                    	link.add(new AttributeAppender("class", "c-active", " "));
                 }
                 if (hasSubItems){
                     item.add(new AttributeAppender("class", "c-sidebar-nav-dropdown", " "));
                 	link.add(new AttributeAppender("class", "nav-dropdown-toggle", " "));
                 }
-                item.add(new RecursiveMenuPanel("subItems", itemModel));
+                item.add(new RecursiveMenuPanel("subItems", RecursiveMenuPanel.this.getModel(),
+                        item.getModel().map(PerspectiveMenuItem::getSubItems)));
             }
         });
     }
     
-    public List<ODocument> getItems() {
-    	return getItems(getModelObject());
-    }
-    
-    public List<ODocument> getItems(ODocument doc) {
-    	List<ODocument> items = null;
-    	if(doc!=null) {
-	    	if(doc.getSchemaClass().isSubClassOf(PerspectivesModule.IOPerspective.CLASS_NAME)) {
-	    		items = doc.field("menu");
-	    	} else if(doc.getSchemaClass().isSubClassOf(PerspectivesModule.IOPerspectiveItem.CLASS_NAME)) {
-	    		items = doc.field("subItems");
-	    	}
-    	}
-    	if(items!=null) items.remove(null); //Remove deleted records
-    	return items;
+    public List<PerspectiveMenuItem> getItems() {
+    	return itemsModel.getObject();
     }
     
     @Override
     protected void onConfigure() {
     	super.onConfigure();
-    	List<ODocument> subItems = getItems();
+    	List<PerspectiveMenuItem> subItems = getItems();
     	setVisible(subItems!=null && !subItems.isEmpty());
     }
     
+    @Override
+    protected void onDetach() {
+    	itemsModel.detach();
+    	super.onDetach();
+    }
+    
     @Override
     protected void onComponentTag(ComponentTag tag) {
     	super.onComponentTag(tag);
@@ -111,9 +135,8 @@ public class RecursiveMenuPanel extends GenericPanel<ODocument> {
     	level = parentMenuPanel==null?1:parentMenuPanel.getLevel()+1;
     }
 
-    private boolean isActiveItem(IModel<String> urlModel) {
+    private boolean isActiveItem(String url) {
         String currentUrl = RequestCycle.get().getRequest().getUrl().getPath();
-        String url = urlModel.getObject();
         return url!=null && currentUrl.equals(url.replaceFirst("^/", ""));
     }
 }
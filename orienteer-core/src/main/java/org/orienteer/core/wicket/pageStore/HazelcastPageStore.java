@@ -16,7 +16,26 @@ public class HazelcastPageStore extends AbstractCachingPageStore<IManageablePage
      * @param dataStore      The third level page cache
      */
     public HazelcastPageStore(ISerializer pageSerializer, IDataStore dataStore) {
-        super(pageSerializer, dataStore, new HazelcastPagesCache());
+        super(pageSerializer, dataStore, new HazelcastPagesCache(pageSerializer));
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param pageSerializer  The serializer that will convert pages to/from byte[]
+     * @param dataStore       The third level page cache
+     * @param pagesPerSession Max number of pages to be cached per session
+     * @param nearCache       Should near cache be used for cached pages
+     */
+    public HazelcastPageStore(ISerializer pageSerializer, IDataStore dataStore, int pagesPerSession, boolean nearCache) {
+        super(pageSerializer, dataStore, new HazelcastPagesCache(pageSerializer, pagesPerSession, nearCache));
+    }
+
+    /**
+     * @return cache of pages in Hazelcast
+     */
+    public HazelcastPagesCache getPagesCache() {
+        return (HazelcastPagesCache) pagesCache;
     }
 
     @Override
@@ -1,44 +1,121 @@
 package org.orienteer.core.wicket.pageStore;
 
+import com.hazelcast.config.Config;
+import com.hazelcast.config.InMemoryFormat;
+import com.hazelcast.config.MapConfig;
+import com.hazelcast.config.NearCacheConfig;
 import com.hazelcast.core.Hazelcast;
 import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.IMap;
+import com.hazelcast.core.ReadOnly;
+import com.hazelcast.map.AbstractEntryProcessor;
+import com.hazelcast.map.EntryBackupProcessor;
+import com.hazelcast.map.EntryProcessor;
+import com.hazelcast.monitor.LocalMapStats;
 import org.apache.wicket.page.IManageablePage;
 import org.apache.wicket.pageStore.SecondLevelPageCache;
+import org.apache.wicket.serialize.ISerializer;
+import org.apache.wicket.util.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 /**
- * Hazelcast implementation of {@link SecondLevelPageCache} for cache Wicket pages in cluster
+ * Hazelcast implementation of {@link SecondLevelPageCache} for cache Wicket pages in cluster.
+ * All pages of a session are stored in a single map entry keyed by session id, so session pages belong to the same partition.
+ * Every session keeps a bounded ring of Deflate-compressed pages: the oldest pages are dropped once the limit is exceeded.
+ * Updates are applied on the owner member by entry processors, so pages are not transferred back and forth.
  */
 public class HazelcastPagesCache implements SecondLevelPageCache<String, Integer, IManageablePage> {
 
-    private final IMap<String, IManageablePage> cache;
+    private static final Logger LOG = LoggerFactory.getLogger(HazelcastPagesCache.class);
+
+    public static final String MAP_NAME = "wicket-pages-sessions";
+    public static final int DEFAULT_PAGES_PER_SESSION = 40;
+
+    private final IMap<String, SessionPages> cache;
+    private final ISerializer serializer;
+    private final int pagesPerSession;
+    private final boolean nearCache;
+
+    public HazelcastPagesCache(ISerializer serializer) {
+        this(serializer, DEFAULT_PAGES_PER_SESSION, false);
+    }
+
+    public HazelcastPagesCache(ISerializer serializer, int pagesPerSession, boolean nearCache) {
+        this(Hazelcast.getHazelcastInstanceByName("orienteer-hazelcast"), serializer, pagesPerSession, nearCache);
+    }
 
-    public HazelcastPagesCache() {
-        HazelcastInstance hazelcast = Hazelcast.getHazelcastInstanceByName("orienteer-hazelcast");
-        this.cache = hazelcast.getMap("wicket-pages-caches");
+    /**
+     * Constructor
+     * @param hazelcast hazelcast instance to be used
+     * @param serializer serializer to convert pages to/from byte[]
+     * @param pagesPerSession max number of pages to be kept per session
+     * @param nearCache should near cache be configured for pages map: useful if sessions are sticky to cluster members
+     */
+    public HazelcastPagesCache(HazelcastInstance hazelcast, ISerializer serializer, int pagesPerSession, boolean nearCache) {
+        if (pagesPerSession <= 0) throw new IllegalArgumentException("Pages per session should be positive: " + pagesPerSession);
+        this.serializer = serializer;
+        this.pagesPerSession = pagesPerSession;
+        this.nearCache = nearCache && configureNearCache(hazelcast.getConfig());
+        this.cache = hazelcast.getMap(MAP_NAME);
     }
 
+    private static boolean configureNearCache(Config config) {
+        MapConfig mapConfig = config.getMapConfigOrNull(MAP_NAME);
+        if (mapConfig != null) return mapConfig.getNearCacheConfig() != null;
+        NearCacheConfig nearCacheConfig = new NearCacheConfig(MAP_NAME)
+                .setInMemoryFormat(InMemoryFormat.OBJECT)
+                .setInvalidateOnChange(true)
+                .setCacheLocalEntries(true);
+        try {
+            config.addMapConfig(new MapConfig(MAP_NAME).setNearCacheConfig(nearCacheConfig));
+            return true;
+        } catch (Exception e) {
+            LOG.warn("Can't configure near cache for map '" + MAP_NAME + "'", e);
+            return false;
+        }
+    }
+
+    /**
+     * Removes page from the cache. Removed page is not returned to avoid its transfer and deserialization
+     * @return always null
+     */
     @Override
     public IManageablePage removePage(String session, Integer pageId) {
-        String key = getKey(session, pageId);
-        return cache.remove(key);
+        cache.executeOnKey(session, new RemovePageProcessor(pageId));
+        return null;
     }
 
     @Override
     public void removePages(String session) {
-        cache.removeAll(entry -> entry.getKey().startsWith(session));
+        cache.delete(session);
     }
 
     @Override
     public IManageablePage getPage(String session, Integer pageId) {
-        String key = getKey(session, pageId);
-        return cache.get(key);
+        byte[] data;
+        if (nearCache) {
+            SessionPages pages = cache.get(session);
+            data = pages != null ? pages.get(pageId) : null;
+        } else data = (byte[]) cache.executeOnKey(session, new GetPageProcessor(pageId));
+        return data != null ? (IManageablePage) serializer.deserialize(decompress(data)) : null;
     }
 
     @Override
     public void storePage(String session, Integer pageId, IManageablePage page) {
-        String key = getKey(session, pageId);
-        cache.set(key, page);
+        byte[] data = serializer.serialize(page);
+        if (data != null) cache.executeOnKey(session, new StorePageProcessor(pageId, compress(data), pagesPerSession));
     }
 
     @Override
@@ -50,7 +127,162 @@ public class HazelcastPagesCache implements SecondLevelPageCache<String, Integer
         }
     }
 
-    private String getKey(String sessionId, Integer pageId) {
-        return sessionId + "-" + pageId;
+    /**
+     * Per session size is not exported as a metric: see {@link #getLocalStats()} for overall memory cost
+     * @param session session id
+     * @return number of compressed bytes stored for the session
+     */
+    long getStoredBytes(String session) {
+        Long bytes = (Long) cache.executeOnKey(session, new StoredBytesProcessor());
+        return bytes != null ? bytes : 0;
+    }
+
+    /**
+     * @return number of sessions which have pages in the cache
+     */
+    public int getSessionsCount() {
+        return cache.size();
+    }
+
+    /**
+     * @return statistics of pages map on the current cluster member
+     */
+    public LocalMapStats getLocalStats() {
+        return cache.getLocalMapStats();
+    }
+
+    static byte[] compress(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 16);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DeflaterOutputStream dos = new DeflaterOutputStream(out, deflater)) {
+            dos.write(data);
+        } catch (IOException e) {
+            throw new IllegalStateException("Can't compress page", e);
+        } finally {
+            deflater.end();
+        }
+        return out.toByteArray();
+    }
+
+    static byte[] decompress(byte[] data) {
+        try (InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(data))) {
+            return IOUtils.toByteArray(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("Can't decompress page", e);
+        }
+    }
+
+    /**
+     * Bounded ring of compressed pages of a single session
+     */
+    static final class SessionPages implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final LinkedHashMap<Integer, byte[]> pages = new LinkedHashMap<>();
+        private long bytes;
+
+        byte[] get(Integer pageId) {
+            return pages.get(pageId);
+        }
+
+        void put(Integer pageId, byte[] data, int maxPages) {
+            remove(pageId);
+            pages.put(pageId, data);
+            bytes += data.length;
+            Iterator<byte[]> it = pages.values().iterator();
+            while (pages.size() > maxPages && it.hasNext()) {
+                bytes -= it.next().length;
+                it.remove();
+            }
+        }
+
+        boolean remove(Integer pageId) {
+            byte[] removed = pages.remove(pageId);
+            if (removed != null) bytes -= removed.length;
+            return removed != null;
+        }
+
+        boolean isEmpty() {
+            return pages.isEmpty();
+        }
+
+        long getBytes() {
+            return bytes;
+        }
+    }
+
+    private static final class StorePageProcessor extends AbstractEntryProcessor<String, SessionPages> {
+        private static final long serialVersionUID = 1L;
+        private final Integer pageId;
+        private final byte[] data;
+        private final int maxPages;
+
+        StorePageProcessor(Integer pageId, byte[] data, int maxPages) {
+            this.pageId = pageId;
+            this.data = data;
+            this.maxPages = maxPages;
+        }
+
+        @Override
+        public Object process(Map.Entry<String, SessionPages> entry) {
+            SessionPages pages = entry.getValue();
+            if (pages == null) pages = new SessionPages();
+            pages.put(pageId, data, maxPages);
+            entry.setValue(pages);
+            return null;
+        }
+    }
+
+    private static final class RemovePageProcessor extends AbstractEntryProcessor<String, SessionPages> {
+        private static final long serialVersionUID = 1L;
+        private final Integer pageId;
+
+        RemovePageProcessor(Integer pageId) {
+            this.pageId = pageId;
+        }
+
+        @Override
+        public Object process(Map.Entry<String, SessionPages> entry) {
+            SessionPages pages = entry.getValue();
+            if (pages != null && pages.remove(pageId)) {
+                entry.setValue(pages.isEmpty() ? null : pages);
+            }
+            return null;
+        }
+    }
+
+    private static final class GetPageProcessor implements EntryProcessor<String, SessionPages>, ReadOnly {
+        private static final long serialVersionUID = 1L;
+        private final Integer pageId;
+
+        GetPageProcessor(Integer pageId) {
+            this.pageId = pageId;
+        }
+
+        @Override
+        public Object process(Map.Entry<String, SessionPages> entry) {
+            SessionPages pages = entry.getValue();
+            return pages != null ? pages.get(pageId) : null;
+        }
+
+        @Override
+        public EntryBackupProcessor<String, SessionPages> getBackupProcessor() {
+            return null;
+        }
+    }
+
+    private static final class StoredBytesProcessor implements EntryProcessor<String, SessionPages>, ReadOnly {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public Object process(Map.Entry<String, SessionPages> entry) {
+            SessionPages pages = entry.getValue();
+            return pages != null ? pages.getBytes() : 0L;
+        }
+
+        @Override
+        public EntryBackupProcessor<String, SessionPages> getBackupProcessor() {
+            return null;
+        }
     }
 }
@@ -14,6 +14,8 @@ public class OWicketData extends ODocumentWrapper {
     public static final String PROP_SESSION_ID = "sessionId";
     public static final String PROP_DATA       = "data";
 
+    public static final String INDEX_SESSION_ID_ID = CLASS_NAME + ".sessionId_id";
+
     public OWicketData() {
         super(CLASS_NAME);
     }
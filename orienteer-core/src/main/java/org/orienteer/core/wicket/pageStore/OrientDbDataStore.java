@@ -1,53 +1,77 @@
 package org.orienteer.core.wicket.pageStore;
 
-import com.orientechnologies.orient.core.db.record.OIdentifiable;
-import com.orientechnologies.orient.core.record.impl.ODocument;
-import com.orientechnologies.orient.core.sql.OCommandSQL;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
 import com.orientechnologies.orient.core.sql.executor.OResultSet;
-import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
+import org.apache.wicket.Application;
 import org.apache.wicket.pageStore.IDataStore;
-import ru.ydn.wicket.wicketorientdb.utils.DBClosure;
+import org.orienteer.core.util.CommonUtils;
 
-import java.util.List;
-import java.util.Optional;
-
-import static java.util.Optional.ofNullable;
+import java.util.function.Function;
 
 /**
- * Default implementation of {@link IDataStore} which stores data in OrientDB
+ * Default implementation of {@link IDataStore} which stores data in OrientDB.
+ * It's used in distributed mode, so pages are written synchronously: another node should be able to restore
+ * pages of a session right away on failover.
+ * Lookups and upserts use composite index on (sessionId, id) created by {@link org.orienteer.core.module.OrienteerClusterModule}
  */
 public class OrientDbDataStore implements IDataStore {
 
+    private static final String SELECT_SQL = String.format("select %s from %s where %s = ? and %s = ?",
+            OWicketData.PROP_DATA, OWicketData.CLASS_NAME, OWicketData.PROP_SESSION_ID, OWicketData.PROP_ID);
+    private static final String UPSERT_SQL = String.format("update %s set %s = ? upsert where %s = ? and %s = ?",
+            OWicketData.CLASS_NAME, OWicketData.PROP_DATA, OWicketData.PROP_SESSION_ID, OWicketData.PROP_ID);
+    private static final String DELETE_SQL = String.format("delete from %s where %s = ? and %s = ?",
+            OWicketData.CLASS_NAME, OWicketData.PROP_SESSION_ID, OWicketData.PROP_ID);
+    private static final String DELETE_SESSION_SQL = String.format("delete from %s where %s = ?",
+            OWicketData.CLASS_NAME, OWicketData.PROP_SESSION_ID);
+
+    private final Application application;
+
+    public OrientDbDataStore() {
+        this.application = Application.exists() ? Application.get() : null;
+    }
+
     @Override
     public byte[] getData(String sessionId, int id) {
-        return getWicketData(sessionId, id)
-                .map(OWicketData::getData)
-                .orElse(null);
+        return withDatabase(db -> {
+            try (OResultSet result = db.query(SELECT_SQL, sessionId, id)) {
+                return result.hasNext() ? result.next().<byte[]>getProperty(OWicketData.PROP_DATA) : null;
+            }
+        });
     }
 
     @Override
     public void removeData(String sessionId, int id) {
-        DBClosure.sudoConsumer(db -> {
-            String sql = String.format("delete from %s where %s = ? and %s = ?", OWicketData.CLASS_NAME,
-                    OWicketData.PROP_SESSION_ID, OWicketData.PROP_ID);
-            db.command(sql, sessionId, id).close();
+        withDatabase(db -> {
+            db.command(DELETE_SQL, sessionId, id).close();
+            return null;
         });
     }
 
     @Override
     public void removeData(String sessionId) {
-        DBClosure.sudoConsumer(db -> {
-            String sql = String.format("delete from %s where %s = ?", OWicketData.CLASS_NAME, OWicketData.PROP_SESSION_ID);
-            db.command(sql, sessionId).close();
+        withDatabase(db -> {
+            db.command(DELETE_SESSION_SQL, sessionId).close();
+            return null;
         });
     }
 
     @Override
     public void storeData(String sessionId, int id, byte[] data) {
-        Optional<OWicketData> wicketData = getWicketData(sessionId, id);
-        if (wicketData.isPresent()) {
-            DBClosure.sudoSave(wicketData.get().setData(data));
-        } else DBClosure.sudoSave(new OWicketData(id, sessionId, data));
+        withDatabase(db -> {
+            db.command(UPSERT_SQL, data, sessionId, id).close();
+            return null;
+        });
+    }
+
+    /**
+     * Execute function against DB with admin rights
+     * @param function function to execute
+     * @param <R> type of result
+     * @return result of function
+     */
+    protected <R> R withDatabase(Function<ODatabaseDocument, R> function) {
+        return CommonUtils.sudo(application, function);
     }
 
     @Override
@@ -64,15 +88,4 @@ public class OrientDbDataStore implements IDataStore {
     public boolean canBeAsynchronous() {
         return false;
     }
-
-    private Optional<OWicketData> getWicketData(String sessionId, int id) {
-        return DBClosure.sudo(db -> {
-            String sql = String.format("select from %s where %s = ? and %s = ? limit 1", OWicketData.CLASS_NAME,
-                    OWicketData.PROP_SESSION_ID, OWicketData.PROP_ID);
-            try(OResultSet result = db.query(sql, sessionId, id)) {
-            	return result.elementStream().findFirst().map(e -> new OWicketData((ODocument)e));
-            }
-        });
-    }
-
 }
@@ -1,40 +1,64 @@
 package org.orienteer.core.widget;
 
 import com.google.common.base.Predicate;
-import com.google.common.collect.Lists;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.orientechnologies.orient.core.db.ODatabaseSession;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.exception.OSecurityException;
+import com.orientechnologies.orient.core.id.ORID;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OSchema;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.sql.executor.OResultSet;
-import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
 
-import ru.ydn.wicket.wicketorientdb.utils.GetODocumentFieldValueFunction;
+import ru.ydn.wicket.wicketorientdb.utils.DBClosure;
 
 import org.apache.wicket.WicketRuntimeException;
 import org.apache.wicket.model.IModel;
 import org.apache.wicket.util.string.Strings;
 import org.orienteer.core.OrienteerWebSession;
+import org.orienteer.core.module.OWidgetsModule;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
 import static org.orienteer.core.module.OWidgetsModule.*;
 
 /**
- * Default implementation of {@link IDashboardManager}
+ * Default implementation of {@link IDashboardManager}.
+ * Resolved dashboards and tabs are cached by domain, tab and class till dashboards or widgets are changed
+ * (see {@link OWidgetsModule.DashboardInvalidationHook})
  */
 @Singleton
 public class DefaultDashboardManager implements IDashboardManager{
 	
+	public static final long DEFAULT_CACHE_SIZE = 10000;
+	
 	private IWidgetTypesRegistry widgetRegistry;
 	
+	//RIDs of matching dashboards from the best to the worst: documents themselves are loaded within current session
+	private final Cache<String, List<ORID>> dashboardsCache = CacheBuilder.newBuilder()
+																	.maximumSize(DEFAULT_CACHE_SIZE)
+																	.build();
+	
+	//Tabs with RIDs of their dashboards: tabs are listed only if current user can read a dashboard
+	private final Cache<String, List<ExistingTab>> tabsCache = CacheBuilder.newBuilder()
+																	.maximumSize(DEFAULT_CACHE_SIZE)
+																	.build();
+	
 	@Inject
 	public DefaultDashboardManager(IWidgetTypesRegistry widgetRegistry) {
 		this.widgetRegistry = widgetRegistry;
@@ -58,38 +82,54 @@ public class DefaultDashboardManager implements IDashboardManager{
 	
 	@Override
 	public List<String> listExistingTabs(String domain, IModel<?> dataModel) {
-		ODatabaseDocument db = getDatabaseSession();
-		try(OResultSet result = db.query("select tab from "+OCLASS_DASHBOARD+" where "+OPROPERTY_DOMAIN+" = ?", domain)) {
-			return result.stream().map(r -> (String)r.getProperty(OPROPERTY_TAB)).collect(Collectors.toList());
-		}
+		return listExistingTabs(domain, (OClass)null);
 	}
 	
 	@Override
 	public List<String> listExistingTabs(String domain, IModel<?> dataModel, OClass oClass) {
-		if(oClass==null) return listExistingTabs(domain, dataModel);
-		ODatabaseDocument db = getDatabaseSession();
+		return listExistingTabs(domain, oClass);
+	}
+	
+	private List<String> listExistingTabs(String domain, OClass oClass) {
+		String key = getKey("tabs", domain, null, oClass, null);
+		List<ExistingTab> tabs;
+		try {
+			tabs = tabsCache.get(key, () -> DBClosure.sudo(db -> loadExistingTabs(db, domain, oClass)));
+		} catch (ExecutionException | UncheckedExecutionException e) {
+			throw new WicketRuntimeException("Can't list tabs of dashboards for domain '"+domain+"'", e.getCause());
+		}
+		//Tabs are loaded with admin rights: only tabs of dashboards which are readable by current user should be listed.
+		//Callers are allowed to modify returned list
 		List<String> ret = new ArrayList<String>();
-		List<String> oClassAndSuper = new ArrayList<>();
-		oClassAndSuper.add(oClass.getName());
-		oClassAndSuper.addAll(oClass.getSuperClassesNames());
-		String sql = "select distinct("+OPROPERTY_TAB+") as "+OPROPERTY_TAB+" from "+OCLASS_DASHBOARD+
-				" where "+OPROPERTY_DOMAIN+" = ?"+
-				" and "+OPROPERTY_CLASS+" IN ?";
-		try(OResultSet result = db.query(sql, domain, oClassAndSuper)) {
-			return result.stream().map(r -> (String)r.getProperty(OPROPERTY_TAB)).collect(Collectors.toList());
+		for (ExistingTab tab : tabs) {
+			if(ret.contains(tab.tab)) continue;
+			if(loadReadable(tab.rid)!=null) ret.add(tab.tab);
+		}
+		return ret;
+	}
+	
+	private List<ExistingTab> loadExistingTabs(ODatabaseDocument db, String domain, OClass oClass) {
+		String sql = "select @rid as rid, "+OPROPERTY_TAB+" from "+OCLASS_DASHBOARD+" where "+OPROPERTY_DOMAIN+" = ?";
+		OResultSet result;
+		if(oClass==null) result = db.query(sql, domain);
+		else {
+			List<String> oClassAndSuper = new ArrayList<>();
+			oClassAndSuper.add(oClass.getName());
+			oClassAndSuper.addAll(oClass.getSuperClassesNames());
+			result = db.query(sql+" and "+OPROPERTY_CLASS+" IN ?", domain, oClassAndSuper);
+		}
+		try {
+			return Collections.unmodifiableList(result.stream()
+					.map(r -> new ExistingTab(r.getProperty(OPROPERTY_TAB), ((OIdentifiable)r.getProperty("rid")).getIdentity()))
+					.collect(Collectors.toList()));
+		} finally {
+			result.close();
 		}
 	}
 	
 	@Override
 	public ODocument getExistingDashboard(String domain, String tab, IModel<?> dataModel) {
-		ODatabaseDocument db = getDatabaseSession();
-		String sql = String.format("select from %s where %s = ? and %s = ?", OCLASS_DASHBOARD, OPROPERTY_DOMAIN, OPROPERTY_TAB);
-		try(OResultSet result = db.query(sql, domain, tab)) {
-				return result.elementStream()
-								.findFirst()
-								.map(e -> (ODocument) e)
-								.orElse(null);
-		}
+		return getExistingDashboard(domain, tab, dataModel, null, null);
 	}
 	
 	@Override
@@ -106,6 +146,37 @@ public class DefaultDashboardManager implements IDashboardManager{
 	@Override
 	public ODocument getExistingDashboard(String domain, String tab,
 			IModel<?> dataModel, OClass oClass, Map<String, Object> criteriesMap) {
+		String key = getKey("dashboard", domain, tab, oClass, criteriesMap);
+		List<ORID> rids;
+		try {
+			rids = dashboardsCache.get(key, () -> DBClosure.sudo(db -> 
+						resolveDashboards(db, domain, tab, oClass, criteriesMap)));
+		} catch (ExecutionException | UncheckedExecutionException e) {
+			throw new WicketRuntimeException("Can't lookup dashboard for domain '"+domain+"' and tab '"+tab+"'", e.getCause());
+		}
+		//Dashboards are resolved with admin rights: the best one which is readable by current user should be used
+		for (ORID rid : rids) {
+			ODocument dashboard = loadReadable(rid);
+			if(dashboard!=null) return dashboard;
+		}
+		return null;
+	}
+	
+	/**
+	 * @return dashboard loaded within current session or null if it doesn't exist or is not readable by current user
+	 */
+	private static ODocument loadReadable(ORID rid) {
+		try {
+			return rid.getRecord();
+		} catch (OSecurityException e) {
+			return null;
+		}
+	}
+	
+	/**
+	 * @return RIDs of matching dashboards ordered from the best match to the worst
+	 */
+	private List<ORID> resolveDashboards(ODatabaseDocument db, String domain, String tab, OClass oClass, Map<String, Object> criteriesMap) {
 		StringBuilder sql = new StringBuilder();
 		sql.append("select from ").append(OCLASS_DASHBOARD).append(" where ")
 		   .append(OPROPERTY_DOMAIN).append(" = ? and ")
@@ -119,7 +190,6 @@ public class DefaultDashboardManager implements IDashboardManager{
 				args.add(entry.getValue());
 			}
 		}
-		ODatabaseSession db = getDatabaseSession();
 		List<ODocument>  dashboards;
 		try(OResultSet result = db.query(sql.toString(), args.toArray())) {
 			
@@ -128,42 +198,62 @@ public class DefaultDashboardManager implements IDashboardManager{
 									.collect(Collectors.toCollection(LinkedList::new));
 		}
 
-		if(dashboards.isEmpty()) {
-			return null;
-		} else if (oClass != null) {
-			ODocument selected=null;
-			int level = Integer.MAX_VALUE;
+		if (oClass != null) {
+			//Dashboards for the closest superclass go first and dashboards without class go last
+			Map<ORID, Integer> levels = new LinkedHashMap<>();
 			OSchema schema = db.getMetadata().getSchema();
 			for (ODocument candidate : dashboards) {
 				String dashboardClass = candidate.field(OPROPERTY_CLASS);
-				if(dashboardClass==null && selected==null) selected = candidate;
+				if(dashboardClass==null) levels.put(candidate.getIdentity(), Integer.MAX_VALUE);
 				else {
 					OClass superClass = schema.getClass(dashboardClass);
-					if(superClass!=null) {
-						Integer thisLevel = isSuperClass(superClass, oClass);
-						if(thisLevel!=null && thisLevel < level) {
-							level = thisLevel;
-							selected = candidate;
-						}
-					}
+					Integer level = superClass!=null?getLevel(superClass, oClass):null;
+					if(level!=null) levels.put(candidate.getIdentity(), level);
 				}
 			}
-			return selected;
+			List<ORID> ret = new ArrayList<>(levels.keySet());
+			//Sort is stable: order of a query is preserved for the same level
+			ret.sort(Comparator.comparing(levels::get));
+			return Collections.unmodifiableList(ret);
 		}
-		else return dashboards.get(0);
+		else return Collections.unmodifiableList(dashboards.stream().map(ODocument::getIdentity).collect(Collectors.toList()));
 	}
 	
-	private Integer isSuperClass(OClass superOClass, OClass oClass) {
+	/**
+	 * @return distance from oClass up to superOClass in hierarchy or null if superOClass is not a superclass of oClass
+	 */
+	private Integer getLevel(OClass superOClass, OClass oClass) {
 		if(superOClass.equals(oClass)) return 0;
+		if(!oClass.isSubClassOf(superOClass)) return null;
 		Integer ret = null;
-		for(OClass subClass : superOClass.getSubclasses()) {
-			Integer thisRet = isSuperClass(subClass, oClass);
-			if(thisRet!=null) {
-				if(ret==null || ret > thisRet) ret = thisRet+1;
-			}
+		for(OClass parent : oClass.getSuperClasses()) {
+			Integer thisRet = getLevel(superOClass, parent);
+			if(thisRet!=null && (ret==null || ret > thisRet+1)) ret = thisRet+1;
 		}
 		return ret;
 	}
+	
+	private String getKey(String type, String domain, String tab, OClass oClass, Map<String, Object> criteriesMap) {
+		StringBuilder sb = new StringBuilder(type).append('\u0000').append(domain).append('\u0000').append(tab);
+		if(oClass!=null) {
+			//Resolution for a class depends on hierarchy: so schema version is part of the key
+			sb.append('\u0000').append(oClass.getName())
+			  .append('\u0000').append(getDatabaseSession().getMetadata().getSchema().getVersion());
+		}
+		if(criteriesMap!=null && !criteriesMap.isEmpty()) {
+			sb.append('\u0000').append(new TreeMap<String, Object>(criteriesMap));
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Drop all cached dashboards and tabs. Invoked on any change of dashboards or widgets
+	 */
+	@Override
+	public void invalidateCache() {
+		dashboardsCache.invalidateAll();
+		tabsCache.invalidateAll();
+	}
 
 	@Override
 	public ODocument createWidgetDocument(IWidgetType<?> widgetType) {
@@ -182,6 +272,19 @@ public class DefaultDashboardManager implements IDashboardManager{
 		return createWidgetDocument(widgetRegistry.lookupByWidgetClass(widgetClass));
 	}
 	
+	/**
+	 * Tab of an existing dashboard
+	 */
+	private static class ExistingTab {
+		private final String tab;
+		private final ORID rid;
+		
+		public ExistingTab(String tab, ORID rid) {
+			this.tab = tab;
+			this.rid = rid;
+		}
+	}
+	
 	private ODatabaseSession getDatabaseSession()
 	{
 		return OrienteerWebSession.get().getDatabaseSession();
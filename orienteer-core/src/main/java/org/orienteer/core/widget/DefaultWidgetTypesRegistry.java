@@ -5,8 +5,12 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
@@ -26,7 +30,8 @@ import com.google.inject.Singleton;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 
 /**
- * Default implementation of {@link IWidgetTypesRegistry}
+ * Default implementation of {@link IWidgetTypesRegistry}.
+ * Lookups are served from hash indexes which are rebuilt on next lookup after registration changes
  */
 @Singleton
 public class DefaultWidgetTypesRegistry implements IWidgetTypesRegistry {
@@ -103,6 +108,51 @@ public class DefaultWidgetTypesRegistry implements IWidgetTypesRegistry {
 		}
 	}
 	
+	/**
+	 * Immutable snapshot of registered widget types indexed for lookups.
+	 * Lists preserve order of widget types
+	 */
+	private static class Index {
+		private final List<IWidgetType<?>> all;
+		private final Map<String, IWidgetType<?>> byId = new HashMap<>();
+		private final Map<Class<?>, IWidgetType<?>> byWidgetClass = new HashMap<>();
+		private final Map<String, List<IWidgetType<?>>> byDomain = new HashMap<>();
+		private final Map<String, Map<String, List<IWidgetType<?>>>> byDomainAndTab = new HashMap<>();
+		
+		public Index(Collection<IWidgetType<?>> widgetTypes) {
+			all = Collections.unmodifiableList(new ArrayList<IWidgetType<?>>(widgetTypes));
+			Map<String, Set<String>> tabsByDomain = new HashMap<>();
+			for (IWidgetType<?> widgetType : all) {
+				byId.putIfAbsent(widgetType.getId(), widgetType);
+				byWidgetClass.putIfAbsent(widgetType.getWidgetClass(), widgetType);
+				byDomain.computeIfAbsent(widgetType.getDomain(), k -> new ArrayList<>()).add(widgetType);
+				Set<String> tabs = tabsByDomain.computeIfAbsent(widgetType.getDomain(), k -> new HashSet<>());
+				if(!Strings.isEmpty(widgetType.getTab())) tabs.add(widgetType.getTab());
+			}
+			for (Map.Entry<String, List<IWidgetType<?>>> entry : byDomain.entrySet()) {
+				Map<String, List<IWidgetType<?>>> tabs = new HashMap<>();
+				for (String tab : tabsByDomain.get(entry.getKey())) tabs.put(tab, new ArrayList<>());
+				tabs.put(ANY_TAB, new ArrayList<>());
+				for (IWidgetType<?> widgetType : entry.getValue()) {
+					String tab = widgetType.getTab();
+					if(Strings.isEmpty(tab)) {
+						for (List<IWidgetType<?>> list : tabs.values()) list.add(widgetType);
+					} else {
+						tabs.get(tab).add(widgetType);
+					}
+				}
+				tabs.replaceAll((k, v) -> Collections.unmodifiableList(v));
+				byDomainAndTab.put(entry.getKey(), tabs);
+				entry.setValue(Collections.unmodifiableList(entry.getValue()));
+			}
+		}
+	}
+	
+	//Key for widget types which are applicable to any tab
+	private static final String ANY_TAB = "";
+	
+	private volatile Index index;
+	
 	private SortedSet<IWidgetType<?>> widgetDescriptions = Collections.synchronizedSortedSet(new TreeSet<IWidgetType<?>>(new Comparator<IWidgetType<?>>() {
 
 		@Override
@@ -116,7 +166,7 @@ public class DefaultWidgetTypesRegistry implements IWidgetTypesRegistry {
 	@SuppressWarnings({ "unchecked", "rawtypes" })
 	@Override
 	public <T> List<IWidgetType<?>> listWidgetTypes(Predicate<IWidgetType<T>> filter) {
-		Collection<IWidgetType<?>> ret = widgetDescriptions;
+		Collection<IWidgetType<?>> ret = getIndex().all;
 		if(filter!=null) ret = Collections2.filter(ret, (Predicate)filter);
 		return Collections.unmodifiableList(new ArrayList<IWidgetType<?>>(ret));
 	}
@@ -124,55 +174,62 @@ public class DefaultWidgetTypesRegistry implements IWidgetTypesRegistry {
 	@Override
 	public IWidgetType<?> lookupByTypeId(String id) {
 		if(id==null) return null;
-		for(IWidgetType<?> description : widgetDescriptions)
-		{
-			if(id.equals(description.getId())) return description;
-		}
-		return null;
+		return getIndex().byId.get(id);
 	}
 	
 	@SuppressWarnings("unchecked")
 	@Override
 	public <T> List<IWidgetType<T>> lookupByDomain(String domain, Predicate<IWidgetType<T>> filter) {
-		List<IWidgetType<T>> ret = new ArrayList<IWidgetType<T>>();
-		for(IWidgetType<?> description : widgetDescriptions)
-		{
-			if(domain.equals(description.getDomain())
-					&& (filter==null || filter.apply((IWidgetType<T>)description))) ret.add((IWidgetType<T>)description);
-		}
-		return Collections.unmodifiableList(ret);
+		List<IWidgetType<?>> widgetTypes = getIndex().byDomain.get(domain);
+		return filter(widgetTypes, filter);
 	}
 	
-	@SuppressWarnings("unchecked")
 	@Override
 	public <T> List<IWidgetType<T>> lookupByDomainAndTab(
 			String domain, String tab, Predicate<IWidgetType<T>> filter) {
-		List<IWidgetType<T>> ret = new ArrayList<IWidgetType<T>>();
-		for(IWidgetType<?> description : widgetDescriptions)
-		{
-			String defaultDomain = description.getDomain();
-			String defaultTab = description.getTab();
-			if(domain.equals(defaultDomain)
-					&& (Strings.isEmpty(defaultTab) || tab.equals(defaultTab))
-					&& (filter==null || filter.apply((IWidgetType<T>)description))) ret.add((IWidgetType<T>)description);
-		}
-		return Collections.unmodifiableList(ret);
+		Map<String, List<IWidgetType<?>>> tabs = getIndex().byDomainAndTab.get(domain);
+		if(tabs==null) return Collections.emptyList();
+		List<IWidgetType<?>> widgetTypes = tabs.get(tab);
+		//Unknown tab: only widgets for any tab are applicable
+		if(widgetTypes==null) widgetTypes = tabs.get(ANY_TAB);
+		return filter(widgetTypes, filter);
 	}
 
-	@SuppressWarnings("unchecked")
 	@Override
 	public IWidgetType<?> lookupByWidgetClass( Class<? extends AbstractWidget<?>> widgetClass) {
 		if(widgetClass==null) return null;
-		for(IWidgetType<?> description : widgetDescriptions)
+		return getIndex().byWidgetClass.get(widgetClass);
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static <T> List<IWidgetType<T>> filter(List<IWidgetType<?>> widgetTypes, Predicate<IWidgetType<T>> filter) {
+		if(widgetTypes==null || widgetTypes.isEmpty()) return Collections.emptyList();
+		if(filter==null) return (List<IWidgetType<T>>)(List<?>)widgetTypes;
+		List<IWidgetType<T>> ret = new ArrayList<IWidgetType<T>>();
+		for(IWidgetType<?> description : widgetTypes)
 		{
-			if(widgetClass.equals(description.getWidgetClass())) return description;
+			if(filter.apply((IWidgetType<T>)description)) ret.add((IWidgetType<T>)description);
 		}
-		return null;
+		return Collections.unmodifiableList(ret);
+	}
+	
+	private Index getIndex() {
+		Index ret = index;
+		if(ret==null) {
+			synchronized (widgetDescriptions) {
+				ret = index;
+				if(ret==null) index = ret = new Index(widgetDescriptions);
+			}
+		}
+		return ret;
 	}
 
 	@Override
 	public IWidgetTypesRegistry register(IWidgetType<?> description) {
-		widgetDescriptions.add(description);
+		synchronized (widgetDescriptions) {
+			widgetDescriptions.add(description);
+			index = null;
+		}
 		return this;
 	}
 
@@ -211,7 +268,10 @@ public class DefaultWidgetTypesRegistry implements IWidgetTypesRegistry {
 
 	@Override
 	public IWidgetTypesRegistry unregister(IWidgetType<?> description) {
-		widgetDescriptions.remove(description);
+		synchronized (widgetDescriptions) {
+			widgetDescriptions.remove(description);
+			index = null;
+		}
 		return this;
 	}
 
@@ -223,9 +283,12 @@ public class DefaultWidgetTypesRegistry implements IWidgetTypesRegistry {
 
 	@Override
 	public IWidgetTypesRegistry unregister(String packageName) {
-		Iterator<IWidgetType<?>> it = widgetDescriptions.iterator();
-		while(it.hasNext()) {
-			if(it.next().getWidgetClass().getName().startsWith(packageName)) it.remove(); 
+		synchronized (widgetDescriptions) {
+			Iterator<IWidgetType<?>> it = widgetDescriptions.iterator();
+			while(it.hasNext()) {
+				if(it.next().getWidgetClass().getName().startsWith(packageName)) it.remove(); 
+			}
+			index = null;
 		}
 		return this;
 	}
@@ -23,4 +23,10 @@ public interface IDashboardManager {
 	public ODocument getExistingDashboard(String domain, String tab, IModel<?> dataModel, Map<String, Object> criteriesMap);
 	public ODocument getExistingDashboard(String domain, String tab, IModel<?> dataModel, OClass oClass);
 	public ODocument getExistingDashboard(String domain, String tab, IModel<?> dataModel, OClass oClass, Map<String, Object> criteriesMap);
+	
+	/**
+	 * Drop cached dashboards, if any: required after changes of dashboards or widgets
+	 */
+	public default void invalidateCache() {
+	}
 }
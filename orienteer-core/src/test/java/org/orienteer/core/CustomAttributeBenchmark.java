@@ -0,0 +1,115 @@
+package org.orienteer.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.orientechnologies.orient.core.db.ODatabaseSession;
+import com.orientechnologies.orient.core.db.ODatabaseType;
+import com.orientechnologies.orient.core.db.OrientDB;
+import com.orientechnologies.orient.core.db.OrientDBConfig;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OProperty;
+import com.orientechnologies.orient.core.metadata.schema.OSchema;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+
+/**
+ * JMH benchmark for lookup of {@link CustomAttribute} values: schema versioned snapshot against direct reading from schema.
+ * Run: mvn test-compile exec:java -Dexec.mainClass=org.orienteer.core.CustomAttributeBenchmark -Dexec.classpathScope=test
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomAttributeBenchmark {
+
+	private static final int HIERARCHY_DEPTH = 5;
+
+	private OrientDB orientDB;
+	private ODatabaseSession db;
+	private OClass oClass;
+	private OProperty property;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		orientDB = new OrientDB("embedded:", OrientDBConfig.defaultConfig());
+		String dbName = "CustomAttributeBenchmark"+System.nanoTime();
+		orientDB.create(dbName, ODatabaseType.MEMORY);
+		db = orientDB.open(dbName, "admin", "admin");
+		OSchema schema = db.getMetadata().getSchema();
+		OClass root = schema.createClass("BenchmarkRoot");
+		OProperty name = root.createProperty("name", OType.STRING);
+		CustomAttribute.PROP_NAME.setValue(root, name);
+		CustomAttribute.DOMAIN.setValue(root, OClassDomain.SPECIFICATION);
+		oClass = root;
+		for(int i=0; i<HIERARCHY_DEPTH; i++) {
+			oClass = schema.createClass("BenchmarkClass"+i, oClass);
+		}
+		property = oClass.createProperty("value", OType.STRING);
+		CustomAttribute.ORDER.setValue(property, 10);
+		CustomAttribute.TAB.setValue(property, "parameters");
+		CustomAttribute.VISUALIZATION_TYPE.setValue(property, "textarea");
+		CustomAttribute.DESCRIPTION.setValue(property, "Value = description\nwith encoded symbols");
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		db.close();
+		orientDB.close();
+	}
+
+	@Benchmark
+	public Object snapshotPropertyLookup() {
+		return CustomAttribute.VISUALIZATION_TYPE.getValue(property);
+	}
+
+	@Benchmark
+	public Object directPropertyLookup() {
+		return CustomAttribute.VISUALIZATION_TYPE.readValue(property);
+	}
+
+	@Benchmark
+	public Object snapshotEncodedPropertyLookup() {
+		return CustomAttribute.DESCRIPTION.getValue(property);
+	}
+
+	@Benchmark
+	public Object directEncodedPropertyLookup() {
+		return CustomAttribute.DESCRIPTION.readValue(property);
+	}
+
+	@Benchmark
+	public Object snapshotInheritedClassLookup() {
+		return CustomAttribute.PROP_NAME.getValue(oClass);
+	}
+
+	@Benchmark
+	public Object directInheritedClassLookup() {
+		return CustomAttribute.PROP_NAME.readValue(oClass, true);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(CustomAttributeBenchmark.class.getSimpleName())
+				.build();
+		new Runner(opt).run();
+	}
+
+}
@@ -284,6 +284,63 @@ public class HooksTest
 		}
 	}
 	
+	@Test
+	@Sudo
+	public void testReferencesHookInTransaction() throws Exception
+	{
+		ODatabaseDocument db = OrientDbWebSession.get().getDatabase();
+		OSchema schema = db.getMetadata().getSchema();
+
+		assertFalse(db.isClosed());
+		db.commit();
+		if(schema.existsClass(TEST_CLASS_C)) schema.dropClass(TEST_CLASS_C);
+		OClass classC = schema.createClass(TEST_CLASS_C);
+		try
+		{
+			OProperty parent = classC.createProperty("parent", OType.LINK);
+			OProperty child = classC.createProperty("child", OType.LINKLIST);
+			CustomAttribute.PROP_INVERSE.setValue(parent, child);
+			CustomAttribute.PROP_INVERSE.setValue(child, parent);
+
+			ODocument root = new ODocument(classC).save();
+			db.begin();
+			for(int i=0; i<100; i++)
+			{
+				ODocument doc = new ODocument(classC);
+				doc.field("parent", root);
+				doc.save();
+			}
+			ODocument removed = new ODocument(classC);
+			removed.field("parent", root);
+			removed.save();
+			removed.delete();
+			db.commit();
+
+			root.reload();
+			List<OIdentifiable> childs = root.field("child");
+			assertNotNull(childs);
+			assertEquals(100, childs.size());
+			for (OIdentifiable childId : childs)
+			{
+				ODocument childDoc = childId.getRecord();
+				assertEquals(root, childDoc.field("parent"));
+			}
+
+			db.begin();
+			ODocument rolledBack = new ODocument(classC);
+			rolledBack.field("parent", root);
+			rolledBack.save();
+			db.rollback();
+			root.reload();
+			childs = root.field("child");
+			assertEquals(100, childs.size());
+		} finally
+		{
+			if(db.getTransaction().isActive()) db.rollback();
+			schema.dropClass(TEST_CLASS_C);
+		}
+	}
+
 	private static class TestCallback implements CallbackHook.ICallback {
 		
 		@Override
@@ -6,11 +6,14 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.List;
+
 import org.junit.Ignore;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.orienteer.core.dao.DAO;
 import org.orienteer.core.tasks.IOConsoleTask;
+import org.orienteer.core.tasks.IOTaskSessionLog;
 import org.orienteer.core.tasks.IOTaskSessionPersisted;
 import org.orienteer.core.tasks.ITaskSession;
 import org.orienteer.core.tasks.ITaskSession.Status;
@@ -53,6 +56,26 @@ public class OTasksTest {
 		assertNotNull(persisted.getFinishTimestamp());
 	}
 	
+	@Test
+	public void testBufferedOutput() throws Exception {
+		OTaskSessionRuntime<IOTaskSessionPersisted> session = OTaskSessionRuntime.simpleSession(null);
+		IOTaskSessionPersisted persisted = session.getOTaskSessionPersisted();
+		session.start();
+		session.appendOutput("line1").appendOutput("line2");
+		assertNull(persisted.getOutput());
+		session.flush();
+		assertEquals("line1\nline2", persisted.getOutput());
+		session.appendOutput("line3");
+		session.finish();
+		assertEquals("line1\nline2\nline3", persisted.getOutput());
+		List<IOTaskSessionLog> log = persisted.readLog(0);
+		assertEquals(2, log.size());
+		assertEquals("line1\nline2", log.get(0).getText());
+		assertEquals("line3", log.get(1).getText());
+		assertEquals(1, persisted.readLog(log.get(0).getSeq()).size());
+		assertEquals("line3", persisted.tailLog(1).get(0).getText());
+	}
+	
 	@Test
 	public void testThreadedSession() throws Exception {
 		final ITaskSession session = OTaskSessionRuntime.simpleSession(null);
@@ -5,6 +5,7 @@ import org.orienteer.core.CustomAttribute;
 import org.orienteer.core.dao.DAO;
 import org.orienteer.core.dao.DAOField;
 import org.orienteer.core.util.CommonUtils;
+import org.orienteer.core.util.OInstrumentation;
 
 import com.orientechnologies.orient.core.metadata.schema.OType;
 
@@ -47,6 +48,15 @@ public class OrienteerUtilsTest
 		assertArrayEquals(new Object[] {"type", "value"}, CommonUtils.diffAnnotations(daoField1, DAO.dao(DAOField.class)).toArray());
 	}
 	
+	@Test
+	public void testQueryFingerprint() throws Exception {
+		assertEquals("select from OUser where name = ?", OInstrumentation.fingerprint("select  from OUser\n where name = 'admin'"));
+		assertEquals("select from OUser where name = ?", OInstrumentation.fingerprint("select from OUser where name = \"it\\\"s\""));
+		assertEquals("select from ? where age > ? and id in [?]", OInstrumentation.fingerprint("select from #12:3 where age > 18 and id in [1, 2, 3]"));
+		assertEquals("select from OUser where name = :name limit :limit", OInstrumentation.fingerprint("select from OUser where name = :name limit :limit"));
+		assertEquals("select from Class1 where field2 = ?", OInstrumentation.fingerprint("select from Class1 where field2 = -2.5"));
+	}
+	
 	@DAOField(value = "method1", type = OType.INTEGER)
 	public void dummyMethod1() {
 		
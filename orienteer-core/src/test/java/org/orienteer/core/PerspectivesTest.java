@@ -0,0 +1,156 @@
+package org.orienteer.core;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.metadata.schema.OSchema;
+import com.orientechnologies.orient.core.metadata.security.ORole;
+import com.orientechnologies.orient.core.metadata.security.OSecurity;
+import com.orientechnologies.orient.core.metadata.security.OSecurityShared;
+import com.orientechnologies.orient.core.metadata.security.OUser;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.orienteer.core.dao.DAO;
+import org.orienteer.core.module.PerspectivesModule;
+import org.orienteer.core.module.PerspectivesModule.IOPerspective;
+import org.orienteer.core.module.PerspectivesModule.IOPerspectiveItem;
+import org.orienteer.core.module.PerspectivesModule.PerspectiveMenuItem;
+import org.orienteer.core.util.CommonUtils;
+import org.orienteer.junit.OrienteerTestRunner;
+import org.orienteer.junit.Sudo;
+import ru.ydn.wicket.wicketorientdb.OrientDbWebSession;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(OrienteerTestRunner.class)
+@Singleton
+public class PerspectivesTest
+{
+	@Inject
+	private PerspectivesModule perspectivesModule;
+
+	@Test
+	@Sudo
+	public void testPerspectiveOfParentRole() throws Exception
+	{
+		ODatabaseDocument db = OrientDbWebSession.get().getDatabase();
+		OSecurity security = db.getMetadata().getSecurity();
+		IOPerspective perspective = DAO.create(IOPerspective.class)
+										.setAlias("testParentRolePerspective")
+										.setName(Collections.singletonMap("en", "Test"));
+		perspective.save();
+		ORole parentRole = security.createRole("testParentRole", ORole.ALLOW_MODES.DENY_ALL_BUT);
+		ORole role = security.createRole("testChildRole", parentRole, ORole.ALLOW_MODES.DENY_ALL_BUT);
+		OUser user = null;
+		try
+		{
+			parentRole.getDocument().field(PerspectivesModule.PROP_PERSPECTIVE, perspective.getDocument());
+			parentRole.save();
+			assertEquals(perspective.getDocument(), perspectivesModule.getPerspectiveForORole(role));
+
+			user = security.createUser("testPerspectiveUser", "testPerspectiveUser", role);
+			assertEquals(perspective.getDocument(), perspectivesModule.getDefaultPerspective(user));
+
+			//Cached perspective should be invalidated on change of a role
+			parentRole.getDocument().removeField(PerspectivesModule.PROP_PERSPECTIVE);
+			parentRole.save();
+			assertNull(perspectivesModule.getPerspectiveForORole(role));
+			ODocument defaultPerspective = perspectivesModule.getDefaultPerspective(user);
+			assertNotNull(defaultPerspective);
+			assertEquals(PerspectivesModule.ALIAS_PERSPECTIVE_DEFAULT, defaultPerspective.field("alias"));
+		}
+		finally
+		{
+			if(user!=null) security.dropUser(user.getName());
+			security.dropRole(role.getName());
+			security.dropRole(parentRole.getName());
+			perspective.getDocument().delete();
+		}
+	}
+
+	@Test
+	@Sudo
+	public void testCachedMenu() throws Exception
+	{
+		IOPerspective perspective = DAO.create(IOPerspective.class)
+										.setAlias("testMenuPerspective")
+										.setName(Collections.singletonMap("en", "Test"));
+		perspective.save();
+		try
+		{
+			perspective.getOrCreatePerspectiveItem("testMenuItem", "perspective.item.default.users", "fa fa-users", "/test");
+			List<PerspectiveMenuItem> menu = perspectivesModule.getMenu(perspective.getDocument());
+			assertEquals(1, menu.size());
+			assertEquals("/test", menu.get(0).getUrl());
+			assertTrue(menu.get(0).getSubItems().isEmpty());
+			assertSame(menu, perspectivesModule.getMenu(perspective.getDocument()));
+
+			//Cached menu should be invalidated on change of an item
+			IOPerspectiveItem item = DAO.create(IOPerspectiveItem.class).lookupByAlias("testMenuItem");
+			item.setUrl("/test2").save();
+			menu = perspectivesModule.getMenu(perspective.getDocument());
+			assertEquals("/test2", menu.get(0).getUrl());
+			item.getDocument().delete();
+			assertTrue(perspectivesModule.getMenu(perspective.getDocument()).isEmpty());
+		}
+		finally
+		{
+			perspective.getDocument().delete();
+		}
+	}
+
+	@Test
+	@Sudo
+	public void testMenuIsFilteredForUser() throws Exception
+	{
+		ODatabaseDocument db = OrientDbWebSession.get().getDatabase();
+		OSchema schema = db.getMetadata().getSchema();
+		schema.createClass("TestRestrictedPerspectiveItem", schema.getClass(IOPerspectiveItem.CLASS_NAME),
+							schema.getClass(OSecurityShared.RESTRICTED_CLASSNAME));
+		IOPerspective perspective = DAO.create(IOPerspective.class)
+										.setAlias("testFilteredMenuPerspective")
+										.setName(Collections.singletonMap("en", "Test"));
+		perspective.save();
+		ODocument restricted = null;
+		try
+		{
+			perspective.getOrCreatePerspectiveItem("testPublicMenuItem", "perspective.item.default.users", "fa fa-users", "/public");
+			//Restricted item is readable only by its creator
+			restricted = new ODocument("TestRestrictedPerspectiveItem");
+			restricted.field("alias", "testRestrictedMenuItem");
+			restricted.field("url", "/private");
+			restricted.field("perspective", perspective.getDocument());
+			restricted.save();
+			ODocument perspectiveDoc = perspective.getDocument();
+			perspectiveDoc.reload();
+			List<OIdentifiable> items = new ArrayList<>();
+			List<OIdentifiable> menu = perspectiveDoc.field("menu");
+			if(menu!=null) items.addAll(menu);
+			if(!items.contains(restricted)) items.add(restricted);
+			perspectiveDoc.field("menu", items);
+			perspectiveDoc.save();
+
+			assertEquals(2, perspectivesModule.getMenu(perspectiveDoc).size());
+			List<PerspectiveMenuItem> readerMenu = CommonUtils.executeAs("reader", d -> perspectivesModule.getMenu(perspectiveDoc));
+			assertEquals(1, readerMenu.size());
+			assertEquals("/public", readerMenu.get(0).getUrl());
+			//Menu of the admin is cached separately
+			assertEquals(2, perspectivesModule.getMenu(perspectiveDoc).size());
+		}
+		finally
+		{
+			if(restricted!=null) restricted.delete();
+			IOPerspectiveItem item = DAO.create(IOPerspectiveItem.class).lookupByAlias("testPublicMenuItem");
+			if(item!=null) item.getDocument().delete();
+			perspective.getDocument().delete();
+			schema.dropClass("TestRestrictedPerspectiveItem");
+		}
+	}
+}
@@ -0,0 +1,147 @@
+package org.orienteer.core.dao;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.orientechnologies.orient.core.db.ODatabaseSession;
+import com.orientechnologies.orient.core.db.ODatabaseType;
+import com.orientechnologies.orient.core.db.OrientDB;
+import com.orientechnologies.orient.core.db.OrientDBConfig;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * JMH benchmark for invocations over DAO proxies.
+ * Hand-written access to {@link ODocument} is measured as well to be used as a reference.
+ * Both proxy based and generated DAO implementations are measured.
+ * To compare "before" and "after" run it on both revisions: allocation rate is reported by {@link GCProfiler}.
+ * Run: mvn test-compile exec:java -Dexec.mainClass=org.orienteer.core.dao.DAOBenchmark -Dexec.classpathScope=test
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DAOBenchmark {
+
+	private static final String CLASS_NAME = "DAOBenchmarkClass";
+
+	/**
+	 * DAO interface to be benchmarked
+	 */
+	@DAOOClass(CLASS_NAME)
+	public static interface IDAOBenchmarkClass extends IODocumentWrapper {
+		public String getName();
+		public IDAOBenchmarkClass setName(String name);
+
+		public int getCounter();
+		public IDAOBenchmarkClass setCounter(int counter);
+
+		@DAOField("name")
+		public String getNameSynonym();
+
+		public default String getDecoratedName() {
+			return "#"+getName();
+		}
+	}
+
+	@Param({"false", "true"})
+	public boolean generation;
+
+	private OrientDB orientDB;
+	private ODatabaseSession db;
+	private ODocument doc;
+	private IDAOBenchmarkClass dao;
+	private int counter;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		DAO.setGenerationEnabled(generation);
+		orientDB = new OrientDB("embedded:", OrientDBConfig.defaultConfig());
+		String dbName = "DAOBenchmark"+System.nanoTime();
+		orientDB.create(dbName, ODatabaseType.MEMORY);
+		db = orientDB.open(dbName, "admin", "admin");
+		OClass oClass = db.getMetadata().getSchema().createClass(CLASS_NAME);
+		oClass.createProperty("name", OType.STRING);
+		oClass.createProperty("counter", OType.INTEGER);
+		doc = new ODocument(CLASS_NAME);
+		doc.field("name", "benchmark");
+		doc.field("counter", 1);
+		dao = DAO.provide(IDAOBenchmarkClass.class, doc);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		db.close();
+		orientDB.close();
+	}
+
+	@Benchmark
+	public Object documentGetter() {
+		return doc.field("name");
+	}
+
+	@Benchmark
+	public Object documentSetter() {
+		return doc.field("counter", counter++);
+	}
+
+	@Benchmark
+	public Object daoGetter() {
+		return dao.getName();
+	}
+
+	@Benchmark
+	public int daoPrimitiveGetter() {
+		return dao.getCounter();
+	}
+
+	@Benchmark
+	public Object daoAnnotatedGetter() {
+		return dao.getNameSynonym();
+	}
+
+	@Benchmark
+	public Object daoSetter() {
+		return dao.setCounter(counter++);
+	}
+
+	@Benchmark
+	public Object daoDefaultMethod() {
+		return dao.getDecoratedName();
+	}
+
+	@Benchmark
+	public Object daoProvide() {
+		return DAO.provide(IDAOBenchmarkClass.class, doc);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(DAOBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(opt).run();
+	}
+
+}
@@ -18,6 +18,8 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import org.apache.wicket.WicketRuntimeException;
 import org.junit.AfterClass;
@@ -27,6 +29,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.orienteer.core.CustomAttribute;
 import org.orienteer.core.OrienteerWebApplication;
+import org.orienteer.core.dao.handler.DAOMethodPlan;
 import org.orienteer.core.module.PerspectivesModule.IOPerspective;
 import org.orienteer.core.module.PerspectivesModule.IOPerspectiveItem;
 import org.orienteer.core.util.OSchemaHelper;
@@ -155,6 +158,40 @@ public class DAOTest {
 		assertEquals(testDocs.size(), dao.countAll());
 	}
 	
+	@Test
+	public void testStreamingQuery() {
+		ITestDAO dao = tester.getApplication().getServiceInstance(ITestDAO.class);
+		List<IDAOTestClass> all = dao.findAllAsDAO();
+		assertTrue("Size of test docs", all.size()>1);
+		try(Stream<IDAOTestClass> stream = dao.streamAllAsDAO()) {
+			assertEquals(all, stream.collect(Collectors.toList()));
+		}
+		
+		Iterator<ODocument> it = dao.iterateAllAsDocument();
+		int count = 0;
+		while(it.hasNext()) {
+			assertNotNull(it.next());
+			count++;
+		}
+		assertEquals(all.size(), count);
+		assertTrue(((IDAOCursor<ODocument>)it).isClosed());
+		
+		try(IDAOCursor<IDAOTestClass> cursor = dao.cursorAllAsDAO()) {
+			List<IDAOTestClass> page = cursor.next(1);
+			assertEquals(1, page.size());
+			assertEquals(all.get(0), page.get(0));
+			assertEquals(all.size()-1, cursor.next(all.size()).size());
+			assertTrue(cursor.next(1).isEmpty());
+			assertTrue(cursor.isClosed());
+		}
+		
+		IDAOCursor<IDAOTestClass> cursor = dao.cursorAllAsDAO();
+		assertTrue(cursor.hasNext());
+		cursor.close();
+		assertTrue(cursor.isClosed());
+		assertFalse(cursor.hasNext());
+	}
+	
 	@Test
 	public void testMirroring() {
 		IDAOTestClass doc = tester.getApplication().getServiceInstance(IDAOTestClass.class);
@@ -170,6 +207,62 @@ public class DAOTest {
 		assertEquals(TestDAOMethodHandler.RETURN, doc.interceptedInvocation());
 	}
 	
+	@Test
+	public void testMethodPlans() throws Exception {
+		DAOMethodPlan plan = DAOMethodPlan.of(IDAOTestClass.class.getMethod("getNameSynonymMethod"));
+		assertEquals("name", plan.getGetterField());
+		assertNull(plan.getSetterField());
+		assertSame(plan, DAOMethodPlan.of(IDAOTestClass.class.getMethod("getNameSynonymMethod")));
+		
+		plan = DAOMethodPlan.of(IDAOTestClass.class.getMethod("isPrimitiveSupported"));
+		assertEquals("primitiveSupported", plan.getGetterField());
+		assertEquals(Boolean.class, plan.getReturnType());
+		
+		plan = DAOMethodPlan.of(IDAOTestClass.class.getMethod("setChild", List.class));
+		assertEquals("child", plan.getSetterField());
+		assertNull(plan.getGetterField());
+		
+		plan = DAOMethodPlan.of(IDAOTestClass.class.getMethod("getChild"));
+		assertEquals(IDAOTestClass.class, plan.getReturnSubType());
+		assertTrue(plan.isReturnsCollection());
+		
+		plan = DAOMethodPlan.of(IDAOTestClass.class.getMethod("lookupToBoolean", String.class));
+		assertEquals("select from DAOTestClass where name = :name", plan.getLookupSql());
+		assertNotNull(plan.getDAOHandlers());
+		Map<String, Object> args = plan.bindArguments(null, true, new Object[] {"root"});
+		assertEquals("root", args.get("arg0"));
+		
+		plan = DAOMethodPlan.of(IDAOTestClass.class.getMethod("listAllChild"));
+		assertEquals("select expand(child) from DAOTestClass where @rid = :target", plan.getSql());
+		assertNull(plan.getDAOHandlers());
+	}
+	
+	@Test
+	public void testGeneratedDAO() {
+		boolean wasEnabled = DAO.isGenerationEnabled();
+		DAO.setGenerationEnabled(true);
+		try {
+			List<ODocument> docs = tester.getDatabase().query(new OSQLSynchQuery<ODocument>("select from DAOTestClass"));
+			for (ODocument oDocument : docs) {
+				IDAOTestClass doc = DAO.provide(IDAOTestClass.class, oDocument);
+				assertTrue(doc instanceof AbstractGeneratedDAO);
+				assertEquals(oDocument.field("name"), doc.getName());
+				assertEquals(oDocument.field("name"), doc.getNameSynonymMethod());
+				assertEquals("test"+oDocument.field("name"), doc.getTestName());
+				assertEquals("test3test"+oDocument.field("name"), doc.getTest3Name());
+				assertEquals(TestDAOMethodHandler.RETURN, doc.interceptedInvocation());
+				assertSame(oDocument, doc.getDocument());
+				assertEquals(doc, DAO.provide(IDAOTestClass.class, oDocument));
+			}
+			IDAOTestClass root = DAO.provide(IDAOTestClass.class, docs.get(0));
+			assertTrue(root.lookupToBoolean("root"));
+			assertSame(root, root.lookupAsChain("root"));
+			assertTrue(root.listAllChild().size()>0);
+		} finally {
+			DAO.setGenerationEnabled(wasEnabled);
+		}
+	}
+	
 	@Test
 	public void testParentChildDefaultMethods() {
 		IDAOChild obj = DAO.create(IDAOChild.class);
@@ -1,6 +1,8 @@
 package org.orienteer.core.dao;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 import com.google.inject.ProvidedBy;
 import com.orientechnologies.orient.core.record.impl.ODocument;
@@ -24,6 +26,15 @@ public interface ITestDAO {
 	@Query("select from DAOTestClass")
 	public List<IDAOTestClass> findAllAsDAO();
 	
+	@Query("select from DAOTestClass")
+	public Stream<IDAOTestClass> streamAllAsDAO();
+	
+	@Query("select from DAOTestClass")
+	public Iterator<ODocument> iterateAllAsDocument();
+	
+	@Query("select from DAOTestClass")
+	public IDAOCursor<IDAOTestClass> cursorAllAsDAO();
+	
 	default public int countAll() {
 		return listDAOTestClass().size();
 	}
@@ -0,0 +1,164 @@
+package org.orienteer.core.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.Arrays;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.apache.wicket.protocol.http.mock.MockHttpServletResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.orienteer.core.dao.DAO;
+import org.orienteer.core.tasks.IODatabaseExportTask;
+import org.orienteer.core.tasks.IODatabaseExportTaskSession;
+import org.orienteer.core.tasks.ITaskSession.Status;
+import org.orienteer.core.tasks.OTaskSessionRuntime;
+import org.orienteer.core.util.export.DatabaseExporter;
+import org.orienteer.core.util.export.ExportDirectory;
+import org.orienteer.junit.OrienteerTestRunner;
+import org.orienteer.junit.OrienteerTester;
+import org.orienteer.junit.Sudo;
+
+import com.google.inject.Inject;
+import com.orientechnologies.orient.core.exception.OSecurityAccessException;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+import ru.ydn.wicket.wicketorientdb.utils.DBClosure;
+
+@RunWith(OrienteerTestRunner.class)
+public class DatabaseExportDownloadResourceTest {
+
+	private static final String TEST_CLASS = "DatabaseExportDownloadTest";
+	private static final long TIMEOUT = 30000;
+
+	@Inject
+	private OrienteerTester tester;
+
+	@Before
+	public void init() {
+		DBClosure.sudoConsumer(db -> {
+			db.getMetadata().getSchema().createClass(TEST_CLASS);
+			new ODocument(TEST_CLASS).field("name", "record").save();
+		});
+	}
+
+	@After
+	public void destroy() {
+		DBClosure.sudoConsumer(db -> db.getMetadata().getSchema().dropClass(TEST_CLASS));
+	}
+
+	@Test
+	@Sudo
+	public void testExportAndDownload() throws Exception {
+		IODatabaseExportTask task = newTask();
+		task.setOutputFile("latest"+DatabaseExporter.GZIP_EXTENSION);
+		task.save();
+		OTaskSessionRuntime<IODatabaseExportTaskSession> runtime = task.startNewSession();
+		waitFor(runtime);
+		IODatabaseExportTaskSession session = runtime.getOTaskSessionPersisted();
+		session.getDocument().reload();
+		assertNull(session.getError());
+		File artifact = IODatabaseExportTaskSession.getArtifactFile(session.getDocument().getIdentity());
+		assertTrue(artifact.isFile());
+		assertEquals(artifact.getName(), session.getArtifact());
+		assertEquals(artifact.length(), (long)session.getArtifactSize());
+		assertEquals(1L, (long)session.getExportedRecords());
+		assertTrue(ExportDirectory.get().resolve(task.getOutputFile()).isFile());
+
+		tester.executeUrl(DatabaseExportDownloadResource.urlFor(session).toString());
+		MockHttpServletResponse response = tester.getLastResponse();
+		assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+		assertEquals(artifact.length(), response.getBinaryContent().length);
+
+		//Export of a session is deleted together with the session, but published one is kept
+		session.delete();
+		assertFalse(artifact.exists());
+		assertTrue(ExportDirectory.get().resolve(task.getOutputFile()).isFile());
+	}
+
+	@Test
+	@Sudo
+	public void testSessionIsKeptOnFinish() throws Exception {
+		IODatabaseExportTask task = newTask();
+		task.setAutodeleteSessions(true);
+		task.save();
+		OTaskSessionRuntime<IODatabaseExportTaskSession> runtime = task.startNewSession();
+		waitFor(runtime);
+		IODatabaseExportTaskSession session = runtime.getOTaskSessionPersisted();
+		session.getDocument().reload();
+		assertTrue(IODatabaseExportTaskSession.getArtifactFile(session.getDocument().getIdentity()).isFile());
+		session.delete();
+	}
+
+	@Test
+	@Sudo
+	public void testArtifactIsDerivedFromSession() throws Exception {
+		IODatabaseExportTaskSession session = DAO.create(IODatabaseExportTaskSession.class);
+		//Stored path is not trusted
+		session.setArtifact(new File(System.getProperty("java.io.tmpdir")).getAbsolutePath());
+		session.persist();
+		tester.executeUrl(DatabaseExportDownloadResource.urlFor(session).toString());
+		assertEquals(HttpServletResponse.SC_NOT_FOUND, tester.getLastResponse().getStatus());
+	}
+
+	@Test
+	@Sudo
+	public void testOutputFileIsConfined() {
+		IODatabaseExportTask task = newTask();
+		task.setOutputFile("../outside"+DatabaseExporter.GZIP_EXTENSION);
+		task.save();
+		try {
+			task.startNewSession();
+			fail("Export outside of export directory should be rejected");
+		} catch (IllegalArgumentException e) {
+			//Expected
+		}
+	}
+
+	@Test
+	@Sudo(value="reader", password="reader")
+	public void testExportRequiresAdmin() {
+		assertFalse(IODatabaseExportTask.isExportAllowed());
+		IODatabaseExportTask task = DBClosure.sudo(db -> {
+			IODatabaseExportTask ret = newTask();
+			ret.save();
+			return ret;
+		});
+		try {
+			task.startNewSession();
+			fail("Reader should not be allowed to export database");
+		} catch (OSecurityAccessException e) {
+			//Expected
+		}
+		IODatabaseExportTaskSession session = DBClosure.sudo(db -> {
+			IODatabaseExportTaskSession ret = DAO.create(IODatabaseExportTaskSession.class);
+			ret.persist();
+			return ret;
+		});
+		tester.executeUrl(DatabaseExportDownloadResource.urlFor(session).toString());
+		assertEquals(HttpServletResponse.SC_FORBIDDEN, tester.getLastResponse().getStatus());
+	}
+
+	private static IODatabaseExportTask newTask() {
+		IODatabaseExportTask task = DAO.create(IODatabaseExportTask.class);
+		task.setAutodeleteSessions(false);
+		task.setIncludeClasses(Arrays.asList(TEST_CLASS));
+		return task;
+	}
+
+	private static void waitFor(OTaskSessionRuntime<?> runtime) throws InterruptedException {
+		long deadline = System.currentTimeMillis()+TIMEOUT;
+		while(Status.RUNNING.equals(runtime.getStatus()) || Status.NOT_STARTED.equals(runtime.getStatus())) {
+			if(System.currentTimeMillis()>deadline) fail("Export has not finished in time");
+			Thread.sleep(100);
+		}
+	}
+}
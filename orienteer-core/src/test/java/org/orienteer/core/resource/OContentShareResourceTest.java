@@ -6,6 +6,7 @@ import com.orientechnologies.orient.core.metadata.schema.OSchema;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import org.apache.wicket.protocol.http.mock.MockHttpServletResponse;
+import org.apache.wicket.request.Url;
 import org.apache.wicket.util.tester.WicketTester;
 import org.junit.After;
 import org.junit.Before;
@@ -19,6 +20,7 @@ import ru.ydn.wicket.wicketorientdb.utils.DBClosure;
 import javax.servlet.http.HttpServletResponse;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
 
 @RunWith(OrienteerTestRunner.class)
 public class OContentShareResourceTest {
@@ -72,6 +74,29 @@ public class OContentShareResourceTest {
         assertEquals(response.getStatus(), HttpServletResponse.SC_NOT_FOUND);
     }
     
+    @Test
+    public void testNotModifiedContent() {
+        String url = OContentShareResource.urlFor(doc, "name", null, false).toString();
+        tester.executeUrl(url);
+        String eTag = tester.getLastResponse().getHeader("ETag");
+        assertNotNull(eTag);
+
+        tester.getRequest().setUrl(Url.parse(url));
+        tester.getRequest().addHeader("If-None-Match", eTag);
+        tester.processRequest();
+        assertEquals(HttpServletResponse.SC_NOT_MODIFIED, tester.getLastResponse().getStatus());
+    }
+
+    @Test
+    public void testRangeOfContent() {
+        tester.getRequest().setUrl(Url.parse(OContentShareResource.urlFor(doc, "name", "text/plain", false).toString()));
+        tester.getRequest().addHeader("Range", "bytes=0-3");
+        tester.processRequest();
+        MockHttpServletResponse response = tester.getLastResponse();
+        assertEquals(HttpServletResponse.SC_PARTIAL_CONTENT, response.getStatus());
+        assertEquals("Test", response.getDocument());
+    }
+    
     @Test
     public void testUrls() {
     	tester.setUseRequestUrlAsBase(true);
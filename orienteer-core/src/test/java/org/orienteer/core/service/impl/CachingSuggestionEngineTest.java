@@ -0,0 +1,196 @@
+package org.orienteer.core.service.impl;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.wicket.ThreadContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.orienteer.core.service.impl.CachingSuggestionEngine.Result;
+import org.orienteer.core.service.impl.CachingSuggestionEngine.Strategy;
+import org.orienteer.junit.OrienteerTestRunner;
+import org.orienteer.junit.OrienteerTester;
+
+import com.google.inject.Inject;
+import com.google.inject.Injector;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OProperty;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+import ru.ydn.wicket.wicketorientdb.utils.DBClosure;
+
+@RunWith(OrienteerTestRunner.class)
+public class CachingSuggestionEngineTest {
+
+	private static final String TEST_CLASS = "SuggestionEngineTest";
+	private static final List<String> NAMES = Arrays.asList("alpha", "alphabet", "beta alpha", "gamma");
+	private static final int LIMIT = 10;
+
+	@Inject
+	private OrienteerTester tester;
+
+	@Inject
+	private Injector injector;
+
+	/**
+	 * Engine which counts lookups in DB and can simulate slow and timed out lookups
+	 */
+	private static class TestEngine extends CachingSuggestionEngine {
+		private final AtomicInteger lookups = new AtomicInteger();
+		private volatile long delay = 0;
+		private volatile boolean timedOut = false;
+
+		@Override
+		Result lookup(OClass oClass, OProperty property, Strategy strategy, String query, int limit) {
+			lookups.incrementAndGet();
+			if(delay>0) {
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+			Result ret = super.lookup(oClass, property, strategy, query, limit);
+			return timedOut?new Result(ret.strategy, new ArrayList<>(ret.entries), limit, true):ret;
+		}
+	}
+
+	@Before
+	public void init() {
+		DBClosure.sudoConsumer(db -> {
+			OClass oClass = db.getMetadata().getSchema().createClass(TEST_CLASS);
+			oClass.createProperty("name", OType.STRING);
+			for (String name : NAMES) new ODocument(TEST_CLASS).field("name", name).save();
+		});
+	}
+
+	@After
+	public void destroy() {
+		DBClosure.sudoConsumer(db -> db.getMetadata().getSchema().dropClass(TEST_CLASS));
+	}
+
+	@Test
+	public void testStrategySelection() {
+		TestEngine engine = newEngine();
+		engine.setScanThreshold(0);
+		DBClosure.sudoConsumer(db -> {
+			OClass oClass = db.getMetadata().getSchema().getClass(TEST_CLASS);
+			OProperty property = oClass.getProperty("name");
+			assertEquals(Strategy.ANY, engine.getStrategy(oClass, property, ""));
+			assertEquals(Strategy.CONTAINS, engine.getStrategy(oClass, property, "al"));
+			property.createIndex(OClass.INDEX_TYPE.NOTUNIQUE);
+			assertEquals(Strategy.PREFIX, engine.getStrategy(oClass, property, "al"));
+			//Small classes are scanned even if there is an index
+			engine.setScanThreshold(NAMES.size());
+			assertEquals(Strategy.CONTAINS, engine.getStrategy(oClass, property, "al"));
+		});
+	}
+
+	@Test
+	public void testPrefixLookup() {
+		TestEngine engine = newEngine();
+		engine.setScanThreshold(0);
+		DBClosure.sudoConsumer(db -> db.getMetadata().getSchema().getClass(TEST_CLASS)
+										.getProperty("name").createIndex(OClass.INDEX_TYPE.NOTUNIQUE));
+		//Only documents which start with the query are found by the index
+		assertEquals(Arrays.asList("alpha", "alphabet"), suggest(engine, "alpha"));
+		assertEquals(Arrays.asList("beta alpha"), suggest(engine, "beta"));
+		assertEquals(Arrays.asList(), suggest(engine, "phab"));
+		assertEquals(3, engine.lookups.get());
+		//Narrowing keeps prefix matching
+		assertEquals(Arrays.asList("alphabet"), suggest(engine, "alphab"));
+		assertEquals(3, engine.lookups.get());
+	}
+
+	@Test
+	public void testNarrowing() {
+		TestEngine engine = newEngine();
+		assertEquals(Arrays.asList("alpha", "alphabet", "beta alpha"), suggest(engine, "al"));
+		assertEquals(1, engine.lookups.get());
+		//Results for longer queries are filtered from cached ones
+		assertEquals(Arrays.asList("alpha", "alphabet", "beta alpha"), suggest(engine, "alph"));
+		assertEquals(Arrays.asList("alphabet"), suggest(engine, "alphab"));
+		assertEquals(1, engine.lookups.get());
+		assertEquals(Arrays.asList("beta alpha"), suggest(engine, "bet"));
+		assertEquals(2, engine.lookups.get());
+		engine.invalidateAll();
+		assertEquals(Arrays.asList("alphabet"), suggest(engine, "alphab"));
+		assertEquals(3, engine.lookups.get());
+	}
+
+	@Test
+	public void testCoalescing() throws Exception {
+		TestEngine engine = newEngine();
+		engine.delay = 500;
+		int threads = 4;
+		CountDownLatch start = new CountDownLatch(1);
+		List<Thread> workers = new ArrayList<>();
+		List<List<String>> results = new ArrayList<>();
+		for (int i = 0; i < threads; i++) {
+			Thread thread = new Thread(() -> {
+				ThreadContext.setApplication(tester.getApplication());
+				try {
+					start.await();
+					List<String> result = suggest(engine, "gam");
+					synchronized (results) {
+						results.add(result);
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					ThreadContext.detach();
+				}
+			});
+			thread.start();
+			workers.add(thread);
+		}
+		start.countDown();
+		for (Thread thread : workers) thread.join();
+		assertEquals(1, engine.lookups.get());
+		assertEquals(threads, results.size());
+		for (List<String> result : results) assertEquals(Arrays.asList("gamma"), result);
+	}
+
+	@Test
+	public void testTimedOutResultsAreNotCached() {
+		TestEngine engine = newEngine();
+		engine.timedOut = true;
+		//Partial results are returned
+		assertEquals(Arrays.asList("gamma"), suggest(engine, "gam"));
+		assertEquals(Arrays.asList("gamma"), suggest(engine, "gam"));
+		assertEquals(2, engine.lookups.get());
+		//and not used for narrowing
+		assertEquals(Arrays.asList("gamma"), suggest(engine, "gamm"));
+		assertEquals(3, engine.lookups.get());
+		engine.timedOut = false;
+		suggest(engine, "gam");
+		suggest(engine, "gam");
+		assertEquals(4, engine.lookups.get());
+	}
+
+	private TestEngine newEngine() {
+		TestEngine engine = new TestEngine();
+		injector.injectMembers(engine);
+		return engine;
+	}
+
+	private static List<String> suggest(CachingSuggestionEngine engine, String query) {
+		return DBClosure.sudo(db -> {
+			List<String> ret = new ArrayList<>();
+			for (ORID rid : engine.suggest(db.getMetadata().getSchema().getClass(TEST_CLASS), query, LIMIT)) {
+				ODocument doc = db.load(rid);
+				ret.add(doc.field("name"));
+			}
+			return ret;
+		});
+	}
+}
@@ -0,0 +1,137 @@
+package org.orienteer.core.util.export;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.orienteer.core.OrienteerWebApplication;
+import org.orienteer.junit.OrienteerTestRunner;
+import org.orienteer.junit.OrienteerTester;
+
+import com.google.common.io.ByteStreams;
+import com.google.inject.Inject;
+import com.orientechnologies.orient.core.db.ODatabasePool;
+import com.orientechnologies.orient.core.db.ODatabaseSession;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+import ru.ydn.wicket.wicketorientdb.IOrientDbSettings;
+import ru.ydn.wicket.wicketorientdb.utils.DBClosure;
+
+@RunWith(OrienteerTestRunner.class)
+public class DatabaseExporterTest {
+
+	private static final String TEST_CLASS = "DatabaseExporterTest";
+	private static final int RECORDS = 3;
+
+	@Inject
+	private OrienteerTester tester;
+
+	private ODatabasePool pool;
+	private File dir;
+
+	@Before
+	public void init() throws IOException {
+		IOrientDbSettings settings = ((OrienteerWebApplication)tester.getApplication()).getOrientDbSettings();
+		pool = settings.getContext().cachedPool(settings.getDbName(), settings.getAdminUserName(), settings.getAdminPassword());
+		dir = Files.createTempDirectory("export-test").toFile();
+		DBClosure.sudoConsumer(db -> {
+			db.getMetadata().getSchema().createClass(TEST_CLASS);
+			for (int i = 0; i < RECORDS; i++) new ODocument(TEST_CLASS).field("name", "record"+i).save();
+		});
+	}
+
+	@After
+	public void destroy() {
+		DBClosure.sudoConsumer(db -> db.getMetadata().getSchema().dropClass(TEST_CLASS));
+		File[] files = dir.listFiles();
+		if(files!=null) for (File file : files) file.delete();
+		dir.delete();
+	}
+
+	@Test
+	public void testResolveClusters() {
+		try(ODatabaseSession db = pool.acquire()) {
+			Set<String> clusters = getClusters(db);
+			assertEquals(clusters, new DatabaseExporter(pool).setIncludeClasses(Arrays.asList(TEST_CLASS)).resolveClusters(db));
+			assertEquals(RECORDS, new DatabaseExporter(pool).setIncludeClasses(Arrays.asList(TEST_CLASS)).countRecords(db));
+			Set<String> all = new DatabaseExporter(pool).resolveClusters(db);
+			assertTrue(all.containsAll(clusters));
+			Set<String> excluded = new DatabaseExporter(pool).setExcludeClasses(Arrays.asList(TEST_CLASS)).resolveClusters(db);
+			assertEquals(all.size()-clusters.size(), excluded.size());
+			for (String cluster : clusters) assertFalse(excluded.contains(cluster));
+		}
+	}
+
+	@Test
+	public void testSequentialExport() throws Exception {
+		DatabaseExporter exporter = new DatabaseExporter(pool).setIncludeClasses(Arrays.asList(TEST_CLASS));
+		File target = new File(dir, "db"+DatabaseExporter.GZIP_EXTENSION);
+		assertEquals(RECORDS, exporter.export(target));
+		try(InputStream in = new GZIPInputStream(new FileInputStream(target))) {
+			String content = new String(ByteStreams.toByteArray(in), StandardCharsets.UTF_8);
+			assertTrue(content.contains("record0"));
+		}
+		//Only target is left in the directory: temporary file is moved
+		assertArrayEquals(new String[]{target.getName()}, dir.list());
+	}
+
+	@Test
+	public void testCancelledExport() throws Exception {
+		DatabaseExporter exporter = new DatabaseExporter(pool);
+		exporter.cancel();
+		File target = new File(dir, "db"+DatabaseExporter.GZIP_EXTENSION);
+		try {
+			exporter.export(target);
+			fail("Cancelled export should fail");
+		} catch (InterruptedIOException e) {
+			//Expected
+		}
+		assertFalse(target.exists());
+		assertEquals(0, dir.list().length);
+	}
+
+	@Test
+	public void testPublish() throws Exception {
+		File artifact = new File(dir, "artifact.gz");
+		File target = new File(dir, "published.gz");
+		Files.write(artifact.toPath(), "first".getBytes(StandardCharsets.UTF_8));
+		DatabaseExporter.publish(artifact, target);
+		assertEquals("first", new String(Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8));
+		//Existing target is replaced by the next export
+		File next = new File(dir, "next.gz");
+		Files.write(next.toPath(), "second".getBytes(StandardCharsets.UTF_8));
+		DatabaseExporter.publish(next, target);
+		assertEquals("second", new String(Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8));
+		assertEquals("first", new String(Files.readAllBytes(artifact.toPath()), StandardCharsets.UTF_8));
+		assertEquals(3, dir.list().length);
+	}
+
+	private static Set<String> getClusters(ODatabaseSession db) {
+		Set<String> ret = new TreeSet<>();
+		OClass oClass = db.getMetadata().getSchema().getClass(TEST_CLASS);
+		for (int clusterId : oClass.getPolymorphicClusterIds()) {
+			ret.add(db.getClusterNameById(clusterId).toUpperCase(Locale.ENGLISH));
+		}
+		return ret;
+	}
+}
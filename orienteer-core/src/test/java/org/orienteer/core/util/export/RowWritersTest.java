@@ -0,0 +1,176 @@
+package org.orienteer.core.util.export;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import com.github.openjson.JSONArray;
+import com.github.openjson.JSONObject;
+import com.google.common.io.ByteStreams;
+
+public class RowWritersTest {
+
+	private static final List<String> COLUMNS = Arrays.asList("name", "count", "flag", "tags");
+
+	private static final List<List<?>> ROWS = Arrays.asList(
+			Arrays.asList("plain", 1, true, Arrays.asList("a", "b")),
+			Arrays.asList("with, comma and \"quotes\"", 2.5, false, null),
+			Arrays.asList("multi\r\nline\ttext <&>", null, null, Arrays.asList()),
+			Arrays.asList(null, -3L, true, Arrays.asList("c")));
+
+	@Test
+	public void testCsvRoundTrip() throws IOException {
+		String csv = new String(write(ExportFormat.CSV), StandardCharsets.UTF_8);
+		List<List<String>> rows = parseCsv(csv);
+		assertEquals(ROWS.size()+1, rows.size());
+		assertEquals(COLUMNS, rows.get(0));
+		for (int i = 0; i < ROWS.size(); i++) {
+			List<String> expected = new ArrayList<>();
+			for (Object value : ROWS.get(i)) {
+				String text = StreamingExporter.toText(value);
+				expected.add(text!=null?text:"");
+			}
+			assertEquals(expected, rows.get(i+1));
+		}
+	}
+
+	@Test
+	public void testJsonLinesRoundTrip() throws IOException {
+		String jsonl = new String(write(ExportFormat.JSONL), StandardCharsets.UTF_8);
+		String[] lines = jsonl.split("\n");
+		assertEquals(ROWS.size(), lines.length);
+		for (int i = 0; i < ROWS.size(); i++) {
+			JSONObject json = new JSONObject(lines[i]);
+			List<?> row = ROWS.get(i);
+			for (int j = 0; j < COLUMNS.size(); j++) {
+				Object value = row.get(j);
+				String column = COLUMNS.get(j);
+				if(value==null) assertFalse(json.has(column));
+				else if(value instanceof List) {
+					JSONArray array = json.getJSONArray(column);
+					assertEquals(((List<?>)value).size(), array.length());
+					for (int k = 0; k < array.length(); k++) assertEquals(((List<?>)value).get(k), array.get(k));
+				} else if(value instanceof Number) assertEquals(((Number)value).doubleValue(), json.getDouble(column), 0.0);
+				else assertEquals(value, json.get(column));
+			}
+		}
+	}
+
+	@Test
+	public void testJsonEscaping() {
+		Map<String, Object> map = new LinkedHashMap<>();
+		map.put("quote\"", "back\\slash\u0001 ");
+		StringBuilder sb = new StringBuilder();
+		JsonLinesRowWriter.appendJson(sb, map);
+		JSONObject json = new JSONObject(sb.toString());
+		assertEquals("back\\slash\u0001 ", json.getString("quote\""));
+	}
+
+	@Test
+	public void testXlsxRoundTrip() throws Exception {
+		Map<String, List<List<String>>> sheets = parseXlsx(write(ExportFormat.XLSX));
+		assertEquals(1, sheets.size());
+		List<List<String>> rows = sheets.get("xl/worksheets/sheet1.xml");
+		assertEquals(ROWS.size()+1, rows.size());
+		assertEquals(COLUMNS, rows.get(0));
+		assertEquals(Arrays.asList("plain", "1", "1", "[\"a\",\"b\"]"), rows.get(1));
+		assertEquals(Arrays.asList("with, comma and \"quotes\"", "2.5", "0", ""), rows.get(2));
+		assertEquals(Arrays.asList("multi\r\nline\ttext <&>", "", "", "[]"), rows.get(3));
+	}
+
+	@Test
+	public void testXlsxSheetsSplit() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try(IRowWriter writer = new XlsxRowWriter(out, COLUMNS, 3)) {
+			for (List<?> row : ROWS) writer.writeRow(row);
+		}
+		Map<String, List<List<String>>> sheets = parseXlsx(out.toByteArray());
+		assertEquals(2, sheets.size());
+		//Every sheet starts with a header row
+		assertEquals(3, sheets.get("xl/worksheets/sheet1.xml").size());
+		assertEquals(COLUMNS, sheets.get("xl/worksheets/sheet2.xml").get(0));
+		assertEquals(3, sheets.get("xl/worksheets/sheet2.xml").size());
+	}
+
+	private static byte[] write(ExportFormat format) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try(IRowWriter writer = format.createRowWriter(out, COLUMNS)) {
+			for (List<?> row : ROWS) writer.writeRow(row);
+		}
+		return out.toByteArray();
+	}
+
+	private static List<List<String>> parseCsv(String csv) {
+		List<List<String>> rows = new ArrayList<>();
+		List<String> row = new ArrayList<>();
+		StringBuilder cell = new StringBuilder();
+		boolean quoted = false;
+		for (int i = 0; i < csv.length(); i++) {
+			char c = csv.charAt(i);
+			if(quoted) {
+				if(c=='"' && i+1<csv.length() && csv.charAt(i+1)=='"') {
+					cell.append('"');
+					i++;
+				} else if(c=='"') quoted = false;
+				else cell.append(c);
+			} else if(c=='"') quoted = true;
+			else if(c==',') {
+				row.add(cell.toString());
+				cell.setLength(0);
+			} else if(c=='\r' && i+1<csv.length() && csv.charAt(i+1)=='\n') {
+				row.add(cell.toString());
+				cell.setLength(0);
+				rows.add(row);
+				row = new ArrayList<>();
+				i++;
+			} else cell.append(c);
+		}
+		assertTrue("CSV should end by line break", row.isEmpty() && cell.length()==0);
+		return rows;
+	}
+
+	private static Map<String, List<List<String>>> parseXlsx(byte[] xlsx) throws Exception {
+		Map<String, List<List<String>>> sheets = new TreeMap<>();
+		boolean workbook = false;
+		try(ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(xlsx))) {
+			ZipEntry entry;
+			while((entry = zip.getNextEntry())!=null) {
+				byte[] content = ByteStreams.toByteArray(zip);
+				if(entry.getName().equals("xl/workbook.xml")) workbook = true;
+				if(!entry.getName().startsWith("xl/worksheets/")) continue;
+				Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new ByteArrayInputStream(content));
+				List<List<String>> rows = new ArrayList<>();
+				NodeList rowNodes = doc.getElementsByTagName("row");
+				for (int i = 0; i < rowNodes.getLength(); i++) {
+					List<String> row = new ArrayList<>();
+					NodeList cells = ((Element)rowNodes.item(i)).getElementsByTagName("c");
+					for (int j = 0; j < cells.getLength(); j++) row.add(cells.item(j).getTextContent());
+					rows.add(row);
+				}
+				sheets.put(entry.getName(), rows);
+			}
+		}
+		assertTrue("Workbook should be written", workbook);
+		return sheets;
+	}
+}
@@ -0,0 +1,162 @@
+package org.orienteer.core.util.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.orientechnologies.orient.core.db.ODatabaseSession;
+import com.orientechnologies.orient.core.db.ODatabaseType;
+import com.orientechnologies.orient.core.db.OrientDB;
+import com.orientechnologies.orient.core.db.OrientDBConfig;
+import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * JMH benchmark for {@link StreamingExporter}: exports whole class into every {@link ExportFormat}.
+ * Rows per second are reported by "rows" counter, peak heap usage during an iteration is printed after the iteration
+ * and allocation rate is reported by {@link GCProfiler}. Run with a small heap (for example -Xmx256m)
+ * to make sure that memory doesn't depend on number of rows.
+ * Run: mvn test-compile exec:java -Dexec.mainClass=org.orienteer.core.util.export.StreamingExporterBenchmark -Dexec.classpathScope=test
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx256m")
+public class StreamingExporterBenchmark {
+
+	private static final String CLASS_NAME = "ExportBenchmark";
+
+	@Param({"100000", "500000"})
+	public int rows;
+
+	@Param({"CSV", "JSONL", "XLSX"})
+	public ExportFormat format;
+
+	private OrientDB orientDB;
+	private ODatabaseSession db;
+	private StreamingExporter exporter;
+	private String sql;
+
+	/**
+	 * Counters reported by JMH as rates
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Counters {
+		public long rows;
+	}
+
+	@Setup(Level.Trial)
+	public void setup() {
+		orientDB = new OrientDB("embedded:", OrientDBConfig.defaultConfig());
+		String dbName = "ExportBenchmark"+System.nanoTime();
+		orientDB.create(dbName, ODatabaseType.MEMORY);
+		db = orientDB.open(dbName, "admin", "admin");
+		OClass oClass = db.getMetadata().getSchema().createClass(CLASS_NAME);
+		oClass.createProperty("name", OType.STRING);
+		oClass.createProperty("description", OType.STRING);
+		oClass.createProperty("counter", OType.INTEGER);
+		oClass.createProperty("amount", OType.DOUBLE);
+		oClass.createProperty("created", OType.DATETIME);
+		oClass.createProperty("tags", OType.EMBEDDEDLIST, OType.STRING);
+		db.declareIntent(new OIntentMassiveInsert());
+		for(int i=0; i<rows; i++) {
+			ODocument doc = new ODocument(CLASS_NAME);
+			doc.field("name", "Name "+i);
+			doc.field("description", "Description of \"document\", number "+i+"\nwith second line & <markup>");
+			doc.field("counter", i);
+			doc.field("amount", i*1.5);
+			doc.field("created", new Date());
+			doc.field("tags", Arrays.asList("tag"+(i%10), "tag"+(i%100)));
+			doc.save();
+		}
+		db.declareIntent(null);
+		exporter = StreamingExporter.forClass(oClass, format);
+		sql = StreamingExporter.getSqlForClass(oClass);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		db.close();
+		orientDB.close();
+	}
+
+	@Setup(Level.Iteration)
+	public void resetPeakHeap() {
+		System.gc();
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if(pool.getType()==MemoryType.HEAP) pool.resetPeakUsage();
+		}
+	}
+
+	@TearDown(Level.Iteration)
+	public void reportPeakHeap() {
+		long peak = 0;
+		for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+			if(pool.getType()==MemoryType.HEAP) peak += pool.getPeakUsage().getUsed();
+		}
+		System.out.println("Peak heap: "+(peak / (1024*1024))+" MB");
+	}
+
+	@Benchmark
+	public long export(Counters counters) throws IOException {
+		CountingOutputStream out = new CountingOutputStream();
+		counters.rows += exporter.export(db, sql, out);
+		return out.count;
+	}
+
+	/**
+	 * {@link OutputStream} which only counts written bytes
+	 */
+	private static class CountingOutputStream extends OutputStream {
+		private long count;
+
+		@Override
+		public void write(int b) {
+			count++;
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			count+=len;
+		}
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(StreamingExporterBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(opt).run();
+	}
+
+}
@@ -0,0 +1,151 @@
+package org.orienteer.core.wicket.pageStore;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+
+import org.apache.wicket.page.IManageablePage;
+import org.apache.wicket.serialize.ISerializer;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+
+public class HazelcastPagesCacheTest {
+
+	private static HazelcastInstance hazelcast;
+
+	@BeforeClass
+	public static void startHazelcast() {
+		Config config = new Config("pages-cache-test");
+		config.getNetworkConfig().getJoin().getMulticastConfig().setEnabled(false);
+		hazelcast = Hazelcast.newHazelcastInstance(config);
+	}
+
+	@AfterClass
+	public static void stopHazelcast() {
+		hazelcast.shutdown();
+	}
+
+	@Test
+	public void testStoreAndRestore() {
+		testStoreAndRestore(new HazelcastPagesCache(hazelcast, new TestSerializer(), 3, false));
+	}
+
+	@Test
+	public void testStoreAndRestoreWithNearCache() {
+		testStoreAndRestore(new HazelcastPagesCache(hazelcast, new TestSerializer(), 3, true));
+	}
+
+	private void testStoreAndRestore(HazelcastPagesCache cache) {
+		try {
+			cache.storePage("session1", 1, new TestPage(1));
+			cache.storePage("session1", 2, new TestPage(2));
+			cache.storePage("session2", 1, new TestPage(10));
+
+			assertEquals(1, cache.getPage("session1", 1).getPageId());
+			assertEquals(2, cache.getPage("session1", 2).getPageId());
+			assertEquals(10, cache.getPage("session2", 1).getPageId());
+			assertNull(cache.getPage("session1", 3));
+			assertNull(cache.getPage("session3", 1));
+			assertEquals(2, cache.getSessionsCount());
+
+			cache.storePage("session1", 3, new TestPage(3));
+			cache.storePage("session1", 4, new TestPage(4));
+			assertNull("The oldest page should be evicted", cache.getPage("session1", 1));
+			assertNotNull(cache.getPage("session1", 4));
+
+			cache.removePage("session1", 4);
+			assertNull(cache.getPage("session1", 4));
+			assertNotNull(cache.getPage("session1", 3));
+
+			cache.removePages("session1");
+			assertNull(cache.getPage("session1", 3));
+			assertEquals(0, cache.getStoredBytes("session1"));
+			assertEquals(1, cache.getSessionsCount());
+		} finally {
+			cache.destroy();
+		}
+	}
+
+	@Test
+	public void testCompression() {
+		HazelcastPagesCache cache = new HazelcastPagesCache(hazelcast, new TestSerializer(), 3, false);
+		try {
+			TestPage page = new TestPage(1);
+			int rawSize = new TestSerializer().serialize(page).length;
+			cache.storePage("session", 1, page);
+			long stored = cache.getStoredBytes("session");
+			assertTrue("Stored bytes should be positive", stored>0);
+			assertTrue("Page should be compressed: "+stored+" of "+rawSize, stored<rawSize);
+			cache.storePage("session", 1, page);
+			assertEquals("Page should be replaced", stored, cache.getStoredBytes("session"));
+		} finally {
+			cache.destroy();
+		}
+	}
+
+	private static class TestPage implements IManageablePage {
+		private static final long serialVersionUID = 1L;
+		private final int id;
+		private final byte[] payload = new byte[4096];
+
+		public TestPage(int id) {
+			this.id = id;
+			Arrays.fill(payload, (byte) id);
+		}
+
+		@Override
+		public boolean isPageStateless() {
+			return false;
+		}
+
+		@Override
+		public int getPageId() {
+			return id;
+		}
+
+		@Override
+		public void detach() {
+		}
+
+		@Override
+		public boolean setFreezePageId(boolean freeze) {
+			return false;
+		}
+	}
+
+	private static class TestSerializer implements ISerializer {
+
+		@Override
+		public byte[] serialize(Object object) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			try(ObjectOutputStream oos = new ObjectOutputStream(out)) {
+				oos.writeObject(object);
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			return out.toByteArray();
+		}
+
+		@Override
+		public Object deserialize(byte[] data) {
+			try(ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data))) {
+				return ois.readObject();
+			} catch (IOException | ClassNotFoundException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+}
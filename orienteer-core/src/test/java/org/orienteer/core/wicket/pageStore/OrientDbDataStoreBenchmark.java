@@ -0,0 +1,131 @@
+package org.orienteer.core.wicket.pageStore;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import com.orientechnologies.orient.core.db.ODatabasePool;
+import com.orientechnologies.orient.core.db.ODatabaseSession;
+import com.orientechnologies.orient.core.db.ODatabaseType;
+import com.orientechnologies.orient.core.db.OrientDB;
+import com.orientechnologies.orient.core.db.OrientDBConfig;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OClass.INDEX_TYPE;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+
+/**
+ * JMH benchmark for {@link OrientDbDataStore} which simulates many concurrent sessions storing and restoring pages.
+ * Compare lookups and writes without index (previous behavior) with indexed ones.
+ * Run: mvn test-compile exec:java -Dexec.mainClass=org.orienteer.core.wicket.pageStore.OrientDbDataStoreBenchmark -Dexec.classpathScope=test
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Threads(16)
+@Fork(1)
+public class OrientDbDataStoreBenchmark {
+
+	private static final int PAGES_PER_SESSION = 5;
+	private static final int PAGE_SIZE = 8 * 1024;
+
+	@Param({"1000", "5000"})
+	public int sessions;
+
+	@Param({"false", "true"})
+	public boolean indexed;
+
+	private OrientDB orientDB;
+	private ODatabasePool pool;
+	private OrientDbDataStore store;
+	private byte[] page;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		orientDB = new OrientDB("embedded:", OrientDBConfig.defaultConfig());
+		String dbName = "DataStoreBenchmark"+System.nanoTime();
+		orientDB.create(dbName, ODatabaseType.MEMORY);
+		try(ODatabaseSession db = orientDB.open(dbName, "admin", "admin")) {
+			OClass oClass = db.getMetadata().getSchema().createClass(OWicketData.CLASS_NAME);
+			oClass.createProperty(OWicketData.PROP_ID, OType.INTEGER);
+			oClass.createProperty(OWicketData.PROP_SESSION_ID, OType.STRING);
+			oClass.createProperty(OWicketData.PROP_DATA, OType.BINARY);
+			if(indexed) oClass.createIndex(OWicketData.INDEX_SESSION_ID_ID, INDEX_TYPE.UNIQUE,
+										OWicketData.PROP_SESSION_ID, OWicketData.PROP_ID);
+		}
+		pool = new ODatabasePool(orientDB, dbName, "admin", "admin");
+		page = new byte[PAGE_SIZE];
+		ThreadLocalRandom.current().nextBytes(page);
+		store = new OrientDbDataStore() {
+			@Override
+			protected <R> R withDatabase(Function<ODatabaseDocument, R> function) {
+				try(ODatabaseSession db = pool.acquire()) {
+					return function.apply(db);
+				}
+			}
+		};
+		for(int i=0; i<sessions; i++) {
+			for(int j=0; j<PAGES_PER_SESSION; j++) store.storeData(sessionId(i), j, page);
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		store.destroy();
+		pool.close();
+		orientDB.close();
+	}
+
+	private static String sessionId(int session) {
+		return "session-"+session;
+	}
+
+	@Benchmark
+	public void storePage() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		store.storeData(sessionId(random.nextInt(sessions)), random.nextInt(PAGES_PER_SESSION), page);
+	}
+
+	@Benchmark
+	public byte[] restorePage() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		return store.getData(sessionId(random.nextInt(sessions)), random.nextInt(PAGES_PER_SESSION));
+	}
+
+	@Benchmark
+	public void expireSession() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		String sessionId = sessionId(random.nextInt(sessions));
+		store.removeData(sessionId);
+		store.storeData(sessionId, 0, page);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(OrientDbDataStoreBenchmark.class.getSimpleName())
+				.build();
+		new Runner(opt).run();
+	}
+
+}
@@ -0,0 +1,128 @@
+package org.orienteer.core.widget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.orienteer.core.module.OWidgetsModule.OCLASS_DASHBOARD;
+import static org.orienteer.core.module.OWidgetsModule.OPROPERTY_CLASS;
+import static org.orienteer.core.module.OWidgetsModule.OPROPERTY_DOMAIN;
+import static org.orienteer.core.module.OWidgetsModule.OPROPERTY_TAB;
+
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.orienteer.junit.OrienteerTestRunner;
+import org.orienteer.junit.Sudo;
+
+import com.google.inject.Inject;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OSchema;
+import com.orientechnologies.orient.core.metadata.security.OSecurityShared;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+import ru.ydn.wicket.wicketorientdb.utils.DBClosure;
+
+@RunWith(OrienteerTestRunner.class)
+public class DefaultDashboardManagerTest {
+
+	private static final String DOMAIN = "dashboard-test";
+	private static final String TAB = "tab";
+	private static final String RESTRICTED_TAB = "restricted";
+	private static final String TEST_CLASS = "DashboardManagerTest";
+	private static final String TEST_SUB_CLASS = "DashboardManagerSubTest";
+	private static final String RESTRICTED_DASHBOARD = "DashboardManagerRestricted";
+
+	@Inject
+	private IWidgetTypesRegistry widgetTypesRegistry;
+
+	@Inject
+	private IDashboardManager dashboardManager;
+
+	private ORID generic;
+
+	@Before
+	public void init() {
+		generic = DBClosure.sudo(db -> {
+			OSchema schema = db.getMetadata().getSchema();
+			OClass testClass = schema.createClass(TEST_CLASS);
+			schema.createClass(TEST_SUB_CLASS, testClass);
+			schema.createClass(RESTRICTED_DASHBOARD, schema.getClass(OCLASS_DASHBOARD),
+								schema.getClass(OSecurityShared.RESTRICTED_CLASSNAME));
+			return newDashboard(OCLASS_DASHBOARD, null);
+		});
+	}
+
+	@After
+	public void destroy() {
+		DBClosure.sudoConsumer(db -> {
+			db.command("delete from "+OCLASS_DASHBOARD+" where "+OPROPERTY_DOMAIN+" = ?", DOMAIN).close();
+			OSchema schema = db.getMetadata().getSchema();
+			schema.dropClass(RESTRICTED_DASHBOARD);
+			schema.dropClass(TEST_SUB_CLASS);
+			schema.dropClass(TEST_CLASS);
+		});
+	}
+
+	@Test
+	@Sudo
+	public void testCachedResolution() {
+		DefaultDashboardManager manager = new DefaultDashboardManager(widgetTypesRegistry);
+		OClass subClass = getOClass(TEST_SUB_CLASS);
+		assertEquals(generic, manager.getExistingDashboard(DOMAIN, TAB, null, subClass).getIdentity());
+		assertEquals(Arrays.asList(TAB), manager.listExistingTabs(DOMAIN, null));
+		ORID forClass = DBClosure.sudo(db -> newDashboard(OCLASS_DASHBOARD, TEST_CLASS));
+		//Hooks invalidate cache of the application's manager only
+		assertEquals(generic, manager.getExistingDashboard(DOMAIN, TAB, null, subClass).getIdentity());
+		assertEquals(forClass, dashboardManager.getExistingDashboard(DOMAIN, TAB, null, subClass).getIdentity());
+		manager.invalidateCache();
+		assertEquals(forClass, manager.getExistingDashboard(DOMAIN, TAB, null, subClass).getIdentity());
+		//The closest class wins
+		ORID forSubClass = DBClosure.sudo(db -> newDashboard(OCLASS_DASHBOARD, TEST_SUB_CLASS));
+		assertEquals(forSubClass, dashboardManager.getExistingDashboard(DOMAIN, TAB, null, subClass).getIdentity());
+		assertEquals(forClass, dashboardManager.getExistingDashboard(DOMAIN, TAB, null, getOClass(TEST_CLASS)).getIdentity());
+		assertNull(dashboardManager.getExistingDashboard(DOMAIN, "unknown", null, subClass));
+	}
+
+	@Test
+	@Sudo(value="reader", password="reader")
+	public void testUnreadableDashboardIsSkipped() {
+		ORID restricted = DBClosure.sudo(db -> newDashboard(RESTRICTED_DASHBOARD, TEST_CLASS));
+		OClass oClass = getOClass(TEST_CLASS);
+		//The best match is not readable by the reader: the next readable one is used
+		assertEquals(generic, dashboardManager.getExistingDashboard(DOMAIN, TAB, null, oClass).getIdentity());
+		assertEquals(restricted, DBClosure.sudo(db -> dashboardManager.getExistingDashboard(DOMAIN, TAB, null, oClass).getIdentity()));
+	}
+
+	@Test
+	@Sudo(value="reader", password="reader")
+	public void testTabsOfUnreadableDashboardsAreSkipped() {
+		DBClosure.sudo(db -> newDashboard(RESTRICTED_DASHBOARD, TEST_CLASS, RESTRICTED_TAB));
+		OClass oClass = getOClass(TEST_CLASS);
+		assertEquals(Arrays.asList(TAB), dashboardManager.listExistingTabs(DOMAIN, null));
+		assertEquals(Arrays.asList(), dashboardManager.listExistingTabs(DOMAIN, null, oClass));
+		//Tabs are cached once for all users
+		assertEquals(Arrays.asList(TAB, RESTRICTED_TAB), DBClosure.sudo(db -> dashboardManager.listExistingTabs(DOMAIN, null)));
+		assertEquals(Arrays.asList(RESTRICTED_TAB), DBClosure.sudo(db -> dashboardManager.listExistingTabs(DOMAIN, null, oClass)));
+		assertEquals(Arrays.asList(TAB), dashboardManager.listExistingTabs(DOMAIN, null));
+	}
+
+	private static OClass getOClass(String className) {
+		return DBClosure.sudo(db -> db.getMetadata().getSchema().getClass(className));
+	}
+
+	private static ORID newDashboard(String dashboardClass, String className) {
+		return newDashboard(dashboardClass, className, TAB);
+	}
+
+	private static ORID newDashboard(String dashboardClass, String className, String tab) {
+		ODocument doc = new ODocument(dashboardClass);
+		doc.field(OPROPERTY_DOMAIN, DOMAIN);
+		doc.field(OPROPERTY_TAB, tab);
+		doc.field(OPROPERTY_CLASS, className);
+		doc.save();
+		return doc.getIdentity();
+	}
+}
@@ -0,0 +1,81 @@
+package org.orienteer.core.widget;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.orienteer.core.component.widget.document.function.OFunctionExecuteWidget;
+import org.orienteer.core.component.widget.schema.ODatabaseConfigurationWidget;
+import org.orienteer.core.component.widget.schema.OClassesWidget;
+import org.orienteer.core.component.widget.schema.SchemaIndexesWidget;
+
+public class DefaultWidgetTypesRegistryTest {
+
+	private DefaultWidgetTypesRegistry registry;
+
+	@Before
+	public void init() {
+		registry = new DefaultWidgetTypesRegistry();
+		registry.register(ODatabaseConfigurationWidget.class)
+				.register(SchemaIndexesWidget.class)
+				.register(OClassesWidget.class)
+				.register(OFunctionExecuteWidget.class);
+	}
+
+	@Test
+	public void testLookupByIdAndClass() {
+		assertEquals(OClassesWidget.class, registry.lookupByTypeId("list-oclasses").getWidgetClass());
+		assertEquals("schema-indexes", registry.lookupByWidgetClass(SchemaIndexesWidget.class).getId());
+		assertNull(registry.lookupByTypeId("unknown"));
+		assertNull(registry.lookupByTypeId(null));
+		assertNull(registry.lookupByWidgetClass(null));
+	}
+
+	@Test
+	public void testLookupByDomain() {
+		//Order of widget types is preserved
+		assertEquals(Arrays.asList("list-oclasses", "schema-indexes", "odatabase-configuration"),
+						ids(registry.lookupByDomain("schema", null)));
+		assertEquals(Arrays.asList("schema-indexes", "odatabase-configuration"),
+						ids(registry.<Void>lookupByDomain("schema", w -> w.getOrder()>=30)));
+		assertTrue(registry.lookupByDomain("unknown", null).isEmpty());
+		assertEquals(4, registry.listWidgetTypes(null).size());
+	}
+
+	@Test
+	public void testLookupByDomainAndTab() {
+		assertEquals(Arrays.asList("schema-indexes"), ids(registry.lookupByDomainAndTab("schema", "indexes", null)));
+		assertTrue(registry.lookupByDomainAndTab("schema", "unknown", null).isEmpty());
+		assertTrue(registry.lookupByDomainAndTab("unknown", "indexes", null).isEmpty());
+		//Widget types without a tab are applicable to any tab
+		assertEquals(Arrays.asList("function-executor"), ids(registry.lookupByDomainAndTab("document", "parameters", null)));
+		assertEquals(Arrays.asList("function-executor"), ids(registry.lookupByDomainAndTab("document", "", null)));
+	}
+
+	@Test
+	public void testIndexIsRebuiltOnChanges() {
+		assertEquals(Arrays.asList("schema-indexes"), ids(registry.lookupByDomainAndTab("schema", "indexes", null)));
+		registry.unregister(SchemaIndexesWidget.class);
+		assertNull(registry.lookupByTypeId("schema-indexes"));
+		assertNull(registry.lookupByWidgetClass(SchemaIndexesWidget.class));
+		assertTrue(registry.lookupByDomainAndTab("schema", "indexes", null).isEmpty());
+		assertEquals(Arrays.asList("list-oclasses", "odatabase-configuration"), ids(registry.lookupByDomain("schema", null)));
+		registry.register(SchemaIndexesWidget.class);
+		assertEquals(Arrays.asList("schema-indexes"), ids(registry.lookupByDomainAndTab("schema", "indexes", null)));
+		registry.unregister("org.orienteer.core.component.widget.schema");
+		assertTrue(registry.lookupByDomain("schema", null).isEmpty());
+		assertEquals(1, registry.listWidgetTypes(null).size());
+	}
+
+	private static List<String> ids(List<? extends IWidgetType<?>> widgetTypes) {
+		List<String> ret = new ArrayList<>();
+		for (IWidgetType<?> widgetType : widgetTypes) ret.add(widgetType.getId());
+		return ret;
+	}
+}
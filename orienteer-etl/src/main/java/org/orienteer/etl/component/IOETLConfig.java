@@ -22,6 +22,7 @@ import org.orienteer.core.method.filters.PlaceFilter;
 import org.orienteer.core.method.filters.WidgetTypeFilter;
 import org.orienteer.core.tasks.IOTask;
 import org.orienteer.core.tasks.IOTaskSessionPersisted;
+import org.orienteer.core.tasks.OTaskManager;
 import org.orienteer.core.tasks.OTaskSessionRuntime;
 import org.orienteer.core.web.AbstractWidgetDisplayModeAwarePage;
 import org.orienteer.core.web.ODocumentPage;
@@ -49,7 +50,6 @@ public interface IOETLConfig extends IOTask<IOTaskSessionPersisted> {
 	public default OTaskSessionRuntime<IOTaskSessionPersisted> startNewSession() {
 		
 		final OTaskSessionRuntime<IOTaskSessionPersisted> session = OTaskSessionRuntime.simpleSession(this);
-		session.start();
 
 		try {
 			final String configuration = getConfig();
@@ -57,29 +57,21 @@ public interface IOETLConfig extends IOTask<IOTaskSessionPersisted> {
 													.parseConfigRecord(session,configuration);
 //			final OrienteerETLProcessorConfigurator processor = OrienteerETLProcessorConfigurator.parseConfigRecord(session,configuration);
 
-			Thread thread = new Thread(new Runnable(){
-				@Override
-				public void run() {
-					try {
-						processor.execute();
-					} catch (Exception e) {
-						LOG.error("ETL Processor runtime error!", e);
-						session.getOTaskSessionPersisted()
-							.appendError("ETL Processor runtime error!\n"+Throwables.getStackTraceAsString(e))
-							.persist();
-						Reflect.on(processor).call("end");
-					}finally{
-						session.finish();
-					}
+			OTaskManager.get().submit(session, () -> {
+				try {
+					processor.execute();
+				} catch (Exception e) {
+					LOG.error("ETL Processor runtime error!", e);
+					session.getOTaskSessionPersisted()
+						.appendError("ETL Processor runtime error!\n"+Throwables.getStackTraceAsString(e));
+					Reflect.on(processor).call("end");
 				}
 			});
-
-			thread.start();
 		} catch (Exception e) {
 			LOG.error("ETL Processor execute error!", e);
+			session.start();
 			session.getOTaskSessionPersisted()
-				.appendError("ETL Processor execute error!\n"+Throwables.getStackTraceAsString(e))
-				.persist();
+				.appendError("ETL Processor execute error!\n"+Throwables.getStackTraceAsString(e));
 			session.finish();
 		}
 		
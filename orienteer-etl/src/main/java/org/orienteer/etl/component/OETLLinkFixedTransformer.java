@@ -18,32 +18,53 @@
 
 package org.orienteer.etl.component;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.orientechnologies.common.collection.OMultiValue;
 import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
 import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.exception.OConfigurationException;
+import com.orientechnologies.orient.core.index.OIndex;
+import com.orientechnologies.orient.core.index.OIndexDefinition;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.executor.OResult;
+import com.orientechnologies.orient.core.sql.executor.OResultSet;
 import com.orientechnologies.orient.etl.OETLProcessHaltedException;
 import com.orientechnologies.orient.etl.transformer.OETLAbstractLookupTransformer;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.logging.Level;
 
 /** 
- * Converts a JOIN in LINK
+ * Converts a JOIN in LINK.
+ * Results of lookups are cached, so repeated join values don't issue queries. Lookup by index can be preloaded completely.
+ * Unresolved join values are not cached by default: linked records can be loaded later by the same pipeline
  * TODO: Remove when https://github.com/orientechnologies/orientdb/issues/9559 will be resolved
  */
 public class OETLLinkFixedTransformer extends OETLAbstractLookupTransformer {
+  public static final int DEFAULT_CACHE_SIZE = 10000;
+
   private String joinValue;
   private String linkFieldName;
   private OType linkFieldType;
+  private int cacheSize = DEFAULT_CACHE_SIZE;
+  private boolean preload = false;
+  private boolean cacheUnresolved = false;
+
+  private Cache<Object, Optional<Object>> cache;
+  private volatile Map<Object, Object> preloaded;
+  private OType preloadedKeyType;
 
   @Override
   public ODocument getConfiguration() {
@@ -57,6 +78,11 @@ public class OETLLinkFixedTransformer extends OETLAbstractLookupTransformer {
                 + "{linkFieldName:{optional:false,description:'field name containing the link to set'}},"
                 + "{linkFieldType:{optional:true,description:'field type containing the link to set. Use LINK for single link and LINKSET or LINKLIST for many'}},"
                 + "{lookup:{optional:false,description:'<Class>.<property> or Query to execute'}},"
+                + "{cacheSize:{optional:true,description:'max number of cached lookup results. 0 disables caching. Default is "
+                + DEFAULT_CACHE_SIZE
+                + "'}},"
+                + "{cacheUnresolved:{optional:true,description:'cache join values which were not resolved. Use only if linked records are not loaded by the same pipeline. Default is false'}},"
+                + "{preload:{optional:true,description:'load whole <Class>.<property> index into memory before processing. Default is false'}},"
                 + "{unresolvedLinkAction:{optional:true,description:'action when a unresolved link is found',values:"
                 + stringArray2Json(ACTION.values())
                 + "}}],"
@@ -71,6 +97,82 @@ public class OETLLinkFixedTransformer extends OETLAbstractLookupTransformer {
     linkFieldName = iConfiguration.field("linkFieldName");
     if (iConfiguration.containsField("linkFieldType"))
       linkFieldType = OType.valueOf((String) iConfiguration.field("linkFieldType"));
+    if (iConfiguration.containsField("cacheSize"))
+      cacheSize = iConfiguration.<Number>field("cacheSize").intValue();
+    if (iConfiguration.containsField("cacheUnresolved"))
+      cacheUnresolved = iConfiguration.<Boolean>field("cacheUnresolved");
+    if (iConfiguration.containsField("preload"))
+      preload = iConfiguration.<Boolean>field("preload");
+
+    cache = cacheSize > 0 ? CacheBuilder.newBuilder().maximumSize(cacheSize).build() : null;
+    preloaded = null;
+  }
+
+  @Override
+  public synchronized void begin(ODatabaseDocument db) {
+    super.begin(db);
+    if (preload && preloaded == null) preloaded = preload((ODatabaseDocumentInternal) db);
+  }
+
+  /**
+   * Load all entries of the lookup index: join value -&gt; RID or list of RIDs
+   */
+  private Map<Object, Object> preload(ODatabaseDocumentInternal db) {
+    if (lookup == null || lookup.toUpperCase(Locale.ENGLISH).startsWith("SELECT"))
+      throw new OConfigurationException("Preload is supported only for lookup by <Class>.<property> index");
+    final OIndex index = db.getMetadata().getIndexManagerInternal().getIndex(db, lookup);
+    if (index == null) throw new OConfigurationException("Index '" + lookup + "' for preload was not found");
+    final OIndexDefinition definition = index.getDefinition();
+    if (definition.getFields().size() != 1)
+      throw new OConfigurationException("Preload is supported only for single field indexes, but '" + lookup + "' has fields " + definition.getFields());
+    preloadedKeyType = definition.getTypes()[0];
+
+    final Map<Object, Object> ret = new HashMap<Object, Object>();
+    try (OResultSet rs = db.query("select @rid as rid, `" + definition.getFields().get(0) + "` as key from `" + definition.getClassName() + "`")) {
+      while (rs.hasNext()) {
+        final OResult row = rs.next();
+        final Object key = row.getProperty("key");
+        if (key == null) continue;
+        final Object rid = row.<OIdentifiable>getProperty("rid").getIdentity();
+        ret.merge(key, rid, (prev, value) -> {
+          final List<Object> rids;
+          if (prev instanceof List) rids = (List<Object>) prev;
+          else {
+            rids = new ArrayList<Object>();
+            rids.add(prev);
+          }
+          rids.add(value);
+          return rids;
+        });
+      }
+    }
+    log(Level.INFO, "%s: preloaded %d entries of index '%s'", getName(), ret.size(), lookup);
+    return ret;
+  }
+
+  /**
+   * Lookup with usage of preloaded index or cache
+   */
+  protected Object cachedLookup(ODatabaseDocumentInternal db, final Object value) {
+    if (value == null) return lookup(db, value, true);
+    Object ret;
+    final Map<Object, Object> preloaded = this.preloaded;
+    if (preloaded != null) {
+      ret = preloaded.get(OType.convert(value, preloadedKeyType.getDefaultJavaType()));
+      // Unresolved link can be created during processing
+      if (ret == null && unresolvedLinkAction == ACTION.CREATE) ret = lookup(db, value, true);
+    } else if (cache != null) {
+      Optional<Object> cached = cache.getIfPresent(value);
+      if (cached != null) ret = cached.orElse(null);
+      else {
+        ret = lookup(db, value, true);
+        // Created documents are not cached: they get persistent RID only on commit
+        if (ret != null) cache.put(value, Optional.of(ret));
+        else if (cacheUnresolved && unresolvedLinkAction != ACTION.CREATE) cache.put(value, Optional.empty());
+      }
+    } else return lookup(db, value, true);
+    // Collections are modified further, so should not be shared between documents
+    return ret instanceof Collection ? new ArrayList<Object>((Collection<?>) ret) : ret;
   }
 
   @Override
@@ -99,10 +201,10 @@ public class OETLLinkFixedTransformer extends OETLAbstractLookupTransformer {
       // RESOLVE SINGLE JOINS
       final Collection<Object> singleJoinsResult = new ArrayList<Object>();
       for (Object o : OMultiValue.getMultiValueIterable(joinRuntimeValue)) {
-        singleJoinsResult.add(lookup((ODatabaseDocumentInternal) db, o, true));
+        singleJoinsResult.add(cachedLookup((ODatabaseDocumentInternal) db, o));
       }
       result = singleJoinsResult;
-    } else result = lookup((ODatabaseDocumentInternal) db, joinRuntimeValue, true);
+    } else result = cachedLookup((ODatabaseDocumentInternal) db, joinRuntimeValue);
 
     log(Level.FINE, "joinRuntimeValue=%s, lookupResult=%s", joinRuntimeValue, result);
 
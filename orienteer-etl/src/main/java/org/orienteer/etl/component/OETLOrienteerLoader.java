@@ -1,9 +1,13 @@
 package org.orienteer.etl.component;
 
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
-import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 
@@ -13,6 +17,7 @@ import com.orientechnologies.orient.core.command.OCommandContext;
 import com.orientechnologies.orient.core.config.OGlobalConfiguration;
 import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
 import com.orientechnologies.orient.core.db.ODatabasePool;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.OrientDB;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
 import com.orientechnologies.orient.core.exception.OConfigurationException;
@@ -23,6 +28,7 @@ import com.orientechnologies.orient.core.metadata.schema.OClassImpl;
 import com.orientechnologies.orient.core.metadata.schema.OProperty;
 import com.orientechnologies.orient.core.metadata.schema.OSchema;
 import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.ORecord;
 import com.orientechnologies.orient.core.record.OVertex;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.storage.ORecordDuplicatedException;
@@ -36,8 +42,9 @@ import ru.ydn.wicket.wicketorientdb.IOrientDbSettings;
 import ru.ydn.wicket.wicketorientdb.OrientDbWebSession;
 
 /**
- * Loader for OrientDB ETL to Orienteer
- *
+ * Loader for OrientDB ETL to Orienteer.
+ * If 'batchCommit' is set, every worker of parallel ETL has own session and commits batches of records in own transaction.
+ * Schema is checked only once per property: not per every loaded record
  */
 public class OETLOrienteerLoader extends OETLAbstractLoader {
 
@@ -60,17 +67,115 @@ public class OETLOrienteerLoader extends OETLAbstractLoader {
 	protected boolean standardElementConstraints = true;
 	protected boolean tx = false;
 	protected int batchCommitSize = 0;
-	protected AtomicLong batchCounter = new AtomicLong(0);
 	protected boolean wal = true;
 	protected boolean txUseLog = false;
 	protected boolean skipDuplicates = false;
 
+	private final ConcurrentMap<String, Set<String>> knownProperties = new ConcurrentHashMap<>();
+	private final ThreadLocal<OETLBatchWriter> currentWriter = new ThreadLocal<>();
+	private final List<OETLBatchWriter> writers = new CopyOnWriteArrayList<>();
+
+	private final AtomicLong loaded = new AtomicLong();
+	private final AtomicLong batches = new AtomicLong();
+	private final AtomicLong commitNanos = new AtomicLong();
+	private volatile long startNanos;
+
+	/**
+	 * Writer of a single ETL worker: it has own DB session and commits records by batches in own transaction,
+	 * so workers don't contend for the same transaction
+	 */
+	private class OETLBatchWriter {
+		private final ODatabaseDocument db;
+		private final List<ORecord> batch;
+		private volatile boolean closed = false;
+
+		public OETLBatchWriter(ODatabaseDocument db) {
+			this.db = db;
+			this.batch = new ArrayList<>(batchCommitSize);
+		}
+
+		public void add(ORecord record) {
+			batch.add(record);
+			if (batch.size() >= batchCommitSize) flush();
+		}
+
+		public void flush() {
+			if (batch.isEmpty()) return;
+			final int size = batch.size();
+			long start = System.nanoTime();
+			db.activateOnCurrentThread();
+			try {
+				db.begin();
+				db.getTransaction().setUsingLog(txUseLog);
+				for (ORecord record : batch) {
+					save(db, record);
+				}
+				db.commit();
+			} catch (ORecordDuplicatedException e) {
+				if (db.getTransaction().isActive()) db.rollback();
+				if (!skipDuplicates) throw e;
+				// Fallback to saving one by one to skip only duplicated records
+				for (ORecord record : batch) {
+					try {
+						save(db, record);
+					} catch (ORecordDuplicatedException e1) {
+						// SKIP
+					}
+				}
+			} catch (RuntimeException e) {
+				if (db.getTransaction().isActive()) db.rollback();
+				throw e;
+			} finally {
+				batch.clear();
+			}
+			loaded.addAndGet(size);
+			batches.incrementAndGet();
+			commitNanos.addAndGet(System.nanoTime() - start);
+			log(Level.FINE, "committed document batch %d", progress.get());
+		}
+
+		public void close() {
+			closed = true;
+			db.activateOnCurrentThread();
+			db.close();
+		}
+	}
+
 	public OETLOrienteerLoader() {}
 
 	public ODatabasePool getPool() {
 		return pool;
 	}
 
+	/**
+	 * @return number of records saved by the loader
+	 */
+	public long getLoaded() {
+		return loaded.get();
+	}
+
+	/**
+	 * @return number of committed batches
+	 */
+	public long getBatches() {
+		return batches.get();
+	}
+
+	/**
+	 * @return total time spent on commits of batches in milliseconds
+	 */
+	public long getCommitTime() {
+		return TimeUnit.NANOSECONDS.toMillis(commitNanos.get());
+	}
+
+	/**
+	 * @return number of saved records per second since start of loading
+	 */
+	public double getThroughput() {
+		long elapsed = System.nanoTime() - startNanos;
+		return startNanos == 0 || elapsed <= 0 ? 0 : loaded.get() * 1e9 / elapsed;
+	}
+
 	@Override
 	public void load(ODatabaseDocument db, final Object input, OCommandContext context) {
 
@@ -81,6 +186,16 @@ public class OETLOrienteerLoader extends OETLAbstractLoader {
 			autoCreateProperties(db, input);
 		}
 
+		if (batchCommitSize > 0) {
+			ORecord record = toRecordToSave(input);
+			if (record != null) {
+				getWriter().add(record);
+				db.activateOnCurrentThread();
+			}
+			progress.incrementAndGet();
+			return;
+		}
+
 		if (tx) {
 			if (!db.getTransaction().isActive()) {
 				db.begin();
@@ -88,16 +203,29 @@ public class OETLOrienteerLoader extends OETLAbstractLoader {
 			}
 		}
 
-		if (input instanceof OVertex) {
-			final OVertex v = (OVertex) input;
-
+		ORecord record = toRecordToSave(input);
+		if (record != null) {
 			try {
-				v.save(clusterName);
+				save(db, record);
 			} catch (ORecordDuplicatedException e) {
 				if (!skipDuplicates) {
 					throw e;
 				}
 			}
+			loaded.incrementAndGet();
+		}
+
+		progress.incrementAndGet();
+	}
+
+	/**
+	 * Prepare input for saving
+	 * @param input input to be loaded
+	 * @return record to be saved or null if input should not be saved
+	 */
+	protected ORecord toRecordToSave(Object input) {
+		if (input instanceof OVertex) {
+			return (OVertex) input;
 		} else if (input instanceof ODocument) {
 
 			final ODocument doc = (ODocument) input;
@@ -106,10 +234,8 @@ public class OETLOrienteerLoader extends OETLAbstractLoader {
 				doc.setClassName(className);
 			}
 
-			if (clusterName != null) {
-				db.save(doc, clusterName);
-			} else if (doc.getClassName() != null) {
-				db.save(doc);
+			if (clusterName != null || doc.getClassName() != null) {
+				return doc;
 			} else {
 				OETLContextWrapper.getInstance().getMessageHandler().debug(this,
 						"The ETL loader is not explicitly saving the record %s - no class or cluster set",
@@ -119,26 +245,28 @@ public class OETLOrienteerLoader extends OETLAbstractLoader {
 		} else {
 			OETLContextWrapper.getInstance().getMessageHandler().error(this, "input type not supported::  %s", input.getClass());
 		}
+		return null;
+	}
 
-		progress.incrementAndGet();
-
-		// DO BATCH COMMIT if on TX
-
-		if (tx && batchCommitSize > 0 && batchCounter.get() > batchCommitSize) {
-			synchronized (this) {
-				if (batchCommitSize > 0 && batchCounter.get() > batchCommitSize) {
-					log(Level.FINE, "committing document batch %d", progress.get());
-					db.commit();
-					db.begin();
-					db.getTransaction().setUsingLog(txUseLog);
-					batchCounter.set(0);
-				}
-			}
+	protected void save(ODatabaseDocument db, ORecord record) {
+		if (clusterName != null) {
+			db.save(record, clusterName);
 		} else {
-			batchCounter.incrementAndGet();
+			db.save(record);
 		}
 	}
 
+	private OETLBatchWriter getWriter() {
+		OETLBatchWriter writer = currentWriter.get();
+		// Worker threads can outlive the loading: writers of previous loading are closed
+		if (writer == null || writer.closed) {
+			writer = new OETLBatchWriter(pool.acquire());
+			currentWriter.set(writer);
+			writers.add(writer);
+		}
+		return writer;
+	}
+
 	protected void autoCreateProperties(ODatabaseDocument db, Object input) {
 		if (input instanceof ODocument) {
 			autoCreatePropertiesOnDocument(db, (ODocument) input);
@@ -149,28 +277,22 @@ public class OETLOrienteerLoader extends OETLAbstractLoader {
 
 	protected void autoCreatePropertiesOnElement(ODatabaseDocument db, OVertex element) {
 
-		final OClass cls;
-		Optional<OClass> schemaType = element.getSchemaType();
-		final String clsName = schemaType.get().getName();
-
-		if (clsName != null)
-			cls = getOrCreateClass(db, clsName, element.getSchemaType().get().getName());
-		else
-			throw new IllegalArgumentException("No class defined on graph element: " + element);
+		final OClass cls = element.getSchemaType()
+				.orElseThrow(() -> new IllegalArgumentException("No class defined on graph element: " + element));
+		final Set<String> known = getKnownProperties(db, cls);
 
 		for (String f : element.getPropertyNames()) {
 			final String newName = transformFieldName(f);
 			final String fName = newName != null ? newName : f;
 
-			OProperty p = cls.getProperty(fName);
-			if (p == null) {
+			if (!known.contains(fName)) {
+				ensureProperty(cls, known, fName, element.getProperty(f));
+			}
+			if (newName != null) {
+				// REPLACE IT
 				final Object fValue = element.getProperty(f);
-				createProperty(cls, fName, fValue);
-				if (newName != null) {
-					// REPLACE IT
-					element.removeProperty(f);
-					element.setProperty(newName, fValue);
-				}
+				element.removeProperty(f);
+				element.setProperty(newName, fValue);
 			}
 		}
 	}
@@ -178,25 +300,59 @@ public class OETLOrienteerLoader extends OETLAbstractLoader {
 	protected void autoCreatePropertiesOnDocument(ODatabaseDocument db, ODocument doc) {
 		final OClass cls;
 		if (className != null)
-			cls = getOrCreateClass(db, className, null);
+			cls = schemaClass != null && className.equals(schemaClass.getName()) ? schemaClass : getOrCreateClass(db, className, null);
 		else
 			cls = doc.getSchemaClass();
+		if (cls == null)
+			throw new IllegalArgumentException("No class defined on document: " + doc);
+		final Set<String> known = getKnownProperties(db, cls);
 
 		for (String f : doc.fieldNames()) {
 			final String newName = transformFieldName(f);
 			final String fName = newName != null ? newName : f;
 
-			OProperty p = cls.getProperty(fName);
-			if (p == null) {
+			if (!known.contains(fName)) {
+				ensureProperty(cls, known, fName, doc.field(f));
+			}
+			if (newName != null) {
+				// REPLACE IT
 				final Object fValue = doc.field(f);
-				createProperty(cls, fName, fValue);
-				if (newName != null) {
-					// REPLACE IT
-					doc.removeField(f);
-					doc.field(newName, fValue);
+				doc.removeField(f);
+				doc.field(newName, fValue);
+			}
+		}
+	}
+
+	/**
+	 * Properties which are known to exist in a class: schema is checked only once per property
+	 */
+	private Set<String> getKnownProperties(ODatabaseDocument db, OClass cls) {
+		Set<String> ret = knownProperties.get(cls.getName());
+		if (ret == null) {
+			synchronized (knownProperties) {
+				ret = knownProperties.get(cls.getName());
+				if (ret == null) {
+					if (clusterName != null) getOrCreateClass(db, cls.getName(), null);
+					ret = ConcurrentHashMap.newKeySet();
+					for (OProperty property : cls.properties()) {
+						ret.add(property.getName());
+					}
+					knownProperties.put(cls.getName(), ret);
 				}
 			}
 		}
+		return ret;
+	}
+
+	private void ensureProperty(OClass cls, Set<String> known, String fName, Object fValue) {
+		synchronized (knownProperties) {
+			if (known.contains(fName)) return;
+			if (cls.getProperty(fName) == null) {
+				if (fValue == null) return;
+				createProperty(cls, fName, fValue);
+			}
+			known.add(fName);
+		}
 	}
 
 	@Override
@@ -275,7 +431,7 @@ public class OETLOrienteerLoader extends OETLAbstractLoader {
 				+ "{dbAutoCreate:{optional:true,description:'Auto create the database if not exists. Default is true'}},"
 				+ "{dbAutoCreateProperties:{optional:true,description:'Auto create properties in schema'}},"
 				+ "{dbAutoDropIfExists:{optional:true,description:'Auto drop the database if already exists. Default is false.'}},"
-				+ "{batchCommit:{optional:true,description:'Auto commit every X items. This speed up creation of edges.'}},"
+				+ "{batchCommit:{optional:true,description:'Auto commit every X items. Every parallel worker commits own batches in own transaction'}},"
 				+ "{wal:{optional:true,description:'Use the WAL (Write Ahead Log)'}},"
 				+ "{useLightweightEdges:{optional:true,description:'Enable/Disable LightweightEdges in Graphs. Default is false'}},"
 				+ "{standardElementConstraints:{optional:true,description:'Enable/Disable Standard Blueprints constraints on names. Default is true'}},"
@@ -372,6 +528,7 @@ public class OETLOrienteerLoader extends OETLAbstractLoader {
 			db.close();
 			pipeline.setPool(pool);
 		}
+		if (startNanos == 0) startNanos = System.nanoTime();
 	}
 
 	private void createSchema(ODatabaseDocumentInternal db) {
@@ -470,6 +627,37 @@ public class OETLOrienteerLoader extends OETLAbstractLoader {
 
 	@Override
 	public void end() {
+		ODatabaseDocumentInternal current = ODatabaseRecordThreadLocal.instance().getIfDefined();
+		RuntimeException error = null;
+		try {
+			// Every writer should be flushed and closed even if some of them failed
+			for (OETLBatchWriter writer : writers) {
+				try {
+					writer.flush();
+				} catch (RuntimeException e) {
+					error = addSuppressed(error, e);
+				}
+				try {
+					writer.close();
+				} catch (RuntimeException e) {
+					error = addSuppressed(error, e);
+				}
+			}
+		} finally {
+			writers.clear();
+			currentWriter.remove();
+			if (current != null) current.activateOnCurrentThread();
+			else ODatabaseRecordThreadLocal.instance().remove();
+		}
+		if (error != null) throw error;
+		log(Level.INFO, "%s: loaded %d %s in %d batches, commits took %d ms, throughput %.1f %s/sec",
+				getName(), getLoaded(), getUnit(), getBatches(), getCommitTime(), getThroughput(), getUnit());
+	}
+
+	private static RuntimeException addSuppressed(RuntimeException error, RuntimeException e) {
+		if (error == null) return e;
+		error.addSuppressed(e);
+		return error;
 	}
 
 	@Override
@@ -0,0 +1,161 @@
+package org.orienteer.etl;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.orienteer.etl.component.OETLLinkFixedTransformer;
+import org.orienteer.etl.component.OETLOrienteerLoader;
+
+import com.orientechnologies.orient.core.command.OBasicCommandContext;
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.db.ODatabasePool;
+import com.orientechnologies.orient.core.db.ODatabaseSession;
+import com.orientechnologies.orient.core.db.ODatabaseType;
+import com.orientechnologies.orient.core.db.OrientDB;
+import com.orientechnologies.orient.core.db.OrientDBConfig;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.etl.OETLComponentFactory;
+import com.orientechnologies.orient.etl.OETLProcessor;
+import com.orientechnologies.orient.etl.OETLProcessorConfigurator;
+
+/**
+ * JMH benchmark for loading of a generated CSV file by {@link OETLOrienteerLoader} with
+ * linking of records by {@link OETLLinkFixedTransformer}.
+ * Compares per-record commits with batches committed by parallel workers and lookups by query with cached and preloaded ones.
+ * Run: mvn test-compile exec:java -Dexec.mainClass=org.orienteer.etl.ETLLoaderBenchmark -Dexec.classpathScope=test
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class ETLLoaderBenchmark {
+
+	private static final String DB_NAME = "etlBenchmark";
+	private static final String ITEM_CLASS = "BenchmarkItem";
+	private static final String CATEGORY_CLASS = "BenchmarkCategory";
+	private static final int CATEGORIES = 1000;
+
+	private static ODatabasePool pool;
+
+	/**
+	 * Loader which uses DB of the benchmark instead of DB of Orienteer application
+	 */
+	public static class BenchmarkLoader extends OETLOrienteerLoader {
+		@Override
+		protected ODatabasePool getDatabasePool() {
+			return ETLLoaderBenchmark.pool;
+		}
+	}
+
+	@Param({"100000"})
+	public int rows;
+
+	@Param({"0", "1000"})
+	public int batchCommit;
+
+	@Param({"false", "true"})
+	public boolean parallel;
+
+	@Param({"query", "cache", "preload"})
+	public String lookup;
+
+	private OrientDB orientDB;
+	private File csv;
+
+	@Setup(Level.Trial)
+	public void setup() throws IOException {
+		orientDB = new OrientDB("memory:", OrientDBConfig.defaultConfig());
+		orientDB.create(DB_NAME, ODatabaseType.MEMORY);
+		pool = new ODatabasePool(orientDB, DB_NAME, "admin", "admin");
+		try(ODatabaseSession db = pool.acquire()) {
+			OClass category = db.getMetadata().getSchema().createClass(CATEGORY_CLASS);
+			category.createProperty("code", OType.STRING);
+			category.createIndex(CATEGORY_CLASS+".code", OClass.INDEX_TYPE.UNIQUE, "code");
+			for(int i=0; i<CATEGORIES; i++) {
+				db.save(new ODocument(CATEGORY_CLASS).field("code", "c"+i));
+			}
+			db.getMetadata().getSchema().createClass(ITEM_CLASS);
+		}
+		csv = File.createTempFile("etl-benchmark", ".csv");
+		csv.deleteOnExit();
+		try(PrintWriter out = new PrintWriter(csv, StandardCharsets.UTF_8.name())) {
+			out.println("id,name,category,amount");
+			for(int i=0; i<rows; i++) {
+				out.println(i+",Item "+i+",c"+(i % CATEGORIES)+","+(i * 7 % 1000));
+			}
+		}
+	}
+
+	@Setup(Level.Iteration)
+	public void truncate() {
+		try(ODatabaseSession db = pool.acquire()) {
+			db.command("truncate class "+ITEM_CLASS+" unsafe").close();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		pool.close();
+		orientDB.drop(DB_NAME);
+		orientDB.close();
+		csv.delete();
+	}
+
+	@Benchmark
+	public long load() {
+		String config = "{"
+				+ "config:{log:'NONE',parallel:"+parallel+"},"
+				+ "source:{file:{path:'"+csv.getAbsolutePath().replace('\\', '/')+"'}},"
+				+ "extractor:{csv:{}},"
+				+ "transformers:[{link:{joinFieldName:'category',lookup:'"+CATEGORY_CLASS+".code',"
+				+ "linkFieldName:'category',linkFieldType:'LINK',"
+				+ "cacheSize:"+("query".equals(lookup)?0:10000)+",preload:"+"preload".equals(lookup)+"}}],"
+				+ "loader:{orienteer:{class:'"+ITEM_CLASS+"',dbAutoCreateProperties:true,batchCommit:"+batchCommit+"}}"
+				+ "}";
+		OETLComponentFactory factory = new OETLComponentFactory()
+										.registerLoader(BenchmarkLoader.class)
+										.registerTransformer(OETLLinkFixedTransformer.class);
+		OETLProcessorConfigurator configurator = new OETLProcessorConfigurator(factory);
+		ODocument cfg = new ODocument().fromJSON(config, "noMap");
+		OCommandContext context = new OBasicCommandContext();
+		ODocument cfgGlobal = cfg.field("config");
+		for (String f : cfgGlobal.fieldNames()) {
+			context.setVariable(f, cfgGlobal.field(f));
+		}
+		OETLProcessor processor = configurator.parse(cfg, context);
+		processor.execute();
+		return ((OETLOrienteerLoader) processor.getLoader()).getLoaded();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(ETLLoaderBenchmark.class.getSimpleName())
+				.build();
+		new Runner(opt).run();
+	}
+
+}
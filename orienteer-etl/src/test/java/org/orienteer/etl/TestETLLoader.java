@@ -0,0 +1,193 @@
+package org.orienteer.etl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.orienteer.etl.component.OETLLinkFixedTransformer;
+import org.orienteer.etl.component.OETLOrienteerLoader;
+
+import com.orientechnologies.orient.core.command.OBasicCommandContext;
+import com.orientechnologies.orient.core.command.OCommandContext;
+import com.orientechnologies.orient.core.db.ODatabasePool;
+import com.orientechnologies.orient.core.db.ODatabaseSession;
+import com.orientechnologies.orient.core.db.ODatabaseType;
+import com.orientechnologies.orient.core.db.OrientDB;
+import com.orientechnologies.orient.core.db.OrientDBConfig;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.executor.OResult;
+import com.orientechnologies.orient.core.sql.executor.OResultSet;
+import com.orientechnologies.orient.etl.OETLComponentFactory;
+import com.orientechnologies.orient.etl.OETLProcessor;
+import com.orientechnologies.orient.etl.OETLProcessorConfigurator;
+
+/**
+ * Tests for {@link OETLOrienteerLoader} and {@link OETLLinkFixedTransformer} on in-memory database
+ */
+public class TestETLLoader {
+
+	private static final String ITEM_CLASS = "TestItem";
+	private static final String CATEGORY_CLASS = "TestCategory";
+	private static final int CATEGORIES = 10;
+
+	private static ODatabasePool pool;
+
+	/**
+	 * Loader which uses DB of the test instead of DB of Orienteer application
+	 */
+	public static class TestLoader extends OETLOrienteerLoader {
+		@Override
+		protected ODatabasePool getDatabasePool() {
+			return TestETLLoader.pool;
+		}
+	}
+
+	private OrientDB orientDB;
+	private String dbName;
+	private File csv;
+
+	@Before
+	public void init() throws IOException {
+		dbName = "etlTest" + UUID.randomUUID().toString().replace("-", "");
+		orientDB = new OrientDB("memory:", OrientDBConfig.defaultConfig());
+		orientDB.create(dbName, ODatabaseType.MEMORY);
+		pool = new ODatabasePool(orientDB, dbName, "admin", "admin");
+		try(ODatabaseSession db = pool.acquire()) {
+			OClass category = db.getMetadata().getSchema().createClass(CATEGORY_CLASS);
+			category.createProperty("code", OType.STRING);
+			category.createIndex(CATEGORY_CLASS+".code", OClass.INDEX_TYPE.UNIQUE, "code");
+			for(int i=0; i<CATEGORIES; i++) {
+				db.save(new ODocument(CATEGORY_CLASS).field("code", "c"+i));
+			}
+			OClass item = db.getMetadata().getSchema().createClass(ITEM_CLASS);
+			item.createProperty("code", OType.STRING);
+			item.createIndex(ITEM_CLASS+".code", OClass.INDEX_TYPE.UNIQUE, "code");
+		}
+		csv = File.createTempFile("etl-test", ".csv");
+	}
+
+	@After
+	public void destroy() {
+		pool.close();
+		orientDB.drop(dbName);
+		orientDB.close();
+		csv.delete();
+	}
+
+	@Test
+	public void testBatchWriters() throws IOException {
+		writeItems(100);
+		OETLOrienteerLoader loader = execute(link("category", CATEGORY_CLASS+".code", "cacheSize:0"), "batchCommit:7", true);
+		assertEquals(100, loader.getLoaded());
+		assertTrue(loader.getBatches() >= 100 / 7);
+		assertEquals(100, count("select count(*) as count from "+ITEM_CLASS));
+		assertEquals(100, count("select count(*) as count from "+ITEM_CLASS+" where category.code = categoryCode"));
+	}
+
+	@Test
+	public void testCachedLookup() throws IOException {
+		writeItems(100);
+		OETLOrienteerLoader loader = execute(link("category", CATEGORY_CLASS+".code", "cacheSize:5"), "batchCommit:0", false);
+		assertEquals(100, loader.getLoaded());
+		assertEquals(100, count("select count(*) as count from "+ITEM_CLASS+" where category.code = categoryCode"));
+	}
+
+	@Test
+	public void testPreloadedLookup() throws IOException {
+		writeItems(100);
+		execute(link("category", CATEGORY_CLASS+".code", "preload:true"), "batchCommit:10", true);
+		assertEquals(100, count("select count(*) as count from "+ITEM_CLASS+" where category.code = categoryCode"));
+	}
+
+	@Test
+	public void testUnresolvedLinksAreNotCached() throws IOException {
+		writeLinkedItems();
+		execute(link("parent", ITEM_CLASS+".code", "cacheSize:100"), "batchCommit:0", false);
+		assertNull(getParentCode("i0"));
+		assertEquals("i0", getParentCode("i1"));
+		//Item i2 was not loaded yet when i0 was loaded
+		assertEquals("i2", getParentCode("i3"));
+	}
+
+	@Test
+	public void testUnresolvedLinksAreCachedOnDemand() throws IOException {
+		writeLinkedItems();
+		execute(link("parent", ITEM_CLASS+".code", "cacheSize:100,cacheUnresolved:true"), "batchCommit:0", false);
+		assertNull(getParentCode("i3"));
+	}
+
+	private void writeItems(int rows) throws IOException {
+		try(PrintWriter out = new PrintWriter(csv, StandardCharsets.UTF_8.name())) {
+			out.println("code,category,categoryCode");
+			for(int i=0; i<rows; i++) {
+				out.println("i"+i+",c"+(i % CATEGORIES)+",c"+(i % CATEGORIES));
+			}
+		}
+	}
+
+	private void writeLinkedItems() throws IOException {
+		try(PrintWriter out = new PrintWriter(csv, StandardCharsets.UTF_8.name())) {
+			out.println("code,parent");
+			out.println("i0,i2");
+			out.println("i1,i0");
+			out.println("i2,i1");
+			out.println("i3,i2");
+		}
+	}
+
+	private static String link(String field, String lookup, String parameters) {
+		return "{link:{joinFieldName:'"+field+"',lookup:'"+lookup+"',linkFieldName:'"+field+"',linkFieldType:'LINK',"+parameters+"}}";
+	}
+
+	private OETLOrienteerLoader execute(String transformer, String loaderParameters, boolean parallel) {
+		String config = "{"
+				+ "config:{log:'NONE',parallel:"+parallel+"},"
+				+ "source:{file:{path:'"+csv.getAbsolutePath().replace('\\', '/')+"'}},"
+				+ "extractor:{csv:{}},"
+				+ "transformers:["+transformer+"],"
+				+ "loader:{orienteer:{class:'"+ITEM_CLASS+"',"+loaderParameters+"}}"
+				+ "}";
+		OETLComponentFactory factory = new OETLComponentFactory()
+										.registerLoader(TestLoader.class)
+										.registerTransformer(OETLLinkFixedTransformer.class);
+		OETLProcessorConfigurator configurator = new OETLProcessorConfigurator(factory);
+		ODocument cfg = new ODocument().fromJSON(config, "noMap");
+		OCommandContext context = new OBasicCommandContext();
+		ODocument cfgGlobal = cfg.field("config");
+		for (String f : cfgGlobal.fieldNames()) {
+			context.setVariable(f, cfgGlobal.field(f));
+		}
+		OETLProcessor processor = configurator.parse(cfg, context);
+		processor.execute();
+		return (OETLOrienteerLoader) processor.getLoader();
+	}
+
+	private long count(String sql) {
+		try(ODatabaseSession db = pool.acquire(); OResultSet rs = db.query(sql)) {
+			return rs.next().<Number>getProperty("count").longValue();
+		}
+	}
+
+	private String getParentCode(String code) {
+		try(ODatabaseSession db = pool.acquire();
+				OResultSet rs = db.query("select parent from "+ITEM_CLASS+" where code = ?", code)) {
+			OResult row = rs.next();
+			OIdentifiable parent = row.getProperty("parent");
+			if(parent == null) return null;
+			ODocument parentDoc = parent.getRecord();
+			return parentDoc.field("code");
+		}
+	}
+}
@@ -26,6 +26,7 @@ import org.orienteer.logger.OLogger;
 import org.orienteer.logger.OLoggerBuilder;
 import org.orienteer.logger.impl.DefaultCorrelationIdGenerator;
 import org.orienteer.logger.impl.DefaultOLoggerConfiguration;
+import org.orienteer.logger.server.hook.OLoggerEventDispatcherHook;
 import org.orienteer.logger.server.hook.OLoggerEventHook;
 import org.orienteer.logger.server.model.IOCorrelationIdGeneratorModel;
 import org.orienteer.logger.server.model.IOLoggerDAO;
@@ -34,8 +35,10 @@ import org.orienteer.logger.server.model.IOLoggerEventFilteredDispatcherModel;
 import org.orienteer.logger.server.model.IOLoggerEventMailDispatcherModel;
 import org.orienteer.logger.server.model.IOLoggerEventModel;
 import org.orienteer.logger.server.resource.OLoggerReceiverResource;
+import org.orienteer.logger.server.service.OLoggerEventIngestor;
 import org.orienteer.logger.server.service.OLoggerExceptionListener;
 import org.orienteer.logger.server.service.correlation.OrienteerCorrelationIdGenerator;
+import org.orienteer.logger.server.service.dispatcher.OLoggerDispatcherConfigCache;
 import org.orienteer.logger.server.service.dispatcher.OLoggerEventDispatcher;
 import org.orienteer.logger.server.service.enhancer.OSeedClassEnhancer;
 import org.orienteer.logger.server.service.enhancer.OWebEnhancer;
@@ -129,10 +132,11 @@ public class OLoggerModule extends AbstractOrienteerModule{
 		LOG.info("Initialize OLoggerModule");
 		installOLogger(app, DAO.provide(ILoggerModuleConfiguration.class, moduleDoc));
 		app.mountPackage("org.orienteer.inclogger.web");
+		app.getServiceInstance(OLoggerEventIngestor.class).start(app);
 		OLoggerReceiverResource.mount(app);
 		app.getRequestCycleListeners().add(new OLoggerExceptionListener());
 
-		app.getOrientDbSettings().addORecordHooks(OLoggerEventHook.class);
+		app.getOrientDbSettings().addORecordHooks(OLoggerEventHook.class, OLoggerEventDispatcherHook.class);
 	}
 	
 	@Override
@@ -168,8 +172,10 @@ public class OLoggerModule extends AbstractOrienteerModule{
 		OLogger.set(null);
 		app.unmountPackage("org.orienteer.inclogger.web");
 		OLoggerReceiverResource.unmount(app);
+		app.getServiceInstance(OLoggerEventIngestor.class).stop();
 
-		app.getOrientDbSettings().removeORecordHooks(OLoggerEventHook.class);
+		app.getOrientDbSettings().removeORecordHooks(OLoggerEventHook.class, OLoggerEventDispatcherHook.class);
+		OLoggerDispatcherConfigCache.invalidate();
 	}
 
 	private void createDefaultOLoggerEventDispatcher(OSchemaHelper helper) {
@@ -0,0 +1,29 @@
+package org.orienteer.logger.server.hook;
+
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import org.orienteer.core.hook.AbstractCacheInvalidationHook;
+import org.orienteer.logger.server.model.IOLoggerEventDispatcherModel;
+import org.orienteer.logger.server.service.dispatcher.OLoggerDispatcherConfigCache;
+
+import java.util.Collection;
+
+/**
+ * Hook for {@link IOLoggerEventDispatcherModel} to invalidate {@link OLoggerDispatcherConfigCache} after commit
+ */
+public class OLoggerEventDispatcherHook extends AbstractCacheInvalidationHook<String> {
+
+    public OLoggerEventDispatcherHook(ODatabaseDocument database) {
+        super(database, IOLoggerEventDispatcherModel.CLASS_NAME);
+    }
+
+    @Override
+    protected void collectKeys(ODocument doc, Collection<String> keys) {
+        keys.add(doc.getClassName());
+    }
+
+    @Override
+    protected void invalidate(Collection<String> keys) {
+        OLoggerDispatcherConfigCache.invalidate();
+    }
+}
@@ -1,5 +1,6 @@
 package org.orienteer.logger.server.model;
 
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 
@@ -11,6 +12,7 @@ import org.orienteer.core.dao.handler.extra.SudoMethodHandler;
 import org.orienteer.logger.server.OLoggerModule;
 
 import com.google.inject.ProvidedBy;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 
@@ -47,4 +49,24 @@ public interface IOLoggerDAO {
 		event.save();
         return event;
     }
+
+	/**
+	 * Store batch of events in a single transaction
+	 * @param eventsJson events in JSON format
+	 */
+	public default void storeOLoggerEvents(Collection<String> eventsJson) {
+		ODatabaseDocument db = ODatabaseRecordThreadLocal.instance().get();
+		db.begin();
+		try {
+			for (String eventJson : eventsJson) {
+				IOLoggerEventModel event = DAO.create(IOLoggerEventModel.class);
+				event.getDocument().fromJSON(eventJson);
+				event.save();
+			}
+			db.commit();
+		} catch (RuntimeException e) {
+			db.rollback();
+			throw e;
+		}
+	}
 }
@@ -1,37 +1,56 @@
 package org.orienteer.logger.server.resource;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.apache.wicket.protocol.http.WebApplication;
 import org.apache.wicket.request.http.WebRequest;
 import org.apache.wicket.request.resource.AbstractResource;
 import org.apache.wicket.request.resource.SharedResourceReference;
 import org.apache.wicket.util.io.IOUtils;
+import org.apache.wicket.util.string.Strings;
 import org.orienteer.core.OrienteerWebApplication;
 import org.orienteer.logger.server.OLoggerModule;
 import org.orienteer.logger.server.model.IOLoggerDAO;
 import org.orienteer.logger.server.model.IOLoggerEventModel;
+import org.orienteer.logger.server.service.OLoggerEventIngestor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.openjson.JSONArray;
+import com.github.openjson.JSONException;
 import com.google.inject.Inject;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 
 /**
- * REST entry point of OLogger events 
+ * REST entry point of OLogger events.
+ * POST to {@link #MOUNT_PATH} stores single event synchronously and responds with JSON of the stored event.
+ * POST to {@link #BATCH_MOUNT_PATH} accepts events as NDJSON (event per line) or as JSON array asynchronously:
+ * responds with 202 and number of accepted events, with 429 if the queue of events is full
+ * and with 503 if ingestion of events is not running. Clients which send many events should use the batch endpoint:
+ * {@link org.orienteer.logger.server.service.dispatcher.OLoggerEventDispatcher} buffers events and sends them in batches
  */
 public class OLoggerReceiverResource extends AbstractResource {
 
 	private static final long serialVersionUID = 1L;
 
 	public static final String MOUNT_PATH = "/resource/ologger";
+	public static final String BATCH_MOUNT_PATH = MOUNT_PATH + "/batch";
 	public static final String REGISTRATION_RES_KEY=OLoggerReceiverResource.class.getSimpleName();
+
+	public static final int SC_TOO_MANY_REQUESTS = 429;
 	
 	private static final Logger LOG = LoggerFactory.getLogger(OLoggerReceiverResource.class);
 	
 	@Inject
 	private IOLoggerDAO oLoggerDao;
+
+	@Inject
+	private OLoggerEventIngestor ingestor;
 	
 	@Override
 	protected ResourceResponse newResourceResponse(Attributes attributes) {
@@ -44,11 +63,23 @@ public class OLoggerReceiverResource extends AbstractResource {
 			String out="OK";
 			try
 			{
-				if(httpRequest.getMethod().equalsIgnoreCase("GET") //for debug 
-						|| httpRequest.getMethod().equalsIgnoreCase("POST") )
+				String method = httpRequest.getMethod();
+				if(method.equalsIgnoreCase("POST") && httpRequest.getRequestURI().endsWith(BATCH_MOUNT_PATH))
 				{
-
-					String content = IOUtils.toString(httpRequest.getInputStream());
+					String content = IOUtils.toString(httpRequest.getInputStream(), "UTF-8");
+					List<String> events = splitBatch(content);
+					int status = accept(ingestor, events);
+					response.setStatusCode(status);
+					if(status==HttpServletResponse.SC_ACCEPTED) out = Integer.toString(events.size());
+					else if(status==SC_TOO_MANY_REQUESTS) {
+						response.getHeaders().addHeader("Retry-After", "1");
+						out = "Too many events";
+					} else out = "Ingestion of logger events is not running";
+				}
+				else if(method.equalsIgnoreCase("GET") //for debug
+						|| method.equalsIgnoreCase("POST") )
+				{
+					String content = IOUtils.toString(httpRequest.getInputStream(), "UTF-8");
 					IOLoggerEventModel log = oLoggerDao.storeOLoggerEvent(content);
 					out = log.getDocument().toJSON();
 				}
@@ -70,16 +101,67 @@ public class OLoggerReceiverResource extends AbstractResource {
 		}
 		return response;
 	}
+
+	/**
+	 * Offer events to the ingestor: all or nothing
+	 * @param ingestor ingestor to offer events to
+	 * @param events events in JSON format
+	 * @return HTTP status of the response: 202 if events were accepted, 429 if the queue is full
+	 * and 503 if the ingestor is not running
+	 */
+	public static int accept(OLoggerEventIngestor ingestor, List<String> events) {
+		try {
+			if(events.isEmpty() || ingestor.offerAll(events)) return HttpServletResponse.SC_ACCEPTED;
+			else return SC_TOO_MANY_REQUESTS;
+		} catch (IllegalStateException e) {
+			LOG.warn("Logger events were not accepted: {}", e.getMessage());
+			return HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+		}
+	}
+
+	/**
+	 * Split batch of events into separate events
+	 * @param content NDJSON (event per line) or JSON array of events. Lines of NDJSON can be JSON arrays as well
+	 * @return list of events in JSON format
+	 */
+	public static List<String> splitBatch(String content) {
+		List<String> events = new ArrayList<>();
+		if(content==null) return events;
+		String trimmed = content.trim();
+		if(trimmed.startsWith("[")) {
+			try {
+				addAll(events, new JSONArray(trimmed));
+				return events;
+			} catch (JSONException e) {
+				//Not a single JSON array: probably NDJSON of arrays
+			}
+		}
+		for (String line : Strings.split(trimmed, '\n')) {
+			line = line.trim();
+			if(line.isEmpty()) continue;
+			if(line.startsWith("[")) addAll(events, new JSONArray(line));
+			else events.add(line);
+		}
+		return events;
+	}
+
+	private static void addAll(List<String> events, JSONArray array) {
+		for (int i = 0; i < array.length(); i++) {
+			events.add(array.getJSONObject(i).toString());
+		}
+	}
 	
 	public static void mount(WebApplication app)
 	{
 		OLoggerReceiverResource resource = ((OrienteerWebApplication) app).getServiceInstance(OLoggerReceiverResource.class);
 		app.getSharedResources().add(REGISTRATION_RES_KEY, resource);
+		app.mountResource(BATCH_MOUNT_PATH, new SharedResourceReference(REGISTRATION_RES_KEY));
 		app.mountResource(MOUNT_PATH, new SharedResourceReference(REGISTRATION_RES_KEY));
 	}
 	
 	public static void unmount(WebApplication app)
 	{
+		app.unmount(BATCH_MOUNT_PATH);
 		app.unmount(MOUNT_PATH);
 	}
 }
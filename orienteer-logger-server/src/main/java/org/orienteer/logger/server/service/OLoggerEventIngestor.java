@@ -0,0 +1,175 @@
+package org.orienteer.logger.server.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.ThreadContext;
+import org.orienteer.core.OrienteerWebApplication;
+import org.orienteer.logger.server.model.IOLoggerDAO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+
+/**
+ * Asynchronous ingestion of events received from remote OLogger clients.
+ * Events are accepted into bounded in-memory queue and stored by a single writer thread in batches:
+ * one transaction per batch instead of one transaction per event.
+ * If the queue is full, events are rejected, so clients can retry later
+ */
+@Singleton
+public class OLoggerEventIngestor {
+
+	private static final Logger LOG = LoggerFactory.getLogger(OLoggerEventIngestor.class);
+
+	public static final int DEFAULT_QUEUE_SIZE = 10000;
+	public static final int DEFAULT_BATCH_SIZE = 500;
+
+	private static final long POLL_TIMEOUT = 1000;
+
+	@Inject
+	private IOLoggerDAO loggerDAO;
+
+	private int queueSize = DEFAULT_QUEUE_SIZE;
+	private int batchSize = DEFAULT_BATCH_SIZE;
+
+	private final Object offerLock = new Object();
+	private volatile BlockingQueue<String> queue;
+	private volatile boolean running = false;
+	private Thread writer;
+
+	/**
+	 * @param queueSize max number of events waiting to be stored
+	 */
+	@Inject(optional = true)
+	public void setQueueSize(@Named("orienteer.logger.ingest.queue.size") int queueSize) {
+		if(queueSize<=0) throw new IllegalArgumentException("Queue size should be positive: "+queueSize);
+		this.queueSize = queueSize;
+	}
+
+	/**
+	 * @param batchSize max number of events stored in a single transaction
+	 */
+	@Inject(optional = true)
+	public void setBatchSize(@Named("orienteer.logger.ingest.batch.size") int batchSize) {
+		if(batchSize<=0) throw new IllegalArgumentException("Batch size should be positive: "+batchSize);
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Start writer thread
+	 * @param app application to store events within
+	 */
+	public synchronized void start(OrienteerWebApplication app) {
+		if(running) return;
+		queue = new ArrayBlockingQueue<>(queueSize);
+		running = true;
+		writer = new Thread(() -> runWriter(app), "orienteer-logger-ingestor");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Stop writer thread. Events which are already in the queue are stored before the thread exits
+	 */
+	public synchronized void stop() {
+		if(!running) return;
+		running = false;
+		try {
+			writer.join(POLL_TIMEOUT * 10);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if(writer.isAlive()) LOG.warn("Writer of logger events was not stopped in time");
+		writer = null;
+	}
+
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Accept an event for storing
+	 * @param eventJson event in JSON format
+	 * @return true if event was accepted or false if the queue is full
+	 * @throws IllegalStateException if ingestor is not running
+	 */
+	public boolean offer(String eventJson) {
+		BlockingQueue<String> queue = getQueue();
+		synchronized (offerLock) {
+			return queue.offer(eventJson);
+		}
+	}
+
+	/**
+	 * Accept all events or nothing
+	 * @param eventsJson events in JSON format
+	 * @return true if all events were accepted or false if there is no room in the queue for all of them
+	 * @throws IllegalStateException if ingestor is not running
+	 */
+	public boolean offerAll(Collection<String> eventsJson) {
+		BlockingQueue<String> queue = getQueue();
+		//Writer only takes from the queue, so remaining capacity can't decrease while producers are locked out
+		synchronized (offerLock) {
+			if(queue.remainingCapacity() < eventsJson.size()) return false;
+			queue.addAll(eventsJson);
+			return true;
+		}
+	}
+
+	/**
+	 * @return number of events waiting to be stored
+	 */
+	public int getPendingCount() {
+		BlockingQueue<String> queue = this.queue;
+		return queue!=null?queue.size():0;
+	}
+
+	private BlockingQueue<String> getQueue() {
+		BlockingQueue<String> queue = this.queue;
+		if(!running || queue==null) throw new IllegalStateException("Ingestion of logger events is not running");
+		return queue;
+	}
+
+	private void runWriter(OrienteerWebApplication app) {
+		ThreadContext.setApplication(app);
+		BlockingQueue<String> queue = this.queue;
+		List<String> batch = new ArrayList<>(batchSize);
+		try {
+			while(running || !queue.isEmpty()) {
+				String event = queue.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+				if(event==null) continue;
+				batch.add(event);
+				queue.drainTo(batch, batchSize - 1);
+				store(batch);
+				batch.clear();
+			}
+		} catch (InterruptedException e) {
+			LOG.warn("Writer of logger events was interrupted. {} events were not stored", queue.size());
+		} finally {
+			ThreadContext.detach();
+		}
+	}
+
+	private void store(List<String> batch) {
+		try {
+			loggerDAO.storeOLoggerEvents(batch);
+		} catch (Exception e) {
+			//Isolate broken events: the rest of the batch should be stored
+			LOG.warn("Can't store batch of {} logger events. Storing them one by one", batch.size(), e);
+			for (String event : batch) {
+				try {
+					loggerDAO.storeOLoggerEvent(event);
+				} catch (Exception ex) {
+					LOG.error("Can't store logger event: {}", event, ex);
+				}
+			}
+		}
+	}
+}
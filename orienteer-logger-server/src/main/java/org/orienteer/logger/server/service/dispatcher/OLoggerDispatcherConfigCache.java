@@ -0,0 +1,95 @@
+package org.orienteer.logger.server.service.dispatcher;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.orienteer.logger.server.hook.OLoggerEventDispatcherHook;
+import org.orienteer.logger.server.model.IOLoggerDAO;
+import org.orienteer.logger.server.model.IOLoggerEventFilteredDispatcherModel;
+import org.orienteer.logger.server.model.IOLoggerEventMailDispatcherModel;
+
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+/**
+ * Cache of configuration of event dispatchers by alias. Dispatchers check configuration for every event,
+ * so configuration is read from DB only once and then invalidated by {@link OLoggerEventDispatcherHook}
+ */
+public final class OLoggerDispatcherConfigCache {
+
+	private static final Map<String, Optional<Config>> CACHE = new ConcurrentHashMap<>();
+
+	private OLoggerDispatcherConfigCache() {}
+
+	/**
+	 * Get configuration of a dispatcher
+	 * @param alias alias of a dispatcher
+	 * @return configuration or null if there is no filtered dispatcher with such alias
+	 */
+	public static Config get(String alias) {
+		return CACHE.computeIfAbsent(alias, OLoggerDispatcherConfigCache::load).orElse(null);
+	}
+
+	/**
+	 * Forget all cached configurations
+	 */
+	public static void invalidate() {
+		CACHE.clear();
+	}
+
+	private static Optional<Config> load(String alias) {
+		IOLoggerEventMailDispatcherModel mailDispatcher = IOLoggerDAO.INSTANCE.getOLoggerEventMailDispatcher(alias);
+		if(mailDispatcher!=null) {
+			ODocument mail = mailDispatcher.getMailAsDocument();
+			return Optional.of(new Config(mailDispatcher.getExceptions(),
+										  mail!=null?mail.getIdentity():null,
+										  mailDispatcher.getRecipients()));
+		}
+		IOLoggerEventFilteredDispatcherModel dispatcher = IOLoggerDAO.INSTANCE.getOLoggerEventFilteredDispatcher(alias);
+		return dispatcher!=null?Optional.of(new Config(dispatcher.getExceptions(), null, null)):Optional.empty();
+	}
+
+	/**
+	 * Immutable snapshot of configuration of a dispatcher
+	 */
+	public static final class Config {
+		private final Set<String> exceptions;
+		private final ORID mail;
+		private final Set<String> recipients;
+
+		private Config(Set<String> exceptions, ORID mail, Set<String> recipients) {
+			this.exceptions = copy(exceptions);
+			this.mail = mail;
+			this.recipients = copy(recipients);
+		}
+
+		/**
+		 * @return names of exception classes which should be dispatched
+		 */
+		public Set<String> getExceptions() {
+			return exceptions;
+		}
+
+		/**
+		 * @return identity of mail template for mail dispatcher
+		 */
+		public ORID getMail() {
+			return mail;
+		}
+
+		/**
+		 * @return recipients for mail dispatcher
+		 */
+		public Set<String> getRecipients() {
+			return recipients;
+		}
+
+		private static Set<String> copy(Set<String> set) {
+			return set!=null?Collections.unmodifiableSet(new HashSet<>(set)):Collections.emptySet();
+		}
+	}
+}
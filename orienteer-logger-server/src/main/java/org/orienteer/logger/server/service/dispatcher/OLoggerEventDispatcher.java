@@ -1,5 +1,21 @@
 package org.orienteer.logger.server.service.dispatcher;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.servlet.http.HttpServletResponse;
+
 import org.apache.wicket.authorization.AuthorizationException;
 import org.apache.wicket.core.request.mapper.StalePageException;
 import org.apache.wicket.request.Url;
@@ -10,6 +26,7 @@ import org.orienteer.logger.OLoggerEvent;
 import org.orienteer.logger.impl.DefaultOLoggerEventDispatcher;
 import org.orienteer.logger.server.model.IOLoggerDAO;
 import org.orienteer.logger.server.model.IOLoggerEventModel;
+import org.orienteer.logger.server.resource.OLoggerReceiverResource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -17,21 +34,123 @@ import com.google.common.base.Throwables;
 import com.orientechnologies.orient.core.exception.OSecurityException;
 
 /**
- * {@link IOLoggerEventDispatcher} for handle {@link OLoggerEvent}s within Orienteer: log localy and send to other host 
+ * {@link IOLoggerEventDispatcher} for handle {@link OLoggerEvent}s within Orienteer: log localy and send to other host.
+ * If other host is Orienteer, events are buffered and sent in batches to {@link OLoggerReceiverResource#BATCH_MOUNT_PATH}
  */
 public class OLoggerEventDispatcher extends DefaultOLoggerEventDispatcher {
 	
 	private static final Logger LOG = LoggerFactory.getLogger(OLoggerEventDispatcher.class);
+
+	public static final int BUFFER_SIZE = 10000;
+	public static final int BATCH_SIZE = 500;
+	public static final long FLUSH_INTERVAL = 1000;
+
+	private static final int TIMEOUT = 10000;
+
+	private static final ScheduledExecutorService SENDER = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread thread = new Thread(r, "orienteer-logger-sender");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final BlockingQueue<String> buffer = new ArrayBlockingQueue<>(BUFFER_SIZE);
+	private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+	private volatile String batchUrl;
 	
 	@Override
 	public void dispatch(OLoggerEvent event) {
 		if (needsToBeLogged(event)) {
-			IOLoggerEventModel eventModel = IOLoggerDAO.INSTANCE.storeOLoggerEvent(event.toJson());
+			String eventJson = event.toJson();
+			IOLoggerEventModel eventModel = IOLoggerDAO.INSTANCE.storeOLoggerEvent(eventJson);
 			onDispatchEvent(eventModel, event);
-			super.dispatch(event);
+			if(batchUrl!=null) enqueue(eventJson);
+			else super.dispatch(event);
 		}
 	}
 
+	private void enqueue(String eventJson) {
+		if(!buffer.offer(eventJson)) {
+			syslog("Buffer of logger events to be sent is full: event was dropped", null);
+		}
+		scheduleFlush(FLUSH_INTERVAL);
+	}
+
+	private void scheduleFlush(long delay) {
+		if(flushScheduled.compareAndSet(false, true)) {
+			SENDER.schedule(this::flush, delay, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Send buffered events to the collector in batches
+	 */
+	protected void flush() {
+		flushScheduled.set(false);
+		String url = batchUrl;
+		List<String> batch = new ArrayList<>(BATCH_SIZE);
+		while(url!=null && buffer.drainTo(batch, BATCH_SIZE)>0) {
+			if(!send(url, batch)) {
+				//Collector is busy: try again later
+				for (String event : batch) {
+					if(!buffer.offer(event)) break;
+				}
+				break;
+			}
+			batch.clear();
+		}
+		if(!buffer.isEmpty()) scheduleFlush(FLUSH_INTERVAL);
+	}
+
+	/**
+	 * Send batch of events as NDJSON
+	 * @param url URL of batch endpoint of a collector
+	 * @param batch events in JSON format
+	 * @return false if collector asked to retry later, true otherwise
+	 */
+	protected boolean send(String url, List<String> batch) {
+		try {
+			HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+			try {
+				connection.setRequestMethod("POST");
+				connection.setDoOutput(true);
+				connection.setConnectTimeout(TIMEOUT);
+				connection.setReadTimeout(TIMEOUT);
+				connection.setRequestProperty("Content-Type", "application/x-ndjson; charset=UTF-8");
+				try(OutputStream out = connection.getOutputStream()) {
+					out.write(String.join("\n", batch).getBytes(StandardCharsets.UTF_8));
+				}
+				int status = connection.getResponseCode();
+				if(status==OLoggerReceiverResource.SC_TOO_MANY_REQUESTS
+						|| status==HttpServletResponse.SC_SERVICE_UNAVAILABLE) return false;
+				if(status/100!=2) syslog("Collector rejected "+batch.size()+" logger events with status "+status, null);
+			} finally {
+				connection.disconnect();
+			}
+		} catch (IOException e) {
+			syslog("Can't send "+batch.size()+" logger events to "+url, e);
+		}
+		return true;
+	}
+
+	/**
+	 * Get URL of batch endpoint for a collector URL
+	 * @param collectorUrl URL of a collector
+	 * @return URL of batch endpoint or null if collector is not Orienteer
+	 */
+	public static String getBatchUrl(String collectorUrl) {
+		if(Strings.isEmpty(collectorUrl)) return null;
+		String path = Strings.stripEnding(Url.parse(collectorUrl).getPath(), "/");
+		String url = Strings.stripEnding(collectorUrl, "/");
+		if(Strings.isEmpty(path)) return url+OLoggerReceiverResource.BATCH_MOUNT_PATH;
+		else if(path.endsWith(OLoggerReceiverResource.BATCH_MOUNT_PATH)) return url;
+		else if(path.endsWith(OLoggerReceiverResource.MOUNT_PATH)) return url+"/batch";
+		else return null;
+	}
+
+	public String getBatchUrl() {
+		return batchUrl;
+	}
+
 	protected void onDispatchEvent(IOLoggerEventModel eventModel, OLoggerEvent event) {
 
 	}
@@ -63,6 +182,7 @@ public class OLoggerEventDispatcher extends DefaultOLoggerEventDispatcher {
 				collectorUrl = collectorUrl+(collectorUrl.endsWith("/")?"":"/")+"resource/ologger";
 			}
 		}
+		batchUrl = getBatchUrl(collectorUrl);
 	}
 	
 	@Override
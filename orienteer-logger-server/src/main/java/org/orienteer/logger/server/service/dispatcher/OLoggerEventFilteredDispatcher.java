@@ -1,10 +1,10 @@
 package org.orienteer.logger.server.service.dispatcher;
 
-import org.orienteer.logger.server.model.IOLoggerDAO;
 import org.orienteer.logger.server.model.IOLoggerEventFilteredDispatcherModel;
 
 /**
- * Filtered event dispatcher
+ * Filtered event dispatcher. Configuration is taken from {@link IOLoggerEventFilteredDispatcherModel}
+ * through {@link OLoggerDispatcherConfigCache}
  */
 public class OLoggerEventFilteredDispatcher extends OLoggerEventDispatcher {
 
@@ -16,10 +16,14 @@ public class OLoggerEventFilteredDispatcher extends OLoggerEventDispatcher {
 
     @Override
     protected boolean needsToBeLogged(Throwable event) {
-        IOLoggerEventFilteredDispatcherModel dispatcher = IOLoggerDAO.INSTANCE.getOLoggerEventFilteredDispatcher(alias);
-        if(dispatcher==null) new IllegalStateException("There is no filtered dispatcher with alias: " + alias);
+        OLoggerDispatcherConfigCache.Config config = getConfig();
+        return super.needsToBeLogged(event) && config.getExceptions().contains(event.getClass().getName());
+    }
 
-        return super.needsToBeLogged(event) && dispatcher.getExceptions().contains(event.getClass().getName());
+    protected OLoggerDispatcherConfigCache.Config getConfig() {
+        OLoggerDispatcherConfigCache.Config config = OLoggerDispatcherConfigCache.get(alias);
+        if(config==null) throw new IllegalStateException("There is no filtered dispatcher with alias: " + alias);
+        return config;
     }
 
     public String getAlias() {
@@ -6,9 +6,8 @@ import org.orienteer.core.OrienteerWebApplication;
 import org.orienteer.core.web.ODocumentPage;
 import org.orienteer.logger.OLoggerEvent;
 import org.orienteer.logger.server.OLoggerModule;
-import org.orienteer.logger.server.model.IOLoggerDAO;
-import org.orienteer.logger.server.model.IOLoggerEventMailDispatcherModel;
 import org.orienteer.logger.server.model.IOLoggerEventModel;
+import org.orienteer.mail.model.OMail;
 import org.orienteer.mail.model.OPreparedMail;
 import org.orienteer.mail.service.IOMailService;
 
@@ -21,7 +20,8 @@ import java.util.LinkedList;
 import java.util.Map;
 
 /**
- * Event dispatcher which sends events to mail
+ * Event dispatcher which sends events to mail. Configuration is taken from
+ * {@link org.orienteer.logger.server.model.IOLoggerEventMailDispatcherModel} through {@link OLoggerDispatcherConfigCache}
  */
 public class OLoggerEventMailDispatcher extends OLoggerEventFilteredDispatcher {
 
@@ -33,12 +33,12 @@ public class OLoggerEventMailDispatcher extends OLoggerEventFilteredDispatcher {
 
     @Override
     protected void onDispatchEvent(IOLoggerEventModel eventModel, OLoggerEvent event) {
-        IOLoggerEventMailDispatcherModel dispatcher = IOLoggerDAO.INSTANCE.getOLoggerEventMailDispatcher(getAlias());
-        if(dispatcher == null) throw new IllegalStateException("There is no mail dispatcher with alias: " + getAlias());
+        OLoggerDispatcherConfigCache.Config config = getConfig();
+        if(config.getMail() == null) throw new IllegalStateException("There is no mail dispatcher with alias: " + getAlias());
 
         Map<String, Object> macros = createMacros(eventModel);
-        OPreparedMail mail = new OPreparedMail(dispatcher.getMail(), macros);
-        mail.setRecipients(new LinkedList<>(dispatcher.getRecipients()));
+        OPreparedMail mail = new OPreparedMail(new OMail(config.getMail().getRecord()), macros);
+        mail.setRecipients(new LinkedList<>(config.getRecipients()));
         getMailService().sendMailAsync(mail);
     }
 
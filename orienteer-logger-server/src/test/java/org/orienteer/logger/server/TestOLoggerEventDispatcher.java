@@ -0,0 +1,21 @@
+package org.orienteer.logger.server;
+
+import org.junit.Test;
+import org.orienteer.logger.server.service.dispatcher.OLoggerEventDispatcher;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TestOLoggerEventDispatcher {
+
+    @Test
+    public void testBatchUrl() {
+        assertEquals("http://localhost:8080/resource/ologger/batch", OLoggerEventDispatcher.getBatchUrl("http://localhost:8080"));
+        assertEquals("http://localhost:8080/resource/ologger/batch", OLoggerEventDispatcher.getBatchUrl("http://localhost:8080/"));
+        assertEquals("http://host/ctx/resource/ologger/batch", OLoggerEventDispatcher.getBatchUrl("http://host/ctx/resource/ologger"));
+        assertEquals("http://host/resource/ologger/batch", OLoggerEventDispatcher.getBatchUrl("http://host/resource/ologger/batch/"));
+        //Events are sent one by one to collectors which are not Orienteer
+        assertNull(OLoggerEventDispatcher.getBatchUrl("http://host/custom"));
+        assertNull(OLoggerEventDispatcher.getBatchUrl(null));
+    }
+}
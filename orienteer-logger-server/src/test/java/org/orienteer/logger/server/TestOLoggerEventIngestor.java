@@ -0,0 +1,116 @@
+package org.orienteer.logger.server;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.orienteer.core.OrienteerWebApplication;
+import org.orienteer.junit.OrienteerTestRunner;
+import org.orienteer.logger.server.model.IOLoggerDAO;
+import org.orienteer.logger.server.model.IOLoggerEventModel;
+import org.orienteer.logger.server.resource.OLoggerReceiverResource;
+import org.orienteer.logger.server.service.OLoggerEventIngestor;
+
+import com.github.openjson.JSONObject;
+import com.google.inject.Inject;
+
+import ru.ydn.wicket.wicketorientdb.utils.DBClosure;
+
+import javax.servlet.http.HttpServletResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(OrienteerTestRunner.class)
+public class TestOLoggerEventIngestor {
+
+    @Inject
+    private OLoggerEventIngestor ingestor;
+
+    @Inject
+    private IOLoggerDAO loggerDAO;
+
+    private String correlationId;
+
+    @Before
+    public void init() {
+        correlationId = UUID.randomUUID().toString();
+    }
+
+    @After
+    public void destroy() {
+        DBClosure.sudoConsumer(db -> {
+            db.command("delete from " + IOLoggerEventModel.CLASS_NAME + " where correlationId = ?", correlationId);
+        });
+    }
+
+    @Test
+    public void testSplitBatch() {
+        String first = createEvent(1);
+        String second = createEvent(2);
+        String third = createEvent(3);
+        assertEquals(Arrays.asList(first, second, third),
+                OLoggerReceiverResource.splitBatch(first + "\n\n" + second + "\r\n" + third + "\n"));
+        assertEquals(Arrays.asList(first, second, third),
+                OLoggerReceiverResource.splitBatch("[" + first + "," + second + "," + third + "]"));
+        assertEquals(Arrays.asList(first, second, third),
+                OLoggerReceiverResource.splitBatch("[" + first + "," + second + "]\n[" + third + "]"));
+        assertTrue(OLoggerReceiverResource.splitBatch(" \n").isEmpty());
+        assertTrue(OLoggerReceiverResource.splitBatch(null).isEmpty());
+    }
+
+    @Test
+    public void testAcceptedEventsAreStored() throws InterruptedException {
+        List<String> events = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            events.add(createEvent(i));
+        }
+        assertEquals(HttpServletResponse.SC_ACCEPTED, OLoggerReceiverResource.accept(ingestor, events));
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (loggerDAO.getEventsByCorrelationId(correlationId).size() < events.size()
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        assertEquals(events.size(), loggerDAO.getEventsByCorrelationId(correlationId).size());
+    }
+
+    @Test
+    public void testEmptyBatchIsAccepted() {
+        assertEquals(HttpServletResponse.SC_ACCEPTED, OLoggerReceiverResource.accept(ingestor, Collections.emptyList()));
+    }
+
+    @Test
+    public void testFullQueueIsRejected() {
+        OLoggerEventIngestor smallIngestor = new OLoggerEventIngestor();
+        smallIngestor.setQueueSize(2);
+        smallIngestor.start(OrienteerWebApplication.lookupApplication());
+        try {
+            List<String> events = Arrays.asList(createEvent(1), createEvent(2), createEvent(3));
+            assertEquals(OLoggerReceiverResource.SC_TOO_MANY_REQUESTS, OLoggerReceiverResource.accept(smallIngestor, events));
+            //Events are accepted all or nothing
+            assertEquals(0, smallIngestor.getPendingCount());
+        } finally {
+            smallIngestor.stop();
+        }
+    }
+
+    @Test
+    public void testStoppedIngestorIsUnavailable() {
+        OLoggerEventIngestor stoppedIngestor = new OLoggerEventIngestor();
+        assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                OLoggerReceiverResource.accept(stoppedIngestor, Collections.singletonList(createEvent(1))));
+    }
+
+    private String createEvent(int i) {
+        JSONObject event = new JSONObject();
+        event.put("correlationId", correlationId);
+        event.put("message", "Test event " + i);
+        return event.toString();
+    }
+}
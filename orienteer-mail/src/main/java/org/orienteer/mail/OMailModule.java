@@ -13,6 +13,9 @@ import org.orienteer.core.util.OSchemaHelper;
 import org.orienteer.mail.model.OMail;
 import org.orienteer.mail.model.OMailSettings;
 import org.orienteer.mail.model.OPreparedMail;
+import org.orienteer.mail.service.IOMailService;
+import org.orienteer.mail.service.OMailServiceImpl;
+import org.orienteer.mail.service.OSmtpConnectionPool;
 import org.orienteer.mail.task.IOSendMailTask;
 import org.orienteer.mail.task.IOSendMailTaskSession;
 
@@ -75,4 +78,11 @@ public class OMailModule extends AbstractOrienteerModule {
 	public void onUpdate(OrienteerWebApplication app, ODatabaseSession db, int oldVersion, int newVersion) {
 		onInstall(app, db);
 	}
+
+	@Override
+	public void onDestroy(OrienteerWebApplication app, ODatabaseSession db) {
+		IOMailService mailService = app.getServiceInstance(IOMailService.class);
+		if (mailService instanceof OMailServiceImpl) ((OMailServiceImpl) mailService).shutdown();
+		app.getServiceInstance(OSmtpConnectionPool.class).close();
+	}
 }
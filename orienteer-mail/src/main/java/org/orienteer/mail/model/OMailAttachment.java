@@ -2,7 +2,7 @@ package org.orienteer.mail.model;
 
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.type.ODocumentWrapper;
-import org.apache.tika.Tika;
+import org.orienteer.core.util.CommonUtils;
 
 import javax.activation.DataSource;
 import javax.mail.util.ByteArrayDataSource;
@@ -73,7 +73,7 @@ public class OMailAttachment extends ODocumentWrapper {
 
     public DataSource toDataSource() {
         byte [] data = getData();
-        ByteArrayDataSource dataSource = new ByteArrayDataSource(data, new Tika().detect(data));
+        ByteArrayDataSource dataSource = new ByteArrayDataSource(data, CommonUtils.detectContentType(data));
         dataSource.setName(getName());
         return dataSource;
     }
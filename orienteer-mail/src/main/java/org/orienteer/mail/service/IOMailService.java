@@ -33,6 +33,24 @@ public interface IOMailService {
      */
     public void sendMails(List<OPreparedMail> mails) throws MessagingException, UnsupportedEncodingException;
 
+    /**
+     * Send mails to recipients and call callback after each successfully sent mail.
+     * Default implementation sends mails one by one: implementations can reuse SMTP connections
+     * for mails with the same settings
+     * @param mails prepared mails which will be send
+     * @param onSent callback which is called after each successfully sent mail. Can be null
+     * @throws MessagingException
+     * @throws UnsupportedEncodingException
+     */
+    public default void sendMails(List<OPreparedMail> mails, Consumer<OPreparedMail> onSent) throws MessagingException, UnsupportedEncodingException {
+        for (OPreparedMail mail : mails) {
+            sendMail(mail);
+            if (onSent != null) {
+                onSent.accept(mail);
+            }
+        }
+    }
+
     /**
      * Send mail to recipients asynchronous
      * @param mail prepared mail which will be send
@@ -1,5 +1,8 @@
 package org.orienteer.mail.service;
 
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
 import org.apache.wicket.ThreadContext;
 import org.apache.wicket.request.cycle.RequestCycle;
 import org.orienteer.core.OrienteerWebApplication;
@@ -16,37 +19,125 @@ import javax.mail.*;
 import javax.mail.internet.*;
 import javax.mail.search.FlagTerm;
 import java.io.UnsupportedEncodingException;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 /**
- * Implementation of {@link IOMailService}
+ * Implementation of {@link IOMailService}.
+ * Mails are sent through pooled SMTP connections of {@link OSmtpConnectionPool}.
+ * Asynchronous operations are executed on bounded pool of threads
  */
+@Singleton
 public class OMailServiceImpl implements IOMailService {
 
     private static final Logger LOG = LoggerFactory.getLogger(OMailServiceImpl.class);
 
+    public static final int DEFAULT_ASYNC_POOL_SIZE = 4;
+    public static final int DEFAULT_ASYNC_QUEUE_SIZE = 1000;
+
+    @Inject
+    private OSmtpConnectionPool connectionPool;
+
+    private int asyncPoolSize = DEFAULT_ASYNC_POOL_SIZE;
+    private int asyncQueueSize = DEFAULT_ASYNC_QUEUE_SIZE;
+    private ThreadPoolExecutor executor;
+
+    /**
+     * @param asyncPoolSize number of threads for asynchronous sending and fetching of mails
+     */
+    @Inject(optional = true)
+    public void setAsyncPoolSize(@Named("orienteer.mail.async.pool.size") int asyncPoolSize) {
+        this.asyncPoolSize = asyncPoolSize;
+    }
+
+    /**
+     * @param asyncQueueSize max number of asynchronous operations waiting for a free thread
+     */
+    @Inject(optional = true)
+    public void setAsyncQueueSize(@Named("orienteer.mail.async.queue.size") int asyncQueueSize) {
+        this.asyncQueueSize = asyncQueueSize;
+    }
+
+    /**
+     * Connections of the current {@link #sendMails(List, Consumer)} pipeline: {@link #sendMail(OPreparedMail)}
+     * invoked within the pipeline reuses them instead of borrowing a connection per mail
+     */
+    private final ThreadLocal<Map<OMailSettings, OSmtpConnectionPool.Connection>> pipelineConnections = new ThreadLocal<>();
 
     @Override
     public void sendMail(OPreparedMail mail) throws MessagingException, UnsupportedEncodingException {
-        final OMailSettings settings = mail.getMailSettings();
-        final Session session = createSession(settings, createSendMailProperties(settings));
-        final Message message = new MimeMessage(session);
-        message.setRecipients(Message.RecipientType.TO, toAddressArray(mail.getRecipients()));
-        message.setRecipients(Message.RecipientType.BCC, toAddressArray(mail.getBcc()));
-
-        message.setFrom(createFrom(mail, settings));
-        message.setSubject(mail.getSubject());
-        message.setContent(createMessageContent(mail));
-        sendMessage(message);
+        Map<OMailSettings, OSmtpConnectionPool.Connection> connections = pipelineConnections.get();
+        if (connections != null) {
+            sendMail(mail, connections);
+            return;
+        }
+        connections = new HashMap<>(1);
+        try {
+            sendMail(mail, connections);
+        } finally {
+            connections.values().forEach(connectionPool::release);
+        }
     }
 
     @Override
     public void sendMails(List<OPreparedMail> mails) throws MessagingException, UnsupportedEncodingException {
-        for (OPreparedMail mail : mails) {
-            sendMail(mail);
+        sendMails(mails, null);
+    }
+
+    @Override
+    public void sendMails(List<OPreparedMail> mails, Consumer<OPreparedMail> onSent) throws MessagingException, UnsupportedEncodingException {
+        //Connections are reused for all mails with the same settings till the end of the pipeline.
+        //Every mail goes through sendMail(OPreparedMail), so it still can be intercepted by subclasses
+        boolean pipelineOwner = pipelineConnections.get() == null;
+        if (pipelineOwner) pipelineConnections.set(new HashMap<>());
+        try {
+            for (OPreparedMail mail : mails) {
+                sendMail(mail);
+                if (onSent != null) onSent.accept(mail);
+            }
+        } finally {
+            if (pipelineOwner) {
+                Map<OMailSettings, OSmtpConnectionPool.Connection> connections = pipelineConnections.get();
+                pipelineConnections.remove();
+                connections.values().forEach(connectionPool::release);
+            }
+        }
+    }
+
+    private void sendMail(OPreparedMail mail, Map<OMailSettings, OSmtpConnectionPool.Connection> connections)
+            throws MessagingException, UnsupportedEncodingException {
+        OMailSettings settings = mail.getMailSettings();
+        Message message = createMessage(mail, settings);
+        OSmtpConnectionPool.Connection connection = connections.get(settings);
+        if (connection != null && connectionPool.isExhausted(connection)) {
+            //Server can refuse more messages through the same connection: it's closed by the pool on release
+            connections.remove(settings);
+            connectionPool.release(connection);
+            connection = null;
+        }
+        if (connection == null) {
+            connection = connectionPool.borrow(settings);
+            connections.put(settings, connection);
+        }
+        try {
+            sendMessage(connection, message);
+        } catch (MessagingException e) {
+            if (connection.isConnected()) throw e;
+            //Connection was dropped by the server: the mail should be sent through a new one
+            connections.remove(settings);
+            connectionPool.invalidate(connection);
+            connection = connectionPool.borrow(settings);
+            connections.put(settings, connection);
+            sendMessage(connection, message);
         }
     }
 
@@ -57,18 +148,18 @@ public class OMailServiceImpl implements IOMailService {
 
     @Override
     public void sendMailsAsync(List<OPreparedMail> mails) {
-        executeInNewThread(() -> {
+        executeAsync(() -> {
             try {
                 sendMails(mails);
             } catch (Exception e) {
                 LOG.error("Error occurred during sending mails: {}", mails, e);
             }
-        });
+        }, null);
     }
 
     @Override
     public void sendMailAsync(OPreparedMail mail, Consumer<Boolean> f) {
-        executeInNewThread(() -> {
+        executeAsync(() -> {
             boolean success = false;
             try {
                 sendMail(mail);
@@ -78,7 +169,7 @@ public class OMailServiceImpl implements IOMailService {
             } finally {
                 if (f != null) f.accept(success);
             }
-        });
+        }, f);
     }
 
     @Override
@@ -111,8 +202,36 @@ public class OMailServiceImpl implements IOMailService {
                 fetchMails(settings, folderName, consumer);
             } catch (Exception ex) {
                 LOG.error("Error during fetching mails: {}", settings, ex);
+            } finally {
+                ThreadContext.detach();
             }
-        });
+        }, getExecutor());
+    }
+
+    /**
+     * Stop threads for asynchronous operations. Operations which are waiting in the queue are not executed
+     */
+    public void shutdown() {
+        ThreadPoolExecutor executor;
+        synchronized (this) {
+            executor = this.executor;
+            this.executor = null;
+        }
+        if (executor != null) {
+            List<Runnable> dropped = executor.shutdownNow();
+            if (!dropped.isEmpty()) LOG.warn("{} asynchronous mail operations were dropped on shutdown", dropped.size());
+        }
+    }
+
+    protected Message createMessage(OPreparedMail mail, OMailSettings settings) throws MessagingException, UnsupportedEncodingException {
+        final Message message = new MimeMessage(connectionPool.getSession(settings));
+        message.setRecipients(Message.RecipientType.TO, toAddressArray(mail.getRecipients()));
+        message.setRecipients(Message.RecipientType.BCC, toAddressArray(mail.getBcc()));
+
+        message.setFrom(createFrom(mail, settings));
+        message.setSubject(mail.getSubject());
+        message.setContent(createMessageContent(mail));
+        return message;
     }
 
     private Multipart createMessageContent(OPreparedMail mail) throws MessagingException {
@@ -157,15 +276,6 @@ public class OMailServiceImpl implements IOMailService {
         });
     }
 
-    private Properties createSendMailProperties(OMailSettings settings) {
-        Properties properties = new Properties();
-        properties.put("mail.smtp.auth", "true");
-        properties.put("mail.smtp.starttls.enable", settings.isTlsSsl());
-        properties.put("mail.smtp.host", settings.getSmtpHost());
-        properties.put("mail.smtp.port", settings.getSmtpPort());
-        return properties;
-    }
-
     private Properties createCheckMailProperties(OMailSettings settings) {
         Properties properties = new Properties();
         properties.put("mail.store.protocol", "imaps");
@@ -182,20 +292,43 @@ public class OMailServiceImpl implements IOMailService {
         return addresses;
     }
 
-    private void executeInNewThread(Runnable runnable) {
+    private void executeAsync(Runnable runnable, Consumer<Boolean> onRejected) {
         OrienteerWebSession session = OrienteerWebSession.get();
         OrienteerWebApplication app = OrienteerWebApplication.get();
         RequestCycle requestCycle = RequestCycle.get();
 
-        new Thread(() -> {
-            ThreadContext.setSession(session);
-            ThreadContext.setApplication(app);
-            ThreadContext.setRequestCycle(requestCycle);
-            runnable.run();
-        }).start();
+        try {
+            getExecutor().execute(() -> {
+                ThreadContext.setSession(session);
+                ThreadContext.setApplication(app);
+                ThreadContext.setRequestCycle(requestCycle);
+                try {
+                    runnable.run();
+                } finally {
+                    ThreadContext.detach();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOG.error("Queue of asynchronous mail operations is full", e);
+            if (onRejected != null) onRejected.accept(false);
+        }
+    }
+
+    private synchronized ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            AtomicInteger counter = new AtomicInteger();
+            executor = new ThreadPoolExecutor(asyncPoolSize, asyncPoolSize, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(asyncQueueSize), r -> {
+                        Thread thread = new Thread(r, "orienteer-mail-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            executor.allowCoreThreadTimeOut(true);
+        }
+        return executor;
     }
 
-    protected void sendMessage(Message message) throws MessagingException {
-        Transport.send(message);
+    protected void sendMessage(OSmtpConnectionPool.Connection connection, Message message) throws MessagingException {
+        connection.send(message);
     }
 }
@@ -0,0 +1,295 @@
+package org.orienteer.mail.service;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.google.inject.name.Named;
+import org.orienteer.mail.model.OMailSettings;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.mail.Authenticator;
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.PasswordAuthentication;
+import javax.mail.Session;
+import javax.mail.Transport;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keyed pool of connected SMTP {@link Transport}s.
+ * Connections and {@link Session}s are shared between mails with the same {@link OMailSettings}, so handshake
+ * with SMTP server (TCP, TLS and AUTH) is done once per connection and not once per mail.
+ * Idle connection is checked before reuse if it was idle for a while and closed if it was idle for too long
+ */
+@Singleton
+public class OSmtpConnectionPool {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OSmtpConnectionPool.class);
+
+    public static final int DEFAULT_MAX_IDLE = 4;
+    public static final long DEFAULT_IDLE_TIMEOUT = 60_000;
+    public static final long DEFAULT_VALIDATE_AFTER = 5_000;
+    public static final int DEFAULT_MAX_MESSAGES = 100;
+    public static final int DEFAULT_TIMEOUT = 30_000;
+
+    private final Map<SmtpKey, Session> sessions = new ConcurrentHashMap<>();
+    private final Map<SmtpKey, Deque<Connection>> idle = new ConcurrentHashMap<>();
+
+    private int maxIdle = DEFAULT_MAX_IDLE;
+    private long idleTimeout = DEFAULT_IDLE_TIMEOUT;
+    private long validateAfter = DEFAULT_VALIDATE_AFTER;
+    private int maxMessages = DEFAULT_MAX_MESSAGES;
+    private volatile boolean closed = false;
+
+    /**
+     * @param maxIdle max number of idle connections kept for the same settings
+     */
+    @Inject(optional = true)
+    public void setMaxIdle(@Named("orienteer.mail.pool.idle") int maxIdle) {
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * @param idleTimeout time in milliseconds after which idle connection is closed
+     */
+    @Inject(optional = true)
+    public void setIdleTimeout(@Named("orienteer.mail.pool.idle.timeout") long idleTimeout) {
+        this.idleTimeout = idleTimeout;
+    }
+
+    /**
+     * @param maxMessages max number of messages sent through a connection before it's reopened.
+     *                    Many SMTP servers limit number of messages per connection
+     */
+    @Inject(optional = true)
+    public void setMaxMessages(@Named("orienteer.mail.pool.connection.messages") int maxMessages) {
+        this.maxMessages = maxMessages;
+    }
+
+    /**
+     * Get cached {@link Session} for sending mails with provided settings
+     * @param settings mail settings
+     * @return mail session
+     */
+    public Session getSession(OMailSettings settings) {
+        SmtpKey key = new SmtpKey(settings);
+        return sessions.computeIfAbsent(key, OSmtpConnectionPool::createSession);
+    }
+
+    /**
+     * Borrow connected transport for sending mails with provided settings.
+     * Borrowed connection should be returned by {@link #release(Connection)} or {@link #invalidate(Connection)}
+     * @param settings mail settings
+     * @return connection
+     * @throws MessagingException if it's not possible to connect to SMTP server
+     */
+    public Connection borrow(OMailSettings settings) throws MessagingException {
+        if (closed) throw new IllegalStateException("SMTP connection pool is closed");
+        SmtpKey key = new SmtpKey(settings);
+        Deque<Connection> connections = idle.get(key);
+        if (connections != null) {
+            Connection connection;
+            while ((connection = poll(connections)) != null) {
+                if (isAlive(connection)) {
+                    return connection;
+                }
+                connection.close();
+            }
+        }
+        Session session = sessions.computeIfAbsent(key, OSmtpConnectionPool::createSession);
+        Transport transport = session.getTransport("smtp");
+        transport.connect();
+        return new Connection(key, transport);
+    }
+
+    /**
+     * @param connection connection to check
+     * @return true if max number of messages were sent through the connection and it shouldn't be used anymore
+     */
+    public boolean isExhausted(Connection connection) {
+        return connection.messages >= maxMessages;
+    }
+
+    /**
+     * Return connection to the pool. Connection is closed if the pool is full or connection is exhausted
+     * @param connection connection to return
+     */
+    public void release(Connection connection) {
+        if (connection == null) return;
+        if (closed || isExhausted(connection)) {
+            connection.close();
+            return;
+        }
+        Deque<Connection> connections = idle.computeIfAbsent(connection.key, k -> new LinkedList<>());
+        List<Connection> toClose = new ArrayList<>();
+        synchronized (connections) {
+            connection.lastUsed = System.currentTimeMillis();
+            connections.addFirst(connection);
+            evict(connections, toClose);
+        }
+        toClose.forEach(Connection::close);
+    }
+
+    /**
+     * Close connection which failed and shouldn't be reused
+     * @param connection connection to close
+     */
+    public void invalidate(Connection connection) {
+        if (connection != null) connection.close();
+    }
+
+    /**
+     * Close all idle connections and forget cached sessions
+     */
+    public void close() {
+        closed = true;
+        closeIdle();
+        sessions.clear();
+    }
+
+    /**
+     * Close all idle connections. Pool still can be used after that
+     */
+    public void closeIdle() {
+        for (Deque<Connection> connections : idle.values()) {
+            List<Connection> toClose;
+            synchronized (connections) {
+                toClose = new ArrayList<>(connections);
+                connections.clear();
+            }
+            toClose.forEach(Connection::close);
+        }
+    }
+
+    private Connection poll(Deque<Connection> connections) {
+        List<Connection> toClose = new ArrayList<>();
+        Connection connection;
+        synchronized (connections) {
+            evict(connections, toClose);
+            connection = connections.pollFirst();
+        }
+        toClose.forEach(Connection::close);
+        return connection;
+    }
+
+    private void evict(Deque<Connection> connections, List<Connection> toClose) {
+        long now = System.currentTimeMillis();
+        Iterator<Connection> it = connections.iterator();
+        int count = 0;
+        while (it.hasNext()) {
+            Connection connection = it.next();
+            if (++count > maxIdle || now - connection.lastUsed > idleTimeout) {
+                it.remove();
+                toClose.add(connection);
+            }
+        }
+    }
+
+    private boolean isAlive(Connection connection) {
+        if (System.currentTimeMillis() - connection.lastUsed < validateAfter) return true;
+        //Transport.isConnected() of SMTP transport sends NOOP to the server
+        return connection.transport.isConnected();
+    }
+
+    private static Session createSession(SmtpKey key) {
+        Properties properties = new Properties();
+        properties.put("mail.smtp.auth", "true");
+        properties.put("mail.smtp.starttls.enable", key.tlsSsl);
+        properties.put("mail.smtp.host", key.host);
+        properties.put("mail.smtp.port", key.port);
+        properties.put("mail.smtp.connectiontimeout", DEFAULT_TIMEOUT);
+        properties.put("mail.smtp.timeout", DEFAULT_TIMEOUT);
+        properties.put("mail.smtp.writetimeout", DEFAULT_TIMEOUT);
+        return Session.getInstance(properties, new Authenticator() {
+            @Override
+            protected PasswordAuthentication getPasswordAuthentication() {
+                return new PasswordAuthentication(key.email, key.password);
+            }
+        });
+    }
+
+    /**
+     * Connected transport borrowed from {@link OSmtpConnectionPool}
+     */
+    public static class Connection {
+        private final SmtpKey key;
+        private final Transport transport;
+        private long lastUsed = System.currentTimeMillis();
+        private int messages = 0;
+
+        private Connection(SmtpKey key, Transport transport) {
+            this.key = key;
+            this.transport = transport;
+        }
+
+        /**
+         * Send message to all its recipients through this connection
+         * @param message message to send
+         * @throws MessagingException if message can't be sent
+         */
+        public void send(Message message) throws MessagingException {
+            message.saveChanges();
+            messages++;
+            transport.sendMessage(message, message.getAllRecipients());
+        }
+
+        /**
+         * @return true if connection is still open. SMTP server is asked if connection has been used a while ago
+         */
+        public boolean isConnected() {
+            return transport.isConnected();
+        }
+
+        private void close() {
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                LOG.debug("Can't close SMTP connection", e);
+            }
+        }
+    }
+
+    /**
+     * Key of settings which affect SMTP connection
+     */
+    private static final class SmtpKey {
+        private final String email;
+        private final String password;
+        private final String host;
+        private final int port;
+        private final boolean tlsSsl;
+
+        private SmtpKey(OMailSettings settings) {
+            this.email = settings.getEmail();
+            this.password = settings.getPassword();
+            this.host = settings.getSmtpHost();
+            this.port = settings.getSmtpPort();
+            this.tlsSsl = settings.isTlsSsl();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            SmtpKey smtpKey = (SmtpKey) o;
+            return port == smtpKey.port
+                    && tlsSsl == smtpKey.tlsSsl
+                    && Objects.equals(email, smtpKey.email)
+                    && Objects.equals(password, smtpKey.password)
+                    && Objects.equals(host, smtpKey.host);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(email, password, host, port, tlsSsl);
+        }
+    }
+}
@@ -2,14 +2,12 @@ package org.orienteer.mail.task;
 
 import com.google.inject.ProvidedBy;
 import com.orientechnologies.orient.core.record.impl.ODocument;
-import org.apache.wicket.ThreadContext;
-import org.apache.wicket.request.cycle.RequestCycle;
 import org.orienteer.core.OrienteerWebApplication;
-import org.orienteer.core.OrienteerWebSession;
 import org.orienteer.core.dao.DAOOClass;
 import org.orienteer.core.dao.ODocumentWrapperProvider;
 import org.orienteer.core.tasks.IOTask;
 import org.orienteer.core.tasks.IOTaskSessionPersisted;
+import org.orienteer.core.tasks.OTaskManager;
 import org.orienteer.core.tasks.OTaskSessionRuntime;
 import org.orienteer.mail.model.OPreparedMail;
 import org.orienteer.mail.service.IOMailService;
@@ -20,6 +18,7 @@ import ru.ydn.wicket.wicketorientdb.utils.DBClosure;
 import javax.mail.MessagingException;
 import java.io.UnsupportedEncodingException;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Task which sends list of {@link OPreparedMail} from prepared {@link IOSendMailTaskSession}.
@@ -38,46 +37,32 @@ public interface IOSendMailTask extends IOTask {
     	throw new IllegalStateException("You should precreate "+IOSendMailTaskSession.class.getSimpleName()+" first");
     }
     public default OTaskSessionRuntime<IOSendMailTaskSession> startNewSession(IOSendMailTaskSession session) {
-    	OTaskSessionRuntime<IOSendMailTaskSession> runtime = new OTaskSessionRuntime<>(IOSendMailTaskSession.class)
+    	OTaskSessionRuntime<IOSendMailTaskSession> runtime = new OTaskSessionRuntime<>(session)
     															.init(this);
-        runtime.start().setProgress(0);
-
         performTask(runtime);
         return runtime;
     }
 
     public default void performTask(OTaskSessionRuntime<IOSendMailTaskSession> runtime) {
-        OrienteerWebSession session = OrienteerWebSession.get();
-        OrienteerWebApplication app = OrienteerWebApplication.get();
-        RequestCycle requestCycle = RequestCycle.get();
-
-        new Thread(() -> {
-            ThreadContext.setSession(session);
-            ThreadContext.setApplication(app);
-            ThreadContext.setRequestCycle(requestCycle);
-
+        runtime.setProgress(0);
+        OTaskManager.get().submit(runtime, () -> {
             DBClosure.sudoConsumer(db -> {
                 try {
                     sendMails(runtime);
                 } catch (Exception ex) {
                     LOG.error("Error occurred during perform task {}", IOSendMailTask.this, ex);
-                } finally {
-                    runtime.finish();
+                    runtime.appendOutput(ex.getMessage());
                 }
             });
-        }).start();
+        });
     }
 
     static void sendMails(OTaskSessionRuntime<IOSendMailTaskSession> runtime) throws UnsupportedEncodingException, MessagingException {
         List<OPreparedMail> mails = runtime.getOTaskSessionPersisted().getMails();
         IOMailService service = OrienteerWebApplication.lookupApplication().getServiceInstance(IOMailService.class);
         final int allSize = mails.size();
-        int counter = 1;
+        final AtomicInteger counter = new AtomicInteger();
 
-        for (OPreparedMail mail : mails) {
-            service.sendMail(mail);
-            runtime.setProgress(100.0 * counter / allSize);
-            counter++;
-        }
+        service.sendMails(mails, mail -> runtime.setProgress(100.0 * counter.incrementAndGet() / allSize));
     }
 }
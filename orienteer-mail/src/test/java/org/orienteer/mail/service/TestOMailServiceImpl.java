@@ -0,0 +1,110 @@
+package org.orienteer.mail.service;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.orienteer.mail.model.OMailSettings;
+import org.orienteer.mail.model.OPreparedMail;
+
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestOMailServiceImpl {
+
+    private GreenMail greenMail;
+    private OSmtpConnectionPool pool;
+    private OMailSettings settings;
+    private List<OSmtpConnectionPool.Connection> usedConnections;
+    private List<OPreparedMail> sentMails;
+    private OMailServiceImpl service;
+
+    @Before
+    public void init() {
+        greenMail = new GreenMail(ServerSetupTest.SMTP);
+        greenMail.start();
+        usedConnections = new ArrayList<>();
+        sentMails = new ArrayList<>();
+        Injector injector = Guice.createInjector(binder -> binder.bind(OMailServiceImpl.class).toInstance(new OMailServiceImpl() {
+            @Override
+            public void sendMail(OPreparedMail mail) throws MessagingException, UnsupportedEncodingException {
+                sentMails.add(mail);
+                super.sendMail(mail);
+            }
+
+            @Override
+            protected void sendMessage(OSmtpConnectionPool.Connection connection, Message message) throws MessagingException {
+                usedConnections.add(connection);
+                super.sendMessage(connection, message);
+            }
+        }));
+        pool = injector.getInstance(OSmtpConnectionPool.class);
+        service = injector.getInstance(OMailServiceImpl.class);
+        settings = new OMailSettings(new ODocument())
+                .setEmail("sender@localhost")
+                .setPassword("secret")
+                .setSmtpHost("localhost")
+                .setSmtpPort(ServerSetupTest.SMTP.getPort())
+                .setTlsSsl(false);
+    }
+
+    @After
+    public void destroy() {
+        service.shutdown();
+        pool.close();
+        greenMail.stop();
+    }
+
+    @Test
+    public void testBatchIsSentThroughSendMail() throws Exception {
+        List<OPreparedMail> mails = createMails(5);
+        List<OPreparedMail> notified = new ArrayList<>();
+        service.sendMails(mails, notified::add);
+
+        assertEquals(mails, sentMails);
+        assertEquals(mails, notified);
+        assertEquals(5, greenMail.getReceivedMessages().length);
+        //All mails of the batch are sent through the same connection
+        assertEquals(1, countDistinct(usedConnections));
+    }
+
+    @Test
+    public void testExhaustedConnectionIsRecycledWithinBatch() throws Exception {
+        pool.setMaxMessages(2);
+        service.sendMails(createMails(5));
+
+        assertEquals(5, greenMail.getReceivedMessages().length);
+        assertEquals(3, countDistinct(usedConnections));
+    }
+
+    private List<OPreparedMail> createMails(int count) {
+        List<OPreparedMail> mails = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            OPreparedMail mail = new OPreparedMail(new ODocument())
+                    .setSubject("Test " + i)
+                    .setFrom("Sender")
+                    .setText("Test message " + i)
+                    .setMailSettings(settings);
+            mail.addRecipient("recipient" + i + "@localhost");
+            mails.add(mail);
+        }
+        return mails;
+    }
+
+    private static int countDistinct(List<?> objects) {
+        Map<Object, Boolean> distinct = new IdentityHashMap<>();
+        objects.forEach(o -> distinct.put(o, true));
+        return distinct.size();
+    }
+}
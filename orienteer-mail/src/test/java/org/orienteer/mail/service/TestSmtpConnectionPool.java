@@ -0,0 +1,100 @@
+package org.orienteer.mail.service;
+
+import com.icegreen.greenmail.util.GreenMail;
+import com.icegreen.greenmail.util.ServerSetupTest;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.orienteer.mail.model.OMailSettings;
+
+import javax.mail.Message;
+import javax.mail.MessagingException;
+import javax.mail.internet.InternetAddress;
+import javax.mail.internet.MimeMessage;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class TestSmtpConnectionPool {
+
+    private GreenMail greenMail;
+    private OSmtpConnectionPool pool;
+    private OMailSettings settings;
+
+    @Before
+    public void init() {
+        greenMail = new GreenMail(ServerSetupTest.SMTP);
+        greenMail.start();
+        pool = new OSmtpConnectionPool();
+        settings = new OMailSettings(new ODocument())
+                .setEmail("sender@localhost")
+                .setPassword("secret")
+                .setSmtpHost("localhost")
+                .setSmtpPort(ServerSetupTest.SMTP.getPort())
+                .setTlsSsl(false);
+    }
+
+    @After
+    public void destroy() {
+        pool.close();
+        greenMail.stop();
+    }
+
+    @Test
+    public void testConnectionIsReused() throws Exception {
+        OSmtpConnectionPool.Connection connection = pool.borrow(settings);
+        for (int i = 0; i < 20; i++) {
+            connection.send(createMessage(i));
+        }
+        pool.release(connection);
+
+        OSmtpConnectionPool.Connection reused = pool.borrow(settings);
+        assertSame(connection, reused);
+        reused.send(createMessage(20));
+        pool.release(reused);
+
+        assertEquals(21, greenMail.getReceivedMessages().length);
+    }
+
+    @Test
+    public void testExhaustedConnectionIsClosed() throws Exception {
+        pool.setMaxMessages(5);
+        OSmtpConnectionPool.Connection connection = pool.borrow(settings);
+        for (int i = 0; i < 5; i++) {
+            connection.send(createMessage(i));
+        }
+        pool.release(connection);
+
+        OSmtpConnectionPool.Connection next = pool.borrow(settings);
+        assertNotSame(connection, next);
+        next.send(createMessage(5));
+        pool.release(next);
+
+        assertEquals(6, greenMail.getReceivedMessages().length);
+    }
+
+    @Test
+    public void testInvalidatedConnectionIsNotReused() throws Exception {
+        OSmtpConnectionPool.Connection connection = pool.borrow(settings);
+        connection.send(createMessage(0));
+        pool.invalidate(connection);
+
+        OSmtpConnectionPool.Connection next = pool.borrow(settings);
+        assertNotSame(connection, next);
+        next.send(createMessage(1));
+        pool.release(next);
+
+        assertEquals(2, greenMail.getReceivedMessages().length);
+    }
+
+    private Message createMessage(int i) throws MessagingException {
+        MimeMessage message = new MimeMessage(pool.getSession(settings));
+        message.setFrom(new InternetAddress(settings.getEmail()));
+        message.setRecipient(Message.RecipientType.TO, new InternetAddress("recipient" + i + "@localhost"));
+        message.setSubject("Test " + i);
+        message.setText("Test message " + i);
+        return message;
+    }
+}
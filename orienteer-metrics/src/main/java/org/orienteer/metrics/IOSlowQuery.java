@@ -0,0 +1,52 @@
+package org.orienteer.metrics;
+
+import java.util.Date;
+
+import org.orienteer.core.dao.DAOField;
+import org.orienteer.core.dao.DAOIndex;
+import org.orienteer.core.dao.DAOOClass;
+import org.orienteer.core.dao.IODocumentWrapper;
+import org.orienteer.core.dao.ODocumentWrapperProvider;
+
+import com.google.inject.ProvidedBy;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
+import com.orientechnologies.orient.core.metadata.schema.OType;
+
+/**
+ * Wrapper for a query which took longer than configured threshold
+ */
+@ProvidedBy(ODocumentWrapperProvider.class)
+@DAOOClass(value = IOSlowQuery.CLASS_NAME,
+			nameProperty = "fingerprint",
+			displayable = {"fingerprint", "duration", "timestamp"})
+@DAOIndex(name = IOSlowQuery.INDEX_TIMESTAMP, type = OClass.INDEX_TYPE.NOTUNIQUE, fields = {"timestamp"})
+public interface IOSlowQuery extends IODocumentWrapper {
+
+	public static final String CLASS_NAME = "OSlowQuery";
+	public static final String INDEX_TIMESTAMP = "OSlowQuery.timestamp";
+
+	/**
+	 * @return normalized query
+	 */
+	@DAOField(notNull = true)
+	public String getFingerprint();
+	public IOSlowQuery setFingerprint(String fingerprint);
+
+	/**
+	 * @return query as it was executed
+	 */
+	@DAOField(type = OType.STRING)
+	public String getQuery();
+	public IOSlowQuery setQuery(String query);
+
+	/**
+	 * @return duration of the query in milliseconds
+	 */
+	@DAOField(notNull = true)
+	public Long getDuration();
+	public IOSlowQuery setDuration(Long duration);
+
+	@DAOField(type = OType.DATETIME, notNull = true)
+	public Date getTimestamp();
+	public IOSlowQuery setTimestamp(Date timestamp);
+}
@@ -0,0 +1,177 @@
+package org.orienteer.metrics;
+
+import java.util.Date;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.wicket.ThreadContext;
+import org.orienteer.core.OrienteerWebApplication;
+import org.orienteer.core.dao.DAO;
+import org.orienteer.core.util.OInstrumentation;
+import org.orienteer.core.util.OInstrumentation.IInstrumentationListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.orientechnologies.orient.core.hook.ORecordHook;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import io.prometheus.client.Histogram;
+import ru.ydn.wicket.wicketorientdb.utils.DBClosure;
+
+/**
+ * {@link IInstrumentationListener} to monitor DAO invocations, hooks, queries and suggestions.
+ * Queries which took longer than threshold are stored as {@link IOSlowQuery} in background
+ */
+public class OMetricsInstrumentation implements IInstrumentationListener {
+
+	private static final Logger LOG = LoggerFactory.getLogger(OMetricsInstrumentation.class);
+
+	public static final long DEFAULT_SLOW_QUERY_THRESHOLD = 1000;
+
+	private static final int SLOW_QUERIES_QUEUE_SIZE = 1000;
+
+	private static OMetricsInstrumentation listener;
+
+	private static final double[] BUCKETS = {.0001, .0005, .001, .005, .01, .025, .05, .1, .25, .5, 1, 2.5, 5, 10};
+
+	private static final Histogram HISTOGRAM_DAO = Histogram.build()
+													.namespace("orienteer")
+													.name("dao_seconds")
+													.help("Duration of invocations of DAO methods")
+													.labelNames("dao", "method")
+													.buckets(BUCKETS)
+													.create();
+
+	private static final Histogram HISTOGRAM_HOOKS = Histogram.build()
+													.namespace("orienteer")
+													.name("hook_seconds")
+													.help("Duration of hooks")
+													.labelNames("hook", "event")
+													.buckets(BUCKETS)
+													.create();
+
+	private static final Histogram HISTOGRAM_QUERIES = Histogram.build()
+													.namespace("orienteer")
+													.name("query_seconds")
+													.help("Duration of queries")
+													.labelNames("query")
+													.buckets(BUCKETS)
+													.create();
+
+	private static final Histogram HISTOGRAM_SUGGESTIONS = Histogram.build()
+													.namespace("orienteer")
+													.name("suggestion_seconds")
+													.help("Duration of type-ahead suggestions")
+													.labelNames("class", "strategy", "cached")
+													.buckets(BUCKETS)
+													.create();
+
+	private static final Counter COUNTER_SLOW_QUERIES = Counter.build()
+													.namespace("orienteer")
+													.name("slow_queries")
+													.help("Total number of queries which took longer than threshold")
+													.create();
+
+	private final OrienteerWebApplication app;
+	private final long slowQueryThresholdNanos;
+	private final ThreadPoolExecutor slowQueriesWriter;
+
+	private OMetricsInstrumentation(OrienteerWebApplication app, long slowQueryThreshold) {
+		this.app = app;
+		this.slowQueryThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryThreshold);
+		this.slowQueriesWriter = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+														new ArrayBlockingQueue<>(SLOW_QUERIES_QUEUE_SIZE), r -> {
+															Thread thread = new Thread(r, "orienteer-metrics-slow-queries");
+															thread.setDaemon(true);
+															return thread;
+														});
+		CollectorRegistry.defaultRegistry.register(HISTOGRAM_DAO);
+		CollectorRegistry.defaultRegistry.register(HISTOGRAM_HOOKS);
+		CollectorRegistry.defaultRegistry.register(HISTOGRAM_QUERIES);
+		CollectorRegistry.defaultRegistry.register(HISTOGRAM_SUGGESTIONS);
+		CollectorRegistry.defaultRegistry.register(COUNTER_SLOW_QUERIES);
+	}
+
+	@Override
+	public void onDAOInvocation(Class<?> daoInterface, String method, long nanos) {
+		HISTOGRAM_DAO.labels(daoInterface.getName(), method).observe(nanos / Collector.NANOSECONDS_PER_SECOND);
+	}
+
+	@Override
+	public void onHook(Class<?> hookClass, ORecordHook.TYPE event, long nanos) {
+		HISTOGRAM_HOOKS.labels(hookClass.getName(), event.name()).observe(nanos / Collector.NANOSECONDS_PER_SECOND);
+	}
+
+	@Override
+	public void onQuery(String fingerprint, String sql, long nanos) {
+		HISTOGRAM_QUERIES.labels(fingerprint).observe(nanos / Collector.NANOSECONDS_PER_SECOND);
+		if(slowQueryThresholdNanos>0 && nanos>=slowQueryThresholdNanos) {
+			COUNTER_SLOW_QUERIES.inc();
+			Date timestamp = new Date();
+			try {
+				slowQueriesWriter.execute(() -> storeSlowQuery(fingerprint, sql, TimeUnit.NANOSECONDS.toMillis(nanos), timestamp));
+			} catch (RejectedExecutionException e) {
+				LOG.warn("Slow query was not stored: too many slow queries are waiting. Query: {}", sql);
+			}
+		}
+	}
+
+	@Override
+	public void onSuggestion(String className, String strategy, boolean cached, long nanos) {
+		HISTOGRAM_SUGGESTIONS.labels(className, strategy, Boolean.toString(cached)).observe(nanos / Collector.NANOSECONDS_PER_SECOND);
+	}
+
+	private void storeSlowQuery(String fingerprint, String sql, long duration, Date timestamp) {
+		ThreadContext.setApplication(app);
+		try {
+			DBClosure.sudoConsumer(db -> {
+				DAO.create(IOSlowQuery.class)
+					.setFingerprint(fingerprint)
+					.setQuery(sql)
+					.setDuration(duration)
+					.setTimestamp(timestamp)
+					.save();
+			});
+		} catch (Exception e) {
+			LOG.error("Can't store slow query: {}", sql, e);
+		} finally {
+			ThreadContext.detach();
+		}
+	}
+
+	/**
+	 * Enable instrumentation
+	 * @param app application to store slow queries within
+	 * @param slowQueryThreshold min duration of a query in milliseconds to be stored as {@link IOSlowQuery}.
+	 * 						Non-positive value disables storing of slow queries
+	 */
+	public static synchronized void install(OrienteerWebApplication app, long slowQueryThreshold) {
+		deinstall();
+		listener = new OMetricsInstrumentation(app, slowQueryThreshold);
+		OInstrumentation.setListener(listener);
+	}
+
+	/**
+	 * Disable instrumentation
+	 */
+	public static synchronized void deinstall() {
+		if(listener!=null) {
+			if(OInstrumentation.getListener()==listener) OInstrumentation.setListener(null);
+			CollectorRegistry.defaultRegistry.unregister(HISTOGRAM_DAO);
+			CollectorRegistry.defaultRegistry.unregister(HISTOGRAM_HOOKS);
+			CollectorRegistry.defaultRegistry.unregister(HISTOGRAM_QUERIES);
+			CollectorRegistry.defaultRegistry.unregister(HISTOGRAM_SUGGESTIONS);
+			CollectorRegistry.defaultRegistry.unregister(COUNTER_SLOW_QUERIES);
+			listener.slowQueriesWriter.shutdown();
+			listener = null;
+		}
+	}
+
+	public static boolean isInstalled() {
+		return listener!=null;
+	}
+}
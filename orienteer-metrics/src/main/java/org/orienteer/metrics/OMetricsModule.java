@@ -1,9 +1,20 @@
 package org.orienteer.metrics;
 
+import org.orienteer.core.OClassDomain;
 import org.orienteer.core.OrienteerWebApplication;
+import org.orienteer.core.dao.DAO;
+import org.orienteer.core.dao.DAODefaultValue;
+import org.orienteer.core.dao.DAOOClass;
+import org.orienteer.core.dao.IODocumentWrapper;
+import org.orienteer.core.dao.Lookup;
+import org.orienteer.core.dao.ODocumentWrapperProvider;
 import org.orienteer.core.module.AbstractOrienteerModule;
 import org.orienteer.core.module.IOrienteerModule;
+import org.orienteer.core.util.OSchemaHelper;
 
+import com.google.inject.Inject;
+import com.google.inject.ProvidedBy;
+import com.google.inject.name.Named;
 import com.orientechnologies.orient.core.db.ODatabaseSession;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 
@@ -16,34 +27,129 @@ import io.prometheus.client.hotspot.DefaultExports;
 //TODO: Enable when https://github.com/orientechnologies/orientdb/issues/9169 will be done
 public class OMetricsModule extends AbstractOrienteerModule{
 	
+	public static final String NAME = "metrics";
+	
+	public static final int VERSION = 2;
+	
+	private long orientDbRefreshInterval = OMetricsOrientDB.DEFAULT_REFRESH_INTERVAL;
+	
+	private OMetricsOrientDB orientDbMetrics;
+	
+	private OMetricsPagesCache pagesCacheMetrics;
 	
 	protected OMetricsModule() {
-		super("metrics", 1);
+		super(NAME, VERSION);
+	}
+	
+	/**
+	 * @param orientDbRefreshInterval interval in milliseconds between recalculations of OrientDB metrics
+	 */
+	@Inject(optional = true)
+	public void setOrientDbRefreshInterval(@Named("orienteer.metrics.orientdb.refresh") long orientDbRefreshInterval) {
+		this.orientDbRefreshInterval = orientDbRefreshInterval;
 	}
 	
 	@Override
 	public ODocument onInstall(OrienteerWebApplication app, ODatabaseSession db) {
 		super.onInstall(app, db);
-		return null;
+		OSchemaHelper helper = OSchemaHelper.bind(db);
+		DAO.describe(helper, IOSlowQuery.class, IMetricsModuleConfiguration.class);
+		IMetricsModuleConfiguration module = DAO.create(IMetricsModuleConfiguration.class);
+		if(module.lookup(NAME)==null) {
+			module.getDocument().field(OMODULE_NAME, NAME);
+			module.save();
+		}
+		return module.getDocument();
+	}
+	
+	@Override
+	public ODocument onUpdate(OrienteerWebApplication app, ODatabaseSession db, ODocument moduleDoc,
+			int oldVersion, int newVersion) {
+		ODocument newModuleDoc = onInstall(app, db);
+		//Before version 2 configuration of the module was stored in plain OModule document
+		if(moduleDoc!=null && !moduleDoc.equals(newModuleDoc)) {
+			Boolean activate = moduleDoc.field(OMODULE_ACTIVATE);
+			if(activate!=null) newModuleDoc.field(OMODULE_ACTIVATE, activate);
+			moduleDoc.delete();
+		}
+		return newModuleDoc;
 	}
 	
 	@Override
-	public void onInitialize(OrienteerWebApplication app, ODatabaseSession db) {
-		super.onInitialize(app, db);
+	public void onInitialize(OrienteerWebApplication app, ODatabaseSession db, ODocument moduleDoc) {
+		super.onInitialize(app, db, moduleDoc);
 		DefaultExports.initialize();
 		OMetricsRequestCycleListener.install(app);
 		OMetricSessionListener.install(app);
-		new OMetricsOrientDB().register();
+		orientDbMetrics = new OMetricsOrientDB(app, orientDbRefreshInterval).register();
+		orientDbMetrics.start();
+		pagesCacheMetrics = new OMetricsPagesCache(app).register();
+		installInstrumentation(app, moduleDoc);
 		app.mountPackage(OMetricsModule.class.getPackage().getName());
 	}
 	
+	@Override
+	public void onConfigurationChange(OrienteerWebApplication app, ODatabaseSession db, ODocument moduleDoc) {
+		super.onConfigurationChange(app, db, moduleDoc);
+		installInstrumentation(app, moduleDoc);
+	}
+	
+	private void installInstrumentation(OrienteerWebApplication app, ODocument moduleDoc) {
+		IMetricsModuleConfiguration module = moduleDoc!=null && IMetricsModuleConfiguration.CLASS_NAME.equals(moduleDoc.getClassName())
+												? DAO.provide(IMetricsModuleConfiguration.class, moduleDoc)
+												: null;
+		if(module!=null && Boolean.TRUE.equals(module.isInstrumentation())) {
+			Long threshold = module.getSlowQueryThreshold();
+			OMetricsInstrumentation.install(app, threshold!=null?threshold:OMetricsInstrumentation.DEFAULT_SLOW_QUERY_THRESHOLD);
+		} else {
+			OMetricsInstrumentation.deinstall();
+		}
+	}
+	
 	@Override
 	public void onDestroy(OrienteerWebApplication app, ODatabaseSession db) {
 		app.unmountPackage(OMetricsModule.class.getPackage().getName());
 		OMetricSessionListener.deinstall(app);
 		OMetricsRequestCycleListener.deinstall(app);
+		OMetricsInstrumentation.deinstall();
+		if(orientDbMetrics!=null) {
+			orientDbMetrics.stop();
+			orientDbMetrics = null;
+		}
+		if(pagesCacheMetrics!=null) {
+			CollectorRegistry.defaultRegistry.unregister(pagesCacheMetrics);
+			pagesCacheMetrics = null;
+		}
 		CollectorRegistry.defaultRegistry.clear();
 		super.onDestroy(app, db);
 	}
 
+	/**
+	 * Wrapper for module {@link OMetricsModule}
+	 */
+	@ProvidedBy(ODocumentWrapperProvider.class)
+	@DAOOClass(value = IMetricsModuleConfiguration.CLASS_NAME, superClasses = {OMODULE_CLASS}, orderOffset = 50,
+						domain = OClassDomain.SPECIFICATION)
+	public static interface IMetricsModuleConfiguration extends IODocumentWrapper {
+		
+		public static final String CLASS_NAME = "OMetricsModule";
+		
+		/**
+		 * @return true if latencies of DAO invocations, hooks and queries should be measured
+		 */
+		@DAODefaultValue("false")
+		public Boolean isInstrumentation();
+		public IMetricsModuleConfiguration setInstrumentation(Boolean instrumentation);
+		
+		/**
+		 * @return min duration of a query in milliseconds to be logged as {@link IOSlowQuery}
+		 */
+		@DAODefaultValue(""+OMetricsInstrumentation.DEFAULT_SLOW_QUERY_THRESHOLD)
+		public Long getSlowQueryThreshold();
+		public IMetricsModuleConfiguration setSlowQueryThreshold(Long threshold);
+		
+		@Lookup("select from "+IMetricsModuleConfiguration.CLASS_NAME+" where name = :name")
+		public IMetricsModuleConfiguration lookup(String name);
+	}
+
 }
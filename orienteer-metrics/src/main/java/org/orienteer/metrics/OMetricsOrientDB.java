@@ -1,56 +1,193 @@
 package org.orienteer.metrics;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
-import java.util.function.Function;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.wicket.ThreadContext;
+import org.orienteer.core.OrienteerWebApplication;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.orientechnologies.orient.core.Orient;
 import com.orientechnologies.orient.core.db.ODatabaseDocumentInternal;
 import com.orientechnologies.orient.core.db.ODatabaseSession;
-import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
-import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.storage.OStorage;
+import com.orientechnologies.orient.core.storage.disk.OLocalPaginatedStorage;
 import com.orientechnologies.orient.core.storage.impl.local.OAbstractPaginatedStorage;
+import com.orientechnologies.orient.core.storage.impl.local.paginated.wal.OWriteAheadLog;
 
 import io.prometheus.client.Collector;
-import io.prometheus.client.CounterMetricFamily;
 import io.prometheus.client.GaugeMetricFamily;
-import ru.ydn.wicket.wicketorientdb.OrientDbWebSession;
 import ru.ydn.wicket.wicketorientdb.utils.DBClosure;
 
 /**
+ * Collector of OrientDB metrics.
+ * Metrics are calculated by a background thread once per refresh interval and scrapes just return the latest snapshot,
+ * so cost of a scrape doesn't depend on size of a schema and amount of data.
+ * Counts of classes are calculated from counts of clusters: every cluster is counted only once per refresh
  */
 public class OMetricsOrientDB extends Collector {
-	
+
 	private static final Logger LOG = LoggerFactory.getLogger(OMetricsOrientDB.class);
-	
+
+	public static final long DEFAULT_REFRESH_INTERVAL = 15000;
+
+	private final OrienteerWebApplication app;
+	private final long refreshInterval;
+
+	private volatile List<MetricFamilySamples> snapshot;
+	private ScheduledExecutorService scheduler;
+
+	public OMetricsOrientDB(OrienteerWebApplication app) {
+		this(app, DEFAULT_REFRESH_INTERVAL);
+	}
+
+	public OMetricsOrientDB(OrienteerWebApplication app, long refreshInterval) {
+		if(refreshInterval<=0) throw new IllegalArgumentException("Refresh interval should be positive: "+refreshInterval);
+		this.app = app;
+		this.refreshInterval = refreshInterval;
+	}
+
+	/**
+	 * Start periodical refresh of metrics in background
+	 * @return this collector
+	 */
+	public synchronized OMetricsOrientDB start() {
+		if(scheduler==null) {
+			scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+				Thread thread = new Thread(r, "orienteer-metrics-orientdb");
+				thread.setDaemon(true);
+				return thread;
+			});
+			scheduler.scheduleWithFixedDelay(this::refreshQuietly, 0, refreshInterval, TimeUnit.MILLISECONDS);
+		}
+		return this;
+	}
+
+	/**
+	 * Stop periodical refresh of metrics
+	 */
+	public synchronized void stop() {
+		if(scheduler!=null) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+
 	@Override
 	public List<MetricFamilySamples> collect() {
-		return new DBClosure<List<MetricFamilySamples>>() {
+		List<MetricFamilySamples> ret = snapshot;
+		//Scrape before the first background refresh
+		return ret!=null?ret:refresh();
+	}
+
+	private void refreshQuietly() {
+		ThreadContext.setApplication(app);
+		try {
+			refresh();
+		} catch (Exception e) {
+			LOG.error("Can't refresh OrientDB metrics", e);
+		} finally {
+			ThreadContext.detach();
+		}
+	}
+
+	/**
+	 * Recalculate metrics
+	 * @return new snapshot of metrics
+	 */
+	public List<MetricFamilySamples> refresh() {
+		long start = System.nanoTime();
+		List<MetricFamilySamples> mfs = new DBClosure<List<MetricFamilySamples>>() {
 			@Override
 			protected List<MetricFamilySamples> execute(ODatabaseSession db) {
-				List<MetricFamilySamples> mfs = new ArrayList<MetricFamilySamples>();
-				//TODO: Check how to support in OrientDB 3
-//				mfs.add(new GaugeMetricFamily("orientdb_frozen", "Is DB frozen and in RO mode", db.isFrozen()?1.0:0.0));
-				
-				GaugeMetricFamily count = new GaugeMetricFamily("orientdb_count", "Count of instances per class including subclasses", Collections.singletonList("class"));
-				long total = 0;
-				Collection<OClass> classes = ((ODatabaseDocumentInternal)db).getMetadata().getImmutableSchemaSnapshot().getClasses();
-				for (OClass oClass : classes) {
-					count.addMetric(Collections.singletonList(oClass.getName()), oClass.count());
-					total+=oClass.count(false);
-				}
-				mfs.add(count);
-				mfs.add(new GaugeMetricFamily("orientdb_count_total", "Count of total instances", total));
-				return mfs;
+				return collect((ODatabaseDocumentInternal)db);
 			}
 		}.execute();
+		mfs.add(new GaugeMetricFamily("orientdb_metrics_refresh_seconds", "Time spent to collect OrientDB metrics",
+										(System.nanoTime()-start)/NANOSECONDS_PER_SECOND));
+		mfs.add(new GaugeMetricFamily("orientdb_metrics_refresh_timestamp_seconds", "Time when OrientDB metrics were collected",
+										System.currentTimeMillis()/MILLISECONDS_PER_SECOND));
+		mfs = Collections.unmodifiableList(mfs);
+		snapshot = mfs;
+		return mfs;
+	}
+
+	private List<MetricFamilySamples> collect(ODatabaseDocumentInternal db) {
+		List<MetricFamilySamples> mfs = new ArrayList<MetricFamilySamples>();
+		//TODO: Check how to support in OrientDB 3
+//		mfs.add(new GaugeMetricFamily("orientdb_frozen", "Is DB frozen and in RO mode", db.isFrozen()?1.0:0.0));
+		OStorage storage = db.getStorage().getUnderlying();
+
+		GaugeMetricFamily clusterCount = new GaugeMetricFamily("orientdb_cluster_count", "Count of records per cluster", Collections.singletonList("cluster"));
+		Map<Integer, Long> clusterCounts = new HashMap<>();
+		for (String clusterName : storage.getClusterNames()) {
+			int clusterId = storage.getClusterIdByName(clusterName);
+			if(clusterId<0) continue;
+			long clusterSize = storage.count(clusterId);
+			clusterCounts.put(clusterId, clusterSize);
+			clusterCount.addMetric(Collections.singletonList(clusterName), clusterSize);
+		}
+		mfs.add(clusterCount);
+
+		GaugeMetricFamily count = new GaugeMetricFamily("orientdb_count", "Count of instances per class including subclasses", Collections.singletonList("class"));
+		long total = 0;
+		Collection<OClass> classes = db.getMetadata().getImmutableSchemaSnapshot().getClasses();
+		for (OClass oClass : classes) {
+			count.addMetric(Collections.singletonList(oClass.getName()), sum(clusterCounts, oClass.getPolymorphicClusterIds()));
+			total+=sum(clusterCounts, oClass.getClusterIds());
+		}
+		mfs.add(count);
+		mfs.add(new GaugeMetricFamily("orientdb_count_total", "Count of total instances", total));
+
+		if(storage instanceof OAbstractPaginatedStorage) {
+			OAbstractPaginatedStorage paginatedStorage = (OAbstractPaginatedStorage) storage;
+			mfs.add(new GaugeMetricFamily("orientdb_storage_size_bytes", "Size of records in the storage", paginatedStorage.getSize()));
+			if(paginatedStorage.getReadCache()!=null) {
+				mfs.add(new GaugeMetricFamily("orientdb_read_cache_used_bytes", "Memory used by read cache",
+												paginatedStorage.getReadCache().getUsedMemory()));
+			}
+			if(paginatedStorage.getWriteCache()!=null) {
+				mfs.add(new GaugeMetricFamily("orientdb_write_cache_exclusive_bytes", "Size of pages which are only in write cache",
+												paginatedStorage.getWriteCache().getExclusiveWriteCachePagesSize()));
+			}
+		}
+		if(storage instanceof OLocalPaginatedStorage) {
+			mfs.add(new GaugeMetricFamily("orientdb_wal_size_bytes", "Size of write ahead log segments",
+											getWALSize((OLocalPaginatedStorage) storage)));
+		}
+		return mfs;
 	}
-	
+
+	private static long sum(Map<Integer, Long> clusterCounts, int[] clusterIds) {
+		long ret = 0;
+		if(clusterIds!=null) {
+			for (int clusterId : clusterIds) {
+				Long clusterSize = clusterCounts.get(clusterId);
+				if(clusterSize!=null) ret+=clusterSize;
+			}
+		}
+		return ret;
+	}
+
+	private static long getWALSize(OLocalPaginatedStorage storage) {
+		File[] segments = storage.getStoragePath().toFile()
+								.listFiles((dir, name) -> name.endsWith(OWriteAheadLog.WAL_SEGMENT_EXTENSION));
+		long ret = 0;
+		if(segments!=null) {
+			for (File segment : segments) {
+				ret+=segment.length();
+			}
+		}
+		return ret;
+	}
+
 }
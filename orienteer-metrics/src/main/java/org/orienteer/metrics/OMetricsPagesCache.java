@@ -0,0 +1,46 @@
+package org.orienteer.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.orienteer.core.OrienteerWebApplication;
+import org.orienteer.core.wicket.pageStore.HazelcastPagesCache;
+
+import com.hazelcast.monitor.LocalMapStats;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.CounterMetricFamily;
+import io.prometheus.client.GaugeMetricFamily;
+
+/**
+ * Collector of metrics of {@link HazelcastPagesCache}: number of sessions with cached pages and
+ * statistics of pages map on the current cluster member
+ */
+public class OMetricsPagesCache extends Collector {
+
+	private final OrienteerWebApplication app;
+
+	public OMetricsPagesCache(OrienteerWebApplication app) {
+		this.app = app;
+	}
+
+	@Override
+	public List<MetricFamilySamples> collect() {
+		HazelcastPagesCache cache = app.getPagesCache().orElse(null);
+		if(cache==null) return Collections.emptyList();
+		List<MetricFamilySamples> mfs = new ArrayList<MetricFamilySamples>();
+		mfs.add(new GaugeMetricFamily("wicket_pages_cache_sessions", "Count of sessions with cached pages",
+										cache.getSessionsCount()));
+		LocalMapStats stats = cache.getLocalStats();
+		if(stats!=null) {
+			mfs.add(new GaugeMetricFamily("wicket_pages_cache_owned_sessions", "Count of sessions with cached pages owned by this member",
+											stats.getOwnedEntryCount()));
+			mfs.add(new GaugeMetricFamily("wicket_pages_cache_owned_bytes", "Memory cost of cached pages owned by this member",
+											stats.getOwnedEntryMemoryCost()));
+			mfs.add(new CounterMetricFamily("wicket_pages_cache_hits", "Hits of cached pages owned by this member",
+											stats.getHits()));
+		}
+		return mfs;
+	}
+}
@@ -0,0 +1,88 @@
+package org.orienteer.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.orienteer.core.dao.DAO;
+import org.orienteer.core.util.OInstrumentation;
+
+/**
+ * JMH benchmark for overhead of {@link OMetricsInstrumentation}.
+ * Target: disabled instrumentation should not be distinguishable from noise,
+ * enabled instrumentation should add less than 200ns per measured invocation.
+ * Run: mvn test-compile exec:java -Dexec.mainClass=org.orienteer.metrics.InstrumentationBenchmark -Dexec.classpathScope=test
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstrumentationBenchmark {
+
+	private static final String SQL = "select from OUser where name = :name and status = 'ACTIVE' limit 1";
+
+	/**
+	 * DAO interface to be benchmarked
+	 */
+	public static interface IBenchmarkDAO {
+		public default int sum(int a, int b) {
+			return a + b;
+		}
+	}
+
+	@Param({"false", "true"})
+	public boolean instrumentation;
+
+	private IBenchmarkDAO dao;
+	private int counter;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		if(instrumentation) OMetricsInstrumentation.install(null, 0);
+		dao = DAO.create(IBenchmarkDAO.class);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		OMetricsInstrumentation.deinstall();
+	}
+
+	@Benchmark
+	public int daoInvocation() {
+		return dao.sum(counter++, 1);
+	}
+
+	@Benchmark
+	public long query() {
+		long start = OInstrumentation.start();
+		OInstrumentation.queryExecuted(SQL, start);
+		return start;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options opt = new OptionsBuilder()
+				.include(InstrumentationBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(opt).run();
+	}
+
+}
@@ -8,12 +8,19 @@ import org.orienteer.junit.OrienteerTester;
 import org.orienteer.metrics.OMetricsModule;
 
 import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
+import io.prometheus.client.Collector.MetricFamilySamples;
+
 
 @RunWith(OrienteerTestRunner.class)
 @Singleton
@@ -31,4 +38,16 @@ public class TestModule
 	    assertNotNull(module);
 	    assertTrue(module instanceof OMetricsModule);
 	}
+	
+	@Test
+	public void testOrientDbMetrics()
+	{
+		OMetricsOrientDB collector = new OMetricsOrientDB(tester.getApplication());
+		List<MetricFamilySamples> mfs = collector.refresh();
+		Set<String> names = mfs.stream().map(m -> m.name).collect(Collectors.toSet());
+		assertTrue(names.contains("orientdb_count"));
+		assertTrue(names.contains("orientdb_count_total"));
+		assertTrue(names.contains("orientdb_cluster_count"));
+		assertSame(mfs, collector.collect());
+	}
 }
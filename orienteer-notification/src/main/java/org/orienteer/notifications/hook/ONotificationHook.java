@@ -63,6 +63,10 @@ public class ONotificationHook extends ODocumentHookAbstract {
       changed = true;
     }
 
+    if (notification.getNextAttempt() == null) {
+      notification.setNextAttempt(notification.getCreated());
+      changed = true;
+    }
 
     return changed ? RESULT.RECORD_CHANGED : super.onRecordBeforeCreate(doc);
   }
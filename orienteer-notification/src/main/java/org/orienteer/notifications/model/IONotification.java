@@ -1,9 +1,11 @@
 package org.orienteer.notifications.model;
 
 import com.google.inject.ProvidedBy;
+import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 import org.orienteer.core.dao.DAOField;
+import org.orienteer.core.dao.DAOIndex;
 import org.orienteer.core.dao.DAOOClass;
 import org.orienteer.core.dao.IODocumentWrapper;
 import org.orienteer.core.dao.ODocumentWrapperProvider;
@@ -17,9 +19,11 @@ import java.util.List;
  */
 @ProvidedBy(ODocumentWrapperProvider.class)
 @DAOOClass(value = IONotification.CLASS_NAME, isAbstract = true)
+@DAOIndex(name = IONotification.INDEX_STATUS_NEXT_ATTEMPT, type = OClass.INDEX_TYPE.NOTUNIQUE, fields = {"status", "nextAttempt"})
 public interface IONotification extends IODocumentWrapper {
 
   String CLASS_NAME = "ONotification";
+  String INDEX_STATUS_NEXT_ATTEMPT = CLASS_NAME + ".status_nextAttempt";
 
   String getId();
   IONotification setId(String id);
@@ -40,6 +44,20 @@ public interface IONotification extends IODocumentWrapper {
   ODocument getTransport();
   IONotification setTransport(ODocument transport);
 
+  /**
+   * Number of failed attempts to send the notification
+   */
+  Integer getAttempts();
+  IONotification setAttempts(Integer attempts);
+
+  /**
+   * For pending notification: time after which it can be sent.
+   * For notification which is being sent: time when lease of a worker expires and notification can be claimed again
+   */
+  @DAOField(type = OType.DATETIME)
+  Date getNextAttempt();
+  IONotification setNextAttempt(Date nextAttempt);
+
   default IONotification addStatusHistory(ODocument history) {
     List<ODocument> histories = getStatusHistories();
     if (histories == null) {
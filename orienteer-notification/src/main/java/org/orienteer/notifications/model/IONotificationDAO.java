@@ -6,6 +6,7 @@ import org.orienteer.core.OrienteerWebApplication;
 import org.orienteer.core.dao.DAOProvider;
 import org.orienteer.core.dao.Query;
 
+import java.util.Date;
 import java.util.List;
 
 /**
@@ -25,25 +26,46 @@ public interface IONotificationDAO {
   List<ODocument> findNotificationsExceptStatus(ODocument status);
 
 
+  /**
+   * Find notifications which are ready to be claimed for sending: pending notifications which reached time of next attempt
+   * and notifications with expired lease of a worker
+   * @param pending pending status
+   * @param sending sending status
+   * @param now current time
+   * @param limit max number of notifications to return
+   * @return list of notifications ordered by time of next attempt
+   */
+  @Query("select from ONotification where status in [:pending, :sending] and nextAttempt <= :now order by nextAttempt limit :limit")
+  List<ODocument> findNotificationsToSend(ODocument pending, ODocument sending, Date now, int limit);
+
   @Query("select from ONotificationStatus where alias = :alias")
   ODocument findStatusByAlias(String alias);
 
   @Query("select from ONotificationTransport where alias = :alias")
   ODocument findTransportByAlias(String alias);
 
+  /**
+   * Lookup status by alias. Identities of statuses are cached, so only first lookup executes a query
+   * @param alias alias of a status
+   * @return status or null if there is no status with such alias
+   */
+  default ODocument getStatus(String alias) {
+    return ONotificationStatusCache.get(alias, this::findStatusByAlias);
+  }
+
   default ODocument getPendingStatus() {
-    return findStatusByAlias(IONotificationStatus.ALIAS_PENDING);
+    return getStatus(IONotificationStatus.ALIAS_PENDING);
   }
 
   default ODocument getSendingStatus() {
-    return findStatusByAlias(IONotificationStatus.ALIAS_SENDING);
+    return getStatus(IONotificationStatus.ALIAS_SENDING);
   }
 
   default ODocument getSentStatus() {
-    return findStatusByAlias(IONotificationStatus.ALIAS_SENT);
+    return getStatus(IONotificationStatus.ALIAS_SENT);
   }
 
   default ODocument getFailedStatus() {
-    return findStatusByAlias(IONotificationStatus.ALIAS_FAILED);
+    return getStatus(IONotificationStatus.ALIAS_FAILED);
   }
 }
@@ -27,6 +27,13 @@ public interface IONotificationTransport extends IODocumentWrapper {
   Map<String, String> getName();
   IONotificationTransport setName(Map<String, String> name);
 
+  /**
+   * Max number of workers which can send notifications through this transport simultaneously.
+   * If not set, {@link org.orienteer.notifications.module.ONotificationModule.Module#getTransportConcurrency()} is used
+   */
+  Integer getConcurrency();
+  IONotificationTransport setConcurrency(Integer concurrency);
+
   String getTransportClass();
   IONotificationTransport setTransportClass(String transportClass);
 
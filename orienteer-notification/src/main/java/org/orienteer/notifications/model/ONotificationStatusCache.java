@@ -0,0 +1,40 @@
+package org.orienteer.notifications.model;
+
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Cache of identities of {@link IONotificationStatus} by alias.
+ * Statuses are loaded by identity, so lookup of a status doesn't require a query
+ */
+final class ONotificationStatusCache {
+
+  private static final Map<String, ORID> STATUSES = new ConcurrentHashMap<>();
+
+  private ONotificationStatusCache() {}
+
+  static ODocument get(String alias, Function<String, ODocument> loader) {
+    ORID rid = STATUSES.get(alias);
+    if (rid != null) {
+      OIdentifiable record = rid.getRecord();
+      if (record instanceof ODocument && alias.equals(((ODocument) record).field("alias"))) {
+        return (ODocument) record;
+      }
+      STATUSES.remove(alias, rid);
+    }
+    ODocument status = loader.apply(alias);
+    if (status != null && status.getIdentity().isPersistent()) {
+      STATUSES.put(alias, status.getIdentity());
+    }
+    return status;
+  }
+
+  static void clear() {
+    STATUSES.clear();
+  }
+}
@@ -15,6 +15,7 @@ import org.orienteer.mail.OMailModule;
 import org.orienteer.notifications.hook.ONotificationHook;
 import org.orienteer.notifications.model.*;
 import org.orienteer.notifications.scheduler.ONotificationScheduler;
+import org.orienteer.notifications.service.ONotificationDispatcher;
 import org.orienteer.notifications.task.ONotificationSendTask;
 import org.orienteer.twilio.module.OTwilioModule;
 
@@ -26,7 +27,7 @@ import java.util.List;
 public class ONotificationModule extends AbstractOrienteerModule {
 
   public static final String NAME = "orienteer-notification";
-  public static final int VERSION = 2;
+  public static final int VERSION = 3;
 
   protected ONotificationModule() {
     super(NAME, VERSION, OMailModule.NAME, OTwilioModule.NAME);
@@ -53,6 +54,24 @@ public class ONotificationModule extends AbstractOrienteerModule {
             .oProperty(Module.PROP_NOTIFICATIONS_PER_WORKER, OType.INTEGER)
               .notNull()
               .defaultValue("50")
+            .oProperty(Module.PROP_BATCH_SIZE, OType.INTEGER)
+              .notNull()
+              .defaultValue(Integer.toString(Module.DEFAULT_BATCH_SIZE))
+            .oProperty(Module.PROP_WORKERS, OType.INTEGER)
+              .notNull()
+              .defaultValue(Integer.toString(Module.DEFAULT_WORKERS))
+            .oProperty(Module.PROP_TRANSPORT_CONCURRENCY, OType.INTEGER)
+              .notNull()
+              .defaultValue(Integer.toString(Module.DEFAULT_TRANSPORT_CONCURRENCY))
+            .oProperty(Module.PROP_MAX_ATTEMPTS, OType.INTEGER)
+              .notNull()
+              .defaultValue(Integer.toString(Module.DEFAULT_MAX_ATTEMPTS))
+            .oProperty(Module.PROP_RETRY_DELAY, OType.LONG)
+              .notNull()
+              .defaultValue(Long.toString(Module.DEFAULT_RETRY_DELAY))
+            .oProperty(Module.PROP_LEASE_TIMEOUT, OType.LONG)
+              .notNull()
+              .defaultValue(Long.toString(Module.DEFAULT_LEASE_TIMEOUT))
             .oProperty(Module.PROP_SMS_STATUS_URL, OType.STRING);
 
     return helper.oDocument(OMODULE_NAME, NAME)
@@ -98,6 +117,10 @@ public class ONotificationModule extends AbstractOrienteerModule {
   @Override
   public void onUpdate(OrienteerWebApplication app, ODatabaseSession db, int oldVersion, int newVersion) {
     onInstall(app, db);
+    if (oldVersion < 3) {
+      // Notifications created before the queue was introduced should be sent as soon as possible
+      db.command("update " + IONotification.CLASS_NAME + " set nextAttempt = created where nextAttempt is null").close();
+    }
   }
 
   @Override
@@ -118,6 +141,7 @@ public class ONotificationModule extends AbstractOrienteerModule {
     app.getOrientDbSettings().removeORecordHooks(ONotificationHook.class);
 
     ONotificationScheduler.stopAll();
+    app.getServiceInstance(ONotificationDispatcher.class).shutdown();
   }
 
   /**
@@ -129,8 +153,21 @@ public class ONotificationModule extends AbstractOrienteerModule {
 
     public static final String PROP_SEND_PERIOD              = "sendPeriod";
     public static final String PROP_NOTIFICATIONS_PER_WORKER = "notificationsPerWorker";
+    public static final String PROP_BATCH_SIZE               = "batchSize";
+    public static final String PROP_WORKERS                  = "workers";
+    public static final String PROP_TRANSPORT_CONCURRENCY    = "transportConcurrency";
+    public static final String PROP_MAX_ATTEMPTS             = "maxAttempts";
+    public static final String PROP_RETRY_DELAY              = "retryDelay";
+    public static final String PROP_LEASE_TIMEOUT            = "leaseTimeout";
     public static final String PROP_SMS_STATUS_URL           = "smsStatusUrl";
 
+    public static final int  DEFAULT_BATCH_SIZE            = 500;
+    public static final int  DEFAULT_WORKERS               = 16;
+    public static final int  DEFAULT_TRANSPORT_CONCURRENCY = 4;
+    public static final int  DEFAULT_MAX_ATTEMPTS          = 5;
+    public static final long DEFAULT_RETRY_DELAY           = 30_000;
+    public static final long DEFAULT_LEASE_TIMEOUT         = 600_000;
+
     public Module() {
       this(CLASS_NAME);
     }
@@ -163,6 +200,84 @@ public class ONotificationModule extends AbstractOrienteerModule {
       return this;
     }
 
+    /**
+     * @return max number of notifications claimed from the queue at once
+     */
+    public int getBatchSize() {
+      Integer batchSize = document.field(PROP_BATCH_SIZE);
+      return batchSize != null ? batchSize : DEFAULT_BATCH_SIZE;
+    }
+
+    public Module setBatchSize(int batchSize) {
+      document.field(PROP_BATCH_SIZE, batchSize);
+      return this;
+    }
+
+    /**
+     * @return number of threads which send notifications
+     */
+    public int getWorkers() {
+      Integer workers = document.field(PROP_WORKERS);
+      return workers != null ? workers : DEFAULT_WORKERS;
+    }
+
+    public Module setWorkers(int workers) {
+      document.field(PROP_WORKERS, workers);
+      return this;
+    }
+
+    /**
+     * @return default max number of workers which use the same transport simultaneously
+     */
+    public int getTransportConcurrency() {
+      Integer concurrency = document.field(PROP_TRANSPORT_CONCURRENCY);
+      return concurrency != null ? concurrency : DEFAULT_TRANSPORT_CONCURRENCY;
+    }
+
+    public Module setTransportConcurrency(int concurrency) {
+      document.field(PROP_TRANSPORT_CONCURRENCY, concurrency);
+      return this;
+    }
+
+    /**
+     * @return number of attempts to send a notification before it's marked as failed
+     */
+    public int getMaxAttempts() {
+      Integer attempts = document.field(PROP_MAX_ATTEMPTS);
+      return attempts != null ? attempts : DEFAULT_MAX_ATTEMPTS;
+    }
+
+    public Module setMaxAttempts(int attempts) {
+      document.field(PROP_MAX_ATTEMPTS, attempts);
+      return this;
+    }
+
+    /**
+     * @return delay in milliseconds before second attempt. Delay is doubled for every next attempt
+     */
+    public long getRetryDelay() {
+      Long delay = document.field(PROP_RETRY_DELAY);
+      return delay != null ? delay : DEFAULT_RETRY_DELAY;
+    }
+
+    public Module setRetryDelay(long delay) {
+      document.field(PROP_RETRY_DELAY, delay);
+      return this;
+    }
+
+    /**
+     * @return time in milliseconds for which claimed notification is owned by a worker
+     */
+    public long getLeaseTimeout() {
+      Long timeout = document.field(PROP_LEASE_TIMEOUT);
+      return timeout != null ? timeout : DEFAULT_LEASE_TIMEOUT;
+    }
+
+    public Module setLeaseTimeout(long timeout) {
+      document.field(PROP_LEASE_TIMEOUT, timeout);
+      return this;
+    }
+
     public String getSmsStatusUrl() {
       return document.field(PROP_SMS_STATUS_URL);
     }
@@ -13,6 +13,10 @@ import java.util.List;
 @ImplementedBy(NotificationService.class)
 public interface INotificationService {
 
+  /**
+   * Claim and deliver notifications right away
+   * @param notifications notifications to send
+   */
   void send(List<ODocument> notifications);
 
   default void send(ODocument notification) {
@@ -23,4 +27,20 @@ public interface INotificationService {
     send(notification.getDocument());
   }
 
+  /**
+   * Mark notifications as being sent by current worker till the lease expires.
+   * Notifications claimed concurrently by another worker are skipped
+   * @param notifications notifications to claim
+   * @return successfully claimed notifications
+   */
+  List<ODocument> claim(List<ODocument> notifications);
+
+  /**
+   * Send notifications which were claimed by {@link #claim(List)}.
+   * Notification which can't be sent is scheduled for the next attempt with exponential backoff
+   * or marked as failed if there are no attempts left
+   * @param notifications claimed notifications
+   */
+  void deliver(List<ODocument> notifications);
+
 }
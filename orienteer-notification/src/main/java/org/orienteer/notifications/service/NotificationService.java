@@ -2,6 +2,7 @@ package org.orienteer.notifications.service;
 
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
+import com.orientechnologies.common.concur.ONeedRetryException;
 import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
 import com.orientechnologies.orient.core.record.impl.ODocument;
@@ -10,9 +11,13 @@ import org.orienteer.notifications.model.IONotification;
 import org.orienteer.notifications.model.IONotificationDAO;
 import org.orienteer.notifications.model.IONotificationStatusHistory;
 import org.orienteer.notifications.model.IONotificationTransport;
+import org.orienteer.notifications.module.ONotificationModule;
+import org.orienteer.notifications.repository.ONotificationModuleRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 
@@ -24,7 +29,10 @@ public class NotificationService implements INotificationService {
 
   private static final Logger LOG = LoggerFactory.getLogger(NotificationService.class);
 
-  public static final int ATTEMPTS = 3;
+  /**
+   * Max delay between attempts to send a notification
+   */
+  public static final long MAX_RETRY_DELAY = 3_600_000;
 
   private final OTransportPool transportPool = new OTransportPool();
 
@@ -32,66 +40,147 @@ public class NotificationService implements INotificationService {
   private IONotificationDAO notificationDAO;
 
   @Override
-  @SuppressWarnings("unchecked")
   public void send(List<ODocument> notifications) {
     if (notifications == null || notifications.isEmpty()) {
       return;
     }
+    deliver(claim(notifications));
+  }
+
+  @Override
+  public List<ODocument> claim(List<ODocument> notifications) {
+    if (notifications == null || notifications.isEmpty()) {
+      return Collections.emptyList();
+    }
     ODatabaseDocument db = ODatabaseRecordThreadLocal.instance().get();
+    ONotificationModule.Module module = ONotificationModuleRepository.getModule(db);
+    ODocument status = notificationDAO.getSendingStatus();
+    Date leaseUntil = new Date(System.currentTimeMillis() + module.getLeaseTimeout());
+
+    IONotification notification = DAO.create(IONotification.class);
+    List<ODocument> claimed = new ArrayList<>(notifications.size());
+
+    for (ODocument notificationDoc : notifications) {
+      notification.fromStream(notificationDoc);
+      try {
+        db.begin();
+        if (isLeaseExpired(notification, status)) {
+          // Worker which claimed the notification has died or hanged: it's counted as a failed attempt
+          int attempts = getAttempts(notification) + 1;
+          LOG.warn("Lease of notification {} has expired. Attempt {} of {}", notificationDoc.getIdentity(),
+                  attempts, module.getMaxAttempts());
+          notification.setAttempts(attempts);
+          if (attempts >= module.getMaxAttempts()) {
+            notification.addStatusHistory(IONotificationStatusHistory.create(new Date(), notificationDAO.getFailedStatus()));
+            notification.setStatus(notificationDAO.getFailedStatus());
+            notification.setNextAttempt(null);
+            notification.save();
+            db.commit();
+            continue;
+          }
+        }
+        notification.addStatusHistory(IONotificationStatusHistory.create(new Date(), status));
+        notification.setStatus(status);
+        notification.setNextAttempt(leaseUntil);
+        notification.save();
+        db.commit();
+        claimed.add(notificationDoc);
+      } catch (ONeedRetryException e) {
+        db.rollback();
+        LOG.info("Notification {} was skipped: it was changed concurrently, for example, claimed by another worker",
+                notificationDoc.getIdentity());
+      } catch (Exception e) {
+        db.rollback();
+        LOG.error("Couldn't claim notification: {}", notificationDoc.getIdentity(), e);
+      }
+    }
+    return claimed;
+  }
+
+  @Override
+  public void deliver(List<ODocument> notifications) {
+    if (notifications == null || notifications.isEmpty()) {
+      return;
+    }
+    ODatabaseDocument db = ODatabaseRecordThreadLocal.instance().get();
+    ONotificationModule.Module module = ONotificationModuleRepository.getModule(db);
 
     IONotification notification = DAO.create(IONotification.class);
     IONotificationTransport transportWrapper = DAO.create(IONotificationTransport.class);
 
-    notifications.forEach(notificationDoc -> {
+    for (ODocument notificationDoc : notifications) {
       notification.fromStream(notificationDoc);
       transportWrapper.fromStream(notification.getTransport());
-      ITransport transport = transportPool.acquire(transportWrapper.getAlias(), transportWrapper::createTransportService);
+      String alias = transportWrapper.getAlias();
+      ITransport transport = null;
 
-      for (int i = 1; i <= ATTEMPTS; i++) {
-        try {
-          if (i == 1) {
-            handleSendingNotificationStatus(db, notification);
-          }
-          LOG.info("Send notification: {} {}", Thread.currentThread().getName(), notification.getDocument());
-          transport.send(notificationDoc);
-          handleSentNotificationStatus(db, notification);
-          transportPool.release(transportWrapper.getAlias(), transport);
-          break;
-        } catch (Exception e) {
-          if (i == ATTEMPTS) {
-            handleFailedNotificationStatus(db, notification, e);
-          }
+      try {
+        transport = transportPool.acquire(alias, transportWrapper::createTransportService);
+        if (transport == null) {
+          throw new IllegalStateException("There is no transport service for: " + alias);
         }
+        LOG.debug("Send notification: {} {}", Thread.currentThread().getName(), notificationDoc);
+        transport.send(notificationDoc);
+      } catch (Exception e) {
+        // Transport can be broken, so it's better to open a new one for next notifications
+        transportPool.discard(alias, transport);
+        handleFailedAttempt(db, notification, module, e);
+        continue;
       }
-    });
+      transportPool.release(alias, transport);
+      updateNotificationStatus(db, notification, notificationDAO.getSentStatus(), notification.getAttempts(), null);
+    }
   }
 
-  private void handleSendingNotificationStatus(ODatabaseDocument db, IONotification notification) {
-    ODocument status = notificationDAO.getSendingStatus();
-    updateNotificationStatus(db, notification, status);
+  private static boolean isLeaseExpired(IONotification notification, ODocument sendingStatus) {
+    ODocument status = notification.getStatus();
+    return status != null && status.getIdentity().equals(sendingStatus.getIdentity());
+  }
+
+  private static int getAttempts(IONotification notification) {
+    Integer attempts = notification.getAttempts();
+    return attempts != null ? attempts : 0;
   }
 
-  private void handleSentNotificationStatus(ODatabaseDocument db, IONotification notification) {
-    ODocument status = notificationDAO.getSentStatus();
-    updateNotificationStatus(db, notification, status);
+  private void handleFailedAttempt(ODatabaseDocument db, IONotification notification, ONotificationModule.Module module, Exception e) {
+    int attempts = getAttempts(notification) + 1;
+
+    if (attempts >= module.getMaxAttempts()) {
+      LOG.warn("Couldn't send notification: {}", notification.getDocument(), e);
+      updateNotificationStatus(db, notification, notificationDAO.getFailedStatus(), attempts, null);
+    } else {
+      long delay = computeRetryDelay(module.getRetryDelay(), attempts);
+      LOG.info("Couldn't send notification: {}. Next attempt in {} ms", notification.getDocument(), delay, e);
+      updateNotificationStatus(db, notification, notificationDAO.getPendingStatus(), attempts,
+              new Date(System.currentTimeMillis() + delay));
+    }
   }
 
-  private void handleFailedNotificationStatus(ODatabaseDocument db, IONotification notification, Exception e) {
-    ODocument status = notificationDAO.getFailedStatus();
-    LOG.warn("Couldn't send notification: {}", notification.getDocument(), e);
-    updateNotificationStatus(db, notification, status);
+  /**
+   * Compute delay before next attempt: base delay is doubled for every failed attempt
+   * @param baseDelay delay after the first failed attempt
+   * @param attempts number of failed attempts
+   * @return delay in milliseconds, but not more than {@link #MAX_RETRY_DELAY}
+   */
+  public static long computeRetryDelay(long baseDelay, int attempts) {
+    int shift = Math.min(Math.max(attempts - 1, 0), 20);
+    return Math.min(MAX_RETRY_DELAY, baseDelay << shift);
   }
 
-  private void updateNotificationStatus(ODatabaseDocument db, IONotification notification, ODocument status) {
+  private void updateNotificationStatus(ODatabaseDocument db, IONotification notification, ODocument status,
+                                        Integer attempts, Date nextAttempt) {
     for (int i = 1; i <= 10; i++) {
       try {
         db.begin();
         notification.addStatusHistory(IONotificationStatusHistory.create(new Date(), status));
         notification.setStatus(status);
+        notification.setAttempts(attempts);
+        notification.setNextAttempt(nextAttempt);
         notification.save();
         db.commit();
         break;
       } catch (Exception e) {
+        db.rollback();
         if (i == 10) {
            LOG.error("Couldn't save notification: {}", notification.getDocument(), e);
         } else {
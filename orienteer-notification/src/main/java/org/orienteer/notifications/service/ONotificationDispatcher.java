@@ -0,0 +1,187 @@
+package org.orienteer.notifications.service;
+
+import com.google.common.collect.Lists;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import org.apache.wicket.ThreadContext;
+import org.orienteer.core.OrienteerWebApplication;
+import org.orienteer.core.dao.DAO;
+import org.orienteer.notifications.model.IONotification;
+import org.orienteer.notifications.model.IONotificationDAO;
+import org.orienteer.notifications.model.IONotificationTransport;
+import org.orienteer.notifications.module.ONotificationModule;
+import org.orienteer.notifications.repository.ONotificationModuleRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import ru.ydn.wicket.wicketorientdb.utils.DBClosure;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dispatcher of the notifications queue.
+ * Claims notifications which are ready to be sent in batches and delivers them on long-lived pool of workers.
+ * Number of workers which use the same transport simultaneously is limited by concurrency of the transport
+ */
+@Singleton
+public class ONotificationDispatcher {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ONotificationDispatcher.class);
+
+  private static final long SHUTDOWN_TIMEOUT = 10_000;
+
+  @Inject
+  private INotificationService notificationService;
+
+  @Inject
+  private IONotificationDAO notificationDAO;
+
+  private ThreadPoolExecutor executor;
+
+  /**
+   * Send all notifications which are ready to be sent.
+   * Method returns when all claimed notifications are processed
+   * @param db database to claim notifications from
+   * @return number of processed notifications
+   */
+  public int dispatch(ODatabaseDocument db) {
+    ONotificationModule.Module module = ONotificationModuleRepository.getModule(db);
+    ODocument pendingStatus = notificationDAO.getPendingStatus();
+    ODocument sendingStatus = notificationDAO.getSendingStatus();
+    int batchSize = module.getBatchSize();
+    int processed = 0;
+
+    while (!Thread.currentThread().isInterrupted()) {
+      List<ODocument> batch = notificationDAO.findNotificationsToSend(pendingStatus, sendingStatus, new Date(), batchSize);
+      List<ODocument> claimed = notificationService.claim(batch);
+      if (!claimed.isEmpty()) {
+        LOG.info("Sending {} notifications...", claimed.size());
+        deliver(module, claimed);
+        processed += claimed.size();
+      }
+      if (claimed.isEmpty() || batch.size() < batchSize) {
+        break;
+      }
+    }
+    return processed;
+  }
+
+  private void deliver(ONotificationModule.Module module, List<ODocument> notifications) {
+    OrienteerWebApplication app = OrienteerWebApplication.lookupApplication();
+    ThreadPoolExecutor executor = getExecutor(module.getWorkers());
+    List<Future<?>> futures = new ArrayList<>();
+
+    groupByTransport(notifications).forEach((transport, rids) -> {
+      Queue<List<ORID>> chunks = new ConcurrentLinkedQueue<>(Lists.partition(rids, module.getNotificationsPerWorker()));
+      int lanes = Math.min(getConcurrency(module, transport), chunks.size());
+      for (int i = 0; i < lanes; i++) {
+        futures.add(executor.submit(() -> deliverChunks(app, chunks)));
+      }
+    });
+
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        futures.forEach(f -> f.cancel(true));
+        Thread.currentThread().interrupt();
+        return;
+      } catch (ExecutionException e) {
+        LOG.error("Error during send notifications!", e.getCause());
+      }
+    }
+  }
+
+  private void deliverChunks(OrienteerWebApplication app, Queue<List<ORID>> chunks) {
+    ThreadContext.setApplication(app);
+    try {
+      DBClosure.sudoConsumer(db -> {
+        List<ORID> chunk;
+        while (!Thread.currentThread().isInterrupted() && (chunk = chunks.poll()) != null) {
+          List<ODocument> docs = new ArrayList<>(chunk.size());
+          for (ORID rid : chunk) {
+            ODocument doc = db.load(rid);
+            if (doc != null) {
+              docs.add(doc);
+            }
+          }
+          notificationService.deliver(docs);
+        }
+      });
+    } finally {
+      ThreadContext.detach();
+    }
+  }
+
+  private Map<ODocument, List<ORID>> groupByTransport(List<ODocument> notifications) {
+    IONotification notification = DAO.create(IONotification.class);
+    Map<ODocument, List<ORID>> grouped = new LinkedHashMap<>();
+    for (ODocument doc : notifications) {
+      notification.fromStream(doc);
+      grouped.computeIfAbsent(notification.getTransport(), k -> new ArrayList<>()).add(doc.getIdentity());
+    }
+    return grouped;
+  }
+
+  private int getConcurrency(ONotificationModule.Module module, ODocument transportDoc) {
+    IONotificationTransport transport = DAO.create(IONotificationTransport.class);
+    transport.fromStream(transportDoc);
+    Integer concurrency = transport.getConcurrency();
+    return Math.max(1, concurrency != null && concurrency > 0 ? concurrency : module.getTransportConcurrency());
+  }
+
+  private synchronized ThreadPoolExecutor getExecutor(int workers) {
+    workers = Math.max(1, workers);
+    if (executor == null) {
+      AtomicInteger counter = new AtomicInteger();
+      executor = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+        Thread thread = new Thread(r, "orienteer-notification-" + counter.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      });
+      executor.allowCoreThreadTimeOut(true);
+    } else if (executor.getMaximumPoolSize() < workers) {
+      executor.setMaximumPoolSize(workers);
+      executor.setCorePoolSize(workers);
+    } else if (executor.getMaximumPoolSize() > workers) {
+      executor.setCorePoolSize(workers);
+      executor.setMaximumPoolSize(workers);
+    }
+    return executor;
+  }
+
+  /**
+   * Stop workers of the dispatcher. Notifications which were claimed, but not sent, will be claimed again after expiration of the lease
+   */
+  public void shutdown() {
+    ThreadPoolExecutor executor;
+    synchronized (this) {
+      executor = this.executor;
+      this.executor = null;
+    }
+    if (executor != null) {
+      executor.shutdownNow();
+      try {
+        if (!executor.awaitTermination(SHUTDOWN_TIMEOUT, TimeUnit.MILLISECONDS)) {
+          LOG.warn("Workers of notifications dispatcher were not stopped in {} ms", SHUTDOWN_TIMEOUT);
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+}
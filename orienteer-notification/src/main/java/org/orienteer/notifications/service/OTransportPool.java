@@ -1,5 +1,9 @@
 package org.orienteer.notifications.service;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -10,6 +14,8 @@ import java.util.function.Supplier;
  */
 public class OTransportPool {
 
+  private static final Logger LOG = LoggerFactory.getLogger(OTransportPool.class);
+
   private final Map<String, ConcurrentLinkedQueue<ITransport>> resources;
   private final Map<String, ConcurrentLinkedQueue<ITransport>> usedResources;
 
@@ -44,4 +50,26 @@ public class OTransportPool {
     }
   }
 
+  /**
+   * Remove transport from the pool and close it. Should be used for transports which can't be used anymore
+   * @param alias alias of a transport
+   * @param transport transport to remove. Can be null
+   */
+  public void discard(String alias, ITransport transport) {
+    if (transport == null) {
+      return;
+    }
+    synchronized (this) {
+      ConcurrentLinkedQueue<ITransport> usedTransports = usedResources.get(alias);
+      if (usedTransports != null) {
+        usedTransports.remove(transport);
+      }
+    }
+    try {
+      transport.close();
+    } catch (IOException e) {
+      LOG.warn("Couldn't close transport: {}", alias, e);
+    }
+  }
+
 }
@@ -0,0 +1,177 @@
+package org.orienteer.notifications.test;
+
+import com.google.inject.Inject;
+import com.orientechnologies.orient.core.db.ODatabaseRecordThreadLocal;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocument;
+import com.orientechnologies.orient.core.record.impl.ODocument;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.orienteer.core.dao.DAO;
+import org.orienteer.junit.OrienteerTestRunner;
+import org.orienteer.junit.Sudo;
+import org.orienteer.notifications.model.IONotification;
+import org.orienteer.notifications.model.IONotificationDAO;
+import org.orienteer.notifications.model.IONotificationTransport;
+import org.orienteer.notifications.module.ONotificationModule;
+import org.orienteer.notifications.repository.ONotificationModuleRepository;
+import org.orienteer.notifications.scheduler.ONotificationScheduler;
+import org.orienteer.notifications.service.INotificationService;
+import org.orienteer.notifications.service.NotificationService;
+import org.orienteer.notifications.service.ONotificationDispatcher;
+import org.orienteer.notifications.testenv.OTestNotification;
+import org.orienteer.notifications.testenv.module.TestDataModule;
+import org.orienteer.notifications.testenv.service.OTestTransport;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@RunWith(OrienteerTestRunner.class)
+public class TestNotificationDispatcher {
+
+  @Inject
+  private INotificationService notificationService;
+
+  @Inject
+  private ONotificationDispatcher dispatcher;
+
+  @Inject
+  private IONotificationDAO notificationDAO;
+
+  private ODocument testTransport;
+
+  private List<IONotification> notifications;
+
+  @Before
+  @Sudo
+  public void init() {
+    ONotificationScheduler.stopAll();
+    testTransport = notificationDAO.findTransportByAlias(TestDataModule.TRANSPORT_TEST);
+    assertNotNull("There is no configured test notification transport", testTransport);
+    notifications = new LinkedList<>();
+  }
+
+  @After
+  @Sudo
+  public void destroy() {
+    ODatabaseDocument db = ODatabaseRecordThreadLocal.instance().get();
+    for (IONotification notification : notifications) {
+      db.delete(notification.getDocument().getIdentity());
+    }
+  }
+
+  @Test
+  @Sudo
+  public void testClaim() {
+    IONotification notification = createNotification();
+    long start = System.currentTimeMillis();
+
+    List<ODocument> claimed = notificationService.claim(Collections.singletonList(notification.getDocument()));
+    notification.reload();
+
+    assertEquals(1, claimed.size());
+    assertEquals(notificationDAO.getSendingStatus(), notification.getStatus());
+    assertNotNull(notification.getNextAttempt());
+    long leaseTimeout = ONotificationModuleRepository.getModule().getLeaseTimeout();
+    assertTrue(notification.getNextAttempt().getTime() >= start + leaseTimeout);
+  }
+
+  @Test
+  @Sudo
+  public void testStaleNotificationIsNotClaimed() {
+    IONotification notification = createNotification();
+    ODocument stale = notification.getDocument().copy();
+
+    assertEquals(1, notificationService.claim(Collections.singletonList(notification.getDocument())).size());
+    assertTrue(notificationService.claim(Collections.singletonList(stale)).isEmpty());
+  }
+
+  @Test
+  @Sudo
+  public void testExpiredLeaseIsCountedAsAttempt() {
+    IONotification notification = createNotification();
+    setSendingWithExpiredLease(notification, 0);
+
+    assertEquals(1, notificationService.claim(Collections.singletonList(notification.getDocument())).size());
+    notification.reload();
+    assertEquals(Integer.valueOf(1), notification.getAttempts());
+    assertEquals(notificationDAO.getSendingStatus(), notification.getStatus());
+  }
+
+  @Test
+  @Sudo
+  public void testExpiredLeaseOfLastAttemptFailsNotification() {
+    int maxAttempts = ONotificationModuleRepository.getModule().getMaxAttempts();
+    IONotification notification = createNotification();
+    setSendingWithExpiredLease(notification, maxAttempts - 1);
+
+    assertTrue(notificationService.claim(Collections.singletonList(notification.getDocument())).isEmpty());
+    notification.reload();
+    assertEquals(Integer.valueOf(maxAttempts), notification.getAttempts());
+    assertEquals(notificationDAO.getFailedStatus(), notification.getStatus());
+    assertNull(notification.getNextAttempt());
+  }
+
+  @Test
+  public void testRetryDelay() {
+    assertEquals(1000, NotificationService.computeRetryDelay(1000, 0));
+    assertEquals(1000, NotificationService.computeRetryDelay(1000, 1));
+    assertEquals(2000, NotificationService.computeRetryDelay(1000, 2));
+    assertEquals(8000, NotificationService.computeRetryDelay(1000, 4));
+    assertEquals(NotificationService.MAX_RETRY_DELAY, NotificationService.computeRetryDelay(1000, 30));
+    assertEquals(NotificationService.MAX_RETRY_DELAY, NotificationService.computeRetryDelay(NotificationService.MAX_RETRY_DELAY, 2));
+  }
+
+  @Test
+  @Sudo
+  public void testTransportConcurrency() {
+    ODatabaseDocument db = ODatabaseRecordThreadLocal.instance().get();
+    ONotificationModule.Module module = ONotificationModuleRepository.getModule(db);
+    int notificationsPerWorker = module.getNotificationsPerWorker();
+    IONotificationTransport transport = DAO.create(IONotificationTransport.class);
+    transport.fromStream(testTransport);
+    Integer concurrency = transport.getConcurrency();
+    try {
+      module.setNotificationsPerWorker(1).save();
+      transport.setConcurrency(2).save();
+      for (int i = 0; i < 6; i++) {
+        createNotification();
+      }
+      OTestTransport.MAX_ACTIVE.set(0);
+
+      assertTrue(dispatcher.dispatch(db) >= notifications.size());
+      assertEquals(2, OTestTransport.MAX_ACTIVE.get());
+      for (IONotification notification : notifications) {
+        notification.reload();
+        assertEquals(notificationDAO.getSentStatus(), notification.getStatus());
+      }
+    } finally {
+      module.setNotificationsPerWorker(notificationsPerWorker).save();
+      transport.reload();
+      transport.setConcurrency(concurrency).save();
+    }
+  }
+
+  private IONotification createNotification() {
+    IONotification notification = DAO.create(OTestNotification.class);
+    notification.setTransport(testTransport);
+    notification.save();
+    notifications.add(notification);
+    return notification;
+  }
+
+  private void setSendingWithExpiredLease(IONotification notification, int attempts) {
+    notification.setStatus(notificationDAO.getSendingStatus());
+    notification.setAttempts(attempts);
+    notification.setNextAttempt(new Date(System.currentTimeMillis() - 1000));
+    notification.save();
+  }
+}
@@ -6,11 +6,22 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class OTestTransport implements ITransport {
 
   public static final Logger LOG = LoggerFactory.getLogger(OTestTransport.class);
 
+  /**
+   * Number of notifications which are being sent right now
+   */
+  public static final AtomicInteger ACTIVE = new AtomicInteger();
+
+  /**
+   * Max number of notifications which were sent simultaneously
+   */
+  public static final AtomicInteger MAX_ACTIVE = new AtomicInteger();
+
   public OTestTransport(ODocument transportDocument) {
     super();
     LOG.info("Open transport connection for: {}", transportDocument);
@@ -18,10 +29,14 @@ public class OTestTransport implements ITransport {
 
   @Override
   public void send(ODocument notification) {
+    MAX_ACTIVE.accumulateAndGet(ACTIVE.incrementAndGet(), Math::max);
     try {
       Thread.sleep(3000);
       LOG.info("Send notification: {}", notification);
-    } catch (InterruptedException e) {}
+    } catch (InterruptedException e) {
+    } finally {
+      ACTIVE.decrementAndGet();
+    }
   }
 
   @Override